@@ -9,6 +9,7 @@ import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
 import fi.haagahelia.stockmanager.security.jwt.JWTAuthenticationEntryPoint;
 import fi.haagahelia.stockmanager.security.jwt.JWTUtils;
+import fi.haagahelia.stockmanager.service.user.BlockedEmployeeService;
 import jakarta.validation.Valid;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +17,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -34,13 +34,16 @@ public class AuthenticationController {
 
     private final AuthenticationManager authMan;
     private final EmployeeRepository eRepository;
+    private final BlockedEmployeeService blockedEmployees;
     private final BCryptPasswordEncoder passwordEncoder;
 
     @Autowired
-    public AuthenticationController(AuthenticationManager authMan, EmployeeRepository eRepository, BCryptPasswordEncoder passwordEncoder) {
+    public AuthenticationController(AuthenticationManager authMan, EmployeeRepository eRepository, BCryptPasswordEncoder passwordEncoder,
+                                    BlockedEmployeeService blockedEmployees) {
         this.authMan = authMan;
         this.eRepository = eRepository;
         this.passwordEncoder = passwordEncoder;
+        this.blockedEmployees = blockedEmployees;
     }
 
     /**
@@ -56,10 +59,9 @@ public class AuthenticationController {
     public ResponseEntity<?> login(@RequestBody @Valid EmpLoginDTO loginDTO) {
         log.info("Authentication for the user: '{}'.", loginDTO.getUsername());
         try {
-            if (!eRepository.existsByUsername(loginDTO.getUsername())) throw new BadCredentialsException("INVALID_USERNAME_OR_PASSWORD");
             Authentication auth = authMan.authenticate(new UsernamePasswordAuthenticationToken(loginDTO.getUsername(), loginDTO.getPassword()));
             SecurityContextHolder.getContext().setAuthentication(auth);
-            String token = JWTUtils.generateToken(auth.getName());
+            String token = JWTUtils.generateToken((Employee) auth.getPrincipal());
             AuthResponseDTO responseDTO = new AuthResponseDTO(token);
             log.info("Authentication successful for the user: '{}'.", loginDTO.getUsername());
             return new ResponseEntity<>(responseDTO, HttpStatus.OK);
@@ -78,9 +80,10 @@ public class AuthenticationController {
      * This method is used to update an employee password.
      * Firstly, we check that the given password are valid, not null, minimal length, and corresponding.
      *      If not, we return an HttpStatus.PRECONDITION_FAILED to the user.
-     * Secondly, we verify that the given current password is the same that the one in the database.
+     * Secondly, we search the user in the database (the authenticated user comes from the token, without password),
+     * and we verify that the given current password is the same that the one in the database.
      *      If not, we return an HttpStatus.BAD_REQUEST to the user.
-     * Thirdly, we search the user in the database, and we apply the new password.
+     * Thirdly, we apply the new password.
      * Finally, we save the new password, and we return an HttpStatus.OK to the user.
      *
      * @param user correspond to the authenticated user.
@@ -101,18 +104,19 @@ public class AuthenticationController {
                 ErrorResponse errorResponse = new ErrorResponse(HttpStatus.PRECONDITION_FAILED.getReasonPhrase(), "INVALID_DATA");
                 return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
             }
-            if (!passwordEncoder.matches(empPassword.getCurrentPassword(), user.getPassword())) {
-                log.info("User '{}' is requesting to change her/his password. CURRENT PASSWORD NOT CORRECT", user.getUsername());
-                ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_CURRENT_PASSWORD");
-                return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
-            }
             Optional<Employee> employeeOptional = eRepository.findByUsername(user.getUsername());
             if (employeeOptional.isEmpty()) {
                 throw new Exception("UNEXPECTED DATABASE MODIFICATION! Account not found, cannot modify password.");
             }
             Employee employee = employeeOptional.get();
+            if (!passwordEncoder.matches(empPassword.getCurrentPassword(), employee.getPassword())) {
+                log.info("User '{}' is requesting to change her/his password. CURRENT PASSWORD NOT CORRECT", user.getUsername());
+                ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_CURRENT_PASSWORD");
+                return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            }
             employee.setPassword(passwordEncoder.encode(empPassword.getNewPassword()));
-            eRepository.save(employee);
+            Employee savedEmployee = eRepository.save(employee);
+            blockedEmployees.update(savedEmployee);
             log.info("User '{}' is requesting to change her/his password.", user.getUsername());
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
@@ -0,0 +1,149 @@
+package fi.haagahelia.stockmanager.controller.common;
+
+import fi.haagahelia.stockmanager.controller.customer.CustomerController;
+import fi.haagahelia.stockmanager.controller.product.ProductController;
+import fi.haagahelia.stockmanager.controller.product.brand.BrandController;
+import fi.haagahelia.stockmanager.controller.product.category.CategoryController;
+import fi.haagahelia.stockmanager.controller.supplier.SupplierController;
+import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.SuggestionDTO;
+import fi.haagahelia.stockmanager.model.user.Employee;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.SuggestionType;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+@Log4j2
+@RestController
+@RequestMapping("/api/autocomplete")
+public class AutocompleteController {
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final AutocompleteService autocompleteService;
+
+    @Autowired
+    public AutocompleteController(AutocompleteService autocompleteService) {
+        this.autocompleteService = autocompleteService;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This method is used to create and add the HATEOAS link of the suggested entity to the SuggestionDTO model.
+     * @param suggestion The suggestion, that contains the reference of the entity.
+     * @return The DTO model with the HATEOAS link.
+     */
+    private SuggestionDTO createHATEOAS(AutocompleteService.Suggestion suggestion) {
+        SuggestionDTO suggestionDTO = SuggestionDTO.convert(suggestion);
+        Class<?> controller = switch (suggestion.type()) {
+            case PRODUCT -> ProductController.class;
+            case BRAND -> BrandController.class;
+            case CATEGORY -> CategoryController.class;
+            case SUPPLIER -> SupplierController.class;
+            case CUSTOMER -> CustomerController.class;
+        };
+        suggestionDTO.add(LinkTemplates.self(controller, suggestion.reference()));
+        return suggestionDTO;
+    }
+
+    /**
+     * This function is used to get the kinds of entity that the user wants, and that the user is allowed to see.
+     * The suppliers are only visible for the managers and the admins.
+     * @param user Corresponds to the authenticated user.
+     * @param types Corresponds to the comma separated types given by the user, null for all the types.
+     * @return The set of types, or null if a type is unknown.
+     */
+    private Set<SuggestionType> getAllowedTypes(Employee user, String types) {
+        Set<SuggestionType> allowedTypes = EnumSet.noneOf(SuggestionType.class);
+        if (types == null || types.isBlank()) {
+            allowedTypes.addAll(EnumSet.allOf(SuggestionType.class));
+        } else {
+            for (String type : types.split(",")) {
+                SuggestionType suggestionType = SuggestionType.from(type);
+                if (suggestionType == null) return null;
+                allowedTypes.add(suggestionType);
+            }
+        }
+        boolean canSeeSuppliers = user.getAuthorities().stream().map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> role.equals("ROLE_MANAGER") || role.equals("ROLE_ADMIN"));
+        if (!canSeeSuppliers) allowedTypes.remove(SuggestionType.SUPPLIER);
+        return allowedTypes;
+    }
+
+    /* ------------------------------------------------- API METHODS ------------------------------------------------ */
+
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get the suggestions (products, brands, categories, suppliers and customers) whose name
+     * starts with the text typed by the user. The suggestions come from an in-memory trie, no database query is done.
+     * Firstly, we check the text and the requested types.
+     * Secondly, we get the suggestions from the autocomplete service.
+     *      If there is no suggestion, return an HttpStatus.NO_CONTENT.
+     * Finally, we convert each suggestion as a SuggestionDTO with the link of the entity, and return them with an
+     * HttpStatus.OK.
+     *
+     * @param user Corresponds to the authenticated user.
+     * @param text Corresponds to the beginning of a word typed by the user.
+     * @param size Corresponds to the maximum number of suggestions (between 1 and 50).
+     * @param types Corresponds to the kinds of entity to suggest, comma separated (e.g. "product,brand"). All by default.
+     * @return a ResponseEntity containing a list of SuggestionDTO objects or an Error Message.
+     *      --> HttpStatus.OK if at least one suggestion has been found. (List of SuggestionDTO)
+     *      --> HttpStatus.NO_CONTENT if there is no suggestion. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the text is empty or if a type is unknown. (ErrorMessage)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getSuggestions(@AuthenticationPrincipal Employee user,
+                                            @RequestParam(name = "q", required = false) String text,
+                                            @RequestParam(defaultValue = "10") int size,
+                                            @RequestParam(required = false) String types) {
+        try {
+            log.debug("User {} is requesting the suggestions for: '{}'.", user.getUsername(), text);
+            if (text == null || text.isBlank()) {
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "EMPTY_SEARCH_QUERY");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            Set<SuggestionType> allowedTypes = getAllowedTypes(user, types);
+            if (allowedTypes == null) {
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_SUGGESTION_TYPE");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<AutocompleteService.Suggestion> suggestions = autocompleteService.suggest(text, Math.max(1, Math.min(size, 50)), allowedTypes);
+            if (suggestions.isEmpty()) {
+                ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_SUGGESTION_FOUND");
+                return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+            }
+            List<SuggestionDTO> suggestionDTOS = new ArrayList<>();
+            for (AutocompleteService.Suggestion suggestion : suggestions) {
+                suggestionDTOS.add(createHATEOAS(suggestion));
+            }
+            CollectionModel<SuggestionDTO> suggestionDTOCollection = CollectionModel.of(suggestionDTOS);
+            suggestionDTOCollection.add(linkTo(AutocompleteController.class).withSelfRel());
+            log.debug("User {} requested the suggestions for: '{}'. RETURNING DATA.", user.getUsername(), text);
+            return new ResponseEntity<>(suggestionDTOCollection, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the suggestions for: '{}'. UNEXPECTED ERROR!", user.getUsername(), text);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
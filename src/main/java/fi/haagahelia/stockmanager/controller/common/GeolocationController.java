@@ -1,18 +1,29 @@
 package fi.haagahelia.stockmanager.controller.common;
 
+import fi.haagahelia.stockmanager.dto.common.CursorPagedModel;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
 import fi.haagahelia.stockmanager.dto.common.GeolocationCuDTO;
 import fi.haagahelia.stockmanager.dto.common.GeolocationDTO;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.SlicedModel;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
 import fi.haagahelia.stockmanager.model.common.Geolocation;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.common.GeolocationRepository;
 import fi.haagahelia.stockmanager.repository.customer.CustomerRepository;
 import fi.haagahelia.stockmanager.repository.supplier.SupplierRepository;
+import fi.haagahelia.stockmanager.service.common.CountMode;
+import fi.haagahelia.stockmanager.service.common.GeolocationFingerprintService;
+import fi.haagahelia.stockmanager.service.common.KeysetPaginationService;
+import fi.haagahelia.stockmanager.service.common.KeysetSlice;
+import fi.haagahelia.stockmanager.service.common.PageQueryService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
@@ -42,12 +53,20 @@ public class GeolocationController {
     private final GeolocationRepository gRepository;
     private final CustomerRepository cRepository;
     private final SupplierRepository sRepository;
+    private final KeysetPaginationService keysetService;
+    private final PageQueryService pageQueryService;
+    private final GeolocationFingerprintService fingerprintService;
 
     @Autowired
-    public GeolocationController(GeolocationRepository gRepository, CustomerRepository cRepository, SupplierRepository sRepository) {
+    public GeolocationController(GeolocationRepository gRepository, CustomerRepository cRepository, SupplierRepository sRepository,
+                                 KeysetPaginationService keysetService,
+                                 PageQueryService pageQueryService, GeolocationFingerprintService fingerprintService) {
         this.gRepository = gRepository;
         this.cRepository = cRepository;
         this.sRepository = sRepository;
+        this.keysetService = keysetService;
+        this.pageQueryService = pageQueryService;
+        this.fingerprintService = fingerprintService;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -58,12 +77,27 @@ public class GeolocationController {
      * @return The dto model with the HATEOAS links.
      */
     private GeolocationDTO createHATEOAS(GeolocationDTO geolocationDTO) {
-        Link selfLink = linkTo(GeolocationController.class).slash(String.valueOf(geolocationDTO.getId())).withSelfRel();
-        Link collectionLink = linkTo(GeolocationController.class).withRel("geolocations");
+        Link selfLink = LinkTemplates.self(GeolocationController.class, String.valueOf(geolocationDTO.getId()));
+        Link collectionLink = LinkTemplates.link(GeolocationController.class, "geolocations");
         geolocationDTO.add(selfLink, collectionLink);
         return geolocationDTO;
     }
 
+    /**
+     * This function is used to convert a list of geolocations into a list of GeolocationDTO.
+     * It also adds the HATEOAS links on each element of the list.
+     * @param geolocations Corresponds to the geolocations to convert.
+     * @return The list of GeolocationDTO.
+     */
+    private List<GeolocationDTO> convertGeolocations(Iterable<Geolocation> geolocations) {
+        List<GeolocationDTO> geolocationDTOS = new ArrayList<>();
+        for (Geolocation geolocation : geolocations) {
+            GeolocationDTO geolocationDTO = GeolocationDTO.convert(geolocation);
+            geolocationDTOS.add(createHATEOAS(geolocationDTO));
+        }
+        return geolocationDTOS;
+    }
+
     /**
      * This function is used to ensure that a GeolocationCuDTO is valid.
      * We check the following constraints:
@@ -72,6 +106,7 @@ public class GeolocationController {
      *      - Postcode is not null and not empty.
      *      - Locality is not null and not empty.
      *      - Country is not null and not empty.
+     *      - No geolocation has the same address, whatever its case and its whitespaces (fingerprint).
      * @param geoCuDTO Corresponds to the geolocation that we have to validate.
      * @return A Pair object that contains an HttpStatus and the decision reason.
      */
@@ -86,8 +121,8 @@ public class GeolocationController {
         if (geoCuDTO.getLocality().length() < 1) return Pair.of(HttpStatus.BAD_REQUEST, "GEOLOCATION_LOCALITY_EMPTY");
         if (geoCuDTO.getCountry() == null) return Pair.of(HttpStatus.BAD_REQUEST, "GEOLOCATION_COUNTRY_NULL.");
         if (geoCuDTO.getCountry().length() < 1) return Pair.of(HttpStatus.BAD_REQUEST, "GEOLOCATION_COUNTRY_EMPTY.");
-        if (gRepository.existsByStreetNameAndStreetNumberAndPostcodeAndCountry(geoCuDTO.getStreetName(),
-                geoCuDTO.getStreetNumber(), geoCuDTO.getPostcode(), geoCuDTO.getCountry())) {
+        if (fingerprintService.exists(geoCuDTO.getStreetName(), geoCuDTO.getStreetNumber(), geoCuDTO.getPostcode(),
+                geoCuDTO.getCountry())) {
             return Pair.of(HttpStatus.CONFLICT, "GEOLOCATION_ALREADY_EXISTS");
         }
         return Pair.of(HttpStatus.ACCEPTED, "");
@@ -104,20 +139,29 @@ public class GeolocationController {
      * Thirdly, converting each Geolocation object into a GeolocationDTO one and adding HATEOAS links.
      * Fourthly, updating the PageModel of GeolocationDTO.
      * Finally, return the PageModel of GeolocationDTO object with HttpStatus.OK.
+     * If a cursor is given (even empty), the keyset pagination is used instead: no COUNT query is executed and the
+     * response contains the cursor of the next slice instead of the page metadata.
+     * The count parameter can be used to avoid the COUNT query: "none" returns a slice that only knows if a next page
+     * exists, "approximate" returns a total that can be a few seconds old.
      *
      * @param user authenticated Employee object
      * @param searchQuery the search query, which can be null or an empty string
+     * @param cursor the keyset pagination cursor, null to use the page pagination, empty for the first slice
+     * @param count the count mode of the page: none, approximate or exact (default)
      * @param pageable pagination information (page number, size, and sorting)
      * @param sort sorting information for the query
      * @return a ResponseEntity containing a page model of GeolocationDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one geolocation has been found. (Page of GeolocationDTO)
      *      --> HttpStatus.NO_CONTENT if no geolocation exists. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the cursor, the sort of the cursor or the count mode is invalid. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getGeolocations(@AuthenticationPrincipal Employee user,
                                                            @RequestParam(required = false) String searchQuery,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) String count,
                                                            @PageableDefault(size = 10) Pageable pageable,
                                                            @SortDefault.SortDefaults({
                                                                    @SortDefault(sort = "streetName", direction = Sort.Direction.ASC)}) Sort sort) {
@@ -127,23 +171,57 @@ public class GeolocationController {
             if (searchQuery != null && !searchQuery.isEmpty()) {
                 spec = (root, query, cb) -> cb.like(cb.lower(root.get("streetName")), "%" + searchQuery.toLowerCase() + "%");
             }
+            if (cursor != null) {
+                KeysetSlice<Geolocation> slice = keysetService.findSlice(Geolocation.class, null, spec, sort, cursor, pageable.getPageSize());
+                if (slice.isEmpty()) {
+                    log.info("User {} requested all the geolocations from the database. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_GEOLOCATION_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                CursorPagedModel<GeolocationDTO> geolocationDTOSlice = CursorPagedModel.of(convertGeolocations(slice.getContent()),
+                        slice, linkTo(GeolocationController.class));
+                geolocationDTOSlice.add(linkTo(GeolocationController.class).withRel("geolocations"));
+                log.info("User {} requested all the geolocations from the database. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(geolocationDTOSlice, HttpStatus.OK);
+            }
+            CountMode countMode = CountMode.from(count);
+            if (countMode == null) {
+                log.info("User {} requested all the geolocations from the database. INVALID COUNT MODE.", user.getUsername());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_COUNT_MODE");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<Geolocation> geolocations = gRepository.findAll(spec, pageable);
+            if (countMode == CountMode.NONE) {
+                Slice<Geolocation> geolocationsSlice = pageQueryService.findSlice(Geolocation.class, null, spec, pageable);
+                if (!geolocationsSlice.hasContent()) {
+                    log.info("User {} requested all the geolocations from the database. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_GEOLOCATION_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                SlicedModel<GeolocationDTO> geolocationDTOSlice = SlicedModel.of(convertGeolocations(geolocationsSlice.getContent()), geolocationsSlice,
+                        linkTo(GeolocationController.class));
+                geolocationDTOSlice.add(linkTo(GeolocationController.class).withRel("geolocations"));
+                log.info("User {} requested all the geolocations from the database. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(geolocationDTOSlice, HttpStatus.OK);
+            }
+            Page<Geolocation> geolocations = countMode == CountMode.APPROXIMATE
+                    ? pageQueryService.findApproximatePage(Geolocation.class, null, spec, pageable, searchQuery)
+                    : gRepository.findAll(spec, pageable);
             if (geolocations.getTotalElements() < 1) {
                 log.info("User {} requested all the geolocations from the database. NO DATA FOUND.", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_GEOLOCATION_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
             }
-            List<GeolocationDTO> geolocationDTOS = new ArrayList<>();
-            for (Geolocation geolocation : geolocations) {
-                GeolocationDTO geolocationDTO = GeolocationDTO.convert(geolocation);
-                geolocationDTOS.add(createHATEOAS(geolocationDTO));
-            }
+            List<GeolocationDTO> geolocationDTOS = convertGeolocations(geolocations);
             PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(geolocations.getSize(), geolocations.getNumber(), geolocations.getTotalElements());
             PagedModel<GeolocationDTO> geolocationDTOPage = PagedModel.of(geolocationDTOS, pmd);
             geolocationDTOPage.add(linkTo(GeolocationController.class).withRel("geolocations"));
             log.info("User {} requested all the geolocations from the database. RETURNING DATA.", user.getUsername());
             return new ResponseEntity<>(geolocationDTOPage, HttpStatus.OK);
+        } catch (PaginationCursorException e) {
+            log.info("User {} requested all the geolocations. INVALID CURSOR.", user.getUsername());
+            ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_PAGINATION_CURSOR");
+            return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             log.info("User {} requested all the geolocations. UNEXPECTED ERROR!", user.getUsername());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -193,6 +271,7 @@ public class GeolocationController {
      * Firstly, validation of the GeolocationCuDTO object provided by the user, using the validateGeolocation function.
      *      --> If the object is invalid, we return an HttpStatus that corresponds to the reason of the invalidation.
      * Secondly, create and set up Geolocation object. Saving the created Geolocation in the database.
+     *      --> If the same address has been saved in the meantime (unique fingerprint), return an HttpStatus.CONFLICT.
      * Thirdly, convert the returned Geolocation as a GeolocationDTO. Adding HATEOAS links.
      * Finally, returning the GeolocationDTO to the user with an HttpStatus.CREATED.
      *
@@ -223,7 +302,16 @@ public class GeolocationController {
 
             log.info("User {} requested to create and save a new geolocation ({} {}, {}, {}). SAVING DATA.",
                     user.getUsername(), geoCuDTO.getStreetName(), geoCuDTO.getStreetNumber(), geoCuDTO.getPostcode(), geoCuDTO.getCountry());
-            Geolocation savedGeolocation = gRepository.save(geolocation);
+            fingerprintService.register(geolocation.getFingerprint());
+            Geolocation savedGeolocation;
+            try {
+                savedGeolocation = gRepository.saveAndFlush(geolocation);
+            } catch (DataIntegrityViolationException e) {
+                log.info("User {} requested to create and save a new geolocation ({} {}, {}, {}). GEOLOCATION_ALREADY_EXISTS",
+                        user.getUsername(), geoCuDTO.getStreetName(), geoCuDTO.getStreetNumber(), geoCuDTO.getPostcode(), geoCuDTO.getCountry());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "GEOLOCATION_ALREADY_EXISTS");
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
             GeolocationDTO geolocationDTO = GeolocationDTO.convert(savedGeolocation);
             createHATEOAS(geolocationDTO);
             log.info("User {} requested to create and save a new geolocation ({} {}, {}, {}). GEOLOCATION CREATED AND SAVED.",
@@ -1,20 +1,38 @@
 package fi.haagahelia.stockmanager.controller.customer;
 
 import fi.haagahelia.stockmanager.controller.common.GeolocationController;
+import fi.haagahelia.stockmanager.dto.common.CursorPagedModel;
+import fi.haagahelia.stockmanager.dto.common.ETags;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.MultiGetModel;
+import fi.haagahelia.stockmanager.dto.common.SlicedModel;
 import fi.haagahelia.stockmanager.dto.customer.CustomerCuDTO;
 import fi.haagahelia.stockmanager.dto.customer.CustomerDTO;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
 import fi.haagahelia.stockmanager.model.common.Geolocation;
 import fi.haagahelia.stockmanager.model.customer.Customer;
+import fi.haagahelia.stockmanager.model.customer.order.CustomerOrder;
 import fi.haagahelia.stockmanager.model.user.Employee;
-import fi.haagahelia.stockmanager.repository.common.GeolocationRepository;
 import fi.haagahelia.stockmanager.repository.customer.CustomerRepository;
 import fi.haagahelia.stockmanager.repository.customer.order.CustomerOrderRepository;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.CountMode;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
+import fi.haagahelia.stockmanager.service.common.KeysetPaginationService;
+import fi.haagahelia.stockmanager.service.common.KeysetSlice;
+import fi.haagahelia.stockmanager.service.common.PageQueryService;
+import fi.haagahelia.stockmanager.service.common.SuggestionType;
+import fi.haagahelia.stockmanager.service.common.UniqueKey;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
@@ -27,6 +45,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -42,15 +61,28 @@ public class CustomerController {
     /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
 
     private final CustomerRepository cRepository;
-    private final GeolocationRepository gRepository;
     private final CustomerOrderRepository oRepository;
+    private final KeysetPaginationService keysetService;
+    private final PageQueryService pageQueryService;
+    private final AutocompleteService autocompleteService;
+    private final UniquenessGuard uniquenessGuard;
+    private final EntityLookupService entityLookup;
+    private final CollectionVersionService collectionVersions;
 
     @Autowired
-    public CustomerController(CustomerRepository cRepository, GeolocationRepository gRepository,
-                              CustomerOrderRepository oRepository) {
+    public CustomerController(CustomerRepository cRepository,
+                              CustomerOrderRepository oRepository, KeysetPaginationService keysetService,
+                              PageQueryService pageQueryService, AutocompleteService autocompleteService,
+                              UniquenessGuard uniquenessGuard, EntityLookupService entityLookup,
+                              CollectionVersionService collectionVersions) {
         this.cRepository = cRepository;
-        this.gRepository = gRepository;
         this.oRepository = oRepository;
+        this.keysetService = keysetService;
+        this.pageQueryService = pageQueryService;
+        this.autocompleteService = autocompleteService;
+        this.uniquenessGuard = uniquenessGuard;
+        this.entityLookup = entityLookup;
+        this.collectionVersions = collectionVersions;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -61,20 +93,35 @@ public class CustomerController {
      * @return The dto model with the HATEOAS links.
      */
     private CustomerDTO createHATEOAS(CustomerDTO customerDTO) {
-        Link selfLink = linkTo(CustomerController.class).slash(String.valueOf(customerDTO.getEmail())).withSelfRel();
+        Link selfLink = LinkTemplates.self(CustomerController.class, String.valueOf(customerDTO.getEmail()));
         customerDTO.add(selfLink);
-        Link collectionLink = linkTo(CustomerController.class).withRel("customers");
+        Link collectionLink = LinkTemplates.link(CustomerController.class, "customers");
         customerDTO.add(collectionLink);
         // Geolocation related field
         if (customerDTO.getGeolocationDTO() != null) {
             Long geolocationId = customerDTO.getGeolocationDTO().getId();
-            Link geolocation = linkTo(GeolocationController.class).slash(geolocationId).withRel("geolocation");
+            Link geolocation = LinkTemplates.link(GeolocationController.class, "geolocation", geolocationId);
             customerDTO.add(geolocation);
 
         }
         return customerDTO;
     }
 
+    /**
+     * This function is used to convert a list of customers into a list of CustomerDTO.
+     * It also adds the HATEOAS links on each element of the list.
+     * @param customers Corresponds to the customers to convert.
+     * @return The list of CustomerDTO.
+     */
+    private List<CustomerDTO> convertCustomers(Iterable<Customer> customers) {
+        List<CustomerDTO> customerDTOS = new ArrayList<>();
+        for (Customer customer : customers) {
+            CustomerDTO customerDTO = CustomerDTO.convert(customer);
+            customerDTOS.add(createHATEOAS(customerDTO));
+        }
+        return customerDTOS;
+    }
+
     /**
      * This function is used to validate a customer (before create or update)
      * We check the following constraints:
@@ -96,7 +143,7 @@ public class CustomerController {
         if (customerCuDTO.getEmail() == null) return Pair.of(HttpStatus.BAD_REQUEST, "CUSTOMER_EMAIL_NULL.");
         if (customerCuDTO.getEmail().length() < 1) return Pair.of(HttpStatus.BAD_REQUEST, "CUSTOMER_EMAIL_EMPTY");
         if (customerCuDTO.getGeolocationId() != null) {
-            if (!gRepository.existsById(customerCuDTO.getGeolocationId())) {
+            if (!entityLookup.existsById(Geolocation.class, customerCuDTO.getGeolocationId())) {
                 return Pair.of(HttpStatus.NOT_FOUND, "CUSTOMER_GEOLOCATION_NOT_FOUND");
             }
         }
@@ -104,7 +151,8 @@ public class CustomerController {
             if (!cRepository.existsByEmail(customerCuDTO.getEmail()))
                 return Pair.of(HttpStatus.NOT_FOUND, "CUSTOMER_NOT_FOUND.");
         } else {
-            if (cRepository.existsByEmail(customerCuDTO.getEmail()))
+            if (uniquenessGuard.mightExist(UniqueKey.CUSTOMER_EMAIL, customerCuDTO.getEmail())
+                    && cRepository.existsByEmail(customerCuDTO.getEmail()))
                 return Pair.of(HttpStatus.CONFLICT, "CUSTOMER_ALREADY_EXISTS.");
         }
         return Pair.of(HttpStatus.ACCEPTED, "");
@@ -120,7 +168,7 @@ public class CustomerController {
      */
     private void setGeolocationById(Customer customer, Long geoId, String username) {
         if (geoId != null) {
-            Optional<Geolocation> geolocationOptional = gRepository.findById(geoId);
+            Optional<Geolocation> geolocationOptional = entityLookup.findById(Geolocation.class, geoId);
             if (geolocationOptional.isPresent()) {
                 log.debug("User {} requested to create a new customer with the name: {}. Adding the geolocation with id: {}.",
                         username, customer.getFirstName() + customer.getLastName(), geoId);
@@ -142,52 +190,140 @@ public class CustomerController {
      *      If the list is empty, we return an empty ResponseEntity with an HttpStatus.NO_CONTENT.
      * Thirdly, we transform all the customers as a CustomerDTO objects. We also add the HATEOAS links.
      * Finally, we return the data in a ResponseEntity with the HttpStatus.OK.
+     * If a cursor is given (even empty), the keyset pagination is used instead: no COUNT query is executed and the
+     * response contains the cursor of the next slice instead of the page metadata.
+     * The count parameter can be used to avoid the COUNT query: "none" returns a slice that only knows if a next page
+     * exists, "approximate" returns a total that can be a few seconds old.
      *
      * @param user authenticated Employee object
      * @param searchQuery the search query, which can be null or an empty string
+     * @param cursor the keyset pagination cursor, null to use the page pagination, empty for the first slice
+     * @param count the count mode of the page: none, approximate or exact (default)
      * @param pageable pagination information (page number, size, and sorting)
      * @param sort sorting information for the query
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a page model of CustomerDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one customer has been found. (Page of CustomerDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.NO_CONTENT if no customer exists. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the cursor, the sort of the cursor or the count mode is invalid. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getCustomers(@AuthenticationPrincipal Employee user,
                                                         @RequestParam(required = false) String searchQuery,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) String count,
                                                         @PageableDefault(size = 10) Pageable pageable,
                                                         @SortDefault.SortDefaults({
-                                                                @SortDefault(sort = "email", direction = Sort.Direction.ASC)}) Sort sort) {
+                                                                @SortDefault(sort = "email", direction = Sort.Direction.ASC)}) Sort sort, WebRequest request) {
         try {
             log.info("User {} is requesting all the customers from the database.", user.getUsername());
+            if (request.checkNotModified(collectionVersions.etag(Customer.class))) {
+                log.info("User {} requested all the customers. NOT MODIFIED.", user.getUsername());
+                return null;
+            }
             Specification<Customer> spec = null;
             if (searchQuery != null && !searchQuery.isEmpty()) {
                 spec = (root, query, cb) -> cb.like(cb.lower(root.get("email")), "%" + searchQuery.toLowerCase() + "%");
             }
+            if (cursor != null) {
+                KeysetSlice<Customer> slice = keysetService.findSlice(Customer.class, null, spec, sort, cursor, pageable.getPageSize());
+                if (slice.isEmpty()) {
+                    log.info("User {} requested all the customers from the database. NO DATA FOUND", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_CUSTOMER_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                CursorPagedModel<CustomerDTO> customerDTOSlice = CursorPagedModel.of(convertCustomers(slice.getContent()),
+                        slice, linkTo(CustomerController.class));
+                customerDTOSlice.add(linkTo(CustomerController.class).withRel("customers"));
+                log.info("User {} requested all the customers. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(customerDTOSlice, HttpStatus.OK);
+            }
+            CountMode countMode = CountMode.from(count);
+            if (countMode == null) {
+                log.info("User {} requested all the customers from the database. INVALID COUNT MODE.", user.getUsername());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_COUNT_MODE");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<Customer> customers = cRepository.findAll(spec, pageable);
+            if (countMode == CountMode.NONE) {
+                Slice<Customer> customersSlice = pageQueryService.findSlice(Customer.class, null, spec, pageable);
+                if (!customersSlice.hasContent()) {
+                    log.info("User {} requested all the customers from the database. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_CUSTOMER_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                SlicedModel<CustomerDTO> customerDTOSlice = SlicedModel.of(convertCustomers(customersSlice.getContent()), customersSlice,
+                        linkTo(CustomerController.class));
+                customerDTOSlice.add(linkTo(CustomerController.class).withRel("customers"));
+                log.info("User {} requested all the customers from the database. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(customerDTOSlice, HttpStatus.OK);
+            }
+            Page<Customer> customers = countMode == CountMode.APPROXIMATE
+                    ? pageQueryService.findApproximatePage(Customer.class, null, spec, pageable, searchQuery)
+                    : cRepository.findAll(spec, pageable);
             if (customers.getTotalElements() < 1) {
                 log.info("User {} requested all the customers from the database. NO DATA FOUND", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_CUSTOMER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
             }
-            List<CustomerDTO> customerDTOS = new ArrayList<>();
-            for (Customer customer : customers) {
-                CustomerDTO customerDTO = CustomerDTO.convert(customer);
-                customerDTOS.add(createHATEOAS(customerDTO));
-            }
+            List<CustomerDTO> customerDTOS = convertCustomers(customers);
             PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(customers.getSize(), customers.getNumber(), customers.getTotalElements());
             PagedModel<CustomerDTO> customerDTOPage = PagedModel.of(customerDTOS, pmd);
             customerDTOPage.add(linkTo(CustomerController.class).withRel("customers"));
             log.info("User {} requested all the customers. RETURNING DATA.", user.getUsername());
             return new ResponseEntity<>(customerDTOPage, HttpStatus.OK);
+        } catch (PaginationCursorException e) {
+            log.info("User {} requested all the customers. INVALID CURSOR.", user.getUsername());
+            ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_PAGINATION_CURSOR");
+            return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             log.info("User {} requested all the customers. UNEXPECTED ERROR!", user.getUsername());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get several customers at once from their ids (?ids=1,2,3).
+     * Firstly, verification of the requested ids (at least one, at most MultiGetModel.MAX_IDS).
+     * Secondly, a single database query loads the customers with their geolocation.
+     * Finally, the CustomerDTOs are returned in the order of the request, the ids that have not been found are
+     * null in the content and listed in the missing ids.
+     *
+     * @param ids Corresponds to the ids of the customers requested by the user.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a MultiGetModel of CustomerDTO objects or an ErrorMessage.
+     *      --> HttpStatus.OK with the found customers and the missing ids.
+     *      --> HttpStatus.BAD_REQUEST if no id is given or if there are too many ids.
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
+     */
+    @GetMapping(params = "ids", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getCustomersByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the customers with ids: {}.", user.getUsername(), ids);
+            String error = MultiGetModel.validate(ids);
+            if (error != null) {
+                log.info("User {} requested the customers with ids: {}. {}.", user.getUsername(), ids, error);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), error);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<Customer> customers = cRepository.findByIdIn(MultiGetModel.distinct(ids));
+            MultiGetModel<CustomerDTO> model = MultiGetModel.of(ids, customers, Customer::getId,
+                    customer -> createHATEOAS(CustomerDTO.convert(customer)));
+            model.add(linkTo(CustomerController.class).withRel("customers"));
+            log.info("User {} requested the customers with ids: {}. RETURNING DATA ({} MISSING).",
+                    user.getUsername(), ids, model.getMissing().size());
+            return new ResponseEntity<>(model, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the customers with ids: {}. UNEXPECTED ERROR!", user.getUsername(), ids);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
      * This function is used to get a customer by its email.
@@ -199,16 +335,23 @@ public class CustomerController {
      *
      * @param email Corresponds to the email address of the searched customer.
      * @param user Corresponds to the authenticated user.
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a CustomerDTO objects or a Error Message.
      *      --> HttpStatus.OK if the customer exists. (CustomerDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.BAD_REQUEST if no customer corresponds to the id. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/{email}", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getCustomer(@PathVariable(value = "email") String email, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getCustomer(@PathVariable(value = "email") String email, @AuthenticationPrincipal Employee user, WebRequest request) {
         try {
             log.info("User {} is requesting the customer with email: '{}'.", user.getUsername(), email);
+            Optional<Long> revision = cRepository.findRevisionByEmail(email);
+            if (revision.isPresent() && request.checkNotModified(ETags.of("customer", email, revision.get()))) {
+                log.info("User {} requested the customer with email: '{}'. NOT MODIFIED.", user.getUsername(), email);
+                return null;
+            }
             Optional<Customer> customerOptional = cRepository.findByEmail(email);
             if (customerOptional.isEmpty()) {
                 log.info("User {} requested the customer with email: '{}'. NO DATA FOUND.", user.getUsername(), email);
@@ -257,7 +400,15 @@ public class CustomerController {
             customer.setLastName(customerCuDTO.getLastName()); customer.setEmail(customerCuDTO.getEmail());
             setGeolocationById(customer, customerCuDTO.getGeolocationId(), user.getUsername());
             log.debug("User {} requested to create and save a new customer with email: '{}'. SAVING CUSTOMER.", user.getUsername(), customer.getEmail());
-            Customer savedCustomer = cRepository.save(customer);
+            Customer savedCustomer;
+            try {
+                savedCustomer = cRepository.saveAndFlush(customer);
+            } catch (DataIntegrityViolationException e) {
+                log.info("User {} requested to create and save a new customer with email: '{}'. CUSTOMER_ALREADY_EXISTS.", user.getUsername(), customer.getEmail());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "CUSTOMER_ALREADY_EXISTS.");
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
+            autocompleteService.index(savedCustomer);
             CustomerDTO customerDTO = CustomerDTO.convert(savedCustomer);
             createHATEOAS(customerDTO);
             log.info("User {} requested to create and save a new customer with email: '{}'. RETURNING DATA.", user.getUsername(), savedCustomer.getEmail());
@@ -311,6 +462,7 @@ public class CustomerController {
             setGeolocationById(customer, customerCuDTO.getGeolocationId(), user.getUsername());
             log.debug("User {} requested to update the customer with email: '{}'. UPDATING CUSTOMER.", user.getUsername(), email);
             Customer savedCustomer = cRepository.save(customer);
+            autocompleteService.index(savedCustomer);
             CustomerDTO customerDTO = CustomerDTO.convert(savedCustomer);
             createHATEOAS(customerDTO);
             log.info("User {} requested to update the customer with email: '{}'. CUSTOMER UPDATED.", user.getUsername(), email);
@@ -350,8 +502,10 @@ public class CustomerController {
             Customer toDelete = customer.get();
             log.debug("User {} requested to delete the customer with email: '{}'. REMOVING RELATED ORDER.", user.getUsername(), email);
             oRepository.removeRelatedCustomer(toDelete.getId());
+            collectionVersions.changed(CustomerOrder.class);
             log.debug("User {} requested to delete the customer with email: '{}'. DELETING DATA.", user.getUsername(), email);
             cRepository.deleteById(toDelete.getId());
+            autocompleteService.remove(SuggestionType.CUSTOMER, toDelete.getId());
             log.info("User {} requested to delete the customer with email: '{}'. CUSTOMER DELETED.", user.getUsername(), email);
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
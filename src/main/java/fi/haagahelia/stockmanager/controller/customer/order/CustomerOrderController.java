@@ -3,24 +3,42 @@ package fi.haagahelia.stockmanager.controller.customer.order;
 
 import fi.haagahelia.stockmanager.controller.customer.CustomerController;
 import fi.haagahelia.stockmanager.controller.user.EmployeeController;
+import fi.haagahelia.stockmanager.controller.product.ProductController;
+import fi.haagahelia.stockmanager.dto.common.CursorPagedModel;
+import fi.haagahelia.stockmanager.dto.common.Embeds;
+import fi.haagahelia.stockmanager.dto.common.ETags;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.MultiGetModel;
+import fi.haagahelia.stockmanager.dto.common.SlicedModel;
 import fi.haagahelia.stockmanager.dto.customer.order.CustomerOrderCuDTO;
 import fi.haagahelia.stockmanager.dto.customer.order.CustomerOrderDTO;
+import fi.haagahelia.stockmanager.dto.customer.order.CustomerOrderLineDTO;
+import fi.haagahelia.stockmanager.dto.product.ProductSimpleDTO;
 import fi.haagahelia.stockmanager.exception.EmptyOrderException;
 import fi.haagahelia.stockmanager.exception.OrderStateException;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
 import fi.haagahelia.stockmanager.exception.ProductStockException;
 import fi.haagahelia.stockmanager.exception.UnknownOrderException;
 import fi.haagahelia.stockmanager.model.customer.Customer;
 import fi.haagahelia.stockmanager.model.customer.order.CustomerOrder;
+import fi.haagahelia.stockmanager.model.customer.order.CustomerOrderLine;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.customer.CustomerRepository;
 import fi.haagahelia.stockmanager.repository.customer.order.CustomerOrderRepository;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.CountMode;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
+import fi.haagahelia.stockmanager.service.common.KeysetPaginationService;
+import fi.haagahelia.stockmanager.service.common.KeysetSlice;
+import fi.haagahelia.stockmanager.service.common.PageQueryService;
 import fi.haagahelia.stockmanager.service.order.CustomerOrderService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
@@ -28,16 +46,16 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 
@@ -47,17 +65,32 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 @RequestMapping("/api/customers")
 public class CustomerOrderController {
 
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final Set<String> EMBEDDABLE = Set.of("employee", "customer", "lines", "lines.product");
+
     /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
 
     private final CustomerRepository cRepository;
     private final CustomerOrderRepository coRepository;
     private final CustomerOrderService orderManager;
+    private final KeysetPaginationService keysetService;
+    private final PageQueryService pageQueryService;
+    private final EntityLookupService entityLookup;
+    private final CollectionVersionService collectionVersions;
 
     @Autowired
-    public CustomerOrderController(CustomerRepository cRepository, CustomerOrderRepository coRepository, CustomerOrderService orderManager) {
+    public CustomerOrderController(CustomerRepository cRepository, CustomerOrderRepository coRepository, CustomerOrderService orderManager,
+                                   KeysetPaginationService keysetService,
+                                   PageQueryService pageQueryService, EntityLookupService entityLookup,
+                                   CollectionVersionService collectionVersions) {
         this.cRepository = cRepository;
         this.coRepository = coRepository;
         this.orderManager = orderManager;
+        this.keysetService = keysetService;
+        this.pageQueryService = pageQueryService;
+        this.entityLookup = entityLookup;
+        this.collectionVersions = collectionVersions;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -68,26 +101,62 @@ public class CustomerOrderController {
      * @return The dto model with the HATEOAS links.
      */
     private CustomerOrderDTO createHATEOAS(CustomerOrderDTO customerOrderDTO) {
-        Link selfLink = linkTo(CustomerOrderController.class).slash("/orders" + customerOrderDTO.getId()).withSelfRel();
+        Link selfLink = LinkTemplates.self(CustomerOrderController.class, "/orders" + customerOrderDTO.getId());
         customerOrderDTO.add(selfLink);
 
-        Link all = linkTo(CustomerOrderController.class).slash("/orders").withRel("customer-orders");
+        Link all = LinkTemplates.link(CustomerOrderController.class, "customer-orders", "/orders");
         customerOrderDTO.add(all);
         if (customerOrderDTO.getEmployeeDTO() != null) {
-            Link vendor = linkTo(EmployeeController.class).slash(customerOrderDTO.getEmployeeDTO().getId()).withRel("employee");
+            Link vendor = LinkTemplates.link(EmployeeController.class, "employee", customerOrderDTO.getEmployeeDTO().getId());
             customerOrderDTO.add(vendor);
         }
         if (customerOrderDTO.getCustomerDTO() != null) {
             Long customerId = customerOrderDTO.getId();
-            Link customer = linkTo(CustomerController.class).slash(customerId).withRel("customer");
+            Link customer = LinkTemplates.link(CustomerController.class, "customer", customerId);
             customerOrderDTO.add(customer);
 
-            Link orderOfACustomer = linkTo(CustomerOrderController.class).slash("/" + customerId + "/orders").withRel("this-customer-orders");
+            Link orderOfACustomer = LinkTemplates.link(CustomerOrderController.class, "this-customer-orders", "/" + customerId + "/orders");
             customerOrderDTO.add(orderOfACustomer);
         }
         return customerOrderDTO;
     }
 
+    /**
+     * This function is used to inline the requested relations of a customer order under "_embedded".
+     * The relations must have been fetched with the order (findWithRelationsById or findWithLinesById).
+     * @param orderDTO Corresponds to the converted order, it contains the employee and the customer.
+     * @param order Corresponds to the order entity, used to browse the lines.
+     * @param embeds Corresponds to the relations to embed (employee, customer, lines, lines.product).
+     * @return The embedded relations.
+     */
+    private Map<String, Object> embedRelations(CustomerOrderDTO orderDTO, CustomerOrder order, Set<String> embeds) {
+        Map<String, Object> embedded = new LinkedHashMap<>();
+        if (embeds.contains("employee") && orderDTO.getEmployeeDTO() != null) embedded.put("employee", orderDTO.getEmployeeDTO());
+        if (embeds.contains("customer") && orderDTO.getCustomerDTO() != null) embedded.put("customer", orderDTO.getCustomerDTO());
+        if (embeds.contains("lines")) {
+            // The lines only keep the id of their order, to avoid a reference cycle between the two DTOs.
+            CustomerOrderDTO lineOrderDTO = CustomerOrderDTO.builder().id(order.getId()).build();
+            List<CustomerOrderLineDTO> linesDTO = new ArrayList<>();
+            for (CustomerOrderLine line : order.getCustomerOrderLines()) {
+                ProductSimpleDTO productDTO = ProductSimpleDTO.convert(line.getProduct());
+                CustomerOrderLineDTO lineDTO = CustomerOrderLineDTO.builder()
+                        .quantity(line.getQuantity())
+                        .sellPrice(line.getSellPrice())
+                        .customerOrderDTO(lineOrderDTO)
+                        .productSimpleDTO(productDTO)
+                        .build();
+                CustomerOrderLineController.createHATEOAS(lineDTO);
+                if (embeds.contains("lines.product")) {
+                    productDTO.add(LinkTemplates.self(ProductController.class, productDTO.getId()));
+                    lineDTO.setEmbedded(Map.of("product", productDTO));
+                }
+                linesDTO.add(lineDTO);
+            }
+            embedded.put("lines", linesDTO);
+        }
+        return embedded;
+    }
+
     /**
      * This function is used to convert a List of CustomerOrder into a List of CustomerOrderDTO.
      * It also adds the HATEOAS links on each element of the list.
@@ -95,14 +164,35 @@ public class CustomerOrderController {
      * @return Corresponds to the list of CustomerOrderDTO.
      */
     private PagedModel<CustomerOrderDTO> convertList(Page<CustomerOrder> customerOrders) {
+        List<CustomerOrderDTO> customerOrderDTOS = convertOrders(customerOrders);
+        PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(customerOrders.getSize(), customerOrders.getNumber(), customerOrders.getTotalElements());
+        return PagedModel.of(customerOrderDTOS, pmd);
+    }
+
+    /**
+     * This function is used to convert a keyset slice of CustomerOrder into a CursorPagedModel of CustomerOrderDTO.
+     * It also adds the HATEOAS links on each element of the slice.
+     * @param slice Corresponds to the slice of CustomerOrder.
+     * @param base Corresponds to the link of the endpoint, used to build the link of the next slice.
+     * @return Corresponds to the slice of CustomerOrderDTO.
+     */
+    private CursorPagedModel<CustomerOrderDTO> convertSlice(KeysetSlice<CustomerOrder> slice, WebMvcLinkBuilder base) {
+        return CursorPagedModel.of(convertOrders(slice.getContent()), slice, base);
+    }
+
+    /**
+     * This function is used to convert CustomerOrder objects into CustomerOrderDTO objects, with their HATEOAS links.
+     * @param customerOrders Corresponds to the customer orders.
+     * @return Corresponds to the list of CustomerOrderDTO.
+     */
+    private List<CustomerOrderDTO> convertOrders(Iterable<CustomerOrder> customerOrders) {
         List<CustomerOrderDTO> customerOrderDTOS = new ArrayList<>();
         for (CustomerOrder customerOrder : customerOrders) {
             CustomerOrderDTO customerOrderDTO = CustomerOrderDTO.convert(customerOrder);
             createHATEOAS(customerOrderDTO);
             customerOrderDTOS.add(customerOrderDTO);
         }
-        PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(customerOrders.getSize(), customerOrders.getNumber(), customerOrders.getTotalElements());
-        return PagedModel.of(customerOrderDTOS, pmd);
+        return customerOrderDTOS;
     }
 
     /**
@@ -128,28 +218,76 @@ public class CustomerOrderController {
      *      If the list is empty, we return an HttpStatus.NO_CONTENT to the user.
      * Thirdly, we have to convert each CustomerOrder object as a CustomerOrderDTO object.
      * Finally, we return the data to the user with an HttpStatus.Ok.
+     * If a cursor is given (even empty), the keyset pagination is used instead: no COUNT query is executed and the
+     * response contains the cursor of the next slice instead of the page metadata.
+     * The count parameter can be used to avoid the COUNT query: "none" returns a slice that only knows if a next page
+     * exists, "approximate" returns a total that can be a few seconds old.
      * 
      * @param user Corresponds to the authenticated user.
+     * @param cursor the keyset pagination cursor, null to use the page pagination, empty for the first slice
+     * @param count the count mode of the page: none, approximate or exact (default)
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a page model of CustomerOrderDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one customer order has been found. (Page of CustomerOrderDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.NO_CONTENT if no customer order exists. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the cursor, the sort of the cursor or the count mode is invalid. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/orders", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getCustomerOrders(@AuthenticationPrincipal Employee user,
                                                              @RequestParam(required = false) String searchQuery,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) String count,
                                                              @PageableDefault(size = 10) Pageable pageable,
                                                              @SortDefault.SortDefaults({
-                                                                     @SortDefault(sort = "id", direction = Sort.Direction.ASC)}) Sort sort) {
+                                                                     @SortDefault(sort = "id", direction = Sort.Direction.ASC)}) Sort sort, WebRequest request) {
         try {
             log.info("User {} is requesting all the customer orders.", user.getUsername());
+            if (request.checkNotModified(collectionVersions.etag(CustomerOrder.class))) {
+                log.info("User {} requested all the customer orders. NOT MODIFIED.", user.getUsername());
+                return null;
+            }
             Specification<CustomerOrder> spec = null;
             if (searchQuery != null && !searchQuery.isEmpty()) {
                 spec = (root, query, cb) -> cb.like(cb.lower(root.get("id")), "%" + searchQuery.toLowerCase() + "%");
             }
+            if (cursor != null) {
+                KeysetSlice<CustomerOrder> slice = keysetService.findSlice(CustomerOrder.class, null, spec, sort, cursor, pageable.getPageSize());
+                if (slice.isEmpty()) {
+                    log.info("User {} requested all the customer orders. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_CUSTOMER_ORDER_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                CursorPagedModel<CustomerOrderDTO> customerOrderDTOSlice = convertSlice(slice, linkTo(CustomerOrderController.class).slash("orders"));
+                customerOrderDTOSlice.add(linkTo(CustomerOrderController.class).slash("orders").withRel("customers-orders"));
+                log.info("User {} requested all the customer orders. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(customerOrderDTOSlice, HttpStatus.OK);
+            }
+            CountMode countMode = CountMode.from(count);
+            if (countMode == null) {
+                log.info("User {} requested all the customer orders. INVALID COUNT MODE.", user.getUsername());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_COUNT_MODE");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<CustomerOrder> customerOrders = coRepository.findAll(spec, pageable);
+            if (countMode == CountMode.NONE) {
+                Slice<CustomerOrder> customerOrdersSlice = pageQueryService.findSlice(CustomerOrder.class, null, spec, pageable);
+                if (!customerOrdersSlice.hasContent()) {
+                    log.info("User {} requested all the customer orders. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_CUSTOMER_ORDER_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                SlicedModel<CustomerOrderDTO> customerOrderDTOSlice = SlicedModel.of(convertOrders(customerOrdersSlice.getContent()), customerOrdersSlice,
+                        linkTo(CustomerOrderController.class).slash("orders"));
+                customerOrderDTOSlice.add(linkTo(CustomerOrderController.class).slash("orders").withRel("customers-orders"));
+                log.info("User {} requested all the customer orders. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(customerOrderDTOSlice, HttpStatus.OK);
+            }
+            Page<CustomerOrder> customerOrders = countMode == CountMode.APPROXIMATE
+                    ? pageQueryService.findApproximatePage(CustomerOrder.class, null, spec, pageable, searchQuery)
+                    : coRepository.findAll(spec, pageable);
             if (customerOrders.getTotalElements() < 1) {
                 log.info("User {} requested all the customer orders. NO DATA FOUND.", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_CUSTOMER_ORDER_FOUND");
@@ -159,42 +297,106 @@ public class CustomerOrderController {
             customerOrderDTOPage.add(linkTo(CustomerOrderController.class).slash("orders").withRel("customers-orders"));
             log.info("User {} requested all the customer orders. RETURNING DATA.", user.getUsername());
             return new ResponseEntity<>(customerOrderDTOPage, HttpStatus.OK);
+        } catch (PaginationCursorException e) {
+            log.info("User {} requested all the customer orders. INVALID CURSOR.", user.getUsername());
+            ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_PAGINATION_CURSOR");
+            return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             log.info("User {} requested all the customer orders. UNEXPECTED ERROR!", user.getUsername());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get several customer orders at once from their ids (?ids=1,2,3).
+     * Firstly, verification of the requested ids (at least one, at most MultiGetModel.MAX_IDS).
+     * Secondly, a single database query loads the customer orders with their employee and customer (and its geolocation).
+     * Finally, the CustomerOrderDTOs are returned in the order of the request, the ids that have not been found are
+     * null in the content and listed in the missing ids.
+     *
+     * @param ids Corresponds to the ids of the customer orders requested by the user.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a MultiGetModel of CustomerOrderDTO objects or an ErrorMessage.
+     *      --> HttpStatus.OK with the found customer orders and the missing ids.
+     *      --> HttpStatus.BAD_REQUEST if no id is given or if there are too many ids.
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
+     */
+    @GetMapping(value = "/orders", params = "ids", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getCustomerOrdersByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the customer orders with ids: {}.", user.getUsername(), ids);
+            String error = MultiGetModel.validate(ids);
+            if (error != null) {
+                log.info("User {} requested the customer orders with ids: {}. {}.", user.getUsername(), ids, error);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), error);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<CustomerOrder> orders = coRepository.findByIdIn(MultiGetModel.distinct(ids));
+            MultiGetModel<CustomerOrderDTO> model = MultiGetModel.of(ids, orders, CustomerOrder::getId,
+                    order -> createHATEOAS(CustomerOrderDTO.convert(order)));
+            model.add(linkTo(CustomerOrderController.class).slash("orders").withRel("customers-orders"));
+            log.info("User {} requested the customer orders with ids: {}. RETURNING DATA ({} MISSING).",
+                    user.getUsername(), ids, model.getMissing().size());
+            return new ResponseEntity<>(model, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the customer orders with ids: {}. UNEXPECTED ERROR!", user.getUsername(), ids);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
      * This function is used to get a customer order by its id.
-     * Firstly, we find the customer order by id, using the CustomerOrderRepository.
+     * The embed parameter inlines the related resources under "_embedded" (embed=employee,customer,lines.product),
+     * they are fetched in the same query as the order.
+     * Firstly, we find the customer order by id, using the CustomerOrderRepository (with its lines if requested).
      * Secondly, we check that the returned Optional contains an order.
      *      If not, we return to the customer an HttpStatus.NO_CONTENT.
      * Thirdly, we convert the CustomerOrder as a CustomerOrderDTO.
-     * Finally, we add the HATEOAS links to the CustomerOrderDTO and we return all the data to the user.
+     * Finally, we add the HATEOAS links and the embedded relations to the CustomerOrderDTO and we return all the data
+     * to the user.
      * 
      * @param id Correspond to the id of the customer order that the user want to see.
      * @param user Corresponds to the authenticated user.
+     * @param embed Corresponds to the relations to embed, separated by commas (employee, customer, lines, lines.product).
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a CustomerOrderDTO objects or a Error Message.
      *      --> HttpStatus.OK if the customer order exists. (CustomerOrderDTO)
-     *      --> HttpStatus.BAD_REQUEST if no customer order corresponds to the id. (ErrorMessage)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
+     *      --> HttpStatus.BAD_REQUEST if no customer order corresponds to the id or if a relation can not be embedded. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/orders/{id}", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getCustomerOrder(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getCustomerOrder(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user,
+                                              @RequestParam(required = false) String embed, WebRequest request) {
         try {
             log.info("User {} is requesting the customer order with id: '{}'.", user.getUsername(), id);
-            Optional<CustomerOrder> orderOptional = coRepository.findById(id);
+            Set<String> embeds = Embeds.parse(embed, EMBEDDABLE);
+            if (embeds == null) {
+                log.info("User {} requested the customer order with id: '{}'. INVALID EMBED: '{}'.", user.getUsername(), id, embed);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), Embeds.INVALID_EMBED);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            // The embedded relations have their own revisions, only the plain representation is revalidated.
+            Optional<Long> revision = embeds.isEmpty() ? coRepository.findRevisionById(id) : Optional.empty();
+            if (revision.isPresent() && request.checkNotModified(ETags.of("customer-order", id, revision.get()))) {
+                log.info("User {} requested the customer order with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                return null;
+            }
+            Optional<CustomerOrder> orderOptional = embeds.contains("lines")
+                    ? coRepository.findWithLinesById(id) : coRepository.findWithRelationsById(id);
             if (orderOptional.isEmpty()) {
                 log.info("User {} requested the customer order with id: '{}'. NO DATA FOUND.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_CUSTOMER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            CustomerOrderDTO customerOrderDTO = CustomerOrderDTO.convert(orderOptional.get());
+            CustomerOrderDTO customerOrderDTO = createHATEOAS(CustomerOrderDTO.convert(orderOptional.get()));
+            if (!embeds.isEmpty()) customerOrderDTO.setEmbedded(embedRelations(customerOrderDTO, orderOptional.get(), embeds));
             log.info("User {} requested the customer order with id: '{}'. RETURNING DATA.", user.getUsername(), id);
-            return new ResponseEntity<>(createHATEOAS(customerOrderDTO), HttpStatus.OK);
+            return new ResponseEntity<>(customerOrderDTO, HttpStatus.OK);
         } catch (Exception e) {
             log.info("User {} requested the customer order with id: '{}'. UNEXPECTED ERROR!", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -342,7 +544,8 @@ public class CustomerOrderController {
                 return new ResponseEntity<>(bm, validation.getFirst());
             }
             CustomerOrder customerOrder = new CustomerOrder();
-            customerOrder.setEmployee(user); customerOrder.setDate(orderCuDTO.getDate());
+            customerOrder.setEmployee(entityLookup.findById(Employee.class, user.getId()).orElseThrow());
+            customerOrder.setDate(orderCuDTO.getDate());
             customerOrder.setDeliveryDate(orderCuDTO.getDeliveryDate()); customerOrder.setSent(false);
             if (orderCuDTO.getCustomerId() != null) {
                 Optional<Customer> customerOptional = cRepository.findById(orderCuDTO.getCustomerId());
@@ -564,7 +767,7 @@ public class CustomerOrderController {
     public ResponseEntity<?> deleteOrderForce(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting to delete the customer order with id: '{}'.", user.getUsername(), id);
-            if (!coRepository.existsById(id)) {
+            if (!entityLookup.existsById(CustomerOrder.class, id)) {
                 log.info("User {} requested to delete the customer order with id: '{}'. NO CUSTOMER ORDER.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_CUSTOMER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
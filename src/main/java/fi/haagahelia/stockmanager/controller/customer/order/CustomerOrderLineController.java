@@ -3,6 +3,7 @@ package fi.haagahelia.stockmanager.controller.customer.order;
 
 import fi.haagahelia.stockmanager.controller.product.ProductController;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
 import fi.haagahelia.stockmanager.dto.customer.order.CustomerOrderLineCuDTO;
 import fi.haagahelia.stockmanager.dto.customer.order.CustomerOrderLineDTO;
 import fi.haagahelia.stockmanager.model.customer.order.CustomerOrder;
@@ -13,6 +14,7 @@ import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.customer.order.CustomerOrderLineRepository;
 import fi.haagahelia.stockmanager.repository.customer.order.CustomerOrderRepository;
 import fi.haagahelia.stockmanager.repository.product.ProductRepository;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -46,12 +48,15 @@ public class CustomerOrderLineController {
     private final CustomerOrderRepository coRepository;
     private final CustomerOrderLineRepository lineRepository;
     private final ProductRepository pRepository;
+    private final EntityLookupService entityLookup;
 
     @Autowired
-    public CustomerOrderLineController(CustomerOrderRepository coRepository, CustomerOrderLineRepository lineRepository, ProductRepository pRepository) {
+    public CustomerOrderLineController(CustomerOrderRepository coRepository, CustomerOrderLineRepository lineRepository, ProductRepository pRepository,
+                                       EntityLookupService entityLookup) {
         this.coRepository = coRepository;
         this.lineRepository = lineRepository;
         this.pRepository = pRepository;
+        this.entityLookup = entityLookup;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -61,19 +66,19 @@ public class CustomerOrderLineController {
      * @param lineDTO The dto model to which we will add the HATEOAS links.
      * @return The dto model with the HATEOAS links.
      */
-    private CustomerOrderLineDTO createHATEOAS(CustomerOrderLineDTO lineDTO) {
+    static CustomerOrderLineDTO createHATEOAS(CustomerOrderLineDTO lineDTO) {
         Long orderId = lineDTO.getCustomerOrderDTO().getId();
         Long productId = lineDTO.getProductSimpleDTO().getId();
-        Link selfRel = linkTo(CustomerOrderLineController.class).slash("order=" + orderId).slash("details/product=").slash(productId).withSelfRel();
+        Link selfRel = LinkTemplates.self(CustomerOrderLineController.class, "order=" + orderId, "details/product=", productId);
         lineDTO.add(selfRel);
 
-        Link orderDetailsLink = linkTo(CustomerOrderLineController.class).slash("order=" + orderId).slash("details").withRel("order-details");
+        Link orderDetailsLink = LinkTemplates.link(CustomerOrderLineController.class, "order-details", "order=" + orderId, "details");
         lineDTO.add(orderDetailsLink);
 
-        Link orderLink = linkTo(CustomerOrderController.class).slash(orderId).withRel("order");
+        Link orderLink = LinkTemplates.link(CustomerOrderController.class, "order", orderId);
         lineDTO.add(orderLink);
 
-        Link productLink = linkTo(ProductController.class).slash(productId).withRel("product");
+        Link productLink = LinkTemplates.link(ProductController.class, "product", productId);
         lineDTO.add(productLink);
         return lineDTO;
     }
@@ -126,7 +131,7 @@ public class CustomerOrderLineController {
                                                                  @SortDefault(sort = "quantity", direction = Sort.Direction.ASC)}) Sort sort) {
         try {
             log.info("User {} is requesting the customer order lines of the order: {}.", user.getUsername(), orderId);
-            if (!coRepository.existsById(orderId)) {
+            if (!entityLookup.existsById(CustomerOrder.class, orderId)) {
                 log.info("User {} requested the customer order lines of the order: {}. ORDER NOT FOUND.", user.getUsername(), orderId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_CUSTOMER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -172,12 +177,12 @@ public class CustomerOrderLineController {
     public ResponseEntity<?> getCusOrderLine(@PathVariable(value = "orderId") Long orderId, @PathVariable(value = "productId") Long productId,  @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting the customer order line: orderId: '{}' ; productId: '{}'.", user.getUsername(), orderId, productId);
-            if (!coRepository.existsById(orderId)) {
+            if (!entityLookup.existsById(CustomerOrder.class, orderId)) {
                 log.info("User {} requested the customer order line: orderId: '{}' ; productId: '{}'. ORDER NOT FOUND.", user.getUsername(), orderId, productId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_CUSTOMER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            if (!pRepository.existsById(productId)) {
+            if (!entityLookup.existsById(Product.class, productId)) {
                 log.info("User {} requested the customer order line: orderId: '{}' ; productId: '{}'. PRODUCT NOT FOUND.", user.getUsername(), orderId, productId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_PRODUCT_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -4,43 +4,82 @@ package fi.haagahelia.stockmanager.controller.product;
 import fi.haagahelia.stockmanager.controller.product.brand.BrandController;
 import fi.haagahelia.stockmanager.controller.product.category.CategoryController;
 import fi.haagahelia.stockmanager.controller.supplier.SupplierController;
+import fi.haagahelia.stockmanager.dto.common.CursorPagedModel;
+import fi.haagahelia.stockmanager.dto.common.Embeds;
+import fi.haagahelia.stockmanager.dto.common.ETags;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.MultiGetModel;
+import fi.haagahelia.stockmanager.dto.common.SlicedModel;
+import fi.haagahelia.stockmanager.dto.product.ProductChangesDTO;
 import fi.haagahelia.stockmanager.dto.product.ProductCompleteDTO;
 import fi.haagahelia.stockmanager.dto.product.ProductCuDTO;
+import fi.haagahelia.stockmanager.dto.product.ProductImportReportDTO;
 import fi.haagahelia.stockmanager.dto.product.ProductSimpleDTO;
+import fi.haagahelia.stockmanager.dto.product.ProductSimpleProjection;
 import fi.haagahelia.stockmanager.dto.product.category.ProductDTO;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
 import fi.haagahelia.stockmanager.model.product.Product;
 import fi.haagahelia.stockmanager.model.product.brand.Brand;
 import fi.haagahelia.stockmanager.model.product.category.Category;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.customer.order.CustomerOrderLineRepository;
-import fi.haagahelia.stockmanager.repository.product.BrandRepository;
-import fi.haagahelia.stockmanager.repository.product.CategoryRepository;
 import fi.haagahelia.stockmanager.repository.product.ProductRepository;
-import fi.haagahelia.stockmanager.repository.supplier.SupplierRepository;
 import fi.haagahelia.stockmanager.repository.supplier.order.SupplierOrderLineRepository;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.CountMode;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
+import fi.haagahelia.stockmanager.service.common.KeysetPaginationService;
+import fi.haagahelia.stockmanager.service.common.KeysetSlice;
+import fi.haagahelia.stockmanager.service.common.PageQueryService;
+import fi.haagahelia.stockmanager.service.common.ReferenceDataService;
+import fi.haagahelia.stockmanager.service.common.SuggestionType;
+import fi.haagahelia.stockmanager.service.common.UniqueKey;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
+import fi.haagahelia.stockmanager.service.product.CatalogFormat;
+import fi.haagahelia.stockmanager.service.product.ProductCacheService;
+import fi.haagahelia.stockmanager.service.product.ProductChangeService;
+import fi.haagahelia.stockmanager.service.product.ProductExportService;
+import fi.haagahelia.stockmanager.service.product.ProductImportService;
+import fi.haagahelia.stockmanager.service.product.ProductSearchService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 
@@ -49,25 +88,53 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final Set<String> EMBEDDABLE = Set.of("brand", "category", "supplier");
+
     /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
 
     private final ProductRepository pRepository;
-    private final BrandRepository bRepository;
-    private final CategoryRepository cRepository;
-    private final SupplierRepository sRepository;
     private final SupplierOrderLineRepository solRepository;
     private final CustomerOrderLineRepository colRepository;
+    private final KeysetPaginationService keysetService;
+    private final PageQueryService pageQueryService;
+    private final ProductSearchService searchService;
+    private final AutocompleteService autocompleteService;
+    private final ProductCacheService productCache;
+    private final ProductImportService importService;
+    private final ProductExportService exportService;
+    private final ProductChangeService changeService;
+    private final ReferenceDataService referenceData;
+    private final UniquenessGuard uniquenessGuard;
+    private final EntityLookupService entityLookup;
+    private final CollectionVersionService collectionVersions;
 
     @Autowired
-    public ProductController(ProductRepository pRepository, BrandRepository bRepository, CategoryRepository cRepository,
-                             SupplierRepository sRepository, SupplierOrderLineRepository solRepository,
-                             CustomerOrderLineRepository colRepository) {
+    public ProductController(ProductRepository pRepository,
+                             SupplierOrderLineRepository solRepository,
+                             CustomerOrderLineRepository colRepository, KeysetPaginationService keysetService,
+                             PageQueryService pageQueryService, ProductSearchService searchService,
+                             AutocompleteService autocompleteService, ProductCacheService productCache,
+                             ProductImportService importService, ProductExportService exportService,
+                             ProductChangeService changeService, ReferenceDataService referenceData,
+                             UniquenessGuard uniquenessGuard, EntityLookupService entityLookup,
+                             CollectionVersionService collectionVersions) {
         this.pRepository = pRepository;
-        this.bRepository = bRepository;
-        this.cRepository = cRepository;
-        this.sRepository = sRepository;
         this.solRepository = solRepository;
         this.colRepository = colRepository;
+        this.keysetService = keysetService;
+        this.pageQueryService = pageQueryService;
+        this.searchService = searchService;
+        this.autocompleteService = autocompleteService;
+        this.productCache = productCache;
+        this.importService = importService;
+        this.exportService = exportService;
+        this.changeService = changeService;
+        this.referenceData = referenceData;
+        this.uniquenessGuard = uniquenessGuard;
+        this.entityLookup = entityLookup;
+        this.collectionVersions = collectionVersions;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -77,32 +144,105 @@ public class ProductController {
      * @param productDTO The dto model to which we will add the HATEOAS links.
      */
     private void createHATEOAS(ProductDTO productDTO) {
-        Link selfLink = linkTo(ProductController.class).slash(String.valueOf(productDTO.getId())).withSelfRel();
+        Link selfLink = LinkTemplates.self(ProductController.class, String.valueOf(productDTO.getId()));
         productDTO.add(selfLink);
-        Link collectionLink = linkTo(ProductController.class).slash("").withRel("products");
+        Link collectionLink = LinkTemplates.link(ProductController.class, "products", "");
         productDTO.add(collectionLink);
 
         // Related object link
         if (productDTO.getBrand() != null) {
-            Link brandLink = linkTo(BrandController.class)
-                    .slash(String.valueOf(productDTO.getBrand().getId())).withRel("brand");
+            Link brandLink = LinkTemplates.link(BrandController.class, "brand", String.valueOf(productDTO.getBrand().getId()));
             productDTO.add(brandLink);
         }
 
         if (productDTO.getCategory() != null) {
-            Link categoryLink = linkTo(CategoryController.class)
-                    .slash(String.valueOf(productDTO.getCategory().getId())).withRel("category");
+            Link categoryLink = LinkTemplates.link(CategoryController.class, "category", String.valueOf(productDTO.getCategory().getId()));
             productDTO.add(categoryLink);
         }
         // Supplier link
         if (productDTO.getClass() == ProductCompleteDTO.class) {
             ProductCompleteDTO prodCompDTO = (ProductCompleteDTO) productDTO;
-            Link supplierLink = linkTo(SupplierController.class)
-                    .slash(String.valueOf(prodCompDTO.getSupplier().getId())).withRel("supplier");
+            Link supplierLink = LinkTemplates.link(SupplierController.class, "supplier", String.valueOf(prodCompDTO.getSupplier().getId()));
             productDTO.add(supplierLink);
         }
     }
 
+    /**
+     * This function is used to give its own timeout to the StreamingResponseBody returned for a request, instead of the
+     * default timeout of the asynchronous requests. The timeout is set on the asynchronous request when it is started.
+     * @param request Corresponds to the request that returns the StreamingResponseBody.
+     * @param timeout Corresponds to the timeout, in milliseconds.
+     */
+    private static void setStreamingTimeout(WebRequest request, long timeout) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor("streamingTimeout", new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                if (asyncRequest instanceof AsyncWebRequest asyncWebRequest) asyncWebRequest.setTimeout(timeout);
+            }
+        });
+    }
+
+    /**
+     * This function is used to convert a list of products into a list of ProductSimpleDTO.
+     * It also adds the HATEOAS links on each element of the list.
+     * @param products Corresponds to the products to convert.
+     * @return The list of ProductSimpleDTO.
+     */
+    private List<ProductSimpleDTO> convertProducts(Iterable<Product> products) {
+        List<ProductSimpleDTO> productsDTO = new ArrayList<>();
+        for (Product product : products) {
+            ProductSimpleDTO productSimpleDTO = ProductSimpleDTO.convert(product);
+            createHATEOAS(productSimpleDTO);
+            productsDTO.add(productSimpleDTO);
+        }
+        return productsDTO;
+    }
+
+    /**
+     * This function is used to copy a cached ProductSimpleDTO and add the HATEOAS links to the copy.
+     * The cached DTOs have no links, the links are built from the current request.
+     * @param productDTO Corresponds to the cached product, without links.
+     * @return The copy of the ProductSimpleDTO with the HATEOAS links.
+     */
+    private ProductSimpleDTO withHATEOAS(ProductSimpleDTO productDTO) {
+        ProductSimpleDTO linkedDTO = productDTO.toBuilder().build();
+        createHATEOAS(linkedDTO);
+        return linkedDTO;
+    }
+
+    /**
+     * This function is used to copy a cached ProductCompleteDTO, inline the requested relations under "_embedded" and
+     * add the HATEOAS links to the copy.
+     * @param productDTO Corresponds to the detailed product, without links.
+     * @param embeds Corresponds to the relations to embed (brand, category, supplier).
+     * @return The copy of the ProductCompleteDTO with the embedded relations and the HATEOAS links.
+     */
+    private ProductCompleteDTO withHATEOAS(ProductCompleteDTO productDTO, Set<String> embeds) {
+        Map<String, Object> embedded = new LinkedHashMap<>();
+        if (embeds.contains("brand") && productDTO.getBrand() != null) embedded.put("brand", productDTO.getBrand());
+        if (embeds.contains("category") && productDTO.getCategory() != null) embedded.put("category", productDTO.getCategory());
+        if (embeds.contains("supplier") && productDTO.getSupplier() != null) embedded.put("supplier", productDTO.getSupplier());
+        ProductCompleteDTO linkedDTO = productDTO.toBuilder().embedded(embedded).build();
+        createHATEOAS(linkedDTO);
+        return linkedDTO;
+    }
+
+    /**
+     * This function is used to convert product projections (read without loading any entity) into ProductSimpleDTO.
+     * It also adds the HATEOAS links on each element.
+     * @param products Corresponds to the product projections.
+     * @return Corresponds to the list of ProductSimpleDTO.
+     */
+    private List<ProductSimpleDTO> convertProjections(Iterable<ProductSimpleProjection> products) {
+        List<ProductSimpleDTO> productsDTO = new ArrayList<>();
+        for (ProductSimpleProjection product : products) {
+            ProductSimpleDTO productSimpleDTO = ProductSimpleDTO.convert(product);
+            createHATEOAS(productSimpleDTO);
+            productsDTO.add(productSimpleDTO);
+        }
+        return productsDTO;
+    }
+
     /**
      * This function is used to create or convert a ProductCuDTO to a product.
      * @param productCuDTO the ProductCuDTO that contains the data
@@ -158,17 +298,19 @@ public class ProductController {
         if (productCuDTO.getBatchSize() < 0) {
             return Pair.of(HttpStatus.BAD_REQUEST, "PRODUCT_INVALID_BATCH_SIZE");
         }
-        if (productCuDTO.getBrandId() == null || !bRepository.existsById(productCuDTO.getBrandId())) {
+        if (productCuDTO.getBrandId() == null || !referenceData.brandExists(productCuDTO.getBrandId())) {
             return Pair.of(HttpStatus.NOT_FOUND, "PRODUCT_INVALID_BRAND_ID");
         }
-        if (productCuDTO.getCategoryId() == null || !cRepository.existsById(productCuDTO.getCategoryId())) {
+        if (productCuDTO.getCategoryId() == null || !referenceData.categoryExists(productCuDTO.getCategoryId())) {
             return Pair.of(HttpStatus.NOT_FOUND, "PRODUCT_INVALID_CATEGORY_ID");
         }
-        if (productCuDTO.getSupplierId() == null || !sRepository.existsById(productCuDTO.getSupplierId())) {
+        if (productCuDTO.getSupplierId() == null || !entityLookup.existsById(Supplier.class, productCuDTO.getSupplierId())) {
             return Pair.of(HttpStatus.NOT_FOUND, "PRODUCT_INVALID_SUPPLIER_ID");
         }
         if (!isUpdate) {
-            if (pRepository.existsByNameAndSupplierId(productCuDTO.getName(), productCuDTO.getSupplierId())) {
+            if (uniquenessGuard.mightExist(UniqueKey.PRODUCT_NAME_SUPPLIER, productCuDTO.getName(),
+                    productCuDTO.getSupplierId())
+                    && pRepository.existsByNameAndSupplierId(productCuDTO.getName(), productCuDTO.getSupplierId())) {
                 return Pair.of(HttpStatus.CONFLICT, "PRODUCT_ALREADY_EXISTS");
             }
         }
@@ -181,59 +323,254 @@ public class ProductController {
     /**
      * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
      * This function is used to get all the products.
-     * Firstly, database query to find all products through the product repository.
+     * Firstly, database query to find all products through the product repository. The products are read as projections
+     * joined with their brand and category: one query for the page (plus the COUNT query), and no entity is loaded.
      * Secondly, check that the returned page is not empty
      *      If page empty, return an HttpStatus.NO_CONTENT.
      * Thirdly, convert each product to as a ProductDTO object. Also adding the HATEOAS links.
      * Finally, return the PageModel of ProductDTO object with HttpStatus.OK.
+     * If a cursor is given (even empty), the keyset pagination is used instead: no COUNT query is executed and the
+     * response contains the cursor of the next slice instead of the page metadata.
+     * The count parameter can be used to avoid the COUNT query: "none" returns a slice that only knows if a next page
+     * exists, "approximate" returns a total that can be a few seconds old.
      *
      * @param user authenticated Employee object
      * @param searchQuery the search query, which can be null or an empty string
+     * @param cursor the keyset pagination cursor, null to use the page pagination, empty for the first slice
+     * @param count the count mode of the page: none, approximate or exact (default)
      * @param pageable pagination information (page number, size, and sorting)
      * @param sort sorting information for the query
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a page model of ProductDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one product has been found. (Page of ProductDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.NO_CONTENT if no product exists. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the cursor, the sort of the cursor or the count mode is invalid. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getProduct(@AuthenticationPrincipal Employee user, @RequestParam(required = false) String searchQuery,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) String count,
                                         @PageableDefault(size = 10) Pageable pageable,
-                                        @SortDefault.SortDefaults({ @SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort) {
+                                        @SortDefault.SortDefaults({ @SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort, WebRequest request) {
         try {
             log.info("User {} is requesting all the products.", user.getUsername());
+            if (request.checkNotModified(collectionVersions.etag(Product.class))) {
+                log.info("User {} requested all the products. NOT MODIFIED.", user.getUsername());
+                return null;
+            }
             Specification<Product> spec = null;
             if (searchQuery != null && !searchQuery.isEmpty()) {
                 spec = (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + searchQuery.toLowerCase() + "%");
             }
+            if (cursor != null) {
+                KeysetSlice<Product> slice = keysetService.findSlice(Product.class, "Product.brandCategory", spec, sort, cursor,
+                        pageable.getPageSize());
+                if (slice.isEmpty()) {
+                    log.info("User {} requested all the products. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_PRODUCT_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                CursorPagedModel<ProductSimpleDTO> productDTOSlice = CursorPagedModel.of(convertProducts(slice.getContent()),
+                        slice, linkTo(ProductController.class));
+                productDTOSlice.add(linkTo(ProductController.class).withRel("products"));
+                log.info("User {} requested all the products. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(productDTOSlice, HttpStatus.OK);
+            }
+            CountMode countMode = CountMode.from(count);
+            if (countMode == null) {
+                log.info("User {} requested all the products. INVALID COUNT MODE.", user.getUsername());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_COUNT_MODE");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<Product> products = pRepository.findAll(spec, pageable);
+            String search = searchQuery != null && !searchQuery.isEmpty() ? "%" + searchQuery.toLowerCase() + "%" : null;
+            if (countMode == CountMode.NONE) {
+                Slice<ProductSimpleProjection> productsSlice = pRepository.findSimpleProjectionSlice(search, pageable);
+                if (!productsSlice.hasContent()) {
+                    log.info("User {} requested all the products. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_PRODUCT_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                SlicedModel<ProductSimpleDTO> productDTOSlice = SlicedModel.of(convertProjections(productsSlice.getContent()),
+                        productsSlice, linkTo(ProductController.class));
+                productDTOSlice.add(linkTo(ProductController.class).withRel("products"));
+                log.info("User {} requested all the products. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(productDTOSlice, HttpStatus.OK);
+            }
+            Page<ProductSimpleProjection> products = countMode == CountMode.APPROXIMATE
+                    ? pageQueryService.toApproximatePage(pRepository.findSimpleProjectionSlice(search, pageable), pageable,
+                            Product.class, searchQuery, () -> pRepository.countSimpleProjections(search))
+                    : pRepository.findSimpleProjections(search, pageable);
             if (products.getTotalElements() < 1) {
                 log.info("User {} requested all the products. NO DATA FOUND.", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_PRODUCT_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
             }
-            List<ProductSimpleDTO> productsDTO = new ArrayList<>();
-            for (Product product : products) {
-                ProductSimpleDTO productSimpleDTO = ProductSimpleDTO.convert(product);
-                createHATEOAS(productSimpleDTO);
-                productsDTO.add(productSimpleDTO);
-            }
+            List<ProductSimpleDTO> productsDTO = convertProjections(products);
             PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(products.getSize(), products.getNumber(), products.getTotalElements());
             PagedModel<ProductSimpleDTO> productDTOPage = PagedModel.of(productsDTO, pmd);
             productDTOPage.add(linkTo(ProductController.class).withRel("products"));
             log.info("User {} requested all the products. RETURNING DATA.", user.getUsername());
             return new ResponseEntity<>(productDTOPage, HttpStatus.OK);
+        } catch (PaginationCursorException e) {
+            log.info("User {} requested all the products. INVALID CURSOR.", user.getUsername());
+            ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_PAGINATION_CURSOR");
+            return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             log.info("User {} requested all the products. UNEXPECTED ERROR.", user.getUsername());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get several products at once from their ids (?ids=1,2,3).
+     * Firstly, verification of the requested ids (at least one, at most MultiGetModel.MAX_IDS).
+     * Secondly, the products already in the cache are taken from it, the others are loaded in a single database query
+     * with their brand and category, converted as ProductSimpleDTO and cached. The HATEOAS links are added to each.
+     * Finally, the ProductSimpleDTOs are returned in the order of the request, the ids that have not been found are
+     * null in the content and listed in the missing ids.
+     *
+     * @param ids Corresponds to the ids of the products requested by the user.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a MultiGetModel of ProductSimpleDTO objects or a Error Message.
+     *      --> HttpStatus.OK with the found products and the missing ids.
+     *      --> HttpStatus.BAD_REQUEST if no id is given or if there are too many ids. (ErrorMessage)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(params = "ids", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getProductsByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the products with ids: {}.", user.getUsername(), ids);
+            String error = MultiGetModel.validate(ids);
+            if (error != null) {
+                log.info("User {} requested the products with ids: {}. {}.", user.getUsername(), ids, error);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), error);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<ProductSimpleDTO> productsDTO = new ArrayList<>();
+            Set<Long> toLoad = new HashSet<>();
+            for (Long id : MultiGetModel.distinct(ids)) {
+                ProductCacheService.CachedProduct<ProductSimpleDTO> cachedProduct = productCache.getSimple(id);
+                if (cachedProduct != null) productsDTO.add(withHATEOAS(cachedProduct.product()));
+                else toLoad.add(id);
+            }
+            if (!toLoad.isEmpty()) {
+                long generation = productCache.generation();
+                for (Product product : pRepository.findByIdIn(toLoad)) {
+                    ProductSimpleDTO productSimpleDTO = ProductSimpleDTO.convert(product);
+                    productCache.putSimple(product.getId(), productSimpleDTO, product.getRevision(), generation);
+                    productsDTO.add(withHATEOAS(productSimpleDTO));
+                }
+            }
+            MultiGetModel<ProductSimpleDTO> model = MultiGetModel.of(ids, productsDTO, ProductSimpleDTO::getId,
+                    Function.identity());
+            model.add(linkTo(ProductController.class).withRel("products"));
+            log.info("User {} requested the products with ids: {}. RETURNING DATA ({} MISSING).",
+                    user.getUsername(), ids, model.getMissing().size());
+            return new ResponseEntity<>(model, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the products with ids: {}. UNEXPECTED ERROR.", user.getUsername(), ids);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to search products by text, in their name, description, brand and category.
+     * Firstly, we check that the text is not empty.
+     * Secondly, we get the ids of the matching products from the search index, ordered by relevance.
+     *      If no product matches, return an HttpStatus.NO_CONTENT.
+     * Thirdly, we load all these products in one query, and we convert them as ProductSimpleDTO, in the order of
+     * relevance. Also adding the HATEOAS links.
+     * Finally, return the list of ProductSimpleDTO with HttpStatus.OK.
+     *
+     * @param user authenticated Employee object
+     * @param text the text to search, the words can be incomplete or contain a typo
+     * @param size the maximum number of products to return (between 1 and 100)
+     * @return a ResponseEntity containing a list of ProductSimpleDTO objects or a Error Message.
+     *      --> HttpStatus.OK if at least one product has been found. (List of ProductSimpleDTO)
+     *      --> HttpStatus.NO_CONTENT if no product matches the text. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the text is empty. (ErrorMessage)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(value = "/search", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> searchProducts(@AuthenticationPrincipal Employee user, @RequestParam(name = "q", required = false) String text,
+                                            @RequestParam(defaultValue = "20") int size) {
+        try {
+            log.info("User {} is searching the products that match: '{}'.", user.getUsername(), text);
+            if (text == null || text.isBlank()) {
+                log.info("User {} searched the products that match: '{}'. EMPTY SEARCH.", user.getUsername(), text);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "EMPTY_SEARCH_QUERY");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<Long> ids = searchService.search(text, Math.max(1, Math.min(size, 100)));
+            if (ids.isEmpty()) {
+                log.info("User {} searched the products that match: '{}'. NO DATA FOUND.", user.getUsername(), text);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_PRODUCT_FOUND");
+                return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+            }
+            Map<Long, Product> products = pRepository.findByIdIn(ids).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            List<Product> rankedProducts = ids.stream().map(products::get).filter(Objects::nonNull).toList();
+            CollectionModel<ProductSimpleDTO> productDTOs = CollectionModel.of(convertProducts(rankedProducts));
+            productDTOs.add(linkTo(ProductController.class).withRel("products"));
+            log.info("User {} searched the products that match: '{}'. RETURNING DATA.", user.getUsername(), text);
+            return new ResponseEntity<>(productDTOs, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} searched the products that match: '{}'. UNEXPECTED ERROR!", user.getUsername(), text);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to export the whole product catalog (CSV or NDJSON), with the brand, category and supplier
+     * of each product.
+     * Firstly, we check the format asked by the user.
+     *      If the format is unknown, we return an HttpStatus.BAD_REQUEST.
+     * Secondly, we return a StreamingResponseBody: the products are written by the export service directly in the
+     * response, while they are read from the database. No HATEOAS link is created for the products.
+     * The export has its own timeout (export.products.timeout), the other asynchronous requests keep the default one.
+     *
+     * @param user Corresponds to the user that is authenticated.
+     * @param format Corresponds to the format of the export: csv (default) or ndjson.
+     * @param request Corresponds to the request, used to set the timeout of the export.
+     * @return a ResponseEntity containing the catalog or a Error Message.
+     *      --> HttpStatus.OK with the catalog as a stream. (CSV or NDJSON)
+     *      --> HttpStatus.BAD_REQUEST if the format is unknown. (ErrorMessage)
+     */
+    @GetMapping(value = "/export")
+    @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> exportProducts(@AuthenticationPrincipal Employee user,
+                                            @RequestParam(required = false, defaultValue = "csv") String format,
+                                            WebRequest request) {
+        log.info("User {} is requesting to export the product catalog as {}.", user.getUsername(), format);
+        CatalogFormat catalogFormat = CatalogFormat.fromName(format);
+        if (catalogFormat == null) {
+            log.info("User {} requested to export the product catalog. INVALID FORMAT: '{}'.", user.getUsername(), format);
+            ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_EXPORT_FORMAT");
+            return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+        }
+        StreamingResponseBody body = out -> exportService.export(out, catalogFormat);
+        setStreamingTimeout(request, exportService.getTimeout());
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(catalogFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products." + catalogFormat.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
     /**
      * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
      * This function is used to get the product that corresponds to a given id.
+     * The ProductSimpleDTO is cached with the revision of the product: if the product is in the cache, its ETag is
+     * checked and it is returned without any query.
      * Firstly, database query to find the corresponding product using the product repository.
      * Secondly, verification of the returned Optional object.
      *      --> If is not present: returns an HttpStatus.BAD_REQUEST to the user.
@@ -242,26 +579,44 @@ public class ProductController {
      *
      * @param id Correspond to the id of the product searched by the user.
      * @param user Corresponds to the user that is authenticated.
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a ProductSimpleDTO objects or a Error Message.
      *      --> HttpStatus.OK if the product exists. (ProductSimpleDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.BAD_REQUEST if no product corresponds to the id. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/{id}", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getProduct(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getProduct(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user, WebRequest request) {
         try {
             log.info("User {} is requesting the product with id: '{}'.", user.getUsername(), id);
+            ProductCacheService.CachedProduct<ProductSimpleDTO> cachedProduct = productCache.getSimple(id);
+            if (cachedProduct != null) {
+                if (request.checkNotModified(ETags.of("product", id, cachedProduct.revision()))) {
+                    log.info("User {} requested the product with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                    return null;
+                }
+                log.info("User {} requested the product with id: '{}'. RETURNING CACHED DATA.", user.getUsername(), id);
+                return new ResponseEntity<>(withHATEOAS(cachedProduct.product()), HttpStatus.OK);
+            }
+            long generation = productCache.generation();
             Optional<Product> productOptional = pRepository.findById(id);
             if (productOptional.isEmpty()) {
                 log.info("User {} requested the product with id: '{}'. NO DATA FOUND.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_PRODUCT_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            ProductSimpleDTO productSimpleDTO = ProductSimpleDTO.convert(productOptional.get());
-            createHATEOAS(productSimpleDTO);
+            Product product = productOptional.get();
+            ProductSimpleDTO productSimpleDTO = ProductSimpleDTO.convert(product);
+            productCache.putSimple(id, productSimpleDTO, product.getRevision(), generation);
+            long revision = product.getRevision() == null ? 0 : product.getRevision();
+            if (request.checkNotModified(ETags.of("product", id, revision))) {
+                log.info("User {} requested the product with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                return null;
+            }
             log.info("User {} requested the product with id: '{}'. RETURNING DATA.", user.getUsername(), id);
-            return new ResponseEntity<>(productSimpleDTO, HttpStatus.OK);
+            return new ResponseEntity<>(withHATEOAS(productSimpleDTO), HttpStatus.OK);
         } catch (Exception e) {
             log.info("User {} requested the product with id: '{}'. UNEXPECTED ERROR!", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -271,33 +626,65 @@ public class ProductController {
     /**
      * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
      * This function is used to get the details of a product that corresponds to a given id.
-     * Firstly, database query to find the corresponding product using the product repository.
+     * The ProductCompleteDTO is cached with the revision of the product: if the product is in the cache, its ETag is
+     * checked and it is returned without any query.
+     * The embed parameter inlines the brand, the category and/or the supplier under "_embedded" (embed=brand,supplier).
+     * The embedded relations are not covered by the revision of the product (a supplier can be modified without it):
+     * a request with embedded relations always reads them from the database, and is not revalidated.
+     * Firstly, database query to find the corresponding product with its relations using the product repository.
      * Secondly, verification of the returned Optional object.
      *      --> If is not present: returns an HttpStatus.BAD_REQUEST to the user.
      * Thirdly, Product object conversion into ProductCompleteDTO and adding HATEOAS links.
-     * Finally, return the ProductCompleteDTO object with HttpStatus.OK.
+     * Finally, return the ProductCompleteDTO object (with the embedded relations) with HttpStatus.OK.
      *
      * @param id Correspond to the id of the product searched by the user.
      * @param user Corresponds to the user that is authenticated.
+     * @param embed Corresponds to the relations to embed, separated by commas (brand, category, supplier).
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a ProductCompleteDTO objects or a Error Message.
      *      --> HttpStatus.OK if the product exists. (ProductCompleteDTO)
-     *      --> HttpStatus.BAD_REQUEST if no product corresponds to the id. (ErrorMessage)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
+     *      --> HttpStatus.BAD_REQUEST if no product corresponds to the id or if a relation can not be embedded. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/{id}/details", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getProdDetail(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getProdDetail(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user,
+                                           @RequestParam(required = false) String embed, WebRequest request) {
         try {
             log.info("User {} is requesting the detailed product with id: '{}'.", user.getUsername(), id);
-            Optional<Product> productOptional = pRepository.findById(id);
+            Set<String> embeds = Embeds.parse(embed, EMBEDDABLE);
+            if (embeds == null) {
+                log.info("User {} requested the detailed product with id: '{}'. INVALID EMBED: '{}'.", user.getUsername(), id, embed);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), Embeds.INVALID_EMBED);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            // The embedded relations have their own revisions, only the plain representation is cached and revalidated.
+            ProductCacheService.CachedProduct<ProductCompleteDTO> cachedProduct = embeds.isEmpty() ? productCache.getComplete(id) : null;
+            if (cachedProduct != null) {
+                if (request.checkNotModified(ETags.of("product-details", id, cachedProduct.revision()))) {
+                    log.info("User {} requested the detailed product with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                    return null;
+                }
+                log.info("User {} requested the detailed product with id: '{}'. RETURNING CACHED DATA.", user.getUsername(), id);
+                return new ResponseEntity<>(withHATEOAS(cachedProduct.product(), embeds), HttpStatus.OK);
+            }
+            long generation = productCache.generation();
+            Optional<Product> productOptional = pRepository.findWithRelationsById(id);
             if (productOptional.isEmpty()) {
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_PRODUCT_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            ProductCompleteDTO productCompleteDTO = ProductCompleteDTO.convert(productOptional.get());
-            createHATEOAS(productCompleteDTO);
+            Product product = productOptional.get();
+            ProductCompleteDTO productCompleteDTO = ProductCompleteDTO.convert(product);
+            productCache.putComplete(id, productCompleteDTO, product.getRevision(), generation);
+            long revision = product.getRevision() == null ? 0 : product.getRevision();
+            if (embeds.isEmpty() && request.checkNotModified(ETags.of("product-details", id, revision))) {
+                log.info("User {} requested the detailed product with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                return null;
+            }
             log.info("User {} requested the detailed product with id: '{}'. RETURNING DATA.", user.getUsername(), id);
-            return new ResponseEntity<>(productCompleteDTO, HttpStatus.OK);
+            return new ResponseEntity<>(withHATEOAS(productCompleteDTO, embeds), HttpStatus.OK);
         } catch (Exception e) {
             log.info("User {} requested the detailed product with id: '{}' UNEXPECTED ERROR!", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -307,14 +694,20 @@ public class ProductController {
     /**
      * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
      * This function is used to obtain all the products that have a low stock.
-     * A product has a low stock if it's stock <= minimalStock.
-     * Firstly, we get all the data that correspond to our criteria.
+     * A product has a low stock if it's stock <= minimalStock. This is stored in the indexed "lowStock" flag.
+     * Firstly, we get all the data that correspond to our criteria (low stock flag and the optional filters).
      * Secondly, we check that the list is not empty.
      *      If the list is empty (no product), we return an HttpStatus.NO_CONTENT.
      * Thirdly (if we have some products), we transform each product as a ProductDTO and we create HATEOAS link.
      * Finally, we return all the data to the user with an HttpStatus.Ok.
      *
      * @param user Corresponds to the user that is authenticated.
+     * @param searchQuery Corresponds to a part of the product name, can be null.
+     * @param supplierId Corresponds to the id of the supplier of the products, can be null.
+     * @param brandId Corresponds to the id of the brand of the products, can be null.
+     * @param categoryId Corresponds to the id of the category of the products, can be null.
+     * @param pageable pagination information (page number, size, and sorting)
+     * @param sort sorting information for the query
      * @return a ResponseEntity containing a page model of ProductSimpleDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one product has been found. (Page of ProductSimpleDTO)
      *      --> HttpStatus.NO_CONTENT if no product exists. (ErrorMessage)
@@ -324,17 +717,18 @@ public class ProductController {
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_MANAGER')")
     public ResponseEntity<?> getLowStockProd(@AuthenticationPrincipal Employee user,
                                                            @RequestParam(required = false) String searchQuery,
+                                                           @RequestParam(required = false) Long supplierId,
+                                                           @RequestParam(required = false) Long brandId,
+                                                           @RequestParam(required = false) Long categoryId,
                                                            @PageableDefault(size = 10) Pageable pageable,
                                                            @SortDefault.SortDefaults({
                                                                    @SortDefault(sort = "stock", direction = Sort.Direction.ASC)}) Sort sort) {
         try {
             log.info("User {} is requesting all the products that have a low stock.", user.getUsername());
-            Specification<Product> spec = null;
-            if (searchQuery != null && !searchQuery.isEmpty()) {
-                spec = (root, query, cb) -> cb.like(cb.lower(root.get("stock")), "%" + searchQuery.toLowerCase() + "%");
-            }
+            String search = searchQuery == null || searchQuery.isEmpty() ? null : "%" + searchQuery.toLowerCase() + "%";
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<Product> lowStock = pRepository.findByStockIsLessThanMinStock(spec, pageable);
+            // The supplier and its geolocation are read by ProductCompleteDTO: they are fetched with the page.
+            Page<Product> lowStock = pRepository.findLowStock(search, supplierId, brandId, categoryId, pageable);
             if (lowStock.getTotalElements() < 1) {
                 log.info("User {} requested all the products that have a low stock. NO DATA FOUND", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_LOW_PRODUCT_FOUND");
@@ -359,6 +753,80 @@ public class ProductController {
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get the products created, updated (stock included) or deleted since a sync token, so
+     * a client can keep a local copy of the catalog without downloading it again.
+     * Firstly, without sync token, only the current token is returned: the client takes it before downloading all the
+     *      products, and sends it to get the changes made after.
+     * Secondly, we verify that the changes after the token are still in the change log (purged after the retention).
+     * Thirdly, we read the next batch of changes. Each product appears once with its last change, the created or
+     *      updated products are loaded in a single query and returned as ProductSimpleDTO (with HATEOAS links), a
+     *      product that does not exist anymore is returned as deleted.
+     * Finally, the new token is returned with the changes, hasMore is true if the next batch can be read right away.
+     *
+     * @param since Corresponds to the sync token (id of the last change read by the client), can be null.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a ProductChangesDTO or a Error Message.
+     *      --> HttpStatus.OK with the changes and the new token. (ProductChangesDTO)
+     *      --> HttpStatus.BAD_REQUEST if the token is negative. (ErrorMessage)
+     *      --> HttpStatus.GONE if the changes after the token are not in the change log anymore. (ErrorMessage)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(value = "/changes", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getProductChanges(@RequestParam(required = false) Long since,
+                                               @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the product changes since: {}.", user.getUsername(), since);
+            if (since == null) {
+                ProductChangesDTO changesDTO = ProductChangesDTO.builder().token(changeService.currentToken())
+                        .hasMore(false).upserts(Collections.emptyList()).deletes(Collections.emptyList()).build();
+                changesDTO.add(Link.of(linkTo(ProductController.class).slash("changes").toUri() + "?since=" +
+                        changesDTO.getToken()).withRel("next"));
+                log.info("User {} requested the current product sync token. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(changesDTO, HttpStatus.OK);
+            }
+            if (since < 0) {
+                log.info("User {} requested the product changes since: {}. INVALID TOKEN.", user.getUsername(), since);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), ProductChangeService.INVALID_SYNC_TOKEN);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            if (changeService.isExpired(since)) {
+                log.info("User {} requested the product changes since: {}. TOKEN EXPIRED.", user.getUsername(), since);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.GONE.getReasonPhrase(), ProductChangeService.SYNC_TOKEN_EXPIRED);
+                return new ResponseEntity<>(bm, HttpStatus.GONE);
+            }
+            ProductChangeService.ChangeBatch batch = changeService.changesSince(since);
+            Map<Long, Product> products = new HashMap<>();
+            if (!batch.upserted().isEmpty()) {
+                for (Product product : pRepository.findByIdIn(batch.upserted())) products.put(product.getId(), product);
+            }
+            List<ProductSimpleDTO> upserts = new ArrayList<>();
+            List<Long> deletes = new ArrayList<>(batch.deleted());
+            for (Long productId : batch.upserted()) {
+                Product product = products.get(productId);
+                if (product == null) {
+                    deletes.add(productId);
+                    continue;
+                }
+                ProductSimpleDTO productSimpleDTO = ProductSimpleDTO.convert(product);
+                createHATEOAS(productSimpleDTO);
+                upserts.add(productSimpleDTO);
+            }
+            ProductChangesDTO changesDTO = ProductChangesDTO.builder().token(batch.token()).hasMore(batch.hasMore())
+                    .upserts(upserts).deletes(deletes).build();
+            changesDTO.add(Link.of(linkTo(ProductController.class).slash("changes").toUri() + "?since=" +
+                    batch.token()).withRel("next"));
+            log.info("User {} requested the product changes since: {}. RETURNING DATA ({} UPSERTS, {} DELETES).",
+                    user.getUsername(), since, upserts.size(), deletes.size());
+            return new ResponseEntity<>(changesDTO, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the product changes since: {}. UNEXPECTED ERROR!", user.getUsername(), since);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
      * This function is used to create a new product.
@@ -390,13 +858,22 @@ public class ProductController {
                 ErrorResponse bm = new ErrorResponse(validation.getFirst().getReasonPhrase(), validation.getSecond());
                 return new ResponseEntity<>(bm, validation.getFirst());
             }
-            Brand brandOptional = bRepository.findById(productCuDTO.getBrandId()).get();
-            Category categoryOptional = cRepository.findById(productCuDTO.getCategoryId()).get();
-            Supplier supplierOptional = sRepository.findById(productCuDTO.getSupplierId()).get();
+            Brand brandOptional = referenceData.findBrand(productCuDTO.getBrandId()).get();
+            Category categoryOptional = referenceData.findCategory(productCuDTO.getCategoryId()).get();
+            Supplier supplierOptional = entityLookup.findById(Supplier.class, productCuDTO.getSupplierId()).get();
             Product product = new Product();
             createProductObj(productCuDTO, product, brandOptional, categoryOptional, supplierOptional, false);
             log.warn("User {} requested to create the product with name: '{}'. SAVING DATA", user.getUsername(), product.getName());
-            Product savedProduct = pRepository.save(product);
+            Product savedProduct;
+            try {
+                savedProduct = pRepository.saveAndFlush(product);
+            } catch (DataIntegrityViolationException e) {
+                log.info("User {} requested to create the product with name: '{}'. PRODUCT_ALREADY_EXISTS", user.getUsername(), product.getName());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "PRODUCT_ALREADY_EXISTS");
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
+            searchService.index(savedProduct);
+            autocompleteService.index(savedProduct);
             ProductCompleteDTO productCompleteDTO = ProductCompleteDTO.convert(savedProduct);
             createHATEOAS(productCompleteDTO);
             log.info("User {} requested to create the product with name: '{}'. RETURNING DATA", user.getUsername(), savedProduct.getName());
@@ -407,6 +884,45 @@ public class ProductController {
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to import a whole product catalog (CSV or NDJSON file) in a single request.
+     * Firstly, we get the format of the file from the content type of the request (text/csv or application/x-ndjson).
+     * Secondly, the file is streamed to the import service, which validates each row with the same rules as the
+     *      product creation, inserts the valid rows by batches and adds them to the search and autocomplete indexes.
+     *      The rows are never all kept in memory.
+     * Finally, we return the import report (with the error of each row that has not been imported) to the user.
+     *
+     * @param body Corresponds to the content of the file.
+     * @param contentType Corresponds to the content type of the request.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a ProductImportReportDTO object or a Error Message.
+     *      --> HttpStatus.OK if the file has been read. (ProductImportReportDTO)
+     *      --> HttpStatus.UNSUPPORTED_MEDIA_TYPE if the content type is not supported. (ErrorMessage)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (Nothing)
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"}, produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> importProducts(InputStream body, @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                            @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting to import products.", user.getUsername());
+            CatalogFormat format = CatalogFormat.fromContentType(contentType);
+            if (format == null) {
+                log.info("User {} requested to import products. UNSUPPORTED FORMAT: '{}'.", user.getUsername(), contentType);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.UNSUPPORTED_MEDIA_TYPE.getReasonPhrase(), "IMPORT_UNSUPPORTED_FORMAT");
+                return new ResponseEntity<>(bm, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+            }
+            ProductImportReportDTO report = importService.importProducts(new InputStreamReader(body, StandardCharsets.UTF_8), format);
+            log.info("User {} requested to import products. {} IMPORTED, {} FAILED.", user.getUsername(),
+                    report.getImportedRows(), report.getFailedRows());
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested to import products. UNEXPECTED ERROR!", user.getUsername());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
      * This function is used to update an existing product.
@@ -423,6 +939,7 @@ public class ProductController {
      * @return a ResponseEntity containing a ProductCompleteDTO objects or a Error Message.
      *      --> HttpStatus.OK if the product has been updated. (ProductCompleteDTO)
      *      --> HttpStatus.BAD_REQUEST if no product corresponds to the given id. (ErrorMessage)
+     *      --> HttpStatus.CONFLICT if another product has the same name and supplier. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @PutMapping(value = "/{id}", consumes = "application/json", produces = "application/json")
@@ -443,13 +960,23 @@ public class ProductController {
                 ErrorResponse bm = new ErrorResponse(validation.getFirst().getReasonPhrase(), validation.getSecond());
                 return new ResponseEntity<>(bm, validation.getFirst());
             }
-            Brand brandOptional = bRepository.findById(productCuDTO.getBrandId()).get();
-            Category categoryOptional = cRepository.findById(productCuDTO.getCategoryId()).get();
-            Supplier supplierOptional = sRepository.findById(productCuDTO.getSupplierId()).get();
+            Brand brandOptional = referenceData.findBrand(productCuDTO.getBrandId()).get();
+            Category categoryOptional = referenceData.findCategory(productCuDTO.getCategoryId()).get();
+            Supplier supplierOptional = entityLookup.findById(Supplier.class, productCuDTO.getSupplierId()).get();
             Product product = productOptional.get();
             createProductObj(productCuDTO, product, brandOptional, categoryOptional, supplierOptional, true);
             log.debug("User {} requested to update the product with id: '{}'. SAVING DATA", user.getUsername(), product.getId());
-            Product savedProduct = pRepository.save(product);
+            Product savedProduct;
+            try {
+                savedProduct = pRepository.saveAndFlush(product);
+            } catch (DataIntegrityViolationException e) {
+                log.info("User {} requested to update the product with id: '{}'. PRODUCT_ALREADY_EXISTS", user.getUsername(), id);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "PRODUCT_ALREADY_EXISTS");
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
+            productCache.invalidate(savedProduct.getId());
+            searchService.index(savedProduct);
+            autocompleteService.index(savedProduct);
             ProductCompleteDTO productCompleteDTO = ProductCompleteDTO.convert(savedProduct);
             createHATEOAS(productCompleteDTO);
             log.info("User {} requested to update the product with id: '{}'. RETURNING DATA", user.getUsername(), savedProduct.getId());
@@ -482,7 +1009,7 @@ public class ProductController {
     public ResponseEntity<?> deleteProduct(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting to delete the product with id: '{}'.", user.getUsername(), id);
-            if (!pRepository.existsById(id)) {
+            if (!entityLookup.existsById(Product.class, id)) {
                 log.info("User {} requested to delete the product with id: '{}'. NO PRODUCT FOUND.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_PRODUCT_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -494,6 +1021,9 @@ public class ProductController {
             }
             log.debug("User {} requested to delete the product with id: '{}'. DELETING PRODUCT.", user.getUsername(), id);
             pRepository.deleteById(id);
+            productCache.invalidate(id);
+            searchService.remove(id);
+            autocompleteService.remove(SuggestionType.PRODUCT, id);
             log.info("User {} requested to delete the product with id: '{}'. PRODUCT DELETED.", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
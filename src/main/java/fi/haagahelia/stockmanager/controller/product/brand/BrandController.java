@@ -1,19 +1,28 @@
 package fi.haagahelia.stockmanager.controller.product.brand;
 
+import fi.haagahelia.stockmanager.dto.common.ETags;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.MultiGetModel;
 import fi.haagahelia.stockmanager.dto.product.brand.BrandCuDTO;
 import fi.haagahelia.stockmanager.dto.product.brand.BrandDTO;
 import fi.haagahelia.stockmanager.model.product.brand.Brand;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.product.BrandRepository;
 import fi.haagahelia.stockmanager.repository.product.ProductRepository;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.ReferenceDataService;
+import fi.haagahelia.stockmanager.service.common.SuggestionType;
+import fi.haagahelia.stockmanager.service.common.UniqueKey;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
@@ -24,6 +33,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,11 +50,21 @@ public class BrandController {
 
     private final BrandRepository bRepository;
     private final ProductRepository pRepository;
+    private final AutocompleteService autocompleteService;
+    private final ReferenceDataService referenceData;
+    private final UniquenessGuard uniquenessGuard;
+    private final CollectionVersionService collectionVersions;
 
     @Autowired
-    public BrandController(BrandRepository bRepository, ProductRepository pRepository) {
+    public BrandController(BrandRepository bRepository, ProductRepository pRepository,
+                           AutocompleteService autocompleteService, ReferenceDataService referenceData,
+                           UniquenessGuard uniquenessGuard, CollectionVersionService collectionVersions) {
         this.bRepository = bRepository;
         this.pRepository = pRepository;
+        this.autocompleteService = autocompleteService;
+        this.referenceData = referenceData;
+        this.uniquenessGuard = uniquenessGuard;
+        this.collectionVersions = collectionVersions;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -55,8 +75,8 @@ public class BrandController {
      * @return The DTO model with the HATEOAS links.
      */
     private BrandDTO createHATEOAS(BrandDTO brandDTO) {
-        Link selfRel = linkTo(BrandController.class).slash(String.valueOf(brandDTO.getId())).withSelfRel();
-        Link collection = linkTo(BrandController.class).slash("").withRel("brands");
+        Link selfRel = LinkTemplates.self(BrandController.class, String.valueOf(brandDTO.getId()));
+        Link collection = LinkTemplates.link(BrandController.class, "brands", "");
         brandDTO.add(selfRel, collection);
         return brandDTO;
     }
@@ -73,7 +93,8 @@ public class BrandController {
     private Pair<HttpStatus, String> validateBrand(BrandCuDTO brandCuDTO) {
         if (brandCuDTO.getName() == null) return Pair.of(HttpStatus.BAD_REQUEST, "NULL_BRAND_NAME");
         if (brandCuDTO.getName().length() < 1) return Pair.of(HttpStatus.BAD_REQUEST, "EMPTY_BRAND_NAME");
-        if (bRepository.existsByName(brandCuDTO.getName())) return Pair.of(HttpStatus.CONFLICT, "BRAND_ALREADY_EXISTS");
+        if (uniquenessGuard.mightExist(UniqueKey.BRAND_NAME, brandCuDTO.getName())
+                && bRepository.existsByName(brandCuDTO.getName())) return Pair.of(HttpStatus.CONFLICT, "BRAND_ALREADY_EXISTS");
         return Pair.of(HttpStatus.ACCEPTED, "");
     }
 
@@ -88,8 +109,10 @@ public class BrandController {
      * @param searchQuery the search query, which can be null or an empty string
      * @param pageable pagination information (page number, size, and sorting)
      * @param sort sorting information for the query
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a page model of BrandDTO objects.
      *      --> HttpStatus.OK if the list is non-empty.
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.NO_CONTENT if it is empty.
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
      */
@@ -97,18 +120,15 @@ public class BrandController {
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getAllBrands(@AuthenticationPrincipal Employee user, @RequestParam(required = false) String searchQuery,
                                           @PageableDefault(size = 10) Pageable pageable,
-                                          @SortDefault.SortDefaults({ @SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort) {
+                                          @SortDefault.SortDefaults({ @SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort, WebRequest request) {
         try {
             log.info("User {} is requesting all the brands.", user.getUsername());
-            Specification<Brand> spec = null;
-            if (searchQuery != null && !searchQuery.isEmpty()) {
-                spec = (root, query, cb) -> cb.like(
-                        cb.lower(root.get("name")),
-                        "%" + searchQuery.toLowerCase() + "%"
-                );
+            if (request.checkNotModified(collectionVersions.etag(Brand.class))) {
+                log.info("User {} requested all the brands. NOT MODIFIED.", user.getUsername());
+                return null;
             }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<Brand> brands = bRepository.findAll(spec, pageable);
+            Page<Brand> brands = referenceData.findBrands(searchQuery, pageable);
             if (brands.getTotalElements() < 1) {
                 log.info("User {} requested all the brands. NO DATA FOUND", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_DATA_FOUND");
@@ -131,26 +151,72 @@ public class BrandController {
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get several brands at once from their ids (?ids=1,2,3).
+     * Firstly, verification of the requested ids (at least one, at most MultiGetModel.MAX_IDS).
+     * Secondly, the brands are read from the reference data in memory (no database query).
+     * Finally, the BrandDTOs are returned in the order of the request, the ids that have not been found are
+     * null in the content and listed in the missing ids.
+     *
+     * @param ids Corresponds to the ids of the brands requested by the user.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a MultiGetModel of BrandDTO objects or an ErrorMessage.
+     *      --> HttpStatus.OK with the found brands and the missing ids.
+     *      --> HttpStatus.BAD_REQUEST if no id is given or if there are too many ids.
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
+     */
+    @GetMapping(params = "ids", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getBrandsByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the brands with ids: {}.", user.getUsername(), ids);
+            String error = MultiGetModel.validate(ids);
+            if (error != null) {
+                log.info("User {} requested the brands with ids: {}. {}.", user.getUsername(), ids, error);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), error);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<Brand> brands = referenceData.findBrands(MultiGetModel.distinct(ids));
+            MultiGetModel<BrandDTO> model = MultiGetModel.of(ids, brands, Brand::getId,
+                    brand -> createHATEOAS(BrandDTO.convert(brand)));
+            model.add(linkTo(BrandController.class).withRel("brands"));
+            log.info("User {} requested the brands with ids: {}. RETURNING DATA ({} MISSING).",
+                    user.getUsername(), ids, model.getMissing().size());
+            return new ResponseEntity<>(model, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the brands with ids: {}. UNEXPECTED ERROR!", user.getUsername(), ids);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
      * This function is used to retrieves a BrandDTO object that match the given id.
-     * Firstly, we search that a Brand corresponds to the given id.
+     * Firstly, we search that a Brand corresponds to the given id, in the reference data in memory.
      * Secondly, we convert the Brand object to a BrandDTO and we add the HATEOAS links.
      * Finally, we return the BrandDTO to the user.
      *
      * @param id Corresponds to the id of the brand that the user wants to access
      * @param user Corresponds to the user that is authenticated
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a BrandDTO object or an ErrorMessage.
      *      --> HttpStatus.OK if the BrandDTO exists.
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.BAD_REQUEST if there is no brand.
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
      */
     @GetMapping(value = "/{id}", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getBrandById(@PathVariable(name = "id") Long id, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getBrandById(@PathVariable(name = "id") Long id, @AuthenticationPrincipal Employee user, WebRequest request) {
         try {
             log.info("User {} is requesting the brand with id {}", user.getUsername(), id);
-            Optional<Brand> brandOptional = bRepository.findById(id);
+            Optional<Brand> brandOptional = referenceData.findBrand(id);
+            if (brandOptional.isPresent() && request.checkNotModified(ETags.of("brand", id,
+                    brandOptional.get().getRevision() == null ? 0 : brandOptional.get().getRevision()))) {
+                log.info("User {} requested the brand with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                return null;
+            }
             if (brandOptional.isEmpty()) {
                 log.info("User {} requested the brand with id {}. NO DATA FOUND", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_DATA_FOUND");
@@ -200,7 +266,16 @@ public class BrandController {
             brand.setName(brandCuDTO.getName());
             log.debug("User {} requested to create and save a new brand with the name: '{}'. SAVING THE BRAND",
                     user.getUsername(), brand.getName());
-            Brand savedBrand = bRepository.save(brand);
+            Brand savedBrand;
+            try {
+                savedBrand = bRepository.saveAndFlush(brand);
+            } catch (DataIntegrityViolationException e) {
+                log.info("User {} requested to create and save a new brand with the name: '{}'. BRAND_ALREADY_EXISTS.",
+                        user.getUsername(), brand.getName());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "BRAND_ALREADY_EXISTS");
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
+            autocompleteService.index(savedBrand);
             BrandDTO brandDTO = BrandDTO.convert(savedBrand);
             createHATEOAS(brandDTO);
             log.info("User {} requested to create and save a new brand with the name: '{}'. BRAND CREATED AND SAVED.",
@@ -235,7 +310,7 @@ public class BrandController {
     public ResponseEntity<ErrorResponse> deleteBrand(@PathVariable(name = "id") Long id, @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting to delete the brand with id: '{}'", user.getUsername(), id);
-            if (!bRepository.existsById(id)) {
+            if (!referenceData.brandExists(id)) {
                 log.info("User {} requested to delete the brand with id : '{}'. NO DATA FOUND", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_DATA_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -248,6 +323,7 @@ public class BrandController {
             }
             log.debug("User {} requested to delete the brand with id: '{}'. DELETING BRAND", user.getUsername(), id);
             bRepository.deleteById(id);
+            autocompleteService.remove(SuggestionType.BRAND, id);
             log.info("User {} requested to delete the brand with id: '{}'. BRAND DELETED", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
@@ -1,20 +1,29 @@
 package fi.haagahelia.stockmanager.controller.product.category;
 
 
+import fi.haagahelia.stockmanager.dto.common.ETags;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.MultiGetModel;
 import fi.haagahelia.stockmanager.dto.product.category.CategoryCuDTO;
 import fi.haagahelia.stockmanager.dto.product.category.CategoryDTO;
 import fi.haagahelia.stockmanager.model.product.category.Category;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.product.CategoryRepository;
 import fi.haagahelia.stockmanager.repository.product.ProductRepository;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.ReferenceDataService;
+import fi.haagahelia.stockmanager.service.common.SuggestionType;
+import fi.haagahelia.stockmanager.service.common.UniqueKey;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
@@ -25,6 +34,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,11 +51,21 @@ public class CategoryController {
 
     private final CategoryRepository cRepository;
     private final ProductRepository pRepository;
+    private final AutocompleteService autocompleteService;
+    private final ReferenceDataService referenceData;
+    private final UniquenessGuard uniquenessGuard;
+    private final CollectionVersionService collectionVersions;
 
     @Autowired
-    public CategoryController(CategoryRepository cRepository, ProductRepository pRepository) {
+    public CategoryController(CategoryRepository cRepository, ProductRepository pRepository,
+                              AutocompleteService autocompleteService, ReferenceDataService referenceData,
+                              UniquenessGuard uniquenessGuard, CollectionVersionService collectionVersions) {
         this.cRepository = cRepository;
         this.pRepository = pRepository;
+        this.autocompleteService = autocompleteService;
+        this.referenceData = referenceData;
+        this.uniquenessGuard = uniquenessGuard;
+        this.collectionVersions = collectionVersions;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -56,8 +76,8 @@ public class CategoryController {
      * @return The DTO model with the HATEOAS links.
      */
     private CategoryDTO createHATEOAS(CategoryDTO cat) {
-        Link selfLink = linkTo(CategoryController.class).slash(String.valueOf(cat.getId())).withSelfRel();
-        Link collectionlink = linkTo(CategoryController.class).withRel("categories");
+        Link selfLink = LinkTemplates.self(CategoryController.class, String.valueOf(cat.getId()));
+        Link collectionlink = LinkTemplates.link(CategoryController.class, "categories");
         cat.add(selfLink, collectionlink);
         return cat;
     }
@@ -74,7 +94,8 @@ public class CategoryController {
     private Pair<HttpStatus, String > validateCategory(CategoryCuDTO categoryCuDTO) {
         if (categoryCuDTO.getName() == null) return Pair.of(HttpStatus.BAD_REQUEST, "NULL_CATEGORY_NAME.");
         if (categoryCuDTO.getName().length() < 1) return Pair.of(HttpStatus.BAD_REQUEST, "EMPTY_CATEGORY_NAME.");
-        if (cRepository.existsByName(categoryCuDTO.getName())) return Pair.of(HttpStatus.CONFLICT, "CATEGORY_ALREADY_EXISTS.");
+        if (uniquenessGuard.mightExist(UniqueKey.CATEGORY_NAME, categoryCuDTO.getName())
+                && cRepository.existsByName(categoryCuDTO.getName())) return Pair.of(HttpStatus.CONFLICT, "CATEGORY_ALREADY_EXISTS.");
         return Pair.of(HttpStatus.ACCEPTED, "");
     }
 
@@ -83,7 +104,7 @@ public class CategoryController {
     /**
      * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
      * This function is used to find all the categories.
-     * Firstly, database query through the category repository.
+     * Firstly, the categories are read from the reference data in memory (no database query).
      * Secondly, verification of the returned page is not empty.
      *      --> If is empty: returns an HttpStatus.NO_CONTENT to the user.
      * Thirdly, converting each Category object into a CategoryDTO one and adding HATEOAS links.
@@ -94,8 +115,10 @@ public class CategoryController {
      * @param searchQuery the search query, which can be null or an empty string
      * @param pageable pagination information (page number, size, and sorting)
      * @param sort sorting information for the query
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a page model of CategoryDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one category has been found. (Page of CategoryDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.NO_CONTENT if no category exists. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
@@ -103,15 +126,15 @@ public class CategoryController {
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getALlCategories(@AuthenticationPrincipal Employee user, @RequestParam(required = false) String searchQuery,
                                               @PageableDefault(size = 10) Pageable pageable,
-                                              @SortDefault.SortDefaults({@SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort) {
+                                              @SortDefault.SortDefaults({@SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort, WebRequest request) {
         try {
             log.info("User {} is requesting all the categories.", user.getUsername());
-            Specification<Category> spec = null;
-            if (searchQuery != null && !searchQuery.isEmpty()) {
-                spec = (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + searchQuery.toLowerCase() + "%");
+            if (request.checkNotModified(collectionVersions.etag(Category.class))) {
+                log.info("User {} requested all the categories. NOT MODIFIED.", user.getUsername());
+                return null;
             }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<Category> categories = cRepository.findAll(spec, pageable);
+            Page<Category> categories = referenceData.findCategories(searchQuery, pageable);
             if (categories.getTotalElements() < 1) {
                 log.info("User {} requested all the categories. NO DATA FOUND", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_CATEGORY_FOUND");
@@ -132,10 +155,49 @@ public class CategoryController {
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get several categories at once from their ids (?ids=1,2,3).
+     * Firstly, verification of the requested ids (at least one, at most MultiGetModel.MAX_IDS).
+     * Secondly, the categories are read from the reference data in memory (no database query).
+     * Finally, the CategoryDTOs are returned in the order of the request, the ids that have not been found are
+     * null in the content and listed in the missing ids.
+     *
+     * @param ids Corresponds to the ids of the categories requested by the user.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a MultiGetModel of CategoryDTO objects or an ErrorMessage.
+     *      --> HttpStatus.OK with the found categories and the missing ids.
+     *      --> HttpStatus.BAD_REQUEST if no id is given or if there are too many ids.
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
+     */
+    @GetMapping(params = "ids", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getCategoriesByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the categories with ids: {}.", user.getUsername(), ids);
+            String error = MultiGetModel.validate(ids);
+            if (error != null) {
+                log.info("User {} requested the categories with ids: {}. {}.", user.getUsername(), ids, error);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), error);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<Category> categories = referenceData.findCategories(MultiGetModel.distinct(ids));
+            MultiGetModel<CategoryDTO> model = MultiGetModel.of(ids, categories, Category::getId,
+                    category -> createHATEOAS(CategoryDTO.convert(category)));
+            model.add(linkTo(CategoryController.class).withRel("categories"));
+            log.info("User {} requested the categories with ids: {}. RETURNING DATA ({} MISSING).",
+                    user.getUsername(), ids, model.getMissing().size());
+            return new ResponseEntity<>(model, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the categories with ids: {}. UNEXPECTED ERROR!", user.getUsername(), ids);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_VENDOR | ROLE_MANAGER | ROLE_ADMIN
      * This function is used to find the category that matches the id provided by the user.
-     * Firstly, database query through the category repository.
+     * Firstly, search of the category in the reference data in memory (no database query).
      * Secondly, verification of the returned Optional object.
      *      --> If is not present: returns an HttpStatus.BAD_REQUEST to the user.
      * Thirdly, Category object conversion into CategoryDTO and adding HATEOAS links.
@@ -143,17 +205,24 @@ public class CategoryController {
      *
      * @param id Corresponds to the id of the category that the user wants to access.
      * @param user Corresponds to the user that is authenticated.
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a CategoryDTO objects or a Error Message.
      *      --> HttpStatus.OK if the category exists. (CategoryDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.BAD_REQUEST if no category corresponds to the id. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/{id}", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_VENDOR', 'ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getCategoryById(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getCategoryById(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user, WebRequest request) {
         try {
             log.info("User {} is requesting the category with id: '{}'", user.getUsername(), id);
-            Optional<Category> categoryOptional = cRepository.findById(id);
+            Optional<Category> categoryOptional = referenceData.findCategory(id);
+            if (categoryOptional.isPresent() && request.checkNotModified(ETags.of("category", id,
+                    categoryOptional.get().getRevision() == null ? 0 : categoryOptional.get().getRevision()))) {
+                log.info("User {} requested the category with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                return null;
+            }
             if (categoryOptional.isEmpty()) {
                 log.info("User {} requested the category with id: '{}'. NO DATA FOUND.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_CATEGORY_FOUND");
@@ -204,7 +273,16 @@ public class CategoryController {
             category.setDescription(categoryCuDTO.getDescription());
             log.debug("User {} requested to create and save a category with the name: '{}'. SAVING CATEGORY.",
                     user.getUsername(), category.getName());
-            Category savedCategory = cRepository.save(category);
+            Category savedCategory;
+            try {
+                savedCategory = cRepository.saveAndFlush(category);
+            } catch (DataIntegrityViolationException e) {
+                log.info("User {} requested to create and save a new category with the name: '{}'. CATEGORY_ALREADY_EXISTS",
+                        user.getUsername(), category.getName());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "CATEGORY_ALREADY_EXISTS.");
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
+            autocompleteService.index(savedCategory);
             log.info("User {} requested to create and save a new category with the name: '{}'. CATEGORY CREATED AND SAVED.",
                     user.getUsername(), savedCategory.getName());
             CategoryDTO categoryDTO = CategoryDTO.convert(savedCategory);
@@ -280,7 +358,7 @@ public class CategoryController {
     public ResponseEntity<ErrorResponse> deleteCategory(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting to delete the category with id: '{}'", user.getUsername(), id);
-            if (!cRepository.existsById(id)) {
+            if (!referenceData.categoryExists(id)) {
                 log.info("User {} requested to delete the category with id: '{}'. NO DATA FOUND.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_CATEGORY_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -292,6 +370,7 @@ public class CategoryController {
             }
             log.debug("User {} requested to delete the category with id: '{}'. DELETING DATA.", user.getUsername(), id);
             cRepository.deleteById(id);
+            autocompleteService.remove(SuggestionType.CATEGORY, id);
             log.info("User {} requested to delete the category with id: '{}'. CATEGORY DELETED", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
@@ -2,18 +2,27 @@ package fi.haagahelia.stockmanager.controller.supplier;
 
 
 import fi.haagahelia.stockmanager.controller.common.GeolocationController;
+import fi.haagahelia.stockmanager.dto.common.ETags;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.MultiGetModel;
 import fi.haagahelia.stockmanager.dto.supplier.SupplierCuDTO;
 import fi.haagahelia.stockmanager.dto.supplier.SupplierDTO;
 import fi.haagahelia.stockmanager.model.common.Geolocation;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
 import fi.haagahelia.stockmanager.model.user.Employee;
-import fi.haagahelia.stockmanager.repository.common.GeolocationRepository;
 import fi.haagahelia.stockmanager.repository.product.ProductRepository;
 import fi.haagahelia.stockmanager.repository.supplier.SupplierRepository;
 import fi.haagahelia.stockmanager.repository.supplier.order.SupplierOrderRepository;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
+import fi.haagahelia.stockmanager.service.common.SuggestionType;
+import fi.haagahelia.stockmanager.service.common.UniqueKey;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -29,6 +38,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,17 +54,25 @@ public class SupplierController {
     /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
 
     private final SupplierRepository sRepository;
-    private final GeolocationRepository gRepository;
     private final ProductRepository pRepository;
     private final SupplierOrderRepository soRepository;
+    private final AutocompleteService autocompleteService;
+    private final UniquenessGuard uniquenessGuard;
+    private final EntityLookupService entityLookup;
+    private final CollectionVersionService collectionVersions;
 
     @Autowired
-    public SupplierController(SupplierRepository sRepository, GeolocationRepository gRepository,
-                              ProductRepository pRepository, SupplierOrderRepository soRepository) {
+    public SupplierController(SupplierRepository sRepository,
+                              ProductRepository pRepository, SupplierOrderRepository soRepository,
+                              AutocompleteService autocompleteService, UniquenessGuard uniquenessGuard,
+                              EntityLookupService entityLookup, CollectionVersionService collectionVersions) {
         this.sRepository = sRepository;
-        this.gRepository = gRepository;
         this.pRepository = pRepository;
         this.soRepository = soRepository;
+        this.autocompleteService = autocompleteService;
+        this.uniquenessGuard = uniquenessGuard;
+        this.entityLookup = entityLookup;
+        this.collectionVersions = collectionVersions;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -65,16 +83,16 @@ public class SupplierController {
      * @return The dto model with the HATEOAS links.
      */
     private SupplierDTO createHATEOAS(SupplierDTO supplierDTO) {
-        Link selfLink = linkTo(SupplierController.class).slash(String.valueOf(supplierDTO.getId())).withSelfRel();
+        Link selfLink = LinkTemplates.self(SupplierController.class, String.valueOf(supplierDTO.getId()));
         supplierDTO.add(selfLink);
 
-        Link collectionLink = linkTo(SupplierController.class).withRel("suppliers");
+        Link collectionLink = LinkTemplates.link(SupplierController.class, "suppliers");
         supplierDTO.add(collectionLink);
 
         // Geolocation field
         if (supplierDTO.getGeolocation() != null) {
             Long geoId = supplierDTO.getId();
-            Link geolocation = linkTo(GeolocationController.class).slash(geoId).withRel("geolocation");
+            Link geolocation = LinkTemplates.link(GeolocationController.class, "geolocation", geoId);
             supplierDTO.add(geolocation);
         }
 
@@ -96,14 +114,15 @@ public class SupplierController {
         if (supplierCuDTO.getName() == null) return Pair.of(HttpStatus.BAD_REQUEST, "SUPPLIER_NAME_NULL");
         if (supplierCuDTO.getName().length() < 1) return Pair.of(HttpStatus.BAD_REQUEST, "SUPPLIER_NAME_EMPTY");
         if (supplierCuDTO.getGeolocationId() != null) {
-            if (!gRepository.existsById(supplierCuDTO.getGeolocationId())) {
+            if (!entityLookup.existsById(Geolocation.class, supplierCuDTO.getGeolocationId())) {
                 return Pair.of(HttpStatus.NOT_FOUND, "SUPPLIER_GEOLOCATION_NOT_FOUND");
             }
         }
         if (isForUpdate) {
             if (!sRepository.existsByName(supplierCuDTO.getName())) return Pair.of(HttpStatus.BAD_REQUEST, "SUPPLIER_NOT_FOUND");
         } else {
-            if (sRepository.existsByName(supplierCuDTO.getName())) return Pair.of(HttpStatus.CONFLICT, "SUPPLIER_ALREADY_EXISTS");
+            if (uniquenessGuard.mightExist(UniqueKey.SUPPLIER_NAME, supplierCuDTO.getName())
+                    && sRepository.existsByName(supplierCuDTO.getName())) return Pair.of(HttpStatus.CONFLICT, "SUPPLIER_ALREADY_EXISTS");
         }
         return Pair.of(HttpStatus.ACCEPTED, "");
     }
@@ -118,7 +137,7 @@ public class SupplierController {
      */
     private void setGeolocationById(Supplier supplier, Long geoId, String username) {
         if (geoId != null) {
-            Optional<Geolocation> geolocationOptional = gRepository.findById(geoId);
+            Optional<Geolocation> geolocationOptional = entityLookup.findById(Geolocation.class, geoId);
             if (geolocationOptional.isPresent()) {
                 log.debug("User {} requested to create a new supplier with the name: {}. Adding the geolocation with id: {}.", username, supplier.getName(), geoId);
                 supplier.setGeolocation(geolocationOptional.get());
@@ -144,8 +163,10 @@ public class SupplierController {
      * @param searchQuery the search query, which can be null or an empty string
      * @param pageable pagination information (page number, size, and sorting)
      * @param sort sorting information for the query
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a page model of SupplierDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one supplier has been found. (Page of SupplierDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.NO_CONTENT if no supplier exists. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
@@ -153,9 +174,13 @@ public class SupplierController {
     @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getSuppliers(@AuthenticationPrincipal Employee user, @RequestParam(required = false) String searchQuery,
                                           @PageableDefault(size = 10) Pageable pageable,
-                                          @SortDefault.SortDefaults({ @SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort) {
+                                          @SortDefault.SortDefaults({ @SortDefault(sort = "name", direction = Sort.Direction.ASC)}) Sort sort, WebRequest request) {
         try {
             log.info("User {} is requesting all the suppliers from the database.", user.getUsername());
+            if (request.checkNotModified(collectionVersions.etag(Supplier.class))) {
+                log.info("User {} requested all the suppliers. NOT MODIFIED.", user.getUsername());
+                return null;
+            }
             Specification<Supplier> spec = null;
             if (searchQuery != null && !searchQuery.isEmpty()) {
                 spec = (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + searchQuery.toLowerCase() + "%");
@@ -183,6 +208,45 @@ public class SupplierController {
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get several suppliers at once from their ids (?ids=1,2,3).
+     * Firstly, verification of the requested ids (at least one, at most MultiGetModel.MAX_IDS).
+     * Secondly, a single database query loads the suppliers with their geolocation.
+     * Finally, the SupplierDTOs are returned in the order of the request, the ids that have not been found are
+     * null in the content and listed in the missing ids.
+     *
+     * @param ids Corresponds to the ids of the suppliers requested by the user.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a MultiGetModel of SupplierDTO objects or an ErrorMessage.
+     *      --> HttpStatus.OK with the found suppliers and the missing ids.
+     *      --> HttpStatus.BAD_REQUEST if no id is given or if there are too many ids.
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
+     */
+    @GetMapping(params = "ids", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getSuppliersByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the suppliers with ids: {}.", user.getUsername(), ids);
+            String error = MultiGetModel.validate(ids);
+            if (error != null) {
+                log.info("User {} requested the suppliers with ids: {}. {}.", user.getUsername(), ids, error);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), error);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<Supplier> suppliers = sRepository.findByIdIn(MultiGetModel.distinct(ids));
+            MultiGetModel<SupplierDTO> model = MultiGetModel.of(ids, suppliers, Supplier::getId,
+                    supplier -> createHATEOAS(SupplierDTO.convert(supplier)));
+            model.add(linkTo(SupplierController.class).withRel("suppliers"));
+            log.info("User {} requested the suppliers with ids: {}. RETURNING DATA ({} MISSING).",
+                    user.getUsername(), ids, model.getMissing().size());
+            return new ResponseEntity<>(model, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the suppliers with ids: {}. UNEXPECTED ERROR!", user.getUsername(), ids);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Available for: ROLE_MANAGER | ROLE_ADMIN
      * This function is used to get the supplier that correspond to a given id.
@@ -193,16 +257,23 @@ public class SupplierController {
      *
      * @param id Correspond to the id of the supplier searched by the user.
      * @param user Corresponds to the user that is authenticated.
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a SupplierDTO objects or a Error Message.
      *      --> HttpStatus.OK if the supplier exists. (SupplierDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.BAD_REQUEST if no supplier corresponds to the id. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/{id}", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getSupplierByID(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getSupplierByID(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user, WebRequest request) {
         try {
             log.info("User {} is requesting the supplier with id: '{}'.", user.getUsername(), id);
+            Optional<Long> revision = sRepository.findRevisionById(id);
+            if (revision.isPresent() && request.checkNotModified(ETags.of("supplier", id, revision.get()))) {
+                log.info("User {} requested the supplier with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                return null;
+            }
             Optional<Supplier> supplierOptional = sRepository.findById(id);
             if (supplierOptional.isEmpty()) {
                 log.info("User {} requested the supplier with id: '{}'. NO DATA FOUND.", user.getUsername(), id);
@@ -253,7 +324,16 @@ public class SupplierController {
             supplier.setPhoneNumber(supplierCuDTO.getPhoneNumber());
             setGeolocationById(supplier, supplierCuDTO.getGeolocationId(), user.getUsername());
             log.debug("User {} requested to create and save a new supplier with the name: '{}'. SAVING SUPPLIER.", user.getUsername(), supplier.getName());
-            Supplier savedSupplier = sRepository.save(supplier);
+            Supplier savedSupplier;
+            try {
+                savedSupplier = sRepository.saveAndFlush(supplier);
+            } catch (DataIntegrityViolationException e) {
+                log.info("User {} requested to create and save a new supplier with the name: '{}'. SUPPLIER_ALREADY_EXISTS",
+                        user.getUsername(), supplier.getName());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "SUPPLIER_ALREADY_EXISTS");
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
+            autocompleteService.index(savedSupplier);
             SupplierDTO supplierDTO = SupplierDTO.convert(savedSupplier);
             createHATEOAS(supplierDTO);
             log.info("User {} requested to create and save a new supplier with the name: '{}'. SUPPLIER CREATED AND SAVED.", user.getUsername(), supplier.getName());
@@ -309,6 +389,7 @@ public class SupplierController {
             setGeolocationById(supplier, supplierCuDTO.getGeolocationId(), user.getUsername());
             log.debug("User {} requested to update the supplier with the id: '{}'. SAVING SUPPLIER.", user.getUsername(), id);
             Supplier savedSupplier = sRepository.save(supplier);
+            autocompleteService.index(savedSupplier);
             SupplierDTO supplierDTO = SupplierDTO.convert(savedSupplier);
             log.info("User {} requested to update the supplier with the id: '{}'. SUPPLIER SAVED.", user.getUsername(), id);
             return new ResponseEntity<>(createHATEOAS(supplierDTO), HttpStatus.OK);
@@ -339,7 +420,7 @@ public class SupplierController {
     public ResponseEntity<ErrorResponse> deleteSupplierById(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting to delete the supplier with id: '{}'.", user.getUsername(), id);
-            if (!sRepository.existsById(id)) {
+            if (!entityLookup.existsById(Supplier.class, id)) {
                 log.info("User {} requested to delete the supplier with id: '{}'. NO DATA FOUND.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_SUPPLIER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -356,6 +437,7 @@ public class SupplierController {
             }
             log.debug("User {} requested to delete the supplier with id: '{}'. DELETING SUPPLIER.", user.getUsername(), id);
             sRepository.deleteById(id);
+            autocompleteService.remove(SuggestionType.SUPPLIER, id);
             log.info("User {} requested to delete the supplier with id: '{}'. SUPPLIER DELETED.", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
@@ -1,24 +1,43 @@
 package fi.haagahelia.stockmanager.controller.supplier.order;
 
 
+import fi.haagahelia.stockmanager.controller.product.ProductController;
 import fi.haagahelia.stockmanager.controller.supplier.SupplierController;
+import fi.haagahelia.stockmanager.dto.common.CursorPagedModel;
+import fi.haagahelia.stockmanager.dto.common.Embeds;
+import fi.haagahelia.stockmanager.dto.common.ETags;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.MultiGetModel;
+import fi.haagahelia.stockmanager.dto.common.SlicedModel;
+import fi.haagahelia.stockmanager.dto.product.ProductCompleteDTO;
 import fi.haagahelia.stockmanager.dto.supplier.order.SupplierOrderCuDTO;
 import fi.haagahelia.stockmanager.dto.supplier.order.SupplierOrderDTO;
+import fi.haagahelia.stockmanager.dto.supplier.order.SupplierOrderLineDTO;
 import fi.haagahelia.stockmanager.exception.OrderStateException;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
 import fi.haagahelia.stockmanager.exception.ProductStockException;
 import fi.haagahelia.stockmanager.exception.UnknownOrderException;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
 import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
+import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrderLine;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.supplier.SupplierRepository;
 import fi.haagahelia.stockmanager.repository.supplier.order.SupplierOrderRepository;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.CountMode;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
+import fi.haagahelia.stockmanager.service.common.KeysetPaginationService;
+import fi.haagahelia.stockmanager.service.common.KeysetSlice;
+import fi.haagahelia.stockmanager.service.common.PageQueryService;
+import fi.haagahelia.stockmanager.service.order.ReplenishmentService;
 import fi.haagahelia.stockmanager.service.order.SupplierOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
@@ -26,16 +45,16 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 
@@ -44,18 +63,34 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 @RequestMapping("/api/suppliers/")
 public class SupplierOrderController {
 
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final Set<String> EMBEDDABLE = Set.of("supplier", "lines", "lines.product");
+
     /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
 
     private final SupplierOrderRepository sOrderRepository;
     private final SupplierRepository sRepository;
     private final SupplierOrderService orderManager;
+    private final KeysetPaginationService keysetService;
+    private final PageQueryService pageQueryService;
+    private final ReplenishmentService replenishmentService;
+    private final EntityLookupService entityLookup;
+    private final CollectionVersionService collectionVersions;
 
     @Autowired
     public SupplierOrderController(SupplierOrderRepository sOrderRepository, SupplierRepository sRepository,
-                                   SupplierOrderService orderManager) {
+                                   SupplierOrderService orderManager, KeysetPaginationService keysetService,
+                                   PageQueryService pageQueryService, ReplenishmentService replenishmentService,
+                                   EntityLookupService entityLookup, CollectionVersionService collectionVersions) {
         this.sOrderRepository = sOrderRepository;
         this.sRepository = sRepository;
         this.orderManager = orderManager;
+        this.keysetService = keysetService;
+        this.pageQueryService = pageQueryService;
+        this.replenishmentService = replenishmentService;
+        this.entityLookup = entityLookup;
+        this.collectionVersions = collectionVersions;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -67,24 +102,61 @@ public class SupplierOrderController {
      * @return The dto model with the HATEOAS links.
      */
     private SupplierOrderDTO createHATEOAS(SupplierOrderDTO orderDTO) {
-        Link selfLink = linkTo(SupplierOrderController.class).slash(orderDTO.getId()).withSelfRel();
+        Link selfLink = LinkTemplates.self(SupplierOrderController.class, orderDTO.getId());
         orderDTO.add(selfLink);
 
-        Link collectionLink = linkTo(SupplierOrderController.class).slash("orders").withRel("supplier-orders");
+        Link collectionLink = LinkTemplates.link(SupplierOrderController.class, "supplier-orders", "orders");
         orderDTO.add(collectionLink);
 
         // Supplier related field
         if (orderDTO.getSupplierDTO() != null) {
             Long supplierId = orderDTO.getId();
-            Link supplierLink = linkTo(SupplierController.class).slash(supplierId).withRel("supplier");
+            Link supplierLink = LinkTemplates.link(SupplierController.class, "supplier", supplierId);
             orderDTO.add(supplierLink);
 
-            Link orderOfACustomer = linkTo(SupplierOrderController.class).slash("/" + supplierId + "/orders").withRel("this-supplier-orders");
+            Link orderOfACustomer = LinkTemplates.link(SupplierOrderController.class, "this-supplier-orders", "/" + supplierId + "/orders");
             orderDTO.add(orderOfACustomer);
         }
         return orderDTO;
     }
 
+    /**
+     * This function is used to inline the requested relations of a supplier order under "_embedded".
+     * The relations must have been fetched with the order (findWithRelationsById or findWithLinesById).
+     * @param orderDTO Corresponds to the converted order, it contains the supplier.
+     * @param order Corresponds to the order entity, used to browse the lines.
+     * @param embeds Corresponds to the relations to embed (supplier, lines, lines.product).
+     * @return The embedded relations.
+     */
+    private Map<String, Object> embedRelations(SupplierOrderDTO orderDTO, SupplierOrder order, Set<String> embeds) {
+        Map<String, Object> embedded = new LinkedHashMap<>();
+        if (embeds.contains("supplier") && orderDTO.getSupplierDTO() != null) embedded.put("supplier", orderDTO.getSupplierDTO());
+        if (embeds.contains("lines")) {
+            // The lines only keep the id of their order, to avoid a reference cycle between the two DTOs.
+            SupplierOrderDTO lineOrderDTO = SupplierOrderDTO.builder().id(order.getId()).build();
+            List<SupplierOrderLineDTO> linesDTO = new ArrayList<>();
+            for (SupplierOrderLine line : order.getSupplierOrderLines()) {
+                ProductCompleteDTO productDTO = ProductCompleteDTO.convert(line.getProduct());
+                SupplierOrderLineDTO lineDTO = SupplierOrderLineDTO.builder()
+                        .quantity(line.getQuantity())
+                        .buyPrice(line.getBuyPrice())
+                        .supplierOrderId(order.getId())
+                        .productId(productDTO.getId())
+                        .supplierOrderDTO(lineOrderDTO)
+                        .productCompleteDTO(productDTO)
+                        .build();
+                SupplierOrderLineController.createHATEOAS(lineDTO);
+                if (embeds.contains("lines.product")) {
+                    productDTO.add(LinkTemplates.self(ProductController.class, productDTO.getId(), "details"));
+                    lineDTO.setEmbedded(Map.of("product", productDTO));
+                }
+                linesDTO.add(lineDTO);
+            }
+            embedded.put("lines", linesDTO);
+        }
+        return embedded;
+    }
+
     /**
      * This function is used to convert a List of SupplierOrder into a List of SupplierOrderDTO.
      * It also adds the HATEOAS links on each element of the list.
@@ -92,14 +164,35 @@ public class SupplierOrderController {
      * @return Corresponds to the list of SupplierOrderDTO.
      */
     private PagedModel<SupplierOrderDTO> convertSupplierOrder(Page<SupplierOrder> supplierOrders) {
+        List<SupplierOrderDTO> supplierOrderDTOS = convertOrders(supplierOrders);
+        PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(supplierOrders.getSize(), supplierOrders.getNumber(), supplierOrders.getTotalElements());
+        return PagedModel.of(supplierOrderDTOS, pmd);
+    }
+
+    /**
+     * This function is used to convert a keyset slice of SupplierOrder into a CursorPagedModel of SupplierOrderDTO.
+     * It also adds the HATEOAS links on each element of the slice.
+     * @param slice Corresponds to the slice of supplier orders.
+     * @param base Corresponds to the link of the endpoint, used to build the link of the next slice.
+     * @return Corresponds to the slice of SupplierOrderDTO.
+     */
+    private CursorPagedModel<SupplierOrderDTO> convertSupplierOrder(KeysetSlice<SupplierOrder> slice, WebMvcLinkBuilder base) {
+        return CursorPagedModel.of(convertOrders(slice.getContent()), slice, base);
+    }
+
+    /**
+     * This function is used to convert SupplierOrder objects into SupplierOrderDTO objects, with their HATEOAS links.
+     * @param supplierOrders Corresponds to the supplier orders.
+     * @return Corresponds to the list of SupplierOrderDTO.
+     */
+    private List<SupplierOrderDTO> convertOrders(Iterable<SupplierOrder> supplierOrders) {
         List<SupplierOrderDTO> supplierOrderDTOS = new ArrayList<>();
         for (SupplierOrder supOrder : supplierOrders) {
             SupplierOrderDTO supOrderDTO = SupplierOrderDTO.convert(supOrder);
             createHATEOAS(supOrderDTO);
             supplierOrderDTOS.add(supOrderDTO);
         }
-        PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(supplierOrders.getSize(), supplierOrders.getNumber(), supplierOrders.getTotalElements());
-        return PagedModel.of(supplierOrderDTOS, pmd);
+        return supplierOrderDTOS;
     }
 
     private Pair<HttpStatus, String> orderValidation(SupplierOrderCuDTO orderCuDTO) {
@@ -126,25 +219,74 @@ public class SupplierOrderController {
      * Thirdly (at least one supplier order), we convert each supplierOrder as a SupplierOrderDTO.
      * At the same time, we also add the HATEOAS links by using the createHATEOAS function.
      * Finally, we can return the list with the SupplierOrderDTOs and an HttpStatusCode.Ok
+     * If a cursor is given (even empty), the keyset pagination is used instead: no COUNT query is executed and the
+     * response contains the cursor of the next slice instead of the page metadata.
+     * The count parameter can be used to avoid the COUNT query: "none" returns a slice that only knows if a next page
+     * exists, "approximate" returns a total that can be a few seconds old.
      *
+     * @param cursor the keyset pagination cursor, null to use the page pagination, empty for the first slice
+     * @param count the count mode of the page: none, approximate or exact (default)
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a page model of SupplierOrderDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one supplier order has been found. (Page of SupplierOrderDTO)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
      *      --> HttpStatus.NO_CONTENT if no supplier order exists. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the cursor, the sort of the cursor or the count mode is invalid. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/orders",produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
     public ResponseEntity<?> getSupplierOrders(@AuthenticationPrincipal Employee user, @RequestParam(required = false) String searchQuery,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) String count,
                                                @PageableDefault(size = 10) Pageable pageable,
-                                               @SortDefault.SortDefaults({ @SortDefault(sort = "id", direction = Sort.Direction.ASC)}) Sort sort) {
+                                               @SortDefault.SortDefaults({ @SortDefault(sort = "id", direction = Sort.Direction.ASC)}) Sort sort, WebRequest request) {
         try {
             log.info("User {} is requesting all the supplier orders.", user.getUsername());
+            if (request.checkNotModified(collectionVersions.etag(SupplierOrder.class))) {
+                log.info("User {} requested all the supplier orders. NOT MODIFIED.", user.getUsername());
+                return null;
+            }
             Specification<SupplierOrder> spec = null;
             if (searchQuery != null && !searchQuery.isEmpty()) {
                 spec = (root, query, cb) -> cb.like(cb.lower(root.get("id")), "%" + searchQuery.toLowerCase() + "%");
             }
+            if (cursor != null) {
+                KeysetSlice<SupplierOrder> slice = keysetService.findSlice(SupplierOrder.class, "SupplierOrder.supplier", spec,
+                        sort, cursor, pageable.getPageSize());
+                if (slice.isEmpty()) {
+                    log.info("User {} requested all the supplier orders. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_SUPPLIER_ORDER_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                CursorPagedModel<SupplierOrderDTO> supplierOrderDTOSlice = convertSupplierOrder(slice, linkTo(SupplierOrderController.class).slash("orders"));
+                supplierOrderDTOSlice.add(linkTo(SupplierOrderController.class).slash("orders").withRel("suppliers-orders"));
+                log.info("User {} requested all the supplier orders. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(supplierOrderDTOSlice, HttpStatus.OK);
+            }
+            CountMode countMode = CountMode.from(count);
+            if (countMode == null) {
+                log.info("User {} requested all the supplier orders. INVALID COUNT MODE.", user.getUsername());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_COUNT_MODE");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<SupplierOrder> supplierOrders = sOrderRepository.findAll(spec, pageable);
+            if (countMode == CountMode.NONE) {
+                Slice<SupplierOrder> supplierOrdersSlice = pageQueryService.findSlice(SupplierOrder.class, "SupplierOrder.supplier", spec, pageable);
+                if (!supplierOrdersSlice.hasContent()) {
+                    log.info("User {} requested all the supplier orders. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_SUPPLIER_ORDER_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                SlicedModel<SupplierOrderDTO> supplierOrderDTOSlice = SlicedModel.of(convertOrders(supplierOrdersSlice.getContent()), supplierOrdersSlice,
+                        linkTo(SupplierOrderController.class).slash("orders"));
+                supplierOrderDTOSlice.add(linkTo(SupplierOrderController.class).slash("orders").withRel("suppliers-orders"));
+                log.info("User {} requested all the supplier orders. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(supplierOrderDTOSlice, HttpStatus.OK);
+            }
+            Page<SupplierOrder> supplierOrders = countMode == CountMode.APPROXIMATE
+                    ? pageQueryService.findApproximatePage(SupplierOrder.class, "SupplierOrder.supplier", spec, pageable, searchQuery)
+                    : sOrderRepository.findAll(spec, pageable);
             if (supplierOrders.getTotalElements() < 1) {
                 log.info("User {} requested all the supplier orders. NO DATA FOUND.", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_SUPPLIER_ORDER_FOUND");
@@ -154,41 +296,105 @@ public class SupplierOrderController {
             supplierOrderDTOPage.add(linkTo(SupplierOrderController.class).slash("orders").withRel("suppliers-orders"));
             log.info("User {} requested all the supplier orders. RETURNING DATA.", user.getUsername());
             return new ResponseEntity<>(supplierOrderDTOPage, HttpStatus.OK);
+        } catch (PaginationCursorException e) {
+            log.info("User {} requested all the supplier orders. INVALID CURSOR.", user.getUsername());
+            ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_PAGINATION_CURSOR");
+            return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             log.info("User {} requested all the supplier orders. UNEXPECTED ERROR!", user.getUsername());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to get several supplier orders at once from their ids (?ids=1,2,3).
+     * Firstly, verification of the requested ids (at least one, at most MultiGetModel.MAX_IDS).
+     * Secondly, a single database query loads the supplier orders with their supplier (and its geolocation).
+     * Finally, the SupplierOrderDTOs are returned in the order of the request, the ids that have not been found are
+     * null in the content and listed in the missing ids.
+     *
+     * @param ids Corresponds to the ids of the supplier orders requested by the user.
+     * @param user Corresponds to the user that is authenticated.
+     * @return a ResponseEntity containing a MultiGetModel of SupplierOrderDTO objects or an ErrorMessage.
+     *      --> HttpStatus.OK with the found supplier orders and the missing ids.
+     *      --> HttpStatus.BAD_REQUEST if no id is given or if there are too many ids.
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs.
+     */
+    @GetMapping(value = "/orders", params = "ids", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> getSupplierOrdersByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the supplier orders with ids: {}.", user.getUsername(), ids);
+            String error = MultiGetModel.validate(ids);
+            if (error != null) {
+                log.info("User {} requested the supplier orders with ids: {}. {}.", user.getUsername(), ids, error);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), error);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            List<SupplierOrder> orders = sOrderRepository.findByIdIn(MultiGetModel.distinct(ids));
+            MultiGetModel<SupplierOrderDTO> model = MultiGetModel.of(ids, orders, SupplierOrder::getId,
+                    order -> createHATEOAS(SupplierOrderDTO.convert(order)));
+            model.add(linkTo(SupplierOrderController.class).slash("orders").withRel("suppliers-orders"));
+            log.info("User {} requested the supplier orders with ids: {}. RETURNING DATA ({} MISSING).",
+                    user.getUsername(), ids, model.getMissing().size());
+            return new ResponseEntity<>(model, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the supplier orders with ids: {}. UNEXPECTED ERROR!", user.getUsername(), ids);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
      * This function is used to find a supplier order by its id.
-     * Firstly, we search in the database the supplier order by the given id.
+     * The embed parameter inlines the related resources under "_embedded" (embed=supplier,lines.product), they are
+     * fetched in the same query as the order.
+     * Firstly, we search in the database the supplier order by the given id (with its lines if requested).
      * Secondly, we check if the Optional object is empty or not.
      *      If the Optional object is empty, we return an HttpStatus.NO_CONTENT.
      * Thirdly (else), we Convert the SupplierOrder object that is in the Optional as a SupplierOrderDTO.
-     * Finally, we add the HATEOAS links to the SupplierOrderDTO object, and we return the data to the user.
+     * Finally, we add the HATEOAS links and the embedded relations to the SupplierOrderDTO object, and we return the
+     * data to the user.
      *
      * @param id Correspond to the id of the order searched by the user.
+     * @param embed Corresponds to the relations to embed, separated by commas (supplier, lines, lines.product).
+     * @param request Corresponds to the request, used to compare its If-None-Match header with the current ETag.
      * @return a ResponseEntity containing a SupplierOrderDTO objects or a Error Message.
      *      --> HttpStatus.OK if the supplier order exists. (SupplierOrderDTO)
-     *      --> HttpStatus.BAD_REQUEST if no supplier order corresponds to the id. (ErrorMessage)
+     *      --> HttpStatus.NOT_MODIFIED if the ETag sent in If-None-Match is still the current one (no body).
+     *      --> HttpStatus.BAD_REQUEST if no supplier order corresponds to the id or if a relation can not be embedded. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(value = "/orders/{id}", produces = "application/json")
     @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> getSupplierOrder(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
+    public ResponseEntity<?> getSupplierOrder(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user,
+                                              @RequestParam(required = false) String embed, WebRequest request) {
         try {
             log.info("User {} is requesting the supplier order with id: '{}'", user.getUsername(), id);
-            Optional<SupplierOrder> supOrderOptional = sOrderRepository.findById(id);
+            Set<String> embeds = Embeds.parse(embed, EMBEDDABLE);
+            if (embeds == null) {
+                log.info("User {} requested the supplier order with id: '{}'. INVALID EMBED: '{}'.", user.getUsername(), id, embed);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), Embeds.INVALID_EMBED);
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
+            // The embedded relations have their own revisions, only the plain representation is revalidated.
+            Optional<Long> revision = embeds.isEmpty() ? sOrderRepository.findRevisionById(id) : Optional.empty();
+            if (revision.isPresent() && request.checkNotModified(ETags.of("supplier-order", id, revision.get()))) {
+                log.info("User {} requested the supplier order with id: '{}'. NOT MODIFIED.", user.getUsername(), id);
+                return null;
+            }
+            Optional<SupplierOrder> supOrderOptional = embeds.contains("lines")
+                    ? sOrderRepository.findWithLinesById(id) : sOrderRepository.findWithRelationsById(id);
             if (supOrderOptional.isEmpty()) {
                 log.info("User {} requested the supplier order with id: '{}'. NO DATA FOUND.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_SUPPLIER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            SupplierOrderDTO supplierOrderDTO = SupplierOrderDTO.convert(supOrderOptional.get());
+            SupplierOrderDTO supplierOrderDTO = createHATEOAS(SupplierOrderDTO.convert(supOrderOptional.get()));
+            if (!embeds.isEmpty()) supplierOrderDTO.setEmbedded(embedRelations(supplierOrderDTO, supOrderOptional.get(), embeds));
             log.info("User {} requested the supplier order with id: '{}'. RETURNING DATA.", user.getUsername(), id);
-            return new ResponseEntity<>(createHATEOAS(supplierOrderDTO), HttpStatus.OK);
+            return new ResponseEntity<>(supplierOrderDTO, HttpStatus.OK);
         } catch (Exception e) {
             log.info("User {} requested the supplier order with id: '{}'. UNEXPECTED ERROR!", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -352,6 +558,42 @@ public class SupplierOrderController {
         }
     }
 
+    /**
+     * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
+     * This function is used to draft the supplier orders needed to replenish the products that have a low stock.
+     * Firstly, we call the replenishment service, which groups the low stock products by supplier and creates one
+     * draft order (not sent, not received) per supplier, with the number of batches needed to reach the target stock.
+     *      The products already waiting for a supplier order that is not received are ignored.
+     * Secondly, we check that at least one order has been drafted.
+     *      If no order has been drafted, we return an HttpStatus.NO_CONTENT.
+     * Finally, we convert the drafted orders as SupplierOrderDTO, we add the HATEOAS links and we return them.
+     *
+     * @param user Corresponds to the authenticated user.
+     * @return a ResponseEntity containing a list of SupplierOrderDTO objects or a Error Message.
+     *      --> HttpStatus.CREATED if at least one supplier order has been drafted. (List of SupplierOrderDTO)
+     *      --> HttpStatus.NO_CONTENT if no product needs to be replenished. (Nothing)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (Nothing)
+     */
+    @PostMapping(value = "/orders/replenishment", produces = "application/json")
+    @PreAuthorize("hasAnyRole('ROLE_MANAGER', 'ROLE_ADMIN')")
+    public ResponseEntity<?> draftReplenishmentOrders(@AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting to draft the replenishment supplier orders.", user.getUsername());
+            List<Long> orderIds = replenishmentService.draftOrders();
+            if (orderIds.isEmpty()) {
+                log.info("User {} requested to draft the replenishment supplier orders. NO PRODUCT TO REPLENISH.", user.getUsername());
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            }
+            List<SupplierOrderDTO> supplierOrderDTOS = convertOrders(sOrderRepository.findByIdIn(orderIds));
+            log.info("User {} requested to draft the replenishment supplier orders. RETURNING {} DRAFTED ORDERS.",
+                    user.getUsername(), supplierOrderDTOS.size());
+            return new ResponseEntity<>(supplierOrderDTOS, HttpStatus.CREATED);
+        } catch (Exception e) {
+            log.info("User {} requested to draft the replenishment supplier orders. UNEXPECTED ERROR!", user.getUsername());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * AVAILABLE FOR: ROLE_MANAGER | ROLE_ADMIN
      * This function is used to update an existing supplier order by its id.
@@ -582,7 +824,7 @@ public class SupplierOrderController {
     public ResponseEntity<ErrorResponse> deleteOrderForce(@PathVariable(value = "id") Long id, @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting to delete the supplier order with id: '{}'.", user.getUsername(), id);
-            if (!sOrderRepository.existsById(id)) {
+            if (!entityLookup.existsById(SupplierOrder.class, id)) {
                 log.info("User {} requested to delete the supplier order with id: '{}'. NO CUSTOMER ORDER.", user.getUsername(), id);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_SUPPLIER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
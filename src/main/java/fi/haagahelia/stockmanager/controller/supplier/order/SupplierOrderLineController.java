@@ -3,6 +3,7 @@ package fi.haagahelia.stockmanager.controller.supplier.order;
 
 import fi.haagahelia.stockmanager.controller.product.ProductController;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
 import fi.haagahelia.stockmanager.dto.supplier.order.SupplierOrderLineCuDTO;
 import fi.haagahelia.stockmanager.dto.supplier.order.SupplierOrderLineDTO;
 import fi.haagahelia.stockmanager.model.product.Product;
@@ -13,6 +14,7 @@ import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.repository.product.ProductRepository;
 import fi.haagahelia.stockmanager.repository.supplier.order.SupplierOrderLineRepository;
 import fi.haagahelia.stockmanager.repository.supplier.order.SupplierOrderRepository;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -47,12 +49,15 @@ public class SupplierOrderLineController {
     private final SupplierOrderRepository soRepository;
     private final SupplierOrderLineRepository soLineRepository;
     private final ProductRepository pRepository;
+    private final EntityLookupService entityLookup;
 
     @Autowired
-    public SupplierOrderLineController(SupplierOrderRepository soRepository, SupplierOrderLineRepository soLineRepository, ProductRepository pRepository) {
+    public SupplierOrderLineController(SupplierOrderRepository soRepository, SupplierOrderLineRepository soLineRepository, ProductRepository pRepository,
+                                       EntityLookupService entityLookup) {
         this.soRepository = soRepository;
         this.soLineRepository = soLineRepository;
         this.pRepository = pRepository;
+        this.entityLookup = entityLookup;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -62,20 +67,20 @@ public class SupplierOrderLineController {
      * @param lineDTO The dto model to which we will add the HATEOAS links.
      * @return The dto model with the HATEOAS links.
      */
-    private SupplierOrderLineDTO createHATEOAS(SupplierOrderLineDTO lineDTO) {
+    static SupplierOrderLineDTO createHATEOAS(SupplierOrderLineDTO lineDTO) {
         Long orderId = lineDTO.getSupplierOrderDTO().getId();
         Long productId = lineDTO.getProductCompleteDTO().getId();
 
-        Link selfRel = linkTo(SupplierOrderLineController.class).slash("/" + orderId + "/details/product=" + productId).withSelfRel();
+        Link selfRel = LinkTemplates.self(SupplierOrderLineController.class, "/" + orderId + "/details/product=" + productId);
         lineDTO.add(selfRel);
 
-        Link orderDetailsLink = linkTo(SupplierOrderLineController.class).slash(orderId).slash("details").withRel("order-details");
+        Link orderDetailsLink = LinkTemplates.link(SupplierOrderLineController.class, "order-details", orderId, "details");
         lineDTO.add(orderDetailsLink);
 
-        Link orderLink = linkTo(SupplierOrderController.class).slash("orders").slash(orderId).withRel("order");
+        Link orderLink = LinkTemplates.link(SupplierOrderController.class, "order", "orders", orderId);
         lineDTO.add(orderLink);
 
-        Link productLink = linkTo(ProductController.class).slash(productId).withRel("product");
+        Link productLink = LinkTemplates.link(ProductController.class, "product", productId);
         lineDTO.add(productLink);
         return lineDTO;
     }
@@ -126,7 +131,7 @@ public class SupplierOrderLineController {
                                               @SortDefault.SortDefaults({ @SortDefault(sort = "quantity", direction = Sort.Direction.ASC)}) Sort sort) {
         try {
             log.info("User {} is requesting the order lines that corresponds to the order: '{}'.", user.getUsername(), orderId);
-            if (!soRepository.existsById(orderId)) {
+            if (!entityLookup.existsById(SupplierOrder.class, orderId)) {
                 log.info("User {} requested the supplier order lines of the order: '{}'. ORDER NOT FOUND.", user.getUsername(), orderId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_SUPPLIER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -174,12 +179,12 @@ public class SupplierOrderLineController {
                                              @AuthenticationPrincipal Employee user) {
         try {
             log.info("User {} is requesting the the line: supOrderId: '{}', productId: '{}'.", user.getUsername(), orderId, productId);
-            if (!soRepository.existsById(orderId)) {
+            if (!entityLookup.existsById(SupplierOrder.class, orderId)) {
                 log.info("User {} requested the supplier order line: orderId: '{}' ; productId: '{}'. ORDER NOT FOUND.", user.getUsername(), orderId, productId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_SUPPLIER_ORDER_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            if (!pRepository.existsById(productId)) {
+            if (!entityLookup.existsById(Product.class, productId)) {
                 log.info("User {} requested the supplier order line: orderId: '{}' ; productId: '{}'. PRODUCT NOT FOUND.", user.getUsername(), orderId, productId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_PRODUCT_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
@@ -1,18 +1,34 @@
 package fi.haagahelia.stockmanager.controller.user;
 
 
+import fi.haagahelia.stockmanager.dto.common.CursorPagedModel;
 import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.dto.common.LinkTemplates;
+import fi.haagahelia.stockmanager.dto.common.SlicedModel;
 import fi.haagahelia.stockmanager.dto.user.EmployeeCuDTO;
 import fi.haagahelia.stockmanager.dto.user.EmployeeDTO;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.model.user.Role;
 import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
 import fi.haagahelia.stockmanager.repository.user.RoleRepository;
+import fi.haagahelia.stockmanager.service.common.CountMode;
+import fi.haagahelia.stockmanager.service.common.KeysetPaginationService;
+import fi.haagahelia.stockmanager.service.common.KeysetSlice;
+import fi.haagahelia.stockmanager.service.common.PageQueryService;
+import fi.haagahelia.stockmanager.service.common.ReferenceDataService;
+import fi.haagahelia.stockmanager.service.common.UniqueKey;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
+import fi.haagahelia.stockmanager.service.user.BlockedEmployeeService;
+import fi.haagahelia.stockmanager.service.user.EmployeePrincipalCache;
+import fi.haagahelia.stockmanager.service.user.TokenVersionService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Pair;
@@ -44,12 +60,30 @@ public class EmployeeController {
     private final EmployeeRepository eRepository;
     private final RoleRepository rRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final KeysetPaginationService keysetService;
+    private final PageQueryService pageQueryService;
+    private final ReferenceDataService referenceData;
+    private final UniquenessGuard uniquenessGuard;
+    private final EmployeePrincipalCache principalCache;
+    private final TokenVersionService tokenVersions;
+    private final BlockedEmployeeService blockedEmployees;
 
     @Autowired
-    public EmployeeController(EmployeeRepository eRepository, RoleRepository rRepository, BCryptPasswordEncoder passwordEncoder) {
+    public EmployeeController(EmployeeRepository eRepository, RoleRepository rRepository, BCryptPasswordEncoder passwordEncoder,
+                              KeysetPaginationService keysetService,
+                              PageQueryService pageQueryService, ReferenceDataService referenceData,
+                              UniquenessGuard uniquenessGuard, EmployeePrincipalCache principalCache,
+                              TokenVersionService tokenVersions, BlockedEmployeeService blockedEmployees) {
         this.eRepository = eRepository;
         this.rRepository = rRepository;
         this.passwordEncoder = passwordEncoder;
+        this.keysetService = keysetService;
+        this.pageQueryService = pageQueryService;
+        this.referenceData = referenceData;
+        this.uniquenessGuard = uniquenessGuard;
+        this.principalCache = principalCache;
+        this.tokenVersions = tokenVersions;
+        this.blockedEmployees = blockedEmployees;
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
@@ -61,13 +95,28 @@ public class EmployeeController {
      * @return The dto model with the HATEOAS links.
      */
     private EmployeeDTO createHATEOAS(EmployeeDTO employeeDTO) {
-        Link selfLink = linkTo(EmployeeController.class).slash(String.valueOf(employeeDTO.getId())).withSelfRel();
+        Link selfLink = LinkTemplates.self(EmployeeController.class, String.valueOf(employeeDTO.getId()));
         employeeDTO.add(selfLink);
-        Link collectionLink = linkTo(EmployeeController.class).slash("").withRel("employees");
+        Link collectionLink = LinkTemplates.link(EmployeeController.class, "employees", "");
         employeeDTO.add(collectionLink);
         return employeeDTO;
     }
 
+    /**
+     * This function is used to convert a list of employees into a list of EmployeeDTO.
+     * It also adds the HATEOAS links on each element of the list.
+     * @param employees Corresponds to the employees to convert.
+     * @return The list of EmployeeDTO.
+     */
+    private List<EmployeeDTO> convertEmployees(Iterable<Employee> employees) {
+        List<EmployeeDTO> employeeDTOS = new ArrayList<>();
+        for (Employee emp : employees) {
+            EmployeeDTO employeeDTO = EmployeeDTO.convert(emp);
+            employeeDTOS.add(createHATEOAS(employeeDTO));
+        }
+        return employeeDTOS;
+    }
+
     /**
      * This function is used to validate an employeeCuDTO (before creation or modification)
      * We check the following constraints:
@@ -103,10 +152,12 @@ public class EmployeeController {
             if (employeeCuDTO.getPassword().length() < 8) {
                 return Pair.of(HttpStatus.BAD_REQUEST, "EMPLOYEE_PASSWORD_TOO_SHORT");
             }
-            if (eRepository.existsByUsername(employeeCuDTO.getUsername())) {
+            if (uniquenessGuard.mightExist(UniqueKey.EMPLOYEE_USERNAME, employeeCuDTO.getUsername())
+                    && eRepository.existsByUsername(employeeCuDTO.getUsername())) {
                 return Pair.of(HttpStatus.CONFLICT, "EMPLOYEE_USERNAME_ALREADY_EXIST");
             }
-            if (eRepository.existsByEmail(employeeCuDTO.getEmail())) {
+            if (uniquenessGuard.mightExist(UniqueKey.EMPLOYEE_EMAIL, employeeCuDTO.getEmail())
+                    && eRepository.existsByEmail(employeeCuDTO.getEmail())) {
                 return Pair.of(HttpStatus.CONFLICT, "EMPLOYEE_EMAIL_ALREADY_EXIST");
             }
         }
@@ -123,19 +174,28 @@ public class EmployeeController {
      *      If not, we return an HttpStatus.NO_CONTENT to the user.
      * Thirdly, we convert each employee as an EmployeeDTO and we add the HATEOAS links.
      * Finally, we return the list to the user with an HttpStatus.OK.
+     * If a cursor is given (even empty), the keyset pagination is used instead: no COUNT query is executed and the
+     * response contains the cursor of the next slice instead of the page metadata.
+     * The count parameter can be used to avoid the COUNT query: "none" returns a slice that only knows if a next page
+     * exists, "approximate" returns a total that can be a few seconds old.
      *
      * @param user authenticated Employee object
      * @param searchQuery the search query, which can be null or an empty string
+     * @param cursor the keyset pagination cursor, null to use the page pagination, empty for the first slice
+     * @param count the count mode of the page: none, approximate or exact (default)
      * @param pageable pagination information (page number, size, and sorting)
      * @param sort sorting information for the query
      * @return a ResponseEntity containing a page model of EmployeeDTO objects or a Error Message.
      *      --> HttpStatus.OK if at least one employee has been found. (Page of EmployeeDTO)
      *      --> HttpStatus.NO_CONTENT if no employee exists. (ErrorMessage)
+     *      --> HttpStatus.BAD_REQUEST if the cursor, the sort of the cursor or the count mode is invalid. (ErrorMessage)
      *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
      */
     @GetMapping(produces = "application/json")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public ResponseEntity<?> getEmployees(@AuthenticationPrincipal Employee user, @RequestParam(required = false) String searchQuery,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) String count,
                                           @PageableDefault(size = 10) Pageable pageable,
                                           @SortDefault.SortDefaults({ @SortDefault(sort = "username", direction = Sort.Direction.ASC)}) Sort sort) {
         try {
@@ -144,23 +204,57 @@ public class EmployeeController {
             if (searchQuery != null && !searchQuery.isEmpty()) {
                 spec = (root, query, cb) -> cb.like(cb.lower(root.get("username")), "%" + searchQuery.toLowerCase() + "%");
             }
+            if (cursor != null) {
+                KeysetSlice<Employee> slice = keysetService.findSlice(Employee.class, null, spec, sort, cursor, pageable.getPageSize());
+                if (slice.isEmpty()) {
+                    log.info("User {} requested to get all employees. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_EMPLOYEE_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                CursorPagedModel<EmployeeDTO> employeeDTOSlice = CursorPagedModel.of(convertEmployees(slice.getContent()),
+                        slice, linkTo(EmployeeController.class));
+                employeeDTOSlice.add(linkTo(EmployeeController.class).withRel("employees"));
+                log.info("User {} requested all the employees. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(employeeDTOSlice, HttpStatus.OK);
+            }
+            CountMode countMode = CountMode.from(count);
+            if (countMode == null) {
+                log.info("User {} requested to get all employees. INVALID COUNT MODE.", user.getUsername());
+                ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_COUNT_MODE");
+                return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
+            }
             pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-            Page<Employee> employees = eRepository.findAll(spec, pageable);
+            if (countMode == CountMode.NONE) {
+                Slice<Employee> employeesSlice = pageQueryService.findSlice(Employee.class, null, spec, pageable);
+                if (!employeesSlice.hasContent()) {
+                    log.info("User {} requested to get all employees. NO DATA FOUND.", user.getUsername());
+                    ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_EMPLOYEE_FOUND");
+                    return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
+                }
+                SlicedModel<EmployeeDTO> employeeDTOSlice = SlicedModel.of(convertEmployees(employeesSlice.getContent()), employeesSlice,
+                        linkTo(EmployeeController.class));
+                employeeDTOSlice.add(linkTo(EmployeeController.class).withRel("employees"));
+                log.info("User {} requested to get all employees. RETURNING DATA.", user.getUsername());
+                return new ResponseEntity<>(employeeDTOSlice, HttpStatus.OK);
+            }
+            Page<Employee> employees = countMode == CountMode.APPROXIMATE
+                    ? pageQueryService.findApproximatePage(Employee.class, null, spec, pageable, searchQuery)
+                    : eRepository.findAll(spec, pageable);
             if (employees.getTotalElements() < 1) {
                 log.info("User {} requested to get all employees. NO DATA FOUND.", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_EMPLOYEE_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.NO_CONTENT);
             }
-            List<EmployeeDTO> employeeDTOS = new ArrayList<>();
-            for (Employee emp : employees) {
-                EmployeeDTO employeeDTO = EmployeeDTO.convert(emp);
-                employeeDTOS.add(createHATEOAS(employeeDTO));
-            }
+            List<EmployeeDTO> employeeDTOS = convertEmployees(employees);
             PagedModel.PageMetadata pmd = new PagedModel.PageMetadata(employees.getSize(), employees.getNumber(), employees.getTotalElements());
             PagedModel<EmployeeDTO> employeeDTOPage = PagedModel.of(employeeDTOS, pmd);
             employeeDTOPage.add(linkTo(EmployeeController.class).withRel("employees"));
             log.info("User {} requested all the employees. RETURNING DATA.", user.getUsername());
             return new ResponseEntity<>(employeeDTOPage, HttpStatus.OK);
+        } catch (PaginationCursorException e) {
+            log.info("User {} requested all the employees. INVALID CURSOR.", user.getUsername());
+            ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "INVALID_PAGINATION_CURSOR");
+            return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             log.info("User {} requested all the employees. UNEXPECTED ERROR!", user.getUsername());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -238,14 +332,24 @@ public class EmployeeController {
             employee.setFirstName(employeeCuDTO.getFirstName()); employee.setLastName(employeeCuDTO.getLastName());
             employee.setPassword(passwordEncoder.encode(employeeCuDTO.getPassword()));
             employee.setActive(false); employee.setBlocked(true);
-            Optional<Role> roleOptional = rRepository.findByName("ROLE_VENDOR");
-            if (roleOptional.isEmpty()) {
+            Optional<Long> roleId = referenceData.findRoleId("ROLE_VENDOR");
+            if (roleId.isEmpty()) {
                 log.info("User {} requested to create a new employee with email: '{}'. DEFAULT ROLE NOT FOUND.", user.getUsername(), employee.getEmail());
                 throw new RuntimeException("ROLE NOT FOUND");
             }
-            employee.addRole(roleOptional.get());
+            employee.addRole(rRepository.getReferenceById(roleId.get()));
             log.warn("User {} requested to create a new employee with email: '{}'. SAVING EMPLOYEE.", user.getUsername(), employee.getEmail());
-            Employee savedEmployee = eRepository.save(employee);
+            Employee savedEmployee;
+            try {
+                savedEmployee = eRepository.saveAndFlush(employee);
+            } catch (DataIntegrityViolationException e) {
+                String reason = eRepository.existsByUsername(employee.getUsername())
+                        ? "EMPLOYEE_USERNAME_ALREADY_EXIST" : "EMPLOYEE_EMAIL_ALREADY_EXIST";
+                log.info("User {} requested to create a new employee with email: '{}'. {}", user.getUsername(), employee.getEmail(), reason);
+                ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), reason);
+                return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
+            }
+            blockedEmployees.update(savedEmployee);
             EmployeeDTO employeeDTO = EmployeeDTO.convert(savedEmployee);
             createHATEOAS(employeeDTO);
             log.info("User {} requested to create a new employee with email: '{}'. EMPLOYEE CREATED AND SAVED.", user.getUsername(), savedEmployee.getEmail());
@@ -303,6 +407,7 @@ public class EmployeeController {
             employee.setLastName(employeeCuDTO.getLastName());
             log.warn("User {} requested to update the employee with id: '{}'. UPDATING EMPLOYEE.", user.getUsername(), id);
             Employee savedEmployee = eRepository.save(employee);
+            principalCache.invalidate(id);
             EmployeeDTO employeeDTO = EmployeeDTO.convert(savedEmployee);
             createHATEOAS(employeeDTO);
             log.info("User {} requested to update the employee with id: '{}'. EMPLOYEE UPDATED.", user.getUsername(), id);
@@ -344,6 +449,8 @@ public class EmployeeController {
             employee.setBlocked(false);
             log.warn("User {} requested to activate the employee with id: '{}'. ACTIVATING EMPLOYEE.", user.getUsername(), id);
             Employee savedEmployee = eRepository.save(employee);
+            blockedEmployees.update(savedEmployee);
+            principalCache.invalidate(id);
             EmployeeDTO employeeDTO = EmployeeDTO.convert(savedEmployee);
             createHATEOAS(employeeDTO);
             log.info("User {} requested to activate the employee with id: '{}'. EMPLOYEE UPDATED.", user.getUsername(), id);
@@ -358,7 +465,7 @@ public class EmployeeController {
      * This method is used to add a role to an employee.
      * Firstly, we verify that the user exists in the database.
      *      If not, we return an HttpStatus.BAD_REQUEST to the user.
-     * Secondly, we also verify that the role exists in the database.
+     * Secondly, we also verify that the role exists, in the reference data in memory.
      *      If not, we return an HttpStatus.BAD_REQUEST to the user.
      * Thirdly, we check that the employee is no already in the role.
      *      If yes, we return an HttpStatus.CONFLICT to the user.
@@ -386,21 +493,20 @@ public class EmployeeController {
             }
             Employee employee = employeeOptional.get();
 
-            Optional<Role> roleOptional = rRepository.findById(roleId);
-            if (roleOptional.isEmpty()) {
+            if (!referenceData.roleExists(roleId)) {
                 log.info("User {} requested to add a role of the employee with id: '{}'. NO DATA FOUND (ROLE).", user.getUsername(), empId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_ROLE_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            Role role = roleOptional.get();
 
-            if (employee.getRoles().contains(role)) {
+            if (employee.getRoles().stream().anyMatch(role -> roleId.equals(role.getId()))) {
                 log.info("User {} requested to add a role of the employee with id: '{}'. EMPLOYEE ALREADY IN THE ROLE.", user.getUsername(), empId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.CONFLICT.getReasonPhrase(), "ROLE_ALREADY_SET");
                 return new ResponseEntity<>(bm, HttpStatus.CONFLICT);
             }
-            employee.addRole(role);
+            employee.addRole(rRepository.getReferenceById(roleId));
             Employee savedEmployee = eRepository.save(employee);
+            tokenVersions.revoke(empId);
             EmployeeDTO employeeDTO = EmployeeDTO.convert(savedEmployee);
             createHATEOAS(employeeDTO);
             log.info("User {} requested to add a role of the employee with id: '{}'. ROLE ATTRIBUTED", user.getUsername(), empId);
@@ -415,7 +521,7 @@ public class EmployeeController {
      * This method is used to add a role to an employee.
      * Firstly, we verify that the user exists in the database.
      *      If not, we return an HttpStatus.BAD_REQUEST to the user.
-     * Secondly, we also verify that the role exists in the database.
+     * Secondly, we also verify that the role exists, in the reference data in memory.
      *      If not, we return an HttpStatus.BAD_REQUEST to the user.
      * Thirdly, we check that the employee is no already in the role.
      *      If yes, we return an HttpStatus.CONFLICT to the user.
@@ -443,21 +549,21 @@ public class EmployeeController {
             }
             Employee employee = employeeOptional.get();
 
-            Optional<Role> roleOptional = rRepository.findById(roleId);
-            if (roleOptional.isEmpty()) {
+            if (!referenceData.roleExists(roleId)) {
                 log.info("User {} requested to remove a remove of the employee with id: '{}'. NO DATA FOUND (ROLE).", user.getUsername(), empId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.BAD_REQUEST.getReasonPhrase(), "NO_ROLE_FOUND");
                 return new ResponseEntity<>(bm, HttpStatus.BAD_REQUEST);
             }
-            Role role = roleOptional.get();
+            Optional<Role> roleOptional = employee.getRoles().stream().filter(role -> roleId.equals(role.getId())).findFirst();
 
-            if (!employee.getRoles().contains(role)) {
+            if (roleOptional.isEmpty()) {
                 log.info("User {} requested to remove a role of the employee with id: '{}'. EMPLOYEE ALREADY IN THE ROLE.", user.getUsername(), empId);
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NOT_ACCEPTABLE.getReasonPhrase(), "ROLE_NOT_SET");
                 return new ResponseEntity<>(bm, HttpStatus.NOT_ACCEPTABLE);
             }
-            employee.removeRole(role);
+            employee.removeRole(roleOptional.get());
             Employee savedEmployee = eRepository.save(employee);
+            tokenVersions.revoke(empId);
             EmployeeDTO employeeDTO = EmployeeDTO.convert(savedEmployee);
             createHATEOAS(employeeDTO);
             log.info("User {} requested to remove a role of the employee with id: '{}'. ROLE ATTRIBUTED", user.getUsername(), empId);
@@ -495,6 +601,8 @@ public class EmployeeController {
             }
             log.debug("User {} requested to delete the employee with id: '{}'. BLOCKING EMPLOYEE", user.getUsername(), id);
             eRepository.deactivateEmployeeById(id);
+            blockedEmployees.block(id);
+            tokenVersions.revoke(id);
             log.info("User {} requested to delete the employee with id: '{}'. EMPLOYEE BLOCKED.", user.getUsername(), id);
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
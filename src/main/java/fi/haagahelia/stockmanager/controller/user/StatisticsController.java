@@ -14,6 +14,13 @@ import fi.haagahelia.stockmanager.repository.customer.order.CustomerOrderReposit
 import fi.haagahelia.stockmanager.repository.product.ProductRepository;
 import fi.haagahelia.stockmanager.repository.supplier.order.SupplierOrderRepository;
 import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
+import fi.haagahelia.stockmanager.service.common.BoundedCache;
+import fi.haagahelia.stockmanager.service.common.PageQueryService;
+import fi.haagahelia.stockmanager.service.common.RateLimitService;
+import fi.haagahelia.stockmanager.service.common.SecondLevelCacheService;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
+import fi.haagahelia.stockmanager.service.product.ProductCacheService;
+import fi.haagahelia.stockmanager.service.user.EmployeePrincipalCache;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.hateoas.Link;
@@ -24,6 +31,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,19 +48,129 @@ public class StatisticsController {
     private final ProductRepository productRepository;
     private final SupplierOrderRepository supplierOrderRepository;
     private final CustomerOrderRepository customerOrderRepository;
+    private final ProductCacheService productCache;
+    private final SecondLevelCacheService secondLevelCache;
+    private final UniquenessGuard uniquenessGuard;
+    private final EmployeePrincipalCache principalCache;
+    private final RateLimitService rateLimitService;
+    private final PageQueryService pageQueryService;
 
     @Autowired
     public StatisticsController(EmployeeRepository employeeRepository, ProductRepository productRepository,
-                                SupplierOrderRepository supplierOrderRepository, CustomerOrderRepository customerOrderRepository) {
+                                SupplierOrderRepository supplierOrderRepository, CustomerOrderRepository customerOrderRepository,
+                                ProductCacheService productCache, SecondLevelCacheService secondLevelCache,
+                                UniquenessGuard uniquenessGuard, EmployeePrincipalCache principalCache,
+                                RateLimitService rateLimitService, PageQueryService pageQueryService) {
         this.employeeRepository = employeeRepository;
         this.productRepository = productRepository;
         this.supplierOrderRepository = supplierOrderRepository;
         this.customerOrderRepository = customerOrderRepository;
+        this.productCache = productCache;
+        this.secondLevelCache = secondLevelCache;
+        this.uniquenessGuard = uniquenessGuard;
+        this.principalCache = principalCache;
+        this.rateLimitService = rateLimitService;
+        this.pageQueryService = pageQueryService;
     }
 
 
     /* ------------------------------------------------- API METHODS ------------------------------------------------ */
 
+    /**
+     * Available for: ROLE_ADMIN
+     * This function is used to get the statistics of the in-memory caches: the current and maximal size, the number
+     * of hits, misses and evictions since the start of the application, and the hit ratio.
+     *
+     * @param user Corresponds to the authenticated user.
+     * @return A ResponseEntity containing the statistics of each cache.
+     *      --> HttpStatus.OK with the statistics. (List of Statistics)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(value = "/caches", produces = "application/json")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> cachesStats(@AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the caches statistics.", user.getUsername());
+            List<BoundedCache.Stats> stats = new ArrayList<>(productCache.stats());
+            stats.add(principalCache.stats());
+            stats.add(pageQueryService.stats());
+            return new ResponseEntity<>(stats, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the caches statistics. UNEXPECTED ERROR!", user.getUsername());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Available for: ROLE_ADMIN
+     * This function is used to get the statistics of the regions of the Hibernate second-level cache: the number of
+     * entries in memory, the number of hits, misses and puts since the start of the application, and the hit ratio.
+     *
+     * @param user Corresponds to the authenticated user.
+     * @return A ResponseEntity containing the statistics of each region.
+     *      --> HttpStatus.OK with the statistics. (List of Statistics)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(value = "/caches/hibernate", produces = "application/json")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> secondLevelCacheStats(@AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the second-level cache statistics.", user.getUsername());
+            List<SecondLevelCacheService.RegionStats> stats = secondLevelCache.stats();
+            return new ResponseEntity<>(stats, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the second-level cache statistics. UNEXPECTED ERROR!", user.getUsername());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Available for: ROLE_ADMIN
+     * This function is used to get the statistics of the uniqueness guard: for each unique key, whether its values are
+     * loaded (exact set or Bloom filter), the number of checks since the start of the application, and the number and
+     * ratio of the checks answered without query.
+     *
+     * @param user Corresponds to the authenticated user.
+     * @return A ResponseEntity containing the statistics of each key.
+     *      --> HttpStatus.OK with the statistics. (List of Statistics)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(value = "/caches/uniqueness", produces = "application/json")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> uniquenessStats(@AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the uniqueness guard statistics.", user.getUsername());
+            List<UniquenessGuard.KeyStats> stats = uniquenessGuard.stats();
+            return new ResponseEntity<>(stats, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the uniqueness guard statistics. UNEXPECTED ERROR!", user.getUsername());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Available for: ROLE_ADMIN
+     * This function is used to get the statistics of the rate limiter: for each group of endpoints, the number of
+     * requests checked and refused (HttpStatus.TOO_MANY_REQUESTS) since the start of the application, and the ratio.
+     *
+     * @param user Corresponds to the authenticated user.
+     * @return A ResponseEntity containing the statistics of each group.
+     *      --> HttpStatus.OK with the statistics. (List of Statistics)
+     *      --> HttpStatus.INTERNAL_SERVER_ERROR if another error occurs. (ErrorMessage)
+     */
+    @GetMapping(value = "/rate-limits", produces = "application/json")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> rateLimitStats(@AuthenticationPrincipal Employee user) {
+        try {
+            log.info("User {} is requesting the rate limiter statistics.", user.getUsername());
+            List<RateLimitService.GroupStats> stats = rateLimitService.stats();
+            return new ResponseEntity<>(stats, HttpStatus.OK);
+        } catch (Exception e) {
+            log.info("User {} requested the rate limiter statistics. UNEXPECTED ERROR!", user.getUsername());
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
 
     /**
      * Available for: ROLE_MANAGER & ROLE_ADMIN
@@ -77,7 +195,7 @@ public class StatisticsController {
             OrderStatisticsDTO orderStatisticsDTO = new OrderStatisticsDTO();
             orderStatisticsDTO.setDate(date);
 
-            List<SupplierOrder> supplierOrders = supplierOrderRepository.findAll();
+            List<SupplierOrder> supplierOrders = supplierOrderRepository.findAllWithLines();
             if (supplierOrders.size() < 1) {
                 log.info("User {} requested to get general suppliers statistics. NO SUPPLIER ORDERS.", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_SUPPLIER_ORDERS_FOUND");
@@ -333,7 +451,7 @@ public class StatisticsController {
 
             // Calculation of number of unit received
             int unitReceived = 0;
-            List<SupplierOrder> allSupplierOrders = supplierOrderRepository.findAll();
+            List<SupplierOrder> allSupplierOrders = supplierOrderRepository.findAllWithLines();
             if (allSupplierOrders.size() < 1) {
                 log.info("User {} requested to get the sell-through rate. NO SUPPLIER ORDERS.", user.getUsername());
                 ErrorResponse bm = new ErrorResponse(HttpStatus.NO_CONTENT.getReasonPhrase(), "NO_SUPPLIER_ORDERS_FOUND");
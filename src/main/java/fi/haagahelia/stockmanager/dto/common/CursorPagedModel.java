@@ -0,0 +1,72 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import fi.haagahelia.stockmanager.service.common.KeysetSlice;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This class is the response of the list endpoints when the keyset (cursor) pagination is used.
+ * Unlike the PagedModel, it does not contain any total count. It contains the cursor of the next slice and a "next" link.
+ * @param <T> The type of the DTOs.
+ */
+public class CursorPagedModel<T> extends CollectionModel<T> {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private final CursorMetadata cursor;
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    protected CursorPagedModel(Collection<T> content, CursorMetadata cursor) {
+        super(content, Collections.emptyList(), null);
+        this.cursor = cursor;
+    }
+
+    /**
+     * This function is used to create the response of a keyset slice.
+     * If the slice has a next one, the "next" link is added, it keeps the other query parameters of the request.
+     * @param content Corresponds to the DTOs of the slice (with their HATEOAS links).
+     * @param slice Corresponds to the slice returned by the KeysetPaginationService.
+     * @param base Corresponds to the link of the endpoint, used when there is no current request.
+     * @return The CursorPagedModel.
+     */
+    public static <T> CursorPagedModel<T> of(Collection<T> content, KeysetSlice<?> slice, WebMvcLinkBuilder base) {
+        CursorPagedModel<T> model = new CursorPagedModel<>(content, new CursorMetadata(slice.getSize(), slice.getNextCursor()));
+        if (slice.hasNext()) {
+            model.add(PaginationLinks.next(base.toUri().toString(),
+                    Map.of("cursor", slice.getNextCursor(), "size", slice.getSize())));
+        }
+        return model;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        CursorPagedModel<?> that = (CursorPagedModel<?>) o;
+        return Objects.equals(cursor, that.cursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), cursor);
+    }
+
+    /* ---------------------------------------------- GETTERS & SETTERS --------------------------------------------- */
+
+    @JsonProperty("cursor")
+    public CursorMetadata getCursor() {
+        return cursor;
+    }
+
+    public record CursorMetadata(@JsonProperty("size") long size, @JsonProperty("next") String next) { }
+}
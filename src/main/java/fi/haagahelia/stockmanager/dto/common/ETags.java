@@ -0,0 +1,38 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+/**
+ * This class is used to build the ETags of the resources, checked with WebRequest.checkNotModified by the GET
+ * endpoints. The ETag of a resource comes from the revision of its row (read without loading the entity), the ETag of
+ * a list comes from the change counter of the entity type (CollectionVersionService, read by primary key).
+ */
+public final class ETags {
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    private ETags() {
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to build the strong ETag of a resource.
+     * @param resource Corresponds to the name of the resource (product, brand, ...).
+     * @param key Corresponds to the key of the resource in the URL (id or email).
+     * @param revision Corresponds to the revision of the row.
+     * @return The ETag, quoted.
+     */
+    public static String of(String resource, Object key, Long revision) {
+        return "\"" + resource + "-" + key + "-" + revision + "\"";
+    }
+
+    /**
+     * This function is used to build the strong ETag of the lists of an entity type.
+     * The query parameters (page, sort, filters) are part of the URL, so the same ETag can be used for all of them.
+     * @param entityClass Corresponds to the class of the listed entities.
+     * @param version Corresponds to the change counter of the entity type.
+     * @return The ETag, quoted.
+     */
+    public static String ofCollection(Class<?> entityClass, long version) {
+        return "\"" + entityClass.getSimpleName().toLowerCase() + "-list-" + version + "\"";
+    }
+}
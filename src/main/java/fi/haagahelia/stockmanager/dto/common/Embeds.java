@@ -0,0 +1,45 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * This class is used to read the "embed" query parameter of the detail endpoints (?embed=brand,category or
+ * ?embed=lines.product). The requested relations are inlined under "_embedded" instead of being only linked.
+ */
+public final class Embeds {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    public static final String INVALID_EMBED = "INVALID_EMBED";
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    private Embeds() {
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to parse the "embed" query parameter.
+     * The relations are separated by commas, a nested relation (lines.product) also embeds its parents (lines).
+     * @param embed Corresponds to the value of the query parameter, can be null.
+     * @param allowed Corresponds to the relations that the endpoint is able to embed.
+     * @return The set of the relations to embed (empty if none), or null if a relation is not allowed.
+     */
+    public static Set<String> parse(String embed, Set<String> allowed) {
+        if (embed == null || embed.isBlank()) return Collections.emptySet();
+        Set<String> relations = new LinkedHashSet<>();
+        for (String part : embed.split(",")) {
+            String relation = part.trim();
+            if (relation.isEmpty()) continue;
+            if (!allowed.contains(relation)) return null;
+            for (int dot = relation.indexOf('.'); dot > 0; dot = relation.indexOf('.', dot + 1)) {
+                relations.add(relation.substring(0, dot));
+            }
+            relations.add(relation);
+        }
+        return relations;
+    }
+}
@@ -0,0 +1,97 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+/**
+ * This class is used to build the HATEOAS links of the DTOs without a WebMvcLinkBuilder per link.
+ * The base URI of each controller (linkTo(controller)) is resolved once per request and kept in the request attributes.
+ * Then, each link is only the concatenation of this base URI and of its path segments, with the same rules as
+ * WebMvcLinkBuilder.slash(), so the links are identical to the ones built with linkTo(controller).slash(...).
+ */
+public final class LinkTemplates {
+
+    private static final String BASES_ATTRIBUTE = LinkTemplates.class.getName() + ".BASES";
+
+    private LinkTemplates() { }
+
+    /**
+     * This function is used to get the base URI of a controller, resolved at most once per request.
+     * Outside a request (no request attributes), the base URI is resolved each time.
+     * @param controller Corresponds to the class of the controller.
+     * @return The base URI of the controller.
+     */
+    @SuppressWarnings("unchecked")
+    static String base(Class<?> controller) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return linkTo(controller).toUri().toString();
+        Map<Class<?>, String> bases = (Map<Class<?>, String>) attributes.getAttribute(BASES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (bases == null) {
+            bases = new HashMap<>();
+            attributes.setAttribute(BASES_ATTRIBUTE, bases, RequestAttributes.SCOPE_REQUEST);
+        }
+        return bases.computeIfAbsent(controller, c -> linkTo(c).toUri().toString());
+    }
+
+    /**
+     * This function is used to append path segments to a base URI, like WebMvcLinkBuilder.slash() does:
+     * the null and empty segments are ignored, a trailing "#" is removed, each segment is split on "/" (the empty parts
+     * are ignored) and each part is encoded and appended after a single "/".
+     */
+    static String href(String base, Object... segments) {
+        StringBuilder href = new StringBuilder(base.length() + 16 * segments.length).append(base);
+        for (Object segment : segments) {
+            if (segment instanceof Optional<?> optional) segment = optional.orElse(null);
+            if (segment == null) continue;
+            String path = segment.toString();
+            if (path.endsWith("#")) path = path.substring(0, path.length() - 1);
+            if (!StringUtils.hasText(path)) continue;
+            for (String part : StringUtils.tokenizeToStringArray(path, "/", false, true)) {
+                if (href.length() == 0 || href.charAt(href.length() - 1) != '/') href.append('/');
+                href.append(UriUtils.encodePath(part, StandardCharsets.UTF_8));
+            }
+        }
+        return href.toString();
+    }
+
+    /**
+     * This function is used to build a link, equal to linkTo(controller).slash(segment)...withRel(rel).
+     * @param controller Corresponds to the class of the controller.
+     * @param rel Corresponds to the relation of the link.
+     * @param segments Corresponds to the path segments appended to the base URI of the controller.
+     * @return The link.
+     */
+    public static Link link(Class<?> controller, String rel, Object... segments) {
+        return Link.of(href(base(controller), segments), rel);
+    }
+
+    /**
+     * This function is used to build a self link, equal to linkTo(controller).slash(segment)...withSelfRel().
+     * @param controller Corresponds to the class of the controller.
+     * @param segments Corresponds to the path segments appended to the base URI of the controller.
+     * @return The self link.
+     */
+    public static Link self(Class<?> controller, Object... segments) {
+        return Link.of(href(base(controller), segments), IanaLinkRelations.SELF);
+    }
+
+    /**
+     * This function is used to build a link with a LinkRelation.
+     * @see #link(Class, String, Object...)
+     */
+    public static Link link(Class<?> controller, LinkRelation rel, Object... segments) {
+        return Link.of(href(base(controller), segments), rel);
+    }
+}
@@ -0,0 +1,109 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * This class is the response of the multi-get endpoints (?ids=1,2,3).
+ * The content follows the order of the requested ids, an id that does not exist gives a null entry and is also listed
+ * in the missing ids, so that the client does not have to compare the two lists to know what has not been found.
+ * @param <T> The type of the DTOs.
+ */
+public class MultiGetModel<T> extends RepresentationModel<MultiGetModel<T>> {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    /** Maximum number of ids that can be requested at once, the ids are sent in a single IN (...) query. */
+    public static final int MAX_IDS = 100;
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private final List<T> content;
+    private final List<Long> missing;
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    protected MultiGetModel(List<T> content, List<Long> missing) {
+        this.content = content;
+        this.missing = missing;
+    }
+
+    /**
+     * This function is used to create the response of a multi-get.
+     * Firstly, the found entities are indexed by their id.
+     * Secondly, the requested ids are browsed in order, each found entity is converted (only once if the id is
+     * requested several times) and the ids not found are added to the missing list.
+     * @param ids Corresponds to the requested ids, in the order of the request.
+     * @param found Corresponds to the entities returned by the database (in any order).
+     * @param idOf Corresponds to the function that gives the id of an entity.
+     * @param convert Corresponds to the function that converts an entity to its DTO (with its HATEOAS links).
+     * @return The MultiGetModel.
+     */
+    public static <E, T> MultiGetModel<T> of(List<Long> ids, Collection<E> found, Function<E, Long> idOf,
+                                             Function<E, T> convert) {
+        Map<Long, E> entities = new HashMap<>();
+        for (E entity : found) entities.put(idOf.apply(entity), entity);
+        Map<Long, T> converted = new HashMap<>();
+        List<T> content = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            E entity = id == null ? null : entities.get(id);
+            if (entity == null) {
+                content.add(null);
+                missing.add(id);
+            } else {
+                content.add(converted.computeIfAbsent(id, key -> convert.apply(entity)));
+            }
+        }
+        return new MultiGetModel<>(content, missing);
+    }
+
+    /**
+     * This function is used to check the requested ids before querying the database.
+     * @param ids Corresponds to the requested ids.
+     * @return The error code if the ids are not valid, null otherwise.
+     */
+    public static String validate(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.contains(null)) return "INVALID_IDS";
+        if (ids.size() > MAX_IDS) return "TOO_MANY_IDS";
+        return null;
+    }
+
+    /**
+     * This function is used to get the distinct requested ids, sent to the IN (...) query.
+     * @param ids Corresponds to the requested ids.
+     * @return The distinct ids.
+     */
+    public static Set<Long> distinct(List<Long> ids) {
+        return new LinkedHashSet<>(ids);
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    @JsonProperty("content")
+    public List<T> getContent() {
+        return content;
+    }
+
+    @JsonProperty("missing")
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        MultiGetModel<?> that = (MultiGetModel<?>) o;
+        return Objects.equals(content, that.content) && Objects.equals(missing, that.missing);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), content, missing);
+    }
+}
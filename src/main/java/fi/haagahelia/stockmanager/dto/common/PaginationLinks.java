@@ -0,0 +1,26 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * This class is used to build the "next" link of the paginated responses that do not contain any page metadata.
+ * The link keeps the query parameters of the current request (e.g. the search query), only the pagination ones change.
+ */
+final class PaginationLinks {
+
+    private PaginationLinks() { }
+
+    static Link next(String fallback, Map<String, Object> params) {
+        UriComponentsBuilder builder = RequestContextHolder.getRequestAttributes() != null
+                ? ServletUriComponentsBuilder.fromCurrentRequest()
+                : UriComponentsBuilder.fromUriString(fallback);
+        params.forEach(builder::replaceQueryParam);
+        return Link.of(builder.build().toUriString(), IanaLinkRelations.NEXT);
+    }
+}
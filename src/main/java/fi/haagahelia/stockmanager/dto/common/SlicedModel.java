@@ -0,0 +1,73 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Slice;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This class is the response of the list endpoints when no count is requested (count=none).
+ * Unlike the PagedModel, it does not contain the total of elements and pages, only if a next page exists.
+ * @param <T> The type of the DTOs.
+ */
+public class SlicedModel<T> extends CollectionModel<T> {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private final SliceMetadata page;
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    protected SlicedModel(Collection<T> content, SliceMetadata page) {
+        super(content, Collections.emptyList(), null);
+        this.page = page;
+    }
+
+    /**
+     * This function is used to create the response of a slice.
+     * If the slice has a next page, the "next" link is added, it keeps the other query parameters of the request.
+     * @param content Corresponds to the DTOs of the slice (with their HATEOAS links).
+     * @param slice Corresponds to the slice of entities.
+     * @param base Corresponds to the link of the endpoint, used when there is no current request.
+     * @return The SlicedModel.
+     */
+    public static <T> SlicedModel<T> of(Collection<T> content, Slice<?> slice, WebMvcLinkBuilder base) {
+        SlicedModel<T> model = new SlicedModel<>(content, new SliceMetadata(slice.getSize(), slice.getNumber(), slice.hasNext()));
+        if (slice.hasNext()) {
+            model.add(PaginationLinks.next(base.toUri().toString(),
+                    Map.of("page", slice.getNumber() + 1, "size", slice.getSize())));
+        }
+        return model;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        SlicedModel<?> that = (SlicedModel<?>) o;
+        return Objects.equals(page, that.page);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), page);
+    }
+
+    /* ---------------------------------------------- GETTERS & SETTERS --------------------------------------------- */
+
+    @JsonProperty("page")
+    public SliceMetadata getPage() {
+        return page;
+    }
+
+    public record SliceMetadata(@JsonProperty("size") long size, @JsonProperty("number") long number,
+                                @JsonProperty("hasNext") boolean hasNext) { }
+}
@@ -0,0 +1,28 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.hateoas.RepresentationModel;
+
+@Builder
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class SuggestionDTO extends RepresentationModel<SuggestionDTO> {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+    private String type;
+    private Long id;
+    private String label;
+
+    /* ------------------------------------------------- CONVERTORS ------------------------------------------------- */
+
+    public static SuggestionDTO convert(AutocompleteService.Suggestion suggestion) {
+        return builder()
+                .type(suggestion.type().name().toLowerCase())
+                .id(suggestion.id())
+                .label(suggestion.label())
+                .build();
+    }
+}
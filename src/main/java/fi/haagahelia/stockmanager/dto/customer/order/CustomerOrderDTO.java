@@ -2,6 +2,8 @@ package fi.haagahelia.stockmanager.dto.customer.order;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import fi.haagahelia.stockmanager.dto.customer.CustomerDTO;
 import fi.haagahelia.stockmanager.dto.user.EmployeeDTO;
 import fi.haagahelia.stockmanager.model.customer.order.CustomerOrder;
@@ -11,6 +13,7 @@ import lombok.EqualsAndHashCode;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 @Builder
 @Data
@@ -32,6 +35,10 @@ public class CustomerOrderDTO extends RepresentationModel<CustomerOrderDTO> {
     @JsonIgnore
     private CustomerDTO customerDTO;
 
+    @JsonProperty("_embedded")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Object> embedded;
+
     /* ------------------------------------------------- CONVERTORS ------------------------------------------------- */
 
     public static CustomerOrderDTO convert(CustomerOrder customerOrder) {
@@ -1,6 +1,8 @@
 package fi.haagahelia.stockmanager.dto.customer.order;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import fi.haagahelia.stockmanager.dto.product.ProductSimpleDTO;
 import fi.haagahelia.stockmanager.model.customer.order.CustomerOrderLine;
 import lombok.Builder;
@@ -8,6 +10,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.springframework.hateoas.RepresentationModel;
 
+import java.util.Map;
+
 @Builder
 @Data
 @EqualsAndHashCode(callSuper = false)
@@ -26,6 +30,10 @@ public class CustomerOrderLineDTO extends RepresentationModel<CustomerOrderLineD
     @JsonIgnore
     private ProductSimpleDTO productSimpleDTO;
 
+    @JsonProperty("_embedded")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Object> embedded;
+
     /* ------------------------------------------------- CONVERTORS ------------------------------------------------- */
 
     public static CustomerOrderLineDTO convert(CustomerOrderLine orderLine) {
@@ -0,0 +1,26 @@
+package fi.haagahelia.stockmanager.dto.product;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.util.List;
+
+/**
+ * This class is the response of the delta sync feed of the products (/api/products/changes).
+ * The upserts are the products created or updated since the sync token, the deletes are the ids of the products
+ * deleted since it. The client sends the returned token to get the next changes.
+ */
+@Data
+@Builder
+@EqualsAndHashCode(callSuper = false)
+public class ProductChangesDTO extends RepresentationModel<ProductChangesDTO> {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private Long token;
+    private Boolean hasMore;
+    private List<ProductSimpleDTO> upserts;
+    private List<Long> deletes;
+}
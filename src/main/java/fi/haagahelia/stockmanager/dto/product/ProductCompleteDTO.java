@@ -1,6 +1,8 @@
 package fi.haagahelia.stockmanager.dto.product;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import fi.haagahelia.stockmanager.dto.product.brand.BrandDTO;
 import fi.haagahelia.stockmanager.dto.product.category.CategoryDTO;
 import fi.haagahelia.stockmanager.dto.product.category.ProductDTO;
@@ -10,7 +12,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
-@Builder
+import java.util.Map;
+
+@Builder(toBuilder = true)
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class ProductCompleteDTO extends ProductDTO {
@@ -35,6 +39,10 @@ public class ProductCompleteDTO extends ProductDTO {
     @JsonIgnore
     private SupplierDTO supplier;
 
+    @JsonProperty("_embedded")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Object> embedded;
+
     /* ------------------------------------------------- CONVERTORS ------------------------------------------------- */
 
     public static ProductCompleteDTO convert(Product product) {
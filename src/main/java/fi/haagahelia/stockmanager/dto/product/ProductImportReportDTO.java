@@ -0,0 +1,43 @@
+package fi.haagahelia.stockmanager.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ProductImportReportDTO {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private long totalRows;
+    private long importedRows;
+    private long failedRows;
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to report a row that has not been imported.
+     * Only the first maxErrors errors are kept, so the report size stays bounded whatever the size of the file.
+     * @param row Corresponds to the number of the row in the file (the header of a CSV file is the row 1).
+     * @param name Corresponds to the name of the product of the row, can be null.
+     * @param error Corresponds to the error code (same codes as the product creation).
+     * @param maxErrors Corresponds to the maximal number of errors kept in the report.
+     */
+    public void addError(long row, String name, String error, int maxErrors) {
+        failedRows++;
+        if (errors.size() < maxErrors) errors.add(new RowError(row, name, error));
+        else errorsTruncated = true;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String name;
+        private String error;
+    }
+}
@@ -11,7 +11,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @EqualsAndHashCode(callSuper = false)
 public class ProductSimpleDTO extends ProductDTO {
 
@@ -52,5 +52,25 @@ public class ProductSimpleDTO extends ProductDTO {
         return productBuilder.build();
     }
 
+    public static ProductSimpleDTO convert(ProductSimpleProjection product) {
+        ProductSimpleDTOBuilder productBuilder = builder()
+                .id(product.id())
+                .name(product.name())
+                .description(product.description())
+                .salePrice(product.salePrice())
+                .stock(product.stock());
+
+        if (product.brandId() != null) {
+            productBuilder.brand(BrandDTO.builder().id(product.brandId()).name(product.brandName()).build());
+        }
+
+        if (product.categoryId() != null) {
+            productBuilder.category(CategoryDTO.builder().id(product.categoryId()).name(product.categoryName())
+                    .description(product.categoryDescription()).build());
+        }
+
+        return productBuilder.build();
+    }
+
 
 }
@@ -0,0 +1,9 @@
+package fi.haagahelia.stockmanager.dto.product;
+
+/**
+ * Projection of the columns needed by a ProductSimpleDTO, selected with their brand and category in a single query.
+ * No entity is loaded (nothing managed, nothing to dirty check) when a list of products is read with this projection.
+ */
+public record ProductSimpleProjection(Long id, String name, String description, Double salePrice, Integer stock,
+                                      Long brandId, String brandName, Long categoryId, String categoryName,
+                                      String categoryDescription) { }
@@ -1,6 +1,8 @@
 package fi.haagahelia.stockmanager.dto.supplier.order;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import fi.haagahelia.stockmanager.dto.supplier.SupplierDTO;
 import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
 import lombok.Builder;
@@ -9,6 +11,7 @@ import lombok.EqualsAndHashCode;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 @Builder
 @Data
@@ -28,6 +31,10 @@ public class SupplierOrderDTO extends RepresentationModel<SupplierOrderDTO> {
     @JsonIgnore
     private SupplierDTO supplierDTO;
 
+    @JsonProperty("_embedded")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Object> embedded;
+
     /* ------------------------------------------------- CONVERTORS ------------------------------------------------- */
 
     public static SupplierOrderDTO convert(SupplierOrder supplierOrder) {
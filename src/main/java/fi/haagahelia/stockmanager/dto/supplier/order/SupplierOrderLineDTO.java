@@ -1,6 +1,8 @@
 package fi.haagahelia.stockmanager.dto.supplier.order;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import fi.haagahelia.stockmanager.dto.product.ProductCompleteDTO;
 import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrderLine;
 import lombok.Builder;
@@ -8,6 +10,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.springframework.hateoas.RepresentationModel;
 
+import java.util.Map;
+
 @Builder
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -28,6 +32,10 @@ public class SupplierOrderLineDTO extends RepresentationModel<SupplierOrderLineD
     @JsonIgnore
     private ProductCompleteDTO productCompleteDTO;
 
+    @JsonProperty("_embedded")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Object> embedded;
+
 
     /* ------------------------------------------------- CONVERTORS ------------------------------------------------- */
 
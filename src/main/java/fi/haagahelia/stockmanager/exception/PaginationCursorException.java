@@ -0,0 +1,12 @@
+package fi.haagahelia.stockmanager.exception;
+
+public class PaginationCursorException extends Exception {
+
+    public PaginationCursorException(String message) {
+        super(message);
+    }
+
+    public PaginationCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
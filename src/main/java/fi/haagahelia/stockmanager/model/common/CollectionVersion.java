@@ -0,0 +1,63 @@
+package fi.haagahelia.stockmanager.model.common;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * This entity is the change counter of an entity type, used as the ETag of its lists (CollectionVersionService).
+ * The counter is stored in the database, so all the instances of the application give the same ETags.
+ * The rows are written with JDBC only, the entity is here to create the table.
+ */
+@Entity
+@Table(name = "BRU_COLLECTION_VERSION")
+public class CollectionVersion {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    @Id
+    @Column(name = "cov_name", length = 64)
+    private String name;
+
+    @Column(name = "cov_version", nullable = false)
+    private Long version;
+
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    public CollectionVersion() { }
+
+    public CollectionVersion(String name, Long version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    @Override
+    public String toString() {
+        return "CollectionVersion{" +
+                "name='" + name + '\'' +
+                ", version=" + version +
+                '}';
+    }
+
+    /* ---------------------------------------------- GETTERS & SETTERS --------------------------------------------- */
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -1,13 +1,30 @@
 package fi.haagahelia.stockmanager.model.common;
 
 import jakarta.persistence.*;
-
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 @Entity
-@Table(name = "BRU_GEOLOCATION")
+@Table(name = "BRU_GEOLOCATION", indexes = {
+        @Index(name = "IDX_GEO_FINGERPRINT", columnList = "geo_fingerprint", unique = true)
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.geolocation")
 public class Geolocation {
 
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
     @Id
@@ -30,6 +47,15 @@ public class Geolocation {
     @Column(name = "geo_country", nullable = false)
     private String country;
 
+    /**
+     * Hash of the normalized address (street name, street number, postcode and country), unique. This column is
+     * derived from the address (kept up to date by the setters), so a duplicated address is found with an index
+     * whatever its case and its whitespaces. Null for the rows saved before the column existed, until they are
+     * fingerprinted by the GeolocationFingerprintService.
+     */
+    @Column(name = "geo_fingerprint", length = 64)
+    private String fingerprint;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
 
@@ -43,10 +69,43 @@ public class Geolocation {
         this.postcode = postcode;
         this.locality = locality;
         this.country = country;
+        refreshFingerprint();
     }
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
 
+    private void refreshFingerprint() {
+        this.fingerprint = streetName == null || streetNumber == null || postcode == null || country == null ? null
+                : fingerprint(streetName, streetNumber, postcode, country);
+    }
+
+    /**
+     * This function is used to normalize a part of an address: Unicode compatibility normalization, whitespaces
+     * trimmed and collapsed, lower case.
+     * @param value Corresponds to the part of the address.
+     * @return The normalized value.
+     */
+    static String normalize(String value) {
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).strip();
+        return WHITESPACES.matcher(normalized).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * This function is used to compute the fingerprint of an address: the SHA-256 (hexadecimal) of its normalized
+     * parts, separated by a control character that cannot be typed in an address.
+     * @return The fingerprint, 64 characters.
+     */
+    public static String fingerprint(String streetName, String streetNumber, String postcode, String country) {
+        String address = String.join("\u001F", normalize(streetName), normalize(streetNumber), normalize(postcode),
+                normalize(country));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(address.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -89,6 +148,7 @@ public class Geolocation {
 
     public void setStreetName(String streetName) {
         this.streetName = streetName;
+        refreshFingerprint();
     }
 
     public String getStreetNumber() {
@@ -97,6 +157,7 @@ public class Geolocation {
 
     public void setStreetNumber(String streetNumber) {
         this.streetNumber = streetNumber;
+        refreshFingerprint();
     }
 
     public String getPostcode() {
@@ -105,6 +166,7 @@ public class Geolocation {
 
     public void setPostcode(String postcode) {
         this.postcode = postcode;
+        refreshFingerprint();
     }
 
     public String getLocality() {
@@ -115,11 +177,20 @@ public class Geolocation {
         this.locality = locality;
     }
 
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     public String getCountry() {
         return country;
     }
 
     public void setCountry(String country) {
         this.country = country;
+        refreshFingerprint();
     }
 }
@@ -0,0 +1,58 @@
+package fi.haagahelia.stockmanager.model.common;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is the entity listener of the reference entities (brands, categories and roles), kept in memory by the
+ * ReferenceDataService. Each insert, update or delete increments the generation of the reference data, so the snapshot
+ * in memory is reloaded at its next read.
+ * The generation is incremented again when the transaction is finished: a snapshot loaded between the change and the
+ * commit (without the change) is then never considered as up to date.
+ */
+public class ReferenceDataListener {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /* ------------------------------------------------- LISTENERS -------------------------------------------------- */
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void postChange(Object entity) {
+        changed();
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to increment the generation of the reference data, now and after the current transaction.
+     * The changes that do not go through the EntityManager (bulk JPQL queries, JDBC) must call it.
+     */
+    public static void changed() {
+        GENERATION.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    GENERATION.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * This function is used to get the current generation of the reference data.
+     * @return The generation, incremented at each change.
+     */
+    public static long generation() {
+        return GENERATION.get();
+    }
+}
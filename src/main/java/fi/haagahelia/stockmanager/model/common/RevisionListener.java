@@ -0,0 +1,49 @@
+package fi.haagahelia.stockmanager.model.common;
+
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import jakarta.persistence.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * This class is the entity listener of the Revisioned entities.
+ * Each insert sets the revision of the row to 0 and each update increments it, so the ETag of a resource changes
+ * with its content. Each insert, update or delete also records a change of the entity type in the
+ * CollectionVersionService, whose counter (stored in the database) is used as the ETag of the lists.
+ * The listener is created by Spring (Hibernate uses the Spring bean container). The service is looked up at each call:
+ * it uses the JdbcTemplate, which waits for the EntityManagerFactory that creates this listener.
+ */
+public class RevisionListener {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private ObjectProvider<CollectionVersionService> collectionVersionsProvider;
+
+    @Autowired
+    public void setCollectionVersionsProvider(ObjectProvider<CollectionVersionService> collectionVersionsProvider) {
+        this.collectionVersionsProvider = collectionVersionsProvider;
+    }
+
+    /* ------------------------------------------------- LISTENERS -------------------------------------------------- */
+
+    @PrePersist
+    public void prePersist(Object entity) {
+        Revisioned revisioned = (Revisioned) entity;
+        if (revisioned.getRevision() == null) revisioned.setRevision(0L);
+    }
+
+    @PreUpdate
+    public void preUpdate(Object entity) {
+        Revisioned revisioned = (Revisioned) entity;
+        revisioned.setRevision(revisioned.getRevision() == null ? 1L : revisioned.getRevision() + 1);
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void postChange(Object entity) {
+        CollectionVersionService collectionVersions = collectionVersionsProvider == null ? null
+                : collectionVersionsProvider.getIfAvailable();
+        if (collectionVersions != null) collectionVersions.changed(entity.getClass());
+    }
+}
@@ -0,0 +1,12 @@
+package fi.haagahelia.stockmanager.model.common;
+
+/**
+ * This interface is implemented by the entities whose revision is tracked by the RevisionListener.
+ * The revision is used to build the ETag of the resource, so a client can revalidate it without downloading it again.
+ */
+public interface Revisioned {
+
+    Long getRevision();
+
+    void setRevision(Long revision);
+}
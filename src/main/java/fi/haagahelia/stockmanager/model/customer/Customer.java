@@ -1,13 +1,17 @@
 package fi.haagahelia.stockmanager.model.customer;
 
 import fi.haagahelia.stockmanager.model.common.Geolocation;
+import fi.haagahelia.stockmanager.model.common.RevisionListener;
+import fi.haagahelia.stockmanager.model.common.Revisioned;
+import fi.haagahelia.stockmanager.service.common.UniquenessListener;
 import jakarta.persistence.*;
 
 import java.util.Objects;
 
 @Entity
 @Table(name = "BRU_CUSTOMER")
-public class Customer {
+@EntityListeners({RevisionListener.class, UniquenessListener.class})
+public class Customer implements Revisioned {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
@@ -25,6 +29,9 @@ public class Customer {
     @Column(name = "cus_email", nullable = false, unique = true)
     private String email;
 
+    @Column(name = "cus_revision")
+    private Long revision;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -114,4 +121,14 @@ public class Customer {
     public void setGeolocation(Geolocation geolocation) {
         this.geolocation = geolocation;
     }
+
+    @Override
+    public Long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
@@ -1,5 +1,7 @@
 package fi.haagahelia.stockmanager.model.customer.order;
 
+import fi.haagahelia.stockmanager.model.common.RevisionListener;
+import fi.haagahelia.stockmanager.model.common.Revisioned;
 import fi.haagahelia.stockmanager.model.customer.Customer;
 import fi.haagahelia.stockmanager.model.user.Employee;
 import jakarta.persistence.*;
@@ -11,7 +13,8 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "BRU_CUSTOMER_ORDER")
-public class CustomerOrder {
+@EntityListeners(RevisionListener.class)
+public class CustomerOrder implements Revisioned {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
@@ -29,6 +32,9 @@ public class CustomerOrder {
     @Column(name = "cuo_is_sent", nullable = false)
     private Boolean isSent;
 
+    @Column(name = "cuo_revision")
+    private Long revision;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -145,4 +151,14 @@ public class CustomerOrder {
     public void removeCustomerOrderLine(CustomerOrderLine customerOrderLine) {
         this.customerOrderLines.remove(customerOrderLine);
     }
+
+    @Override
+    public Long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
@@ -1,8 +1,12 @@
 package fi.haagahelia.stockmanager.model.product;
 
+import fi.haagahelia.stockmanager.model.common.RevisionListener;
+import fi.haagahelia.stockmanager.model.common.Revisioned;
 import fi.haagahelia.stockmanager.model.product.brand.Brand;
 import fi.haagahelia.stockmanager.model.product.category.Category;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import fi.haagahelia.stockmanager.service.common.UniquenessListener;
+import fi.haagahelia.stockmanager.service.product.ProductChangeListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 
@@ -11,8 +15,12 @@ import java.util.Objects;
 @Entity
 @Table(name = "BRU_PRODUCT", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"pro_name","pro_sup_id"})
+}, indexes = {
+        @Index(name = "IDX_PRO_LOW_STOCK", columnList = "pro_low_stock, pro_stock")
 })
-public class Product {
+@NamedEntityGraph(name = "Product.brandCategory", attributeNodes = {@NamedAttributeNode("brand"), @NamedAttributeNode("category")})
+@EntityListeners({RevisionListener.class, ProductChangeListener.class, UniquenessListener.class})
+public class Product implements Revisioned {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
@@ -45,6 +53,17 @@ public class Product {
     @Min(2)
     private Integer batchSize;
 
+    /**
+     * True when the stock is lower or equal to the minimal stock. This column is derived from the stock and the minimal
+     * stock (kept up to date by their setters), so the low stock products can be found with an index.
+     */
+    @Column(name = "pro_low_stock", nullable = false)
+    private Boolean lowStock = false;
+
+    /** Revision of the row, incremented at each update by the RevisionListener (used to build the ETag). */
+    @Column(name = "pro_revision")
+    private Long revision;
+
 
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
@@ -74,6 +93,7 @@ public class Product {
         this.stock = stock;
         this.minStock = minStock;
         this.batchSize = batchSize;
+        refreshLowStock();
         this.brand = brand;
         this.category = category;
         this.supplier = supplier;
@@ -81,6 +101,10 @@ public class Product {
 
     /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
 
+    private void refreshLowStock() {
+        this.lowStock = stock != null && minStock != null && stock <= minStock;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -156,6 +180,7 @@ public class Product {
 
     public void setStock(Integer stock) {
         this.stock = stock;
+        refreshLowStock();
     }
 
     public Integer getMinStock() {
@@ -164,6 +189,11 @@ public class Product {
 
     public void setMinStock(Integer minStock) {
         this.minStock = minStock;
+        refreshLowStock();
+    }
+
+    public Boolean getLowStock() {
+        return lowStock;
     }
 
     public Integer getBatchSize() {
@@ -197,4 +227,14 @@ public class Product {
     public void setSupplier(Supplier supplier) {
         this.supplier = supplier;
     }
+
+    @Override
+    public Long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
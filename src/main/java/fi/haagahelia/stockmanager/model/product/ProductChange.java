@@ -0,0 +1,92 @@
+package fi.haagahelia.stockmanager.model.product;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * This entity is a row of the change log of the products, read by the delta sync feed (/api/products/changes).
+ * Each insert, update (stock included) or delete of a product adds a row. The id is the change sequence: it only grows,
+ * so a client keeps the id of the last change it has read and asks for the changes after it.
+ * There is no foreign key on the product, the changes of a deleted product must stay in the log.
+ */
+@Entity
+@Table(name = "BRU_PRODUCT_CHANGE", indexes = {
+        @Index(name = "IDX_PRC_CHANGED_AT", columnList = "prc_changed_at")
+})
+public class ProductChange {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "prc_id")
+    private Long id;
+
+    @Column(name = "prc_pro_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "prc_deleted", nullable = false)
+    private Boolean deleted;
+
+    @Column(name = "prc_changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    public ProductChange() { }
+
+    public ProductChange(Long id, Long productId, Boolean deleted, LocalDateTime changedAt) {
+        this.id = id;
+        this.productId = productId;
+        this.deleted = deleted;
+        this.changedAt = changedAt;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    @Override
+    public String toString() {
+        return "ProductChange{" +
+                "id=" + id +
+                ", productId=" + productId +
+                ", deleted=" + deleted +
+                ", changedAt=" + changedAt +
+                '}';
+    }
+
+    /* ---------------------------------------------- GETTERS & SETTERS --------------------------------------------- */
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Boolean getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(Boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -1,12 +1,21 @@
 package fi.haagahelia.stockmanager.model.product.brand;
 
+import fi.haagahelia.stockmanager.model.common.ReferenceDataListener;
+import fi.haagahelia.stockmanager.model.common.RevisionListener;
+import fi.haagahelia.stockmanager.model.common.Revisioned;
+import fi.haagahelia.stockmanager.service.common.UniquenessListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
 @Entity
 @Table(name = "BRU_BRAND")
-public class Brand {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.brand")
+@EntityListeners({RevisionListener.class, ReferenceDataListener.class, UniquenessListener.class})
+public class Brand implements Revisioned {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
@@ -18,6 +27,9 @@ public class Brand {
     @Column(name = "bra_name", nullable = false, unique = true, updatable = false)
     private String name;
 
+    @Column(name = "bra_revision")
+    private Long revision;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
 
@@ -70,4 +82,14 @@ public class Brand {
     public void setName(String name) {
         this.name = name;
     }
+
+    @Override
+    public Long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
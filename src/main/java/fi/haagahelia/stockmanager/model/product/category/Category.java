@@ -1,12 +1,21 @@
 package fi.haagahelia.stockmanager.model.product.category;
 
+import fi.haagahelia.stockmanager.model.common.ReferenceDataListener;
+import fi.haagahelia.stockmanager.model.common.RevisionListener;
+import fi.haagahelia.stockmanager.model.common.Revisioned;
+import fi.haagahelia.stockmanager.service.common.UniquenessListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
 @Entity
 @Table(name = "BRU_CATEGORY")
-public class Category {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.category")
+@EntityListeners({RevisionListener.class, ReferenceDataListener.class, UniquenessListener.class})
+public class Category implements Revisioned {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
@@ -21,6 +30,9 @@ public class Category {
     @Column(name = "cat_description", nullable = false)
     private String description;
 
+    @Column(name = "cat_revision")
+    private Long revision;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
 
@@ -82,4 +94,14 @@ public class Category {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    @Override
+    public Long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
@@ -1,13 +1,21 @@
 package fi.haagahelia.stockmanager.model.supplier;
 
 import fi.haagahelia.stockmanager.model.common.Geolocation;
+import fi.haagahelia.stockmanager.model.common.RevisionListener;
+import fi.haagahelia.stockmanager.model.common.Revisioned;
+import fi.haagahelia.stockmanager.service.common.UniquenessListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
 @Entity
 @Table(name = "BRU_SUPPLIER")
-public class Supplier {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.supplier")
+@EntityListeners({RevisionListener.class, UniquenessListener.class})
+public class Supplier implements Revisioned {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
@@ -26,6 +34,9 @@ public class Supplier {
     private String phoneNumber;
 
 
+    @Column(name = "sup_revision")
+    private Long revision;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -110,4 +121,14 @@ public class Supplier {
     public void setGeolocation(Geolocation geolocation) {
         this.geolocation = geolocation;
     }
+
+    @Override
+    public Long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
@@ -1,5 +1,7 @@
 package fi.haagahelia.stockmanager.model.supplier.order;
 
+import fi.haagahelia.stockmanager.model.common.RevisionListener;
+import fi.haagahelia.stockmanager.model.common.Revisioned;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
 import jakarta.persistence.*;
 
@@ -10,7 +12,12 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "BRU_SUPPLIER_ORDER")
-public class SupplierOrder {
+@NamedEntityGraph(name = "SupplierOrder.supplier",
+        attributeNodes = @NamedAttributeNode(value = "supplier", subgraph = "supplier.geolocation"),
+        subgraphs = @NamedSubgraph(name = "supplier.geolocation", attributeNodes = @NamedAttributeNode("geolocation")))
+@NamedEntityGraph(name = "SupplierOrder.lines", attributeNodes = @NamedAttributeNode("supplierOrderLines"))
+@EntityListeners(RevisionListener.class)
+public class SupplierOrder implements Revisioned {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
 
@@ -31,13 +38,16 @@ public class SupplierOrder {
     @Column(name = "suo_is_received", nullable = false)
     private Boolean isReceived;
 
+    @Column(name = "suo_revision")
+    private Long revision;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "suo_sup_id")
     private Supplier supplier;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "supplierOrder")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "supplierOrder")
     private List<SupplierOrderLine> supplierOrderLines;
 
 
@@ -145,4 +155,14 @@ public class SupplierOrder {
     public void removeSupplierOrderLine(SupplierOrderLine supplierOrderLine) {
         this.supplierOrderLines.remove(supplierOrderLine);
     }
+
+    @Override
+    public Long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
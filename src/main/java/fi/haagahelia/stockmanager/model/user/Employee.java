@@ -1,7 +1,11 @@
 package fi.haagahelia.stockmanager.model.user;
 
 
+import fi.haagahelia.stockmanager.service.common.UniquenessListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,6 +18,7 @@ import java.util.stream.Collectors;
 
 @Entity
 @Table(name = "BRU_EMPLOYEE")
+@EntityListeners(UniquenessListener.class)
 public class Employee implements UserDetails {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
@@ -26,6 +31,7 @@ public class Employee implements UserDetails {
     @Column(name = "emp_email", nullable = false, unique = true, updatable = false)
     private String email;
 
+    @NaturalId(mutable = true)
     @Column(name = "emp_username", nullable = false, unique = true, updatable = false)
     private String username;
 
@@ -44,9 +50,13 @@ public class Employee implements UserDetails {
     @Column(name = "emp_is_blocked", nullable = false)
     private Boolean isBlocked;
 
+    @Column(name = "emp_token_version")
+    private Integer tokenVersion;
+
     /* -------------------------------------------------- RELATIONS ------------------------------------------------- */
 
     @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.employee.roles")
     @JoinTable(name = "BRU_EMP_ROLES",
             joinColumns = @JoinColumn(name = "employee_id", referencedColumnName = "emp_id"),
             inverseJoinColumns = @JoinColumn(name = "role_id", referencedColumnName = "rol_id"))
@@ -165,6 +175,14 @@ public class Employee implements UserDetails {
         isBlocked = blocked;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion == null ? 0 : tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public List<Role> getRoles() {
         return roles;
     }
@@ -1,12 +1,17 @@
 package fi.haagahelia.stockmanager.model.user;
 
-
+import fi.haagahelia.stockmanager.model.common.ReferenceDataListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
 @Entity
 @Table(name = "BRU_ROLE")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.role")
+@EntityListeners(ReferenceDataListener.class)
 public class Role {
 
     /* --------------------------------------------------- FIELDS --------------------------------------------------- */
@@ -5,8 +5,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +17,10 @@ public interface GeolocationRepository extends JpaRepository<Geolocation, Long>
     Page<Geolocation> findAll(Specification<Geolocation> spec, Pageable pageable);
     Boolean existsByStreetNameAndStreetNumberAndPostcodeAndCountry(String streetName, String streetNumber,
                                                                    String postcode, String country);
+    Boolean existsByFingerprint(String fingerprint);
+    @Query(value = "SELECT g.id FROM Geolocation g WHERE g.fingerprint = ?1")
+    Optional<Long> findIdByFingerprint(String fingerprint);
+    List<Geolocation> findByFingerprintIsNullAndIdGreaterThanOrderById(Long id, Pageable pageable);
+    @Query(value = "SELECT g.fingerprint FROM Geolocation g WHERE g.fingerprint IS NOT NULL")
+    List<String> findAllFingerprints();
 }
@@ -1,19 +1,37 @@
 package fi.haagahelia.stockmanager.repository.customer;
 
+import fi.haagahelia.stockmanager.model.common.Geolocation;
 import fi.haagahelia.stockmanager.model.customer.Customer;
+import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findById(Long id);
+    @Query(value = "SELECT COALESCE(c.revision, 0) FROM Customer c WHERE c.id = ?1")
+    Optional<Long> findRevisionById(Long id);
+    @Query(value = "SELECT COALESCE(c.revision, 0) FROM Customer c WHERE c.email = ?1")
+    Optional<Long> findRevisionByEmail(String email);
     Page<Customer> findAll(Specification<Customer> spec, Pageable pageable);
+    @EntityGraph(attributePaths = {"geolocation"})
+    List<Customer> findByIdIn(Collection<Long> ids);
     Optional<Customer> findByEmail(String email);
     Boolean existsByEmail(String email);
     Boolean existsByGeolocationId(Long id);
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Customer c SET c.geolocation = ?2, c.revision = COALESCE(c.revision, 0) + 1 " +
+            "WHERE c.geolocation = ?1")
+    int reassignGeolocation(Geolocation from, Geolocation to);
 }
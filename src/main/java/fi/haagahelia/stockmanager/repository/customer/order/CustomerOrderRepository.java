@@ -5,18 +5,31 @@ import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerOrderRepository extends JpaRepository<CustomerOrder, Long> {
     Optional<CustomerOrder> findById(Long id);
+    @Query(value = "SELECT COALESCE(c.revision, 0) FROM CustomerOrder c WHERE c.id = ?1")
+    Optional<Long> findRevisionById(Long id);
+    @EntityGraph(attributePaths = {"employee", "customer", "customer.geolocation"})
+    Optional<CustomerOrder> findWithRelationsById(Long id);
+    @EntityGraph(attributePaths = {"employee", "customer", "customer.geolocation", "customerOrderLines",
+            "customerOrderLines.product", "customerOrderLines.product.brand", "customerOrderLines.product.category"})
+    Optional<CustomerOrder> findWithLinesById(Long id);
     Page<CustomerOrder> findAll(Specification<CustomerOrder> spec, Pageable pageable);
+    @EntityGraph(attributePaths = {"employee", "customer", "customer.geolocation"})
+    List<CustomerOrder> findByIdIn(Collection<Long> ids);
 
     @Query(value = "SELECT c FROM CustomerOrder c WHERE c.customer.id = ?1")
     Page<CustomerOrder> findByCustomerId(Long id, Specification<CustomerOrder> spec, Pageable pageable);
@@ -29,6 +42,6 @@ public interface CustomerOrderRepository extends JpaRepository<CustomerOrder, Lo
 
     @Transactional
     @Modifying
-    @Query(value = "UPDATE CustomerOrder c SET c.customer = null WHERE c.customer.id = ?1")
+    @Query(value = "UPDATE CustomerOrder c SET c.customer = null, c.revision = COALESCE(c.revision, 0) + 1 WHERE c.customer.id = ?1")
     void removeRelatedCustomer(Long customerId);
 }
@@ -0,0 +1,27 @@
+package fi.haagahelia.stockmanager.repository.product;
+
+import fi.haagahelia.stockmanager.model.product.ProductChange;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+    List<ProductChange> findByIdGreaterThan(Long id, Pageable pageable);
+    @Query(value = "SELECT c.id FROM ProductChange c WHERE c.id > ?1 AND c.id <= ?2 ORDER BY c.id")
+    List<Long> findIdsBetween(Long after, Long upTo);
+    @Query(value = "SELECT MIN(c.id) FROM ProductChange c")
+    Long findFirstId();
+    @Query(value = "SELECT MAX(c.id) FROM ProductChange c")
+    Long findLastId();
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM ProductChange c WHERE c.changedAt < ?1 AND c.id < ?2")
+    int deleteOlderThan(LocalDateTime changedAt, Long lastId);
+}
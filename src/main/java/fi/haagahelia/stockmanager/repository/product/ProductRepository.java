@@ -1,22 +1,56 @@
 package fi.haagahelia.stockmanager.repository.product;
 
+import fi.haagahelia.stockmanager.dto.product.ProductSimpleProjection;
 import fi.haagahelia.stockmanager.model.product.Product;
+import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    String SIMPLE_PROJECTION = "SELECT new fi.haagahelia.stockmanager.dto.product.ProductSimpleProjection(p.id, p.name, " +
+            "p.description, p.salePrice, p.stock, b.id, b.name, c.id, c.name, c.description) " +
+            "FROM Product p JOIN p.brand b JOIN p.category c WHERE :search IS NULL OR LOWER(p.name) LIKE :search";
+    String SIMPLE_PROJECTION_COUNT = "SELECT COUNT(p) FROM Product p WHERE :search IS NULL OR LOWER(p.name) LIKE :search";
+    String LOW_STOCK_FILTER = "WHERE p.lowStock = true AND (:search IS NULL OR LOWER(p.name) LIKE :search) " +
+            "AND (:supplierId IS NULL OR p.supplier.id = :supplierId) AND (:brandId IS NULL OR p.brand.id = :brandId) " +
+            "AND (:categoryId IS NULL OR p.category.id = :categoryId)";
+
     Optional<Product> findById(Long id);
+    @EntityGraph(attributePaths = {"brand", "category", "supplier", "supplier.geolocation"})
+    Optional<Product> findWithRelationsById(Long id);
+    @EntityGraph("Product.brandCategory")
     Page<Product> findAll(Specification<Product> spec, Pageable pageable);
+    @Query(value = SIMPLE_PROJECTION, countQuery = SIMPLE_PROJECTION_COUNT)
+    Page<ProductSimpleProjection> findSimpleProjections(@Param("search") String search, Pageable pageable);
+    @Query(value = SIMPLE_PROJECTION)
+    Slice<ProductSimpleProjection> findSimpleProjectionSlice(@Param("search") String search, Pageable pageable);
+    @Query(value = SIMPLE_PROJECTION_COUNT)
+    long countSimpleProjections(@Param("search") String search);
+    @EntityGraph(attributePaths = {"brand", "category"})
+    List<Product> findByIdIn(Collection<Long> ids);
     Boolean existsByNameAndSupplierId(String name, Long id);
-    @Query(value = "SELECT p FROM Product p WHERE p.stock <= p .minStock")
-    Page<Product> findByStockIsLessThanMinStock(Specification<Product> spec, Pageable pageable);
+    @EntityGraph(attributePaths = {"brand", "category", "supplier", "supplier.geolocation"})
+    @Query(value = "SELECT p FROM Product p " + LOW_STOCK_FILTER, countQuery = "SELECT COUNT(p) FROM Product p " + LOW_STOCK_FILTER)
+    Page<Product> findLowStock(@Param("search") String search, @Param("supplierId") Long supplierId,
+                               @Param("brandId") Long brandId, @Param("categoryId") Long categoryId, Pageable pageable);
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Product p SET p.lowStock = CASE WHEN p.stock <= p.minStock THEN true ELSE false END " +
+            "WHERE p.lowStock <> (CASE WHEN p.stock <= p.minStock THEN true ELSE false END)")
+    int synchronizeLowStock();
 
     Boolean existsByBrandId(Long id);
     Boolean existsByCategoryId(Long id);
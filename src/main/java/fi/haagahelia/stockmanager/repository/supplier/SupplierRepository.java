@@ -1,19 +1,35 @@
 package fi.haagahelia.stockmanager.repository.supplier;
 
+import fi.haagahelia.stockmanager.model.common.Geolocation;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     Optional<Supplier> findById(Long id);
+    @Query(value = "SELECT COALESCE(s.revision, 0) FROM Supplier s WHERE s.id = ?1")
+    Optional<Long> findRevisionById(Long id);
     Page<Supplier> findAll(Specification<Supplier> spec, Pageable pageable);
+    @EntityGraph(attributePaths = {"geolocation"})
+    List<Supplier> findByIdIn(Collection<Long> ids);
     Optional<Supplier> findByName(String name);
     Boolean existsByName(String name);
     Boolean existsByGeolocationId(Long id);
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Supplier s SET s.geolocation = ?2, s.revision = COALESCE(s.revision, 0) + 1 " +
+            "WHERE s.geolocation = ?1")
+    int reassignGeolocation(Geolocation from, Geolocation to);
 }
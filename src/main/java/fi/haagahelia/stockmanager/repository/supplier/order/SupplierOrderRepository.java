@@ -4,17 +4,37 @@ import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SupplierOrderRepository extends JpaRepository<SupplierOrder, Long> {
     Optional<SupplierOrder> findById(Long id);
+    @Query(value = "SELECT COALESCE(o.revision, 0) FROM SupplierOrder o WHERE o.id = ?1")
+    Optional<Long> findRevisionById(Long id);
+    @EntityGraph("SupplierOrder.supplier")
+    Optional<SupplierOrder> findWithRelationsById(Long id);
+    @EntityGraph(attributePaths = {"supplier", "supplier.geolocation", "supplierOrderLines", "supplierOrderLines.product",
+            "supplierOrderLines.product.brand", "supplierOrderLines.product.category",
+            "supplierOrderLines.product.supplier", "supplierOrderLines.product.supplier.geolocation"})
+    Optional<SupplierOrder> findWithLinesById(Long id);
+    @EntityGraph("SupplierOrder.supplier")
     Page<SupplierOrder> findAll(Specification<SupplierOrder> spec, Pageable pageable);
+    @EntityGraph("SupplierOrder.supplier")
     Page<SupplierOrder> findBySupplierId(Long id, Pageable pageable);
+    @EntityGraph("SupplierOrder.supplier")
     Page<SupplierOrder> findByDeliveryDate(LocalDate date, Pageable pageable);
+    @EntityGraph("SupplierOrder.supplier")
+    List<SupplierOrder> findByIdIn(Collection<Long> ids);
+    @EntityGraph("SupplierOrder.lines")
+    @Query(value = "SELECT o FROM SupplierOrder o")
+    List<SupplierOrder> findAllWithLines();
     Boolean existsBySupplierId(Long id);
 }
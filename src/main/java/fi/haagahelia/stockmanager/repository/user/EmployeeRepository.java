@@ -11,6 +11,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -25,4 +26,18 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     @Modifying(clearAutomatically = true)
     @Query(value = "UPDATE Employee e SET e.isActive = false, e.isBlocked = true WHERE e.id = :employeeId")
     void deactivateEmployeeById(@Param("employeeId") Long id);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE Employee e SET e.tokenVersion = COALESCE(e.tokenVersion, 0) + 1 WHERE e.id = :employeeId")
+    int incrementTokenVersion(@Param("employeeId") Long id);
+
+    @Query(value = "SELECT e.tokenVersion FROM Employee e WHERE e.id = :employeeId")
+    Optional<Integer> findTokenVersionById(@Param("employeeId") Long id);
+
+    @Query(value = "SELECT e.id, e.tokenVersion FROM Employee e WHERE e.tokenVersion > 0")
+    List<Object[]> findAllTokenVersions();
+
+    @Query(value = "SELECT e.id FROM Employee e WHERE e.isActive = false OR e.isBlocked = true")
+    List<Long> findBlockedIds();
 }
@@ -1,35 +1,33 @@
 package fi.haagahelia.stockmanager.security;
 
 import fi.haagahelia.stockmanager.model.user.Employee;
-import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
+import fi.haagahelia.stockmanager.service.user.BlockedEmployeeService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Optional;
 
 @Component
 public class BlockedEmployeeFilter extends OncePerRequestFilter {
 
-    private final EmployeeRepository employeeRepository;
+    private final BlockedEmployeeService blockedEmployees;
 
-    public BlockedEmployeeFilter(EmployeeRepository employeeRepository) {
-        this.employeeRepository = employeeRepository;
+    public BlockedEmployeeFilter(BlockedEmployeeService blockedEmployees) {
+        this.blockedEmployees = blockedEmployees;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        String username = request.getRemoteUser();
-        Optional<Employee> employeeOptional = employeeRepository.findByUsername(username);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-        if (employeeOptional.isPresent()) {
-            Employee employee = employeeOptional.get();
-
-            if (!employee.isEnabled() || !employee.isAccountNonLocked()) {
+        if (authentication != null && authentication.getPrincipal() instanceof Employee employee) {
+            if (blockedEmployees.isBlocked(employee.getId())) {
                 request.setAttribute("errorMessage", "Employee's account is inactive or blocked.");
                 response.sendError(HttpServletResponse.SC_FORBIDDEN, "Employee's account is inactive or blocked.");
                 return;
@@ -0,0 +1,50 @@
+package fi.haagahelia.stockmanager.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.haagahelia.stockmanager.dto.common.ErrorResponse;
+import fi.haagahelia.stockmanager.model.user.Employee;
+import fi.haagahelia.stockmanager.service.common.RateLimitService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitService rateLimitService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public RateLimitFilter(RateLimitService rateLimitService) {
+        this.rateLimitService = rateLimitService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication != null && authentication.getPrincipal() instanceof Employee employee) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            long wait = rateLimitService.tryAcquire(employee.getId(), employee.getAuthorities(), path);
+            if (wait > 0) {
+                long retryAfter = Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+                ErrorResponse errorResponse = new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(), "TOO_MANY_REQUESTS");
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+                response.setContentType("application/json");
+                response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
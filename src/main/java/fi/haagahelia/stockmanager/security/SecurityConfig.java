@@ -1,10 +1,13 @@
 package fi.haagahelia.stockmanager.security;
 
-import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
 import fi.haagahelia.stockmanager.security.jwt.JWTAuthenticationEntryPoint;
 import fi.haagahelia.stockmanager.security.jwt.JWTAuthenticationFilter;
 import fi.haagahelia.stockmanager.security.jwt.JWTUtils;
 import fi.haagahelia.stockmanager.service.CustomEmployeeDetailsService;
+import fi.haagahelia.stockmanager.service.common.RateLimitService;
+import fi.haagahelia.stockmanager.service.user.BlockedEmployeeService;
+import fi.haagahelia.stockmanager.service.user.EmployeePrincipalCache;
+import fi.haagahelia.stockmanager.service.user.TokenVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -37,16 +40,24 @@ public class SecurityConfig {
     private final JWTUtils jwtUtils;
     private final JWTAuthenticationEntryPoint jwtAuthEntryPoint;
     private final CustomEmployeeDetailsService userDetailsService;
-    private final EmployeeRepository employeeRepository;
+    private final BlockedEmployeeService blockedEmployees;
+    private final RateLimitService rateLimitService;
+    private final EmployeePrincipalCache principalCache;
+    private final TokenVersionService tokenVersions;
     private final Environment environment;
 
     @Autowired
     public SecurityConfig(JWTUtils jwtUtils, JWTAuthenticationEntryPoint jwtAuthEntryPoint, CustomEmployeeDetailsService userDetailsService,
-                          EmployeeRepository employeeRepository, Environment environment) {
+                          BlockedEmployeeService blockedEmployees, EmployeePrincipalCache principalCache,
+                          TokenVersionService tokenVersions, RateLimitService rateLimitService,
+                          Environment environment) {
         this.jwtUtils = jwtUtils;
         this.jwtAuthEntryPoint = jwtAuthEntryPoint;
         this.userDetailsService = userDetailsService;
-        this.employeeRepository = employeeRepository;
+        this.blockedEmployees = blockedEmployees;
+        this.rateLimitService = rateLimitService;
+        this.principalCache = principalCache;
+        this.tokenVersions = tokenVersions;
         this.environment = environment;
     }
 
@@ -62,12 +73,17 @@ public class SecurityConfig {
 
     @Bean
     public JWTAuthenticationFilter jwtAuthenticationFilter() {
-        return new JWTAuthenticationFilter(jwtUtils, userDetailsService);
+        return new JWTAuthenticationFilter(jwtUtils, userDetailsService, principalCache, tokenVersions);
     }
 
     @Bean
     public BlockedEmployeeFilter blockedUserFilter() {
-        return new BlockedEmployeeFilter(employeeRepository);
+        return new BlockedEmployeeFilter(blockedEmployees);
+    }
+
+    @Bean
+    public RateLimitFilter rateLimitFilter() {
+        return new RateLimitFilter(rateLimitService);
     }
 
     @Bean
@@ -103,6 +119,7 @@ public class SecurityConfig {
 
         http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
         http.addFilterBefore(blockedUserFilter(), RequestCacheAwareFilter.class);
+        http.addFilterAfter(rateLimitFilter(), BlockedEmployeeFilter.class);
         return http.build();
     }
 
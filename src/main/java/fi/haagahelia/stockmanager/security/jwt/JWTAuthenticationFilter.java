@@ -1,13 +1,16 @@
 package fi.haagahelia.stockmanager.security.jwt;
 
+import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.service.CustomEmployeeDetailsService;
+import fi.haagahelia.stockmanager.service.user.EmployeePrincipalCache;
+import fi.haagahelia.stockmanager.service.user.TokenVersionService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -20,9 +23,16 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
     private final CustomEmployeeDetailsService customUserDetailsService;
 
-    public JWTAuthenticationFilter(JWTUtils tokenUtils, CustomEmployeeDetailsService customUserDetailsService) {
+    private final EmployeePrincipalCache principalCache;
+
+    private final TokenVersionService tokenVersions;
+
+    public JWTAuthenticationFilter(JWTUtils tokenUtils, CustomEmployeeDetailsService customUserDetailsService,
+                                   EmployeePrincipalCache principalCache, TokenVersionService tokenVersions) {
         this.tokenUtils = tokenUtils;
         this.customUserDetailsService = customUserDetailsService;
+        this.principalCache = principalCache;
+        this.tokenVersions = tokenVersions;
     }
 
     @Override
@@ -34,15 +44,26 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        if (tokenUtils.validateToken(token)) {
-            String username = tokenUtils.getUsernameFromJwt(token);
-            UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-        } else {
-            request.setAttribute("errorMessage", "INVALID_TOKEN");
+        Employee employee = principalCache.get(token);
+        if (employee == null) {
+            Claims claims = tokenUtils.parseClaims(token);
+            int tokenVersion = tokenUtils.getTokenVersion(claims);
+            long generation = principalCache.generation();
+            if (tokenUtils.isSelfContained(claims)) {
+                employee = tokenUtils.toPrincipal(claims);
+            } else {
+                employee = (Employee) customUserDetailsService.loadUserByUsername(claims.getSubject());
+            }
+            if (!tokenVersions.isCurrent(employee.getId(), tokenVersion)) {
+                request.setAttribute("errorMessage", "TOKEN_REVOKED");
+                filterChain.doFilter(request, response);
+                return;
+            }
+            principalCache.put(token, employee, claims.getExpiration(), tokenVersion, generation);
         }
+        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(employee, null, employee.getAuthorities());
+        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
 
         filterChain.doFilter(request, response);
     }
@@ -1,49 +1,125 @@
 package fi.haagahelia.stockmanager.security.jwt;
 
+import fi.haagahelia.stockmanager.model.user.Employee;
+import fi.haagahelia.stockmanager.model.user.Role;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 @Component
 public class JWTUtils {
 
-    public static String generateToken(String subject) {
-        Date currentDate = new Date();
-        Calendar calendarDate = Calendar.getInstance();
-        calendarDate.setTime(currentDate);
-        calendarDate.add(JWTConstants.JWT_EXPIRATION_UNIT, JWTConstants.JWT_EXPIRATION_DURATION);
-
-        Date expireDate = calendarDate.getTime();
+    public static final String EMPLOYEE_ID_CLAIM = "eid";
+    public static final String EMAIL_CLAIM = "email";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
 
+    public static String generateToken(String subject) {
         return Jwts.builder()
                 .setSubject(subject)
                 .setIssuedAt(new Date())
-                .setExpiration(expireDate)
+                .setExpiration(expirationDate())
                 .signWith(SignatureAlgorithm.HS512, JWTConstants.JWT_SECRET)
                 .compact();
     }
 
-    public String getUsernameFromJwt(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(JWTConstants.JWT_SECRET)
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * This function is used to generate a self-contained token: besides the username, it carries the id, the email,
+     * the roles and the token version of the employee, so that the requests are authenticated from the token alone.
+     * @param employee Corresponds to the authenticated employee.
+     * @return The signed token.
+     */
+    public static String generateToken(Employee employee) {
+        List<String> roles = new ArrayList<>();
+        for (Role role : employee.getRoles()) roles.add(role.getName());
+        return Jwts.builder()
+                .setSubject(employee.getUsername())
+                .claim(EMPLOYEE_ID_CLAIM, employee.getId())
+                .claim(EMAIL_CLAIM, employee.getEmail())
+                .claim(ROLES_CLAIM, roles)
+                .claim(TOKEN_VERSION_CLAIM, employee.getTokenVersion())
+                .setIssuedAt(new Date())
+                .setExpiration(expirationDate())
+                .signWith(SignatureAlgorithm.HS512, JWTConstants.JWT_SECRET)
+                .compact();
+    }
+
+    private static Date expirationDate() {
+        Date currentDate = new Date();
+        Calendar calendarDate = Calendar.getInstance();
+        calendarDate.setTime(currentDate);
+        calendarDate.add(JWTConstants.JWT_EXPIRATION_UNIT, JWTConstants.JWT_EXPIRATION_DURATION);
+
+        return calendarDate.getTime();
+    }
 
-        return claims.getSubject();
+    public String getUsernameFromJwt(String token) {
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser().setSigningKey(JWTConstants.JWT_SECRET).parseClaimsJws(token);
+        parseClaims(token);
+        return true;
+    }
 
-            return true;
+    /**
+     * This function is used to verify a token (signature and expiration) and to read its claims, with a single parse.
+     * @param token Corresponds to the JWT to verify.
+     * @return The claims of the token.
+     * @throws AuthenticationCredentialsNotFoundException if the token is expired or incorrect.
+     */
+    public Claims parseClaims(String token) {
+        try {
+            return Jwts.parser()
+                    .setSigningKey(JWTConstants.JWT_SECRET)
+                    .parseClaimsJws(token)
+                    .getBody();
         } catch (Exception e) {
             throw new AuthenticationCredentialsNotFoundException("JWT_EXPIRED_OR_INCORRECT");
         }
     }
+
+    /**
+     * This function is used to know if the claims of a verified token are enough to authenticate the request, that is
+     * if the token has been generated with the employee id, the roles and the token version.
+     * @param claims Corresponds to the claims of the token.
+     * @return True if the token is self-contained.
+     */
+    public boolean isSelfContained(Claims claims) {
+        return claims.get(EMPLOYEE_ID_CLAIM) instanceof Number && claims.get(ROLES_CLAIM) instanceof Collection<?>
+                && claims.get(TOKEN_VERSION_CLAIM) instanceof Number;
+    }
+
+    /**
+     * This function is used to get the version carried by a token, 0 for the tokens generated without version.
+     * @param claims Corresponds to the claims of the token.
+     * @return The token version.
+     */
+    public int getTokenVersion(Claims claims) {
+        return claims.get(TOKEN_VERSION_CLAIM) instanceof Number version ? version.intValue() : 0;
+    }
+
+    /**
+     * This function is used to build the authenticated employee from the claims of a self-contained token, without
+     * query. The employee only has its id, username, email and roles: it must not be saved, nor used as a relation
+     * of a saved entity (load the employee by its id instead).
+     * @param claims Corresponds to the claims of a self-contained token.
+     * @return The employee, active and not blocked (the blocked employees have their tokens revoked).
+     */
+    public Employee toPrincipal(Claims claims) {
+        Employee employee = new Employee(claims.get(EMAIL_CLAIM, String.class), claims.getSubject(), null, null, null,
+                true, false);
+        employee.setId(((Number) claims.get(EMPLOYEE_ID_CLAIM)).longValue());
+        employee.setTokenVersion(getTokenVersion(claims));
+        for (Object role : (Collection<?>) claims.get(ROLES_CLAIM)) employee.addRole(new Role(String.valueOf(role), null));
+        return employee;
+    }
 }
@@ -1,7 +1,7 @@
 package fi.haagahelia.stockmanager.service;
 
 import fi.haagahelia.stockmanager.model.user.Employee;
-import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -14,17 +14,17 @@ import java.util.Optional;
 @Service
 public class CustomEmployeeDetailsService implements UserDetailsService {
 
-    private final EmployeeRepository eRepository;
+    private final EntityLookupService entityLookup;
 
     @Autowired
-    public CustomEmployeeDetailsService(EmployeeRepository eRepository) {
-        this.eRepository = eRepository;
+    public CustomEmployeeDetailsService(EntityLookupService entityLookup) {
+        this.entityLookup = entityLookup;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         try {
-            Optional<Employee> employeeOptional = eRepository.findByUsername(username);
+            Optional<Employee> employeeOptional = entityLookup.findByNaturalId(Employee.class, username);
             if (employeeOptional.isEmpty()) {
                 throw new UsernameNotFoundException("No employee found with the username: " + username);
             }
@@ -0,0 +1,400 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.customer.Customer;
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Log4j2
+@Service
+public class AutocompleteService {
+
+    private static final int MAX_KEY_LENGTH = 64;
+    /** Maximal number of trie nodes visited by a search, whatever the number of suggestions found. */
+    private static final int MAX_VISITED_NODES = 5000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private Trie trie = new Trie();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * This record corresponds to one suggestion: the kind of entity, its id, the text displayed to the user and the
+     * reference used in the URL of the entity (its id, or its email for a customer).
+     */
+    public record Suggestion(SuggestionType type, Long id, String label, String reference) {
+        Suggestion(SuggestionType type, Long id, String label) {
+            this(type, id, label, String.valueOf(id));
+        }
+    }
+
+    /* ------------------------------------------------- INDEXATION ------------------------------------------------- */
+
+    /**
+     * This function is used to build the whole trie from the database, when the application is ready.
+     * Only the columns that are displayed are selected. The new trie replaces the old one at the end.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Trie newTrie = new Trie();
+        for (Object[] row : em.createQuery("SELECT p.id, p.name FROM Product p", Object[].class).getResultList()) {
+            newTrie.put(new Suggestion(SuggestionType.PRODUCT, (Long) row[0], (String) row[1]), keys((String) row[1]));
+        }
+        for (Object[] row : em.createQuery("SELECT b.id, b.name FROM Brand b", Object[].class).getResultList()) {
+            newTrie.put(new Suggestion(SuggestionType.BRAND, (Long) row[0], (String) row[1]), keys((String) row[1]));
+        }
+        for (Object[] row : em.createQuery("SELECT c.id, c.name FROM Category c", Object[].class).getResultList()) {
+            newTrie.put(new Suggestion(SuggestionType.CATEGORY, (Long) row[0], (String) row[1]), keys((String) row[1]));
+        }
+        for (Object[] row : em.createQuery("SELECT s.id, s.name FROM Supplier s", Object[].class).getResultList()) {
+            newTrie.put(new Suggestion(SuggestionType.SUPPLIER, (Long) row[0], (String) row[1]), keys((String) row[1]));
+        }
+        for (Object[] row : em.createQuery("SELECT c.id, c.firstName, c.lastName, c.email FROM Customer c", Object[].class).getResultList()) {
+            newTrie.put(customerSuggestion((Long) row[0], (String) row[1], (String) row[2], (String) row[3]),
+                    customerKeys((String) row[1], (String) row[2], (String) row[3]));
+        }
+        lock.writeLock().lock();
+        try {
+            trie = newTrie;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Autocomplete trie built: {} suggestions in {} ms.", newTrie.size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(Product product) {
+        put(new Suggestion(SuggestionType.PRODUCT, product.getId(), product.getName()), keys(product.getName()));
+    }
+
+    public void index(Brand brand) {
+        put(new Suggestion(SuggestionType.BRAND, brand.getId(), brand.getName()), keys(brand.getName()));
+    }
+
+    public void index(Category category) {
+        put(new Suggestion(SuggestionType.CATEGORY, category.getId(), category.getName()), keys(category.getName()));
+    }
+
+    public void index(Supplier supplier) {
+        put(new Suggestion(SuggestionType.SUPPLIER, supplier.getId(), supplier.getName()), keys(supplier.getName()));
+    }
+
+    public void index(Customer customer) {
+        put(customerSuggestion(customer.getId(), customer.getFirstName(), customer.getLastName(), customer.getEmail()),
+                customerKeys(customer.getFirstName(), customer.getLastName(), customer.getEmail()));
+    }
+
+    /**
+     * This function is used to remove an entity from the suggestions. It must be called after the deletion of the entity.
+     * @param type Corresponds to the kind of the deleted entity.
+     * @param id Corresponds to the id of the deleted entity.
+     */
+    public void remove(SuggestionType type, Long id) {
+        lock.writeLock().lock();
+        try {
+            trie.remove(type, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Suggestion suggestion, Set<String> keys) {
+        lock.writeLock().lock();
+        try {
+            trie.remove(suggestion.type(), suggestion.id());
+            trie.put(suggestion, keys);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* --------------------------------------------------- SEARCH --------------------------------------------------- */
+
+    /**
+     * This function is used to get the suggestions that start with a prefix.
+     * Firstly, we go down the trie, following the characters of the (normalized) prefix.
+     * Secondly, we walk the sub-trie in the order of the keys: the shortest completions are found first, then in
+     * alphabetical order. The branches without suggestion of the requested types are skipped. An entity is only
+     * returned once, even if several of its words start with the prefix.
+     * Finally, we stop as soon as we have enough suggestions, or after MAX_VISITED_NODES nodes.
+     *
+     * @param prefix Corresponds to the text typed by the user.
+     * @param limit Corresponds to the maximum number of suggestions.
+     * @param types Corresponds to the kinds of entity that can be suggested.
+     * @return The list of suggestions.
+     */
+    public List<Suggestion> suggest(String prefix, int limit, Set<SuggestionType> types) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            return trie.collect(key, limit, types);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    private static Suggestion customerSuggestion(Long id, String firstName, String lastName, String email) {
+        return new Suggestion(SuggestionType.CUSTOMER, id, firstName + " " + lastName + " <" + email + ">", email);
+    }
+
+    private static Set<String> customerKeys(String firstName, String lastName, String email) {
+        Set<String> keys = keys(firstName + " " + lastName);
+        keys.add(truncate(normalize(email)));
+        return keys;
+    }
+
+    /**
+     * This function is used to get the keys of a label: the whole label, and the label from the start of each word.
+     * For example "870 EVO Plus" can be found with "870", "evo" or "plus".
+     */
+    static Set<String> keys(String label) {
+        Set<String> keys = new LinkedHashSet<>();
+        String normalized = normalize(label);
+        if (normalized.isEmpty()) return keys;
+        keys.add(truncate(normalized));
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(truncate(normalized.substring(i + 1)));
+        }
+        return keys;
+    }
+
+    /**
+     * This function is used to normalize a text before its indexation or its search: without accents, in lowercase,
+     * with single spaces. It is shared with the ProductSearchService, so both find the same words.
+     */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        return Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    /* ---------------------------------------------------- TRIE ---------------------------------------------------- */
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int TYPES = SuggestionType.values().length;
+
+    /**
+     * A node of the radix trie. The edge from its parent is a string (a branch without fork is a single node), and its
+     * children are sorted by the first character of their edge, in two arrays searched by dichotomy. The node also
+     * counts the suggestions of each type in its sub-trie, so the search skips the branches without the wanted types.
+     */
+    private static final class Node {
+        private String edge;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] suggestions;
+        private final int[] counts = new int[TYPES];
+
+        private Node(String edge) {
+            this.edge = edge;
+        }
+
+        private int indexOf(char c) {
+            return Arrays.binarySearch(keys, c);
+        }
+
+        private void addChild(int index, Node child) {
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newKeys[index] = child.edge.charAt(0);
+            newChildren[index] = child;
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        private void removeChild(int index) {
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys.length == 0 ? NO_KEYS : newKeys;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+
+        private boolean hasAny(Set<SuggestionType> types) {
+            for (SuggestionType type : types) {
+                if (counts[type.ordinal()] > 0) return true;
+            }
+            return false;
+        }
+    }
+
+    /** Corresponds to a node waiting to be visited by the search, with its whole key. */
+    private record Visit(Node node, String key) { }
+
+    /**
+     * A radix trie. Each node holds the suggestions whose key ends on it. A label is inserted once per word start, but
+     * the part of a key that is not shared with another key is a single node, so each key costs at most two nodes.
+     * The keys of each suggestion are kept aside, so a suggestion can be removed (and the empty branches pruned or
+     * merged) without walking the whole trie.
+     */
+    private static final class Trie {
+        private final Node root = new Node("");
+        private final Map<String, Set<String>> keysBySuggestion = new HashMap<>();
+
+        int size() {
+            return keysBySuggestion.size();
+        }
+
+        private static int commonLength(String edge, String key, int from) {
+            int length = Math.min(edge.length(), key.length() - from);
+            int i = 0;
+            while (i < length && edge.charAt(i) == key.charAt(from + i)) i++;
+            return i;
+        }
+
+        void put(Suggestion suggestion, Set<String> keys) {
+            int type = suggestion.type().ordinal();
+            for (String key : keys) {
+                Node node = root;
+                node.counts[type]++;
+                int depth = 0;
+                while (depth < key.length()) {
+                    int index = node.indexOf(key.charAt(depth));
+                    if (index < 0) {
+                        Node leaf = new Node(key.substring(depth));
+                        node.addChild(-index - 1, leaf);
+                        node = leaf;
+                        node.counts[type]++;
+                        break;
+                    }
+                    Node child = node.children[index];
+                    int common = commonLength(child.edge, key, depth);
+                    if (common < child.edge.length()) {
+                        Node middle = new Node(child.edge.substring(0, common));
+                        child.edge = child.edge.substring(common);
+                        middle.keys = new char[]{child.edge.charAt(0)};
+                        middle.children = new Node[]{child};
+                        System.arraycopy(child.counts, 0, middle.counts, 0, TYPES);
+                        node.children[index] = middle;
+                        child = middle;
+                    }
+                    child.counts[type]++;
+                    node = child;
+                    depth += common;
+                }
+                if (node.suggestions == null) {
+                    node.suggestions = new Suggestion[]{suggestion};
+                } else {
+                    node.suggestions = Arrays.copyOf(node.suggestions, node.suggestions.length + 1);
+                    node.suggestions[node.suggestions.length - 1] = suggestion;
+                }
+            }
+            keysBySuggestion.put(suggestion.type() + ":" + suggestion.id(), keys);
+        }
+
+        void remove(SuggestionType type, Long id) {
+            Set<String> keys = keysBySuggestion.remove(type + ":" + id);
+            if (keys == null) return;
+            for (String key : keys) {
+                remove(key, type, id);
+            }
+        }
+
+        private void remove(String key, SuggestionType type, Long id) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int depth = 0;
+            while (depth < key.length()) {
+                int index = node.indexOf(key.charAt(depth));
+                if (index < 0 || !key.startsWith(node.children[index].edge, depth)) return;
+                node = node.children[index];
+                depth += node.edge.length();
+                path.add(node);
+            }
+            if (node.suggestions == null) return;
+            Suggestion[] kept = Arrays.stream(node.suggestions)
+                    .filter(s -> s.type() != type || !s.id().equals(id)).toArray(Suggestion[]::new);
+            if (kept.length == node.suggestions.length) return;
+            node.suggestions = kept.length == 0 ? null : kept;
+            for (Node visited : path) visited.counts[type.ordinal()]--;
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node current = path.get(i);
+                Node parent = path.get(i - 1);
+                if (current.suggestions != null) break;
+                if (current.children.length == 0) {
+                    parent.removeChild(parent.indexOf(current.edge.charAt(0)));
+                } else if (current.children.length == 1) {
+                    Node child = current.children[0];
+                    child.edge = current.edge + child.edge;
+                    parent.children[parent.indexOf(current.edge.charAt(0))] = child;
+                    break;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * The sub-trie of the prefix is visited in the order of the keys: the shortest first, then alphabetically.
+         * The branches without suggestion of the wanted types are skipped, and the search stops after
+         * MAX_VISITED_NODES nodes, with the suggestions found so far.
+         */
+        List<Suggestion> collect(String prefix, int limit, Set<SuggestionType> types) {
+            Node node = root;
+            String key = "";
+            int depth = 0;
+            while (depth < prefix.length()) {
+                int index = node.indexOf(prefix.charAt(depth));
+                if (index < 0) return List.of();
+                Node child = node.children[index];
+                int common = commonLength(child.edge, prefix, depth);
+                if (common < child.edge.length() && depth + common < prefix.length()) return List.of();
+                key = prefix.substring(0, depth) + child.edge;
+                node = child;
+                depth += common;
+            }
+            Set<Suggestion> result = new LinkedHashSet<>();
+            if (!node.hasAny(types)) return List.of();
+            PriorityQueue<Visit> queue = new PriorityQueue<>(Comparator.comparingInt((Visit visit) -> visit.key().length())
+                    .thenComparing(Visit::key));
+            queue.add(new Visit(node, key));
+            int visited = 0;
+            while (!queue.isEmpty() && result.size() < limit && visited++ < MAX_VISITED_NODES) {
+                Visit current = queue.poll();
+                if (current.node().suggestions != null) {
+                    for (Suggestion suggestion : current.node().suggestions) {
+                        if (types.contains(suggestion.type())) result.add(suggestion);
+                        if (result.size() >= limit) break;
+                    }
+                }
+                for (Node child : current.node().children) {
+                    if (child.hasAny(types)) queue.add(new Visit(child, current.key() + child.edge));
+                }
+            }
+            return new ArrayList<>(result);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a Bloom filter of strings: a set that can answer "definitely absent" or "maybe present".
+ * A key is set on k bits of a bit array, chosen by double hashing (two 64-bit hashes of the key). A key is maybe
+ * present if all its bits are set, so the filter never gives a false negative, and gives a false positive with the
+ * probability chosen at the creation (as long as the expected number of keys is not exceeded).
+ * The bits are only ever set, never cleared: the keys cannot be removed, the filter has to be rebuilt instead.
+ * The filter is thread safe without locks, the bits are set with atomic operations.
+ */
+public class BloomFilter {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final long SEED_1 = 0xcbf29ce484222325L;
+    private static final long SEED_2 = 0x84222325cbf29ce4L;
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    /**
+     * This function is used to create an empty filter, sized for the expected number of keys:
+     * bits = -n * ln(p) / ln(2)^2 and hashes = bits / n * ln(2).
+     * @param expectedInsertions Corresponds to the number of keys that the filter is expected to contain.
+     * @param falsePositiveRate Corresponds to the wanted probability of false positive, between 0 and 1 (excluded).
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) throw new IllegalArgumentException("The expected insertions must be positive.");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1.");
+        }
+        long bitsNeeded = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bitsNeeded + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitsNeeded / expectedInsertions * Math.log(2)));
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to add a key to the filter.
+     * @param key Corresponds to the key to add.
+     */
+    public void put(String key) {
+        long h1 = hash(key, SEED_1);
+        long h2 = hash(key, SEED_2);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits.get(word) & mask) == 0) bits.accumulateAndGet(word, mask, (current, m) -> current | m);
+        }
+    }
+
+    /**
+     * This function is used to know if a key may have been added to the filter.
+     * @param key Corresponds to the key to look for.
+     * @return False if the key has definitely not been added, true if it may have been added.
+     */
+    public boolean mightContain(String key) {
+        long h1 = hash(key, SEED_1);
+        long h2 = hash(key, SEED_2);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * This function is used to hash a key on 64 bits: FNV-1a on the characters, then the finalizer of MurmurHash3 to
+     * spread the bits (FNV alone is weak on the low bits, which are used by the modulo).
+     * @param key Corresponds to the key to hash.
+     * @param seed Corresponds to the initial value of the hash, a different seed gives an independent hash.
+     * @return The hash.
+     */
+    static long hash(String key, long seed) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,142 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * This class is a small in-memory cache, bounded in size and in time.
+ * When the cache is full, the least recently used entries are evicted. An entry is also evicted when it is read after
+ * its time to live. The hits, misses and evictions are counted, so they can be exposed as statistics.
+ * The cache is read on the hot paths of the requests, so the reads take no lock: the entries are kept in a
+ * ConcurrentHashMap and each read only stamps its entry with an access counter. The least recently used entries are
+ * found by sorting these stamps, which is done under a lock by the put that fills the cache, and removes a tenth of
+ * the entries at once so that the next puts do not have to sort again.
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class BoundedCache<K, V> {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong accesses = new AtomicLong();
+    private final Object evictionLock = new Object();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        private Entry(V value, long expiresAt, long lastAccess) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private record Candidate<K, V>(K key, Entry<V> entry, long lastAccess) { }
+
+    /**
+     * This record corresponds to the statistics of a cache at a given time.
+     */
+    public record Stats(String name, int size, int maxSize, long hits, long misses, long evictions) {
+        public double getHitRatio() {
+            return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+        }
+    }
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    public BoundedCache(String name, int maxSize, long ttlMillis) {
+        this(name, maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    public BoundedCache(String name, int maxSize, long ttlMillis, LongSupplier clock) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /* --------------------------------------------------- METHODS -------------------------------------------------- */
+
+    /**
+     * This function is used to get a value from the cache.
+     * @param key Corresponds to the key of the value.
+     * @return The value, or null if there is no value or if the value has expired.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            if (entries.remove(key, entry)) evictions.increment();
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = accesses.incrementAndGet();
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value, clock.getAsLong() + ttlMillis, accesses.incrementAndGet()));
+        if (entries.size() > maxSize) evictLeastRecentlyUsed();
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * This function is used to bring the cache back under its maximal size, by removing the least recently used
+     * entries until a tenth of the cache is free (at least one entry is removed).
+     */
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            if (entries.size() <= maxSize) return;
+            // The stamps are copied first: the reads keep updating them, and the sort needs values that do not change.
+            List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> candidates.add(new Candidate<>(key, entry, entry.lastAccess)));
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+            int target = maxSize - maxSize / 10;
+            for (Candidate<K, V> candidate : candidates) {
+                if (entries.size() <= target) break;
+                if (entries.remove(candidate.key(), candidate.entry())) evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * This function is used to remove all the expired entries. The expired entries are also removed when they are
+     * read, this function only frees the memory of the entries that are not read anymore.
+     */
+    public void evictExpired() {
+        long now = clock.getAsLong();
+        entries.forEach((key, entry) -> {
+            if (entry.expiresAt <= now && entries.remove(key, entry)) evictions.increment();
+        });
+    }
+
+    public Stats stats() {
+        return new Stats(name, entries.size(), maxSize, hits.sum(), misses.sum(), evictions.sum());
+    }
+}
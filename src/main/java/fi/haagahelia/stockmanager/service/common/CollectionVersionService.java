@@ -0,0 +1,109 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.dto.common.ETags;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This service holds the change counter of each entity type (BRU_COLLECTION_VERSION), used as the ETag of its lists.
+ * The counter is stored in the database, so a change made by an instance of the application is seen by all of them.
+ * The counter is incremented after the commit of the transaction that made the change, in a new transaction: a list
+ * read with the new counter is always read after the commit, and so always contains the change. A list read with the
+ * previous counter may already contain the change, it is then only sent again at the next request.
+ * The counters of a transaction are incremented once, whatever the number of rows changed.
+ */
+@Log4j2
+@Service
+public class CollectionVersionService {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    static final String INCREMENT = "INSERT INTO BRU_COLLECTION_VERSION (cov_name, cov_version) VALUES (?, 1) " +
+            "ON DUPLICATE KEY UPDATE cov_version = cov_version + 1";
+    static final String SELECT_VERSION = "SELECT cov_version FROM BRU_COLLECTION_VERSION WHERE cov_name = ?";
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CollectionVersionService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to record a change (insert, update or delete) of an entity type.
+     * If a transaction is running, the counter is incremented after its commit (and not at all after a rollback),
+     * otherwise it is incremented now.
+     * The changes that do not go through the EntityManager (bulk JPQL queries, JDBC) must call it.
+     * @param entityClass Corresponds to the class of the entity that has been inserted, updated or deleted.
+     */
+    public void changed(Class<?> entityClass) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(Set.of(entityClass.getSimpleName()));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> changed = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<String> names = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, names);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(names);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CollectionVersionService.this);
+                }
+            });
+            changed = names;
+        }
+        changed.add(entityClass.getSimpleName());
+    }
+
+    private void increment(Set<String> names) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> names.forEach(name -> jdbcTemplate.update(INCREMENT, name)));
+        } catch (Exception e) {
+            log.error("Collection versions: the versions of {} cannot be incremented.", names, e);
+        }
+    }
+
+    /**
+     * This function is used to get the change counter of an entity type. It must be read before the list itself.
+     * @param entityClass Corresponds to the class of the entity.
+     * @return The counter, 0 if the entity type has never been changed.
+     */
+    public long version(Class<?> entityClass) {
+        List<Long> versions = jdbcTemplate.queryForList(SELECT_VERSION, Long.class, entityClass.getSimpleName());
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    /**
+     * This function is used to get the ETag of the lists of an entity type.
+     * @param entityClass Corresponds to the class of the listed entities.
+     * @return The ETag, quoted.
+     */
+    public String etag(Class<?> entityClass) {
+        return ETags.ofCollection(entityClass, version(entityClass));
+    }
+}
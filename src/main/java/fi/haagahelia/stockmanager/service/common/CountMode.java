@@ -0,0 +1,24 @@
+package fi.haagahelia.stockmanager.service.common;
+
+/**
+ * This enum corresponds to the different ways to count the total of elements of a paged list endpoint.
+ * NONE: no COUNT query, the response is a slice that only knows if a next page exists.
+ * APPROXIMATE: the total comes from a short-lived cache, the COUNT query is only executed when the cache has expired.
+ * EXACT: a COUNT query is executed for each page (default behavior).
+ */
+public enum CountMode {
+    NONE, APPROXIMATE, EXACT;
+
+    /**
+     * This function is used to read the count mode given as request parameter (case-insensitive).
+     * @param value Corresponds to the value of the request parameter. Null means EXACT.
+     * @return The corresponding CountMode, or null if the value is unknown.
+     */
+    public static CountMode from(String value) {
+        if (value == null || value.isEmpty()) return EXACT;
+        for (CountMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) return mode;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * This service loads the entities by id (or natural id) at most once per request.
+ * The EntityManager of a request is kept open for the whole request (open session in view): an entity found by
+ * findById is in its persistence context, and any later lookup of the same row in the request (findById, existsById,
+ * or a lazy relation of another entity) is answered without query. The repositories' existsById runs a query each
+ * time and loads nothing, so it must not be used before a findById of the same row.
+ * The persistence context does not remember the rows that do not exist: the misses are kept in the attributes of the
+ * current request, so a missing row is not queried twice either. Outside a request, only the hits are memoized (for
+ * the duration of the transaction, if any).
+ */
+@Service
+public class EntityLookupService {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final String MISSES_ATTRIBUTE = EntityLookupService.class.getName() + ".MISSES";
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to get the set of the rows that do not exist, stored in the current request.
+     * @return The set, created at the first call of the request, or null outside a request.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> misses() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return null;
+        Set<String> misses = (Set<String>) attributes.getAttribute(MISSES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (misses == null) {
+            misses = new HashSet<>();
+            attributes.setAttribute(MISSES_ATTRIBUTE, misses, RequestAttributes.SCOPE_REQUEST);
+        }
+        return misses;
+    }
+
+    private static String missKey(Class<?> type, String kind, Object key) {
+        return type.getName() + "#" + kind + "#" + key;
+    }
+
+    /**
+     * This function is used to find an entity by its id.
+     * @param type Corresponds to the class of the entity.
+     * @param id Corresponds to the id of the entity.
+     * @return The entity (the same instance for the whole request), or an empty Optional if it does not exist.
+     */
+    public <T> Optional<T> findById(Class<T> type, Object id) {
+        if (id == null) return Optional.empty();
+        Set<String> misses = misses();
+        String missKey = missKey(type, "id", id);
+        if (misses != null && misses.contains(missKey)) return Optional.empty();
+        T entity = em.find(type, id);
+        if (entity == null && misses != null) misses.add(missKey);
+        return Optional.ofNullable(entity);
+    }
+
+    /**
+     * This function is used to know if an entity exists. Unlike the repositories' existsById, the entity is loaded:
+     * the following findById of the same row in the request does not run any query.
+     * @param type Corresponds to the class of the entity.
+     * @param id Corresponds to the id of the entity.
+     * @return True if the entity exists.
+     */
+    public boolean existsById(Class<?> type, Object id) {
+        return findById(type, id).isPresent();
+    }
+
+    /**
+     * This function is used to find an entity by its natural id (a unique and immutable column marked as @NaturalId).
+     * The persistence context also remembers the resolution of the natural id, so the row is queried only once.
+     * The Hibernate session is needed for the natural id: the function runs in a transaction, which uses the
+     * EntityManager of the request if there is one (and so its persistence context).
+     * @param type Corresponds to the class of the entity.
+     * @param key Corresponds to the value of the natural id.
+     * @return The entity, or an empty Optional if it does not exist.
+     */
+    @Transactional
+    public <T> Optional<T> findByNaturalId(Class<T> type, Object key) {
+        if (key == null) return Optional.empty();
+        Set<String> misses = misses();
+        String missKey = missKey(type, "natural-id", key);
+        if (misses != null && misses.contains(missKey)) return Optional.empty();
+        Optional<T> entity = em.unwrap(Session.class).bySimpleNaturalId(type).loadOptional(key);
+        if (entity.isEmpty() && misses != null) misses.add(missKey);
+        return entity;
+    }
+}
@@ -0,0 +1,205 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.common.Geolocation;
+import fi.haagahelia.stockmanager.model.customer.Customer;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import fi.haagahelia.stockmanager.repository.common.GeolocationRepository;
+import fi.haagahelia.stockmanager.repository.customer.CustomerRepository;
+import fi.haagahelia.stockmanager.repository.supplier.SupplierRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This service checks that an address is not already saved, using the fingerprint of the geolocations (unique index).
+ * A Bloom filter of all the fingerprints is kept in memory: most of the created addresses are new, and the filter
+ * answers "definitely absent" for them without any query. When the filter answers "maybe present", the index is
+ * queried. The filter is only an optimization: the unique index stays the guarantee, for instance against the
+ * geolocations created by another instance of the application.
+ * The geolocations saved before the fingerprint column have no fingerprint: when the application is ready, a
+ * background job fingerprints them, and merges the duplicates (the customers and suppliers are moved to the oldest
+ * geolocation with the same address). The filter is only used once this job is finished.
+ */
+@Log4j2
+@Service
+public class GeolocationFingerprintService {
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final GeolocationRepository gRepository;
+    private final CustomerRepository cRepository;
+    private final SupplierRepository sRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CollectionVersionService collectionVersions;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final int batchSize;
+    private final boolean backfillEnabled;
+
+    /** The filter used by exists, null while the job is running. */
+    private volatile BloomFilter filter;
+    /** The filter being loaded by the job, it also receives the fingerprints registered in the meantime. */
+    private volatile BloomFilter pending;
+
+    @Autowired
+    public GeolocationFingerprintService(GeolocationRepository gRepository, CustomerRepository cRepository,
+                                         SupplierRepository sRepository, PlatformTransactionManager transactionManager,
+                                         CollectionVersionService collectionVersions, Environment env) {
+        this.gRepository = gRepository;
+        this.cRepository = cRepository;
+        this.sRepository = sRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.collectionVersions = collectionVersions;
+        this.expectedInsertions = env.getProperty("geolocation.bloom.expected-insertions", Long.class, 100_000L);
+        this.falsePositiveRate = env.getProperty("geolocation.bloom.false-positive-rate", Double.class, 0.01);
+        this.batchSize = env.getProperty("geolocation.fingerprint.batch-size", Integer.class, 500);
+        this.backfillEnabled = env.getProperty("geolocation.fingerprint.backfill", Boolean.class, true);
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to know if an address is already saved.
+     * Firstly, the fingerprint of the address is computed.
+     * Secondly, if the filter is ready and does not contain the fingerprint, the address is new: no query.
+     * Thirdly, the unique index of the fingerprints is queried. While the job is running, some geolocations have no
+     * fingerprint yet, so the address is also looked for by its columns.
+     * @return True if a geolocation with the same normalized address exists.
+     */
+    public boolean exists(String streetName, String streetNumber, String postcode, String country) {
+        String fingerprint = Geolocation.fingerprint(streetName, streetNumber, postcode, country);
+        BloomFilter current = filter;
+        if (current == null) {
+            return gRepository.existsByFingerprint(fingerprint)
+                    || gRepository.existsByStreetNameAndStreetNumberAndPostcodeAndCountry(streetName, streetNumber,
+                    postcode, country);
+        }
+        if (!current.mightContain(fingerprint)) return false;
+        return gRepository.existsByFingerprint(fingerprint);
+    }
+
+    /**
+     * This function is used to add the fingerprint of a geolocation that is about to be saved to the filter.
+     * It must be called before the save: if the save fails, the fingerprint only gives a false positive.
+     * @param fingerprint Corresponds to the fingerprint of the geolocation.
+     */
+    public void register(String fingerprint) {
+        BloomFilter loading = pending;
+        if (loading != null) loading.put(fingerprint);
+        BloomFilter current = filter;
+        if (current != null) current.put(fingerprint);
+    }
+
+    /* ---------------------------------------------------- JOB ----------------------------------------------------- */
+
+    /**
+     * This function is used to start the job when the application is ready, in a background thread so that the
+     * start of the application is not delayed by the number of geolocations.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!backfillEnabled) return;
+        Thread thread = new Thread(this::backfill, "geolocation-fingerprint");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * This function is used to fingerprint the geolocations that have no fingerprint yet, then to load the filter.
+     * Firstly, the geolocations without fingerprint are read by batches of ids, each batch in its own transaction.
+     * A batch that fails because a same address has just been created is read again: the new geolocation is found.
+     * Secondly, all the fingerprints are loaded in a new filter, which is then used by exists.
+     */
+    public void backfill() {
+        long start = System.currentTimeMillis();
+        try {
+            pending = new BloomFilter(expectedInsertions, falsePositiveRate);
+            long lastId = 0;
+            int fingerprinted = 0;
+            int merged = 0;
+            int failures = 0;
+            while (true) {
+                long from = lastId;
+                BatchResult result;
+                try {
+                    result = transactionTemplate.execute(status -> fingerprintBatch(from));
+                } catch (DataIntegrityViolationException e) {
+                    if (++failures > 3) throw e;
+                    log.info("Geolocation fingerprints: batch after id {} in conflict, retrying.", from);
+                    continue;
+                }
+                if (result == null || result.lastId() == from) break;
+                lastId = result.lastId();
+                fingerprinted += result.fingerprinted();
+                merged += result.merged();
+                if (result.merged() > 0) {
+                    collectionVersions.changed(Geolocation.class);
+                    collectionVersions.changed(Customer.class);
+                    collectionVersions.changed(Supplier.class);
+                }
+            }
+            BloomFilter loaded = pending;
+            for (String fingerprint : gRepository.findAllFingerprints()) loaded.put(fingerprint);
+            filter = loaded;
+            pending = null;
+            log.info("Geolocation fingerprints: {} fingerprinted, {} duplicates merged, filter of {} bits loaded in {} ms.",
+                    fingerprinted, merged, loaded.getBitCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            pending = null;
+            log.error("Geolocation fingerprints: the job failed, the duplicates are checked with queries only.", e);
+        }
+    }
+
+    /**
+     * This record is the result of a batch of the job.
+     * @param lastId Corresponds to the greatest id read, the id given to the batch if none.
+     * @param fingerprinted Corresponds to the number of geolocations that received their fingerprint.
+     * @param merged Corresponds to the number of duplicated geolocations deleted.
+     */
+    private record BatchResult(long lastId, int fingerprinted, int merged) { }
+
+    /**
+     * This function is used to fingerprint a batch of geolocations, inside a transaction.
+     * For each geolocation, if another geolocation already has its fingerprint (saved earlier, or earlier in the
+     * batch: the query flushes the fingerprints set before it), its customers and suppliers are moved to the other
+     * geolocation and it is deleted. Otherwise, it receives its fingerprint.
+     * @param fromId Corresponds to the id after which the geolocations are read.
+     * @return The result of the batch.
+     */
+    private BatchResult fingerprintBatch(long fromId) {
+        List<Geolocation> geolocations = gRepository.findByFingerprintIsNullAndIdGreaterThanOrderById(fromId,
+                PageRequest.of(0, batchSize));
+        long lastId = fromId;
+        int fingerprinted = 0;
+        int merged = 0;
+        for (Geolocation geolocation : geolocations) {
+            lastId = geolocation.getId();
+            String fingerprint = Geolocation.fingerprint(geolocation.getStreetName(), geolocation.getStreetNumber(),
+                    geolocation.getPostcode(), geolocation.getCountry());
+            Optional<Long> existingId = gRepository.findIdByFingerprint(fingerprint);
+            if (existingId.isPresent()) {
+                Geolocation existing = gRepository.getReferenceById(existingId.get());
+                int customers = cRepository.reassignGeolocation(geolocation, existing);
+                int suppliers = sRepository.reassignGeolocation(geolocation, existing);
+                gRepository.delete(geolocation);
+                merged++;
+                log.info("Geolocation fingerprints: geolocation {} merged into {} ({} customers, {} suppliers).",
+                        geolocation.getId(), existingId.get(), customers, suppliers);
+            } else {
+                geolocation.setFingerprint(fingerprint);
+                fingerprinted++;
+            }
+        }
+        return new BatchResult(lastId, fingerprinted, merged);
+    }
+}
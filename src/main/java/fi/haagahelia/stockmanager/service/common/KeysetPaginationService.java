@@ -0,0 +1,233 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
+import fi.haagahelia.stockmanager.model.common.Geolocation;
+import fi.haagahelia.stockmanager.model.customer.Customer;
+import fi.haagahelia.stockmanager.model.customer.order.CustomerOrder;
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
+import fi.haagahelia.stockmanager.model.user.Employee;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Log4j2
+@Service
+public class KeysetPaginationService {
+
+    private static final String ID_ATTRIBUTE = "id";
+    private static final String LOAD_GRAPH_HINT = "jakarta.persistence.loadgraph";
+    /**
+     * The properties that can be used as sort key, by entity. The value of the sort key of the last row is written in
+     * the cursor, which is given to the client: only public and non-sensitive properties must be listed here.
+     */
+    private static final Map<Class<?>, Set<String>> SORTABLE_ATTRIBUTES = Map.of(
+            Brand.class, Set.of(ID_ATTRIBUTE, "name"),
+            Category.class, Set.of(ID_ATTRIBUTE, "name"),
+            Customer.class, Set.of(ID_ATTRIBUTE, "firstName", "lastName", "email"),
+            CustomerOrder.class, Set.of(ID_ATTRIBUTE, "date", "deliveryDate"),
+            Employee.class, Set.of(ID_ATTRIBUTE, "username", "firstName", "lastName", "email"),
+            Geolocation.class, Set.of(ID_ATTRIBUTE, "streetName", "postcode", "locality", "country"),
+            Product.class, Set.of(ID_ATTRIBUTE, "name", "salePrice", "stock"),
+            Supplier.class, Set.of(ID_ATTRIBUTE, "name", "email"),
+            SupplierOrder.class, Set.of(ID_ATTRIBUTE, "date", "deliveryDate")
+    );
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public KeysetPaginationService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * This function is used to find one slice of entities by using a keyset (seek) pagination.
+     * Instead of skipping the previous rows (OFFSET), we filter the rows that come after the last row of the previous
+     * slice, using the sort key and the id as a tie-breaker. The cost of a slice is then the same at any depth.
+     * No COUNT query is executed: we fetch one more row than requested to know if a next slice exists.
+     * Firstly, if a cursor is given, we decode it. The sort of the cursor is used to stay consistent between slices.
+     * Secondly, we build the query with the specification, the keyset predicate and the ordering (sort key, then id).
+     * Finally, we return the slice with the cursor of its last element if there are more rows.
+     *
+     * @param domainClass Corresponds to the class of the entity.
+     * @param entityGraph Corresponds to the name of the entity graph to use, can be null.
+     * @param spec Corresponds to the filters to apply, can be null.
+     * @param sort Corresponds to the requested sort, only the first order is used. Ignored if a cursor is given.
+     * @param cursor Corresponds to the cursor returned with the previous slice. Null or empty for the first slice.
+     * @param size Corresponds to the number of elements in a slice.
+     * @return The slice of entities.
+     * @throws PaginationCursorException If the cursor cannot be decoded, or if the sort property is not in the sortable
+     * properties of the entity.
+     */
+    public <T> KeysetSlice<T> findSlice(Class<T> domainClass, String entityGraph, Specification<T> spec, Sort sort,
+                                        String cursor, int size) throws PaginationCursorException {
+        EntityType<T> entityType = em.getMetamodel().entity(domainClass);
+        KeysetCursor decoded = null;
+        Sort.Order order;
+        if (cursor != null && !cursor.isEmpty()) {
+            decoded = decodeCursor(cursor);
+            order = new Sort.Order(decoded.direction(), decoded.property());
+        } else {
+            order = sort != null && sort.iterator().hasNext() ? sort.iterator().next() : Sort.Order.asc(ID_ATTRIBUTE);
+        }
+        Attribute<? super T, ?> sortAttribute = getSortAttribute(domainClass, entityType, order.getProperty());
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(domainClass);
+        Root<T> root = query.from(domainClass);
+        List<Predicate> predicates = new ArrayList<>();
+        if (spec != null) {
+            Predicate specPredicate = spec.toPredicate(root, query, cb);
+            if (specPredicate != null) predicates.add(specPredicate);
+        }
+        if (decoded != null) {
+            Object lastValue = readCursorValue(decoded, sortAttribute.getJavaType());
+            predicates.add(keysetPredicate(cb, root, order, lastValue, decoded.id()));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+        List<jakarta.persistence.criteria.Order> orders = new ArrayList<>();
+        Path<?> sortPath = root.get(order.getProperty());
+        orders.add(order.isAscending() ? cb.asc(sortPath) : cb.desc(sortPath));
+        if (!order.getProperty().equals(ID_ATTRIBUTE)) orders.add(cb.asc(root.get(ID_ATTRIBUTE)));
+        query.orderBy(orders);
+
+        TypedQuery<T> typedQuery = em.createQuery(query).setMaxResults(size + 1);
+        if (entityGraph != null) typedQuery.setHint(LOAD_GRAPH_HINT, em.getEntityGraph(entityGraph));
+        List<T> results = typedQuery.getResultList();
+
+        String nextCursor = null;
+        if (results.size() > size) {
+            results = new ArrayList<>(results.subList(0, size));
+            T last = results.get(size - 1);
+            nextCursor = encodeCursor(order, readAttribute(sortAttribute, last), (Long) readAttribute(entityType.getAttribute(ID_ATTRIBUTE), last));
+        }
+        return new KeysetSlice<>(results, size, nextCursor);
+    }
+
+    /**
+     * This function is used to build the predicate that selects the rows that come after the last row of a slice.
+     * For an ascending sort: (key > last) OR (key = last AND id > lastId).
+     * For a descending sort: (key < last) OR (key = last AND id > lastId).
+     * The NULL values are considered as the smallest values, as the database does.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> Predicate keysetPredicate(CriteriaBuilder cb, Root<T> root, Sort.Order order, Object lastValue, Long lastId) {
+        Path<Long> idPath = root.get(ID_ATTRIBUTE);
+        if (order.getProperty().equals(ID_ATTRIBUTE)) {
+            return order.isAscending() ? cb.greaterThan(idPath, lastId) : cb.lessThan(idPath, lastId);
+        }
+        Path<Comparable> keyPath = root.get(order.getProperty());
+        if (lastValue == null) {
+            Predicate sameKey = cb.and(cb.isNull(keyPath), cb.greaterThan(idPath, lastId));
+            return order.isAscending() ? cb.or(sameKey, cb.isNotNull(keyPath)) : sameKey;
+        }
+        Comparable value = (Comparable) lastValue;
+        Predicate after = order.isAscending() ? cb.greaterThan(keyPath, value) : cb.lessThan(keyPath, value);
+        Predicate sameKey = cb.and(cb.equal(keyPath, value), cb.greaterThan(idPath, lastId));
+        if (order.isAscending()) return cb.or(after, sameKey);
+        return cb.or(after, sameKey, cb.isNull(keyPath));
+    }
+
+    private <T> Attribute<? super T, ?> getSortAttribute(Class<T> domainClass, EntityType<T> entityType, String property)
+            throws PaginationCursorException {
+        if (!SORTABLE_ATTRIBUTES.getOrDefault(domainClass, Set.of(ID_ATTRIBUTE)).contains(property)) {
+            throw new PaginationCursorException("The property " + property + " cannot be used for a keyset pagination.");
+        }
+        try {
+            Attribute<? super T, ?> attribute = entityType.getAttribute(property);
+            if (attribute.isAssociation() || attribute.isCollection() || !Comparable.class.isAssignableFrom(wrap(attribute.getJavaType()))) {
+                throw new PaginationCursorException("The property " + property + " cannot be used for a keyset pagination.");
+            }
+            return attribute;
+        } catch (IllegalArgumentException e) {
+            throw new PaginationCursorException("Unknown sort property: " + property, e);
+        }
+    }
+
+    private Object readAttribute(Attribute<?, ?> attribute, Object entity) {
+        Field field = (Field) attribute.getJavaMember();
+        ReflectionUtils.makeAccessible(field);
+        return ReflectionUtils.getField(field, entity);
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == boolean.class) return Boolean.class;
+        return type;
+    }
+
+    /* ---------------------------------------------------- CURSOR -------------------------------------------------- */
+
+    /**
+     * The cursor is an URL-safe Base64 of a small JSON document: {"p": property, "d": direction, "v": value, "i": id}.
+     * The value is serialized by Jackson, so it can be read back with the type of the sort attribute.
+     */
+    private record KeysetCursor(String property, Sort.Direction direction, JsonNode value, Long id) { }
+
+    private String encodeCursor(Sort.Order order, Object lastValue, Long lastId) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("p", order.getProperty());
+        node.put("d", order.getDirection().name());
+        node.set("v", objectMapper.valueToTree(lastValue));
+        node.put("i", lastId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(node.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private KeysetCursor decodeCursor(String cursor) throws PaginationCursorException {
+        try {
+            JsonNode node = objectMapper.readTree(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (!node.hasNonNull("p") || !node.hasNonNull("d") || !node.has("v") || !node.hasNonNull("i")) {
+                throw new PaginationCursorException("The cursor is incomplete.");
+            }
+            return new KeysetCursor(node.get("p").asText(), Sort.Direction.fromString(node.get("d").asText()),
+                    node.get("v"), node.get("i").asLong());
+        } catch (PaginationCursorException e) {
+            throw e;
+        } catch (Exception e) {
+            log.debug("Invalid pagination cursor: {}", cursor);
+            throw new PaginationCursorException("The cursor cannot be decoded.", e);
+        }
+    }
+
+    private Object readCursorValue(KeysetCursor cursor, Class<?> javaType) throws PaginationCursorException {
+        if (cursor.value() == null || cursor.value().isNull()) return null;
+        try {
+            return objectMapper.treeToValue(cursor.value(), wrap(javaType));
+        } catch (Exception e) {
+            throw new PaginationCursorException("The cursor value cannot be read.", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import java.util.List;
+
+/**
+ * This class corresponds to one slice of a keyset (seek) pagination.
+ * It contains the entities of the slice and the opaque cursor that must be given to get the next slice.
+ * The cursor is null when the slice is the last one.
+ * @param <T> The type of the entities.
+ */
+public class KeysetSlice<T> {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private final List<T> content;
+    private final int size;
+    private final String nextCursor;
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    public KeysetSlice(List<T> content, int size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    /* ---------------------------------------------- GETTERS & SETTERS --------------------------------------------- */
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+@Log4j2
+@Service
+public class PageQueryService {
+
+    private static final String LOAD_GRAPH_HINT = "jakarta.persistence.loadgraph";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** The totals of the count=approximate requests, by entity and count key (the search query given by the client). */
+    private final BoundedCache<String, Long> approximateCounts;
+
+    @Autowired
+    public PageQueryService(Environment env) {
+        this.approximateCounts = new BoundedCache<>("approximate-counts",
+                env.getProperty("pagination.approximate-count.max-size", Integer.class, 1000),
+                env.getProperty("pagination.approximate-count.ttl", Long.class, 30L) * 1000);
+    }
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * This function is used to find one page of entities without executing any COUNT query.
+     * We fetch one more row than the page size: if it exists, the returned slice has a next page.
+     *
+     * @param domainClass Corresponds to the class of the entity.
+     * @param entityGraph Corresponds to the name of the entity graph to use, can be null.
+     * @param spec Corresponds to the filters to apply, can be null.
+     * @param pageable Corresponds to the page (number, size and sort).
+     * @return The slice of entities.
+     */
+    public <T> Slice<T> findSlice(Class<T> domainClass, String entityGraph, Specification<T> spec, Pageable pageable) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(domainClass);
+        Root<T> root = query.from(domainClass);
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) query.where(predicate);
+        if (pageable.getSort().isSorted()) query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<T> typedQuery = em.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1);
+        if (entityGraph != null) typedQuery.setHint(LOAD_GRAPH_HINT, em.getEntityGraph(entityGraph));
+        List<T> content = typedQuery.getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) content = new ArrayList<>(content.subList(0, pageable.getPageSize()));
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * This function is used to find one page of entities with an approximate total.
+     * Firstly, we get the slice of the page (no COUNT query).
+     * Secondly, if the slice is the last page, the total can be computed from the offset (no COUNT query).
+     * Thirdly, else we use the total cached for this entity and this count key, if it is not expired.
+     * Finally, if there is no cached total, we execute the COUNT query and cache its result.
+     * The total can then be a bit outdated (at most the TTL "pagination.approximate-count.ttl", in seconds). The cache
+     * keeps the most recently used totals only ("pagination.approximate-count.max-size").
+     *
+     * @param domainClass Corresponds to the class of the entity.
+     * @param entityGraph Corresponds to the name of the entity graph to use, can be null.
+     * @param spec Corresponds to the filters to apply, can be null.
+     * @param pageable Corresponds to the page (number, size and sort).
+     * @param countKey Corresponds to the key that identifies the filters of the specification (e.g. the search query).
+     * @return The page of entities.
+     */
+    public <T> Page<T> findApproximatePage(Class<T> domainClass, String entityGraph, Specification<T> spec,
+                                           Pageable pageable, String countKey) {
+        Slice<T> slice = findSlice(domainClass, entityGraph, spec, pageable);
+        return toApproximatePage(slice, pageable, domainClass, countKey, () -> count(domainClass, spec));
+    }
+
+    /**
+     * This function is used to convert a slice (of entities or of projections) into a page with an approximate total.
+     * The total is computed like in findApproximatePage: from the offset when the slice is the last page, otherwise from
+     * the cache shared with findApproximatePage, and only when it is expired with the given counter.
+     *
+     * @param slice Corresponds to the slice of the page.
+     * @param pageable Corresponds to the page (number, size and sort).
+     * @param domainClass Corresponds to the class of the counted entity.
+     * @param countKey Corresponds to the key that identifies the filters of the query (e.g. the search query).
+     * @param counter Corresponds to the COUNT query, only executed when the cached total is missing or expired.
+     * @return The page.
+     */
+    public <R> Page<R> toApproximatePage(Slice<R> slice, Pageable pageable, Class<?> domainClass, String countKey,
+                                         LongSupplier counter) {
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            return new PageImpl<>(slice.getContent(), pageable, pageable.getOffset() + slice.getNumberOfElements());
+        }
+        String key = domainClass.getName() + "|" + (countKey == null ? "" : countKey);
+        Long total = approximateCounts.get(key);
+        if (total == null) {
+            total = counter.getAsLong();
+            approximateCounts.put(key, total);
+            log.debug("Approximate count of {} refreshed: {}.", key, total);
+        }
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredCounts() {
+        approximateCounts.evictExpired();
+    }
+
+    public BoundedCache.Stats stats() {
+        return approximateCounts.stats();
+    }
+
+    private <T> long count(Class<T> domainClass, Specification<T> spec) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(domainClass);
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) query.where(predicate);
+        query.select(cb.count(root));
+        return em.createQuery(query).getSingleResult();
+    }
+}
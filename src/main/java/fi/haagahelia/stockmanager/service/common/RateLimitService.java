@@ -0,0 +1,175 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * This service limits the number of requests of each employee to each group of endpoints, with a token bucket per
+ * employee and group. The group of a request is the first segment of its path after /api (statistics, products, ...)
+ * if this segment is listed in rate-limit.groups, "default" otherwise.
+ * The limits are configured per group and role: rate-limit.[group].[role]=[capacity],[refill per second], where the
+ * role is vendor, manager or admin. A group without limit for a role uses the limit of the default group. An employee
+ * with several roles gets the highest limit, an employee whose roles have no limit is not limited.
+ * The buckets that are full again (not used for their refill time) are removed every minute.
+ */
+@Log4j2
+@Service
+public class RateLimitService {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    public static final String DEFAULT_GROUP = "default";
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final Environment env;
+    private final LongSupplier clock;
+    private final boolean enabled;
+    private final Set<String> groups;
+    /** The limits already read from the properties, by group and role (an empty Optional if not configured). */
+    private final Map<String, Optional<Limit>> limits = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimitService(Environment env) {
+        this(env, System::nanoTime);
+    }
+
+    RateLimitService(Environment env, LongSupplier clock) {
+        this.env = env;
+        this.clock = clock;
+        this.enabled = env.getProperty("rate-limit.enabled", Boolean.class, true);
+        Set<String> configuredGroups = new HashSet<>();
+        for (String group : env.getProperty("rate-limit.groups", "").split(",")) {
+            if (!group.isBlank()) configuredGroups.add(group.strip().toLowerCase(Locale.ROOT));
+        }
+        this.groups = Set.copyOf(configuredGroups);
+    }
+
+    /**
+     * This record corresponds to the limit of a role for a group.
+     * @param capacity Corresponds to the number of requests allowed in a burst.
+     * @param refillPerSecond Corresponds to the number of requests allowed per second, sustained.
+     */
+    public record Limit(int capacity, double refillPerSecond) { }
+
+    /**
+     * This record corresponds to the statistics of a group: the number of requests checked and refused since the
+     * start of the application.
+     */
+    public record GroupStats(String group, long requests, long throttled) {
+        public double getThrottledRatio() {
+            return requests == 0 ? 0.0 : (double) throttled / requests;
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to get the group of a request.
+     * @param path Corresponds to the path of the request, without the context path.
+     * @return The group of the request.
+     */
+    public String groupOf(String path) {
+        if (path == null || !path.startsWith("/api/")) return DEFAULT_GROUP;
+        int end = path.indexOf('/', 5);
+        String segment = (end < 0 ? path.substring(5) : path.substring(5, end)).toLowerCase(Locale.ROOT);
+        return groups.contains(segment) ? segment : DEFAULT_GROUP;
+    }
+
+    /**
+     * This function is used to get the limit of an employee for a group: the highest limit of its roles.
+     * @param group Corresponds to the group of the request.
+     * @param authorities Corresponds to the roles of the employee.
+     * @return The limit, or an empty Optional if the employee is not limited.
+     */
+    Optional<Limit> limitOf(String group, Collection<? extends GrantedAuthority> authorities) {
+        Limit best = null;
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            if (name == null || !name.startsWith(ROLE_PREFIX)) continue;
+            String role = name.substring(ROLE_PREFIX.length()).toLowerCase(Locale.ROOT);
+            Optional<Limit> limit = configuredLimit(group, role).or(() -> configuredLimit(DEFAULT_GROUP, role));
+            if (limit.isPresent() && (best == null || limit.get().refillPerSecond() > best.refillPerSecond())) {
+                best = limit.get();
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private Optional<Limit> configuredLimit(String group, String role) {
+        return limits.computeIfAbsent(group + "." + role, key -> {
+            String value = env.getProperty("rate-limit." + key);
+            if (value == null || value.isBlank()) return Optional.empty();
+            try {
+                String[] parts = value.split(",");
+                return Optional.of(new Limit(Integer.parseInt(parts[0].strip()), Double.parseDouble(parts[1].strip())));
+            } catch (RuntimeException e) {
+                log.error("Rate limit: the limit 'rate-limit.{}={}' is invalid, it is ignored.", key, value);
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * This function is used to take a token from the bucket of an employee for a request.
+     * @param employeeId Corresponds to the id of the authenticated employee.
+     * @param authorities Corresponds to the roles of the employee.
+     * @param path Corresponds to the path of the request, without the context path.
+     * @return 0 if the request is allowed, otherwise the time to wait before the next allowed request, in nanoseconds.
+     */
+    public long tryAcquire(Long employeeId, Collection<? extends GrantedAuthority> authorities, String path) {
+        if (!enabled || employeeId == null) return 0;
+        String group = groupOf(path);
+        Optional<Limit> limit = limitOf(group, authorities);
+        if (limit.isEmpty()) return 0;
+        Counters groupCounters = counters.computeIfAbsent(group, key -> new Counters());
+        groupCounters.requests.increment();
+        long now = clock.getAsLong();
+        TokenBucket bucket = buckets.computeIfAbsent(employeeId + ":" + group + ":" + limit.get(),
+                key -> new TokenBucket(limit.get().capacity(), limit.get().refillPerSecond(), now));
+        long wait = bucket.tryAcquire(now);
+        if (wait > 0) {
+            groupCounters.throttled.increment();
+            log.debug("Rate limit: request of the employee {} to the group '{}' refused.", employeeId, group);
+        }
+        return wait;
+    }
+
+    /**
+     * This function is used to remove the buckets that are full, they are created again at the next request.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * This function is used to get the statistics of each group.
+     * @return The statistics, sorted by group.
+     */
+    public List<GroupStats> stats() {
+        List<GroupStats> stats = new ArrayList<>();
+        counters.forEach((group, groupCounters) -> stats.add(new GroupStats(group, groupCounters.requests.sum(),
+                groupCounters.throttled.sum())));
+        stats.sort(Comparator.comparing(GroupStats::group));
+        return stats;
+    }
+}
@@ -0,0 +1,260 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.common.ReferenceDataListener;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.user.Role;
+import fi.haagahelia.stockmanager.repository.product.BrandRepository;
+import fi.haagahelia.stockmanager.repository.product.CategoryRepository;
+import fi.haagahelia.stockmanager.repository.user.RoleRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * This service keeps the reference data (brands, categories and roles) in memory, so they are read without any query
+ * by the validators, the DTO converters and the list endpoints.
+ * The data are held by an immutable snapshot, replaced as a whole when it is reloaded: a reader always sees a complete
+ * and consistent snapshot, without any lock. The snapshot is reloaded at its next read after a change (see
+ * ReferenceDataListener), and every 5 minutes for the changes made by another instance of the application.
+ * A brand or a category created by another instance is missing from the snapshot until this reload: an id that is not
+ * in the snapshot is looked up in the database, and the snapshot is reloaded if it exists.
+ * The snapshot holds its own entities, so the functions return copies of them: the copies are detached entities, that
+ * can be set as the brand or the category of a product, and that can be modified by the caller.
+ */
+@Log4j2
+@Service
+public class ReferenceDataService {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final Map<String, Function<Brand, Comparable<?>>> BRAND_PROPERTIES =
+            Map.of("id", Brand::getId, "name", Brand::getName);
+    private static final Map<String, Function<Category, Comparable<?>>> CATEGORY_PROPERTIES =
+            Map.of("id", Category::getId, "name", Category::getName, "description", Category::getDescription);
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final BrandRepository bRepository;
+    private final CategoryRepository cRepository;
+    private final RoleRepository rRepository;
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public ReferenceDataService(BrandRepository bRepository, CategoryRepository cRepository, RoleRepository rRepository) {
+        this.bRepository = bRepository;
+        this.cRepository = cRepository;
+        this.rRepository = rRepository;
+    }
+
+    /**
+     * This record is an immutable snapshot of the reference data.
+     * @param generation Corresponds to the generation of the reference data when the snapshot has been loaded.
+     * @param brands Corresponds to the brands by id.
+     * @param categories Corresponds to the categories by id.
+     * @param roleIds Corresponds to the ids of the roles by name.
+     */
+    record Snapshot(long generation, Map<Long, Brand> brands, Map<Long, Category> categories, Map<String, Long> roleIds) { }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    private static Brand copy(Brand brand) {
+        Brand copy = new Brand(brand.getName());
+        copy.setId(brand.getId());
+        copy.setRevision(brand.getRevision());
+        return copy;
+    }
+
+    private static Category copy(Category category) {
+        Category copy = new Category(category.getName(), category.getDescription());
+        copy.setId(category.getId());
+        copy.setRevision(category.getRevision());
+        return copy;
+    }
+
+    /**
+     * This function is used to get the current snapshot, reloaded first if the reference data have changed.
+     * @return The current snapshot.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || current.generation() != ReferenceDataListener.generation()) current = reload(false);
+        return current;
+    }
+
+    /**
+     * This function is used to load a new snapshot and to replace the current one.
+     * The generation is read before loading the data: a change made during the loading makes the snapshot out of date.
+     * @param force Corresponds to true to reload the snapshot even if it is up to date.
+     * @return The new snapshot.
+     */
+    private synchronized Snapshot reload(boolean force) {
+        long generation = ReferenceDataListener.generation();
+        Snapshot current = snapshot;
+        if (!force && current != null && current.generation() == generation) return current;
+        Map<Long, Brand> brands = new LinkedHashMap<>();
+        for (Brand brand : bRepository.findAll()) brands.put(brand.getId(), copy(brand));
+        Map<Long, Category> categories = new LinkedHashMap<>();
+        for (Category category : cRepository.findAll()) categories.put(category.getId(), copy(category));
+        Map<String, Long> roleIds = new HashMap<>();
+        for (Role role : rRepository.findAll()) roleIds.put(role.getName(), role.getId());
+        current = new Snapshot(generation, Collections.unmodifiableMap(brands), Collections.unmodifiableMap(categories),
+                Collections.unmodifiableMap(roleIds));
+        snapshot = current;
+        log.debug("Reference data loaded: {} brands, {} categories, {} roles.", brands.size(), categories.size(), roleIds.size());
+        return current;
+    }
+
+    /**
+     * This function is used to reload the snapshot when it misses a brand or a category that exists in the database.
+     * The snapshot is only reloaded if it still misses the entity, so concurrent misses reload it once.
+     * @param isMissing Corresponds to true if the entity is not in a snapshot.
+     * @param existsInDatabase Corresponds to the database lookup of the entity, called only if it is missing.
+     * @return The snapshot holding the entity, or the current one if the entity does not exist.
+     */
+    private Snapshot reloadIfMissing(Predicate<Snapshot> isMissing, BooleanSupplier existsInDatabase) {
+        Snapshot current = snapshot();
+        if (!isMissing.test(current) || !existsInDatabase.getAsBoolean()) return current;
+        synchronized (this) {
+            current = snapshot();
+            return isMissing.test(current) ? reload(true) : current;
+        }
+    }
+
+    /**
+     * This function is used to get a page of entities from memory, with the same result as the database query.
+     * Firstly, the entities are filtered, then sorted with the sort of the pageable (strings are compared without case,
+     *      as with the collation of the database).
+     * Finally, the requested page is cut from the sorted list.
+     * @param entities Corresponds to all the entities.
+     * @param filter Corresponds to the filter of the entities.
+     * @param pageable Corresponds to the requested page and its sort.
+     * @param properties Corresponds to the properties that can be used to sort the entities.
+     * @param copy Corresponds to the function that copies an entity of the snapshot.
+     * @return The page of copied entities.
+     * @throws IllegalArgumentException if the sort uses an unknown property.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> Page<T> page(Collection<T> entities, Predicate<T> filter, Pageable pageable,
+                            Map<String, Function<T, Comparable<?>>> properties, Function<T, T> copy) {
+        List<T> filtered = new ArrayList<>();
+        for (T entity : entities) if (filter.test(entity)) filtered.add(entity);
+        Comparator<T> comparator = null;
+        for (Sort.Order order : pageable.getSort()) {
+            Function<T, Comparable<?>> property = properties.get(order.getProperty());
+            if (property == null) throw new IllegalArgumentException("Unknown sort property: " + order.getProperty());
+            Comparator<Comparable> values = Comparator.nullsFirst((a, b) -> a instanceof String first
+                    ? String.CASE_INSENSITIVE_ORDER.compare(first, (String) b) : a.compareTo(b));
+            Comparator<T> next = Comparator.comparing(entity -> (Comparable) property.apply(entity), values);
+            if (order.isDescending()) next = next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        if (comparator != null) filtered.sort(comparator);
+        if (pageable.isUnpaged()) return new PageImpl<>(filtered.stream().map(copy).toList(), pageable, filtered.size());
+        int from = (int) Math.min(pageable.getOffset(), filtered.size());
+        int to = Math.min(from + pageable.getPageSize(), filtered.size());
+        return new PageImpl<>(filtered.subList(from, to).stream().map(copy).toList(), pageable, filtered.size());
+    }
+
+    private static Predicate<String> nameFilter(String searchQuery) {
+        if (searchQuery == null || searchQuery.isEmpty()) return name -> true;
+        String search = searchQuery.toLowerCase();
+        return name -> name.toLowerCase().contains(search);
+    }
+
+    /* -------------------------------------------------- FUNCTIONS ------------------------------------------------- */
+
+    /**
+     * This function is used to reload the snapshot every 5 minutes, for the changes made by another instance of the
+     * application or directly in the database.
+     */
+    @Scheduled(fixedDelay = 300000)
+    public void refresh() {
+        reload(true);
+    }
+
+    public boolean brandExists(Long id) {
+        return findBrand(id).isPresent();
+    }
+
+    public boolean categoryExists(Long id) {
+        return findCategory(id).isPresent();
+    }
+
+    public Optional<Brand> findBrand(Long id) {
+        if (id == null) return Optional.empty();
+        Brand brand = reloadIfMissing(current -> !current.brands().containsKey(id), () -> bRepository.existsById(id))
+                .brands().get(id);
+        return brand == null ? Optional.empty() : Optional.of(copy(brand));
+    }
+
+    public Optional<Category> findCategory(Long id) {
+        if (id == null) return Optional.empty();
+        Category category = reloadIfMissing(current -> !current.categories().containsKey(id),
+                () -> cRepository.existsById(id)).categories().get(id);
+        return category == null ? Optional.empty() : Optional.of(copy(category));
+    }
+
+    public List<Brand> findBrands(Collection<Long> ids) {
+        List<Long> missing = ids.stream().filter(id -> !snapshot().brands().containsKey(id)).toList();
+        Map<Long, Brand> brands = reloadIfMissing(current -> !current.brands().keySet().containsAll(missing),
+                () -> !bRepository.findAllById(missing).isEmpty()).brands();
+        return ids.stream().map(brands::get).filter(Objects::nonNull).map(ReferenceDataService::copy).toList();
+    }
+
+    public List<Category> findCategories(Collection<Long> ids) {
+        List<Long> missing = ids.stream().filter(id -> !snapshot().categories().containsKey(id)).toList();
+        Map<Long, Category> categories = reloadIfMissing(current -> !current.categories().keySet().containsAll(missing),
+                () -> !cRepository.findAllById(missing).isEmpty()).categories();
+        return ids.stream().map(categories::get).filter(Objects::nonNull).map(ReferenceDataService::copy).toList();
+    }
+
+    /**
+     * This function is used to get a page of brands, whose name contains the search query (ignoring the case).
+     * @param searchQuery Corresponds to a part of the name, can be null.
+     * @param pageable Corresponds to the requested page and its sort (id or name).
+     * @return The page of brands.
+     */
+    public Page<Brand> findBrands(String searchQuery, Pageable pageable) {
+        Predicate<String> filter = nameFilter(searchQuery);
+        return page(snapshot().brands().values(), brand -> filter.test(brand.getName()), pageable, BRAND_PROPERTIES,
+                ReferenceDataService::copy);
+    }
+
+    /**
+     * This function is used to get a page of categories, whose name contains the search query (ignoring the case).
+     * @param searchQuery Corresponds to a part of the name, can be null.
+     * @param pageable Corresponds to the requested page and its sort (id, name or description).
+     * @return The page of categories.
+     */
+    public Page<Category> findCategories(String searchQuery, Pageable pageable) {
+        Predicate<String> filter = nameFilter(searchQuery);
+        return page(snapshot().categories().values(), category -> filter.test(category.getName()), pageable,
+                CATEGORY_PROPERTIES, ReferenceDataService::copy);
+    }
+
+    /**
+     * This function is used to get the id of a role from its name.
+     * The role itself is not kept in memory: the roles of an employee are cascaded, so they must be attached with
+     * RoleRepository.getReferenceById (no query).
+     * @param name Corresponds to the name of the role (ROLE_VENDOR, ...).
+     * @return The id of the role, if it exists.
+     */
+    public Optional<Long> findRoleId(String name) {
+        return Optional.ofNullable(snapshot().roleIds().get(name));
+    }
+
+    public boolean roleExists(Long id) {
+        return id != null && snapshot().roleIds().containsValue(id);
+    }
+}
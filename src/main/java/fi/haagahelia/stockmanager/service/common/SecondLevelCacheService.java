@@ -0,0 +1,57 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This service exposes the statistics of the regions of the Hibernate second-level cache (brands, categories, roles,
+ * suppliers, geolocations and the roles of the employees), configured in ehcache.xml.
+ * The statistics are only collected if hibernate.generate_statistics is enabled.
+ */
+@Service
+public class SecondLevelCacheService {
+
+    private final EntityManagerFactory emf;
+
+    @Autowired
+    public SecondLevelCacheService(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * This record corresponds to the statistics of a region at a given time.
+     * The size is the number of entries in memory (negative if the cache provider does not give it).
+     */
+    public record RegionStats(String name, long size, long hits, long misses, long puts) {
+        public double getHitRatio() {
+            return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+        }
+    }
+
+    /**
+     * This function is used to get the statistics of each region of the second-level cache, since the start of the
+     * application.
+     * @return The statistics of the regions, sorted by name (empty if the second-level cache is disabled).
+     */
+    public List<RegionStats> stats() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        List<RegionStats> stats = new ArrayList<>();
+        for (String region : regions) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            if (regionStatistics == null) continue;
+            stats.add(new RegionStats(region, regionStatistics.getElementCountInMemory(), regionStatistics.getHitCount(),
+                    regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,20 @@
+package fi.haagahelia.stockmanager.service.common;
+
+/**
+ * This enum corresponds to the kinds of entities that can be suggested by the autocomplete.
+ */
+public enum SuggestionType {
+    PRODUCT, BRAND, CATEGORY, SUPPLIER, CUSTOMER;
+
+    /**
+     * This function is used to read a suggestion type given as request parameter (case-insensitive).
+     * @param value Corresponds to the value of the request parameter.
+     * @return The corresponding SuggestionType, or null if the value is unknown.
+     */
+    public static SuggestionType from(String value) {
+        for (SuggestionType type : values()) {
+            if (type.name().equalsIgnoreCase(value.trim())) return type;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a token bucket: it holds up to capacity tokens, refilled at a constant rate, and each request takes a
+ * token. A request that finds the bucket empty is refused, and is told when the next token will be available.
+ * The state is a single number, the time at which the bucket will be full again: the bucket contains
+ * capacity - (fullAt - now) / interval tokens. Taking a token pushes this time one interval later. The state is
+ * updated with compare-and-set, so the bucket is thread safe without locks.
+ */
+public class TokenBucket {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    /** The time to refill a token, in nanoseconds. */
+    private final long interval;
+    /** The time to refill the whole bucket, in nanoseconds. */
+    private final long refillTime;
+    private final AtomicLong fullAt;
+
+    /* ------------------------------------------------ CONSTRUCTORS ------------------------------------------------ */
+
+    /**
+     * This function is used to create a full bucket.
+     * @param capacity Corresponds to the maximal number of tokens, that is the number of requests allowed in a burst.
+     * @param refillPerSecond Corresponds to the number of tokens added per second, that is the sustained rate.
+     * @param now Corresponds to the current time, in nanoseconds (System.nanoTime).
+     */
+    public TokenBucket(int capacity, double refillPerSecond, long now) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be positive.");
+        if (refillPerSecond <= 0) throw new IllegalArgumentException("The refill rate must be positive.");
+        this.interval = Math.max(1, Math.round(1_000_000_000L / refillPerSecond));
+        this.refillTime = interval * capacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to take a token.
+     * @param now Corresponds to the current time, in nanoseconds (System.nanoTime).
+     * @return 0 if a token has been taken, otherwise the time until the next token, in nanoseconds (no token taken).
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            long excess = next - now - refillTime;
+            if (excess > 0) return excess;
+            if (fullAt.compareAndSet(current, next)) return 0;
+        }
+    }
+
+    /**
+     * This function is used to know if the bucket is full, that is if it has not been used for the refill time.
+     * @param now Corresponds to the current time, in nanoseconds (System.nanoTime).
+     * @return True if the bucket is full.
+     */
+    public boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+}
@@ -0,0 +1,28 @@
+package fi.haagahelia.stockmanager.service.common;
+
+/**
+ * This enum corresponds to the unique columns (or groups of columns) guarded by the UniquenessGuard.
+ * Each key knows the entity that holds it and the JPQL selection of its columns (alias x), used to load all the
+ * existing values.
+ */
+public enum UniqueKey {
+    EMPLOYEE_USERNAME("Employee", "x.username"),
+    EMPLOYEE_EMAIL("Employee", "x.email"),
+    CUSTOMER_EMAIL("Customer", "x.email"),
+    SUPPLIER_NAME("Supplier", "x.name"),
+    BRAND_NAME("Brand", "x.name"),
+    CATEGORY_NAME("Category", "x.name"),
+    PRODUCT_NAME_SUPPLIER("Product", "x.name, x.supplier.id");
+
+    private final String entity;
+    private final String columns;
+
+    UniqueKey(String entity, String columns) {
+        this.entity = entity;
+        this.columns = columns;
+    }
+
+    public String selectQuery() {
+        return "SELECT " + columns + " FROM " + entity + " x";
+    }
+}
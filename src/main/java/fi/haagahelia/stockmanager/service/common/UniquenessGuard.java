@@ -0,0 +1,288 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * This service avoids the existence queries run before the inserts (username, email, name, ...) when the value is
+ * clearly new. For each unique key, the existing values are kept in memory: an exact set for the small tables, a Bloom
+ * filter for the others. A value that is not in memory definitely does not exist, so the query is skipped. Otherwise
+ * (or while the values are not loaded yet) the query is run as before.
+ * The values are normalized (case, accents, surrounding whitespaces) so that most of the values considered as equal
+ * by the database collation are also equal in memory.
+ * The values are added by the UniquenessListener before each insert or update, and removed from the exact sets after
+ * the commit of each delete (the Bloom filters cannot remove, the sets are rebuilt every hour for that).
+ * The guard is local to the application instance: it can answer "no" wrongly for a value inserted by another instance
+ * since the last loading, or for a value that the collation and the normalization do not compare the same way. The
+ * unique constraints of the database stay the guarantee, and each guarded save answers 409 CONFLICT on a violation.
+ */
+@Log4j2
+@Service
+public class UniquenessGuard {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final char SEPARATOR = '\u0000';
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final long exactThreshold;
+    private final double falsePositiveRate;
+
+    /** The values used by mightExist, a key without values is not loaded yet. */
+    private final Map<UniqueKey, Values> current = new ConcurrentHashMap<>();
+    /** The values added while a key is being loaded, copied into the loaded values before they are used. */
+    private final Map<UniqueKey, ExactValues> pending = new ConcurrentHashMap<>();
+    private final Map<UniqueKey, AtomicLong> checks = new EnumMap<>(UniqueKey.class);
+    private final Map<UniqueKey, AtomicLong> skipped = new EnumMap<>(UniqueKey.class);
+
+    @Autowired
+    public UniquenessGuard(Environment env) {
+        this.exactThreshold = env.getProperty("uniqueness.exact-threshold", Long.class, 10_000L);
+        this.falsePositiveRate = env.getProperty("uniqueness.false-positive-rate", Double.class, 0.01);
+        for (UniqueKey key : UniqueKey.values()) {
+            checks.put(key, new AtomicLong());
+            skipped.put(key, new AtomicLong());
+        }
+    }
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * This interface corresponds to the values of a key kept in memory.
+     */
+    interface Values {
+        void add(String value);
+        default void addIfAbsent(String value) {
+            add(value);
+        }
+        void remove(String value);
+        boolean mightContain(String value);
+        boolean isExact();
+    }
+
+    /**
+     * This class corresponds to the exact values of a small table. Each value is counted, so that a value added twice
+     * (an insert rolled back then retried for example) is only removed by two deletes.
+     */
+    static final class ExactValues implements Values {
+        private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+
+        Set<String> values() {
+            return counts.keySet();
+        }
+
+        public void add(String value) {
+            counts.merge(value, 1, Integer::sum);
+        }
+
+        public void addIfAbsent(String value) {
+            counts.putIfAbsent(value, 1);
+        }
+
+        public void remove(String value) {
+            counts.computeIfPresent(value, (k, count) -> count > 1 ? count - 1 : null);
+        }
+
+        public boolean mightContain(String value) {
+            return counts.containsKey(value);
+        }
+
+        public boolean isExact() {
+            return true;
+        }
+    }
+
+    /**
+     * This class corresponds to the values of a large table, in a Bloom filter. The values cannot be removed.
+     */
+    static final class BloomValues implements Values {
+        private final BloomFilter filter;
+
+        BloomValues(BloomFilter filter) {
+            this.filter = filter;
+        }
+
+        public void add(String value) {
+            filter.put(value);
+        }
+
+        public void remove(String value) {
+        }
+
+        public boolean mightContain(String value) {
+            return filter.mightContain(value);
+        }
+
+        public boolean isExact() {
+            return false;
+        }
+    }
+
+    /**
+     * This record corresponds to the statistics of a key: the number of checks since the start of the application,
+     * and the number of checks answered without query.
+     */
+    public record KeyStats(UniqueKey key, boolean loaded, boolean exact, long checks, long skipped) {
+        public double getSkipRatio() {
+            return checks == 0 ? 0.0 : (double) skipped / checks;
+        }
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to normalize the parts of a value: Unicode decomposition without the accents, trimmed,
+     * lower case. The parts are separated by a character that cannot be typed.
+     * @param parts Corresponds to the columns of the value (a single one, or name and supplier id for the products).
+     * @return The normalized value.
+     */
+    static String normalize(Object... parts) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) value.append(SEPARATOR);
+            String part = Normalizer.normalize(String.valueOf(parts[i]), Normalizer.Form.NFKD);
+            value.append(MARKS.matcher(part).replaceAll("").strip().toLowerCase(Locale.ROOT));
+        }
+        return value.toString();
+    }
+
+    /**
+     * This function is used to know if a value may already exist, before running the existence query.
+     * @param key Corresponds to the unique key.
+     * @param parts Corresponds to the columns of the value, in the order of the key.
+     * @return False if the value definitely does not exist (the query can be skipped), true otherwise.
+     */
+    public boolean mightExist(UniqueKey key, Object... parts) {
+        checks.get(key).incrementAndGet();
+        Values values = current.get(key);
+        if (values == null || values.mightContain(normalize(parts))) return true;
+        skipped.get(key).incrementAndGet();
+        return false;
+    }
+
+    /**
+     * This function is used to add a value that is about to be saved. It must be called before the insert is
+     * committed: if the insert fails, the value only gives a useless query.
+     * @param key Corresponds to the unique key.
+     * @param parts Corresponds to the columns of the value, in the order of the key.
+     */
+    public synchronized void add(UniqueKey key, Object... parts) {
+        String value = normalize(parts);
+        ExactValues loading = pending.get(key);
+        if (loading != null) loading.add(value);
+        Values values = current.get(key);
+        if (values != null) values.add(value);
+    }
+
+    /**
+     * This function is used to add the value of a row that is about to be updated. Unlike add, the value is only
+     * counted once, whatever the number of updates of the row.
+     * @param key Corresponds to the unique key.
+     * @param parts Corresponds to the columns of the value, in the order of the key.
+     */
+    public synchronized void update(UniqueKey key, Object... parts) {
+        String value = normalize(parts);
+        ExactValues loading = pending.get(key);
+        if (loading != null) loading.addIfAbsent(value);
+        Values values = current.get(key);
+        if (values != null) values.addIfAbsent(value);
+    }
+
+    /**
+     * This function is used to remove a value that has been deleted (exact sets only). A value deleted while its key
+     * is being loaded may stay in memory until the next loading, which only gives a useless query.
+     * If a transaction is running, the value is removed after its commit: a delete rolled back leaves the value in
+     * memory, and the row is not considered as absent while the delete is not committed.
+     * @param key Corresponds to the unique key.
+     * @param parts Corresponds to the columns of the value, in the order of the key.
+     */
+    public void remove(UniqueKey key, Object... parts) {
+        String value = normalize(parts);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeNow(key, value);
+                }
+            });
+        } else {
+            removeNow(key, value);
+        }
+    }
+
+    private void removeNow(UniqueKey key, String value) {
+        Values values = current.get(key);
+        if (values != null) values.remove(value);
+    }
+
+    /**
+     * This function is used to get the statistics of each key.
+     * @return The statistics, in the order of the keys.
+     */
+    public List<KeyStats> stats() {
+        List<KeyStats> stats = new ArrayList<>();
+        for (UniqueKey key : UniqueKey.values()) {
+            Values values = current.get(key);
+            stats.add(new KeyStats(key, values != null, values != null && values.isExact(), checks.get(key).get(),
+                    skipped.get(key).get()));
+        }
+        return stats;
+    }
+
+    /* --------------------------------------------------- LOADING -------------------------------------------------- */
+
+    /**
+     * This function is used to load the values of all the keys when the application is ready, and to reload them
+     * every hour (the deleted values stay in the Bloom filters until then).
+     * For each key, the values added from the start of the loading are kept aside, and copied into the loaded values
+     * just before they replace the current ones: a value added while the rows are read (and maybe not committed yet)
+     * is not lost. Each table uses an exact set up to the threshold, a Bloom filter sized for twice its rows above.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = 3600000, initialDelay = 3600000)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        for (UniqueKey key : UniqueKey.values()) {
+            try {
+                pending.put(key, new ExactValues());
+                List<?> rows = em.createQuery(key.selectQuery()).getResultList();
+                Values values = rows.size() <= exactThreshold ? new ExactValues()
+                        : new BloomValues(new BloomFilter(rows.size() * 2L, falsePositiveRate));
+                for (Object row : rows) values.add(row instanceof Object[] parts ? normalize(parts) : normalize(row));
+                synchronized (this) {
+                    for (String value : pending.get(key).values()) values.add(value);
+                    current.put(key, values);
+                    pending.remove(key);
+                }
+            } catch (Exception e) {
+                current.remove(key);
+                log.error("Uniqueness guard: the values of {} cannot be loaded, the queries are always run.", key, e);
+            } finally {
+                pending.remove(key);
+            }
+        }
+        log.info("Uniqueness guard: values loaded in {} ms.", System.currentTimeMillis() - start);
+    }
+}
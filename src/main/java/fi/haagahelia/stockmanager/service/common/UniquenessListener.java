@@ -0,0 +1,87 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.customer.Customer;
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import fi.haagahelia.stockmanager.model.user.Employee;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * This class is the entity listener that keeps the values of the UniquenessGuard up to date.
+ * The values are added before the insert or the update (an updated value is added, the previous one stays until the
+ * next loading), and removed after the commit of the delete.
+ * The listener is created by Spring (Hibernate uses the Spring bean container). The guard is looked up at each call:
+ * it uses the EntityManagerFactory, which creates this listener.
+ */
+public class UniquenessListener {
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private ObjectProvider<UniquenessGuard> guardProvider;
+
+    @Autowired
+    public void setGuardProvider(ObjectProvider<UniquenessGuard> guardProvider) {
+        this.guardProvider = guardProvider;
+    }
+
+    /* ------------------------------------------------- LISTENERS -------------------------------------------------- */
+
+    @PrePersist
+    public void prePersist(Object entity) {
+        UniquenessGuard guard = guard();
+        if (guard != null) apply(entity, guard::add);
+    }
+
+    @PreUpdate
+    public void preUpdate(Object entity) {
+        UniquenessGuard guard = guard();
+        if (guard != null) apply(entity, guard::update);
+    }
+
+    @PostRemove
+    public void postRemove(Object entity) {
+        UniquenessGuard guard = guard();
+        if (guard != null) apply(entity, guard::remove);
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This interface corresponds to the operation applied to the values of an entity (add, update or remove).
+     */
+    private interface Operation {
+        void apply(UniqueKey key, Object... parts);
+    }
+
+    /**
+     * This function is used to apply an operation to each unique value of an entity.
+     * @param entity Corresponds to the entity inserted, updated or deleted.
+     * @param operation Corresponds to the operation of the guard.
+     */
+    private void apply(Object entity, Operation operation) {
+        if (entity instanceof Employee employee) {
+            operation.apply(UniqueKey.EMPLOYEE_USERNAME, employee.getUsername());
+            operation.apply(UniqueKey.EMPLOYEE_EMAIL, employee.getEmail());
+        } else if (entity instanceof Customer customer) {
+            operation.apply(UniqueKey.CUSTOMER_EMAIL, customer.getEmail());
+        } else if (entity instanceof Supplier supplier) {
+            operation.apply(UniqueKey.SUPPLIER_NAME, supplier.getName());
+        } else if (entity instanceof Brand brand) {
+            operation.apply(UniqueKey.BRAND_NAME, brand.getName());
+        } else if (entity instanceof Category category) {
+            operation.apply(UniqueKey.CATEGORY_NAME, category.getName());
+        } else if (entity instanceof Product product && product.getSupplier() != null) {
+            operation.apply(UniqueKey.PRODUCT_NAME_SUPPLIER, product.getName(), product.getSupplier().getId());
+        }
+    }
+
+    private UniquenessGuard guard() {
+        return guardProvider == null ? null : guardProvider.getIfAvailable();
+    }
+}
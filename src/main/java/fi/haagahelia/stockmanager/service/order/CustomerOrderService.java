@@ -12,9 +12,13 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
+import fi.haagahelia.stockmanager.service.product.ProductCacheService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -25,6 +29,15 @@ public class CustomerOrderService implements CustomerOrderManagerRepository {
     @PersistenceContext
     private EntityManager em;
 
+    private final ProductCacheService productCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public CustomerOrderService(ProductCacheService productCache, ApplicationEventPublisher eventPublisher) {
+        this.productCache = productCache;
+        this.eventPublisher = eventPublisher;
+    }
+
     public void setEm(EntityManager em) {
         this.em = em;
     }
@@ -36,6 +49,8 @@ public class CustomerOrderService implements CustomerOrderManagerRepository {
      * Thirdly, we check that the customer order has at least one order line.
      * Fourthly, we change the stock to each product.
      * Finally, we change the status of the order as shipped, and we save the modification.
+     * If some products go under their minimal stock, a LowStockEvent is published, so their replenishment can be
+     * drafted once the shipment is committed.
      * @param orderId Corresponds to the id that we want to ship to the customer
      * @return The saved customer order.
      * @throws UnknownOrderException If the order does not exist.
@@ -61,6 +76,7 @@ public class CustomerOrderService implements CustomerOrderManagerRepository {
             log.debug("The customer order: {}, must have at least one order line.", orderId);
             throw new EmptyOrderException("The customer order " + orderId + ", must have at least one order line.");
         }
+        List<Long> lowStockProducts = new ArrayList<>();
         try {
             for (CustomerOrderLine orderLine : customerOrderLines) {
                 Product product = orderLine.getProduct();
@@ -68,8 +84,11 @@ public class CustomerOrderService implements CustomerOrderManagerRepository {
                     log.debug("Product: " + product.getId() + " does not have enough stock to handle this order.");
                     throw new ProductStockException("Product: " + product.getId() + " cannot have a negative stock.");
                 }
+                boolean wasLowStock = product.getLowStock();
                 product.setStock(product.getStock() - orderLine.getQuantity());
                 em.persist(product);
+                productCache.invalidate(product.getId());
+                if (!wasLowStock && product.getLowStock()) lowStockProducts.add(product.getId());
             }
         } catch (Exception e) {
             log.info("An error has occurred while sending the customer order: " + orderId);
@@ -77,6 +96,7 @@ public class CustomerOrderService implements CustomerOrderManagerRepository {
         }
         customerOrder.setSent(true);
         em.persist(customerOrder);
+        if (!lowStockProducts.isEmpty()) eventPublisher.publishEvent(new LowStockEvent(lowStockProducts));
         return em.find(CustomerOrder.class, customerOrder.getId());
     }
 
@@ -112,6 +132,7 @@ public class CustomerOrderService implements CustomerOrderManagerRepository {
                 Product product = orderLine.getProduct();
                 product.setStock(product.getStock() + orderLine.getQuantity());
                 em.persist(product);
+                productCache.invalidate(product.getId());
             }
         } catch (Exception e) {
             log.info("An error has occurred while cancelling the shipment of the customer order: " + orderId);
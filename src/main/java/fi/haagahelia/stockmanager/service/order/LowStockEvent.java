@@ -0,0 +1,9 @@
+package fi.haagahelia.stockmanager.service.order;
+
+import java.util.Collection;
+
+/**
+ * This event is published when an operation makes some products go under their minimal stock.
+ * @param productIds Corresponds to the ids of the products that have now a low stock.
+ */
+public record LowStockEvent(Collection<Long> productIds) { }
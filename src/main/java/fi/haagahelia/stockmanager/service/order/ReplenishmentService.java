@@ -0,0 +1,185 @@
+package fi.haagahelia.stockmanager.service.order;
+
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
+import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrderLine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * This service drafts the supplier orders needed to replenish the products that have a low stock.
+ * A draft is a supplier order that is neither sent nor received, so it can still be reviewed (or deleted) before
+ * being sent to the supplier.
+ * The suppliers of the products are locked (PESSIMISTIC_WRITE) before the pending products are read: two concurrent
+ * replenishments of the same supplier run one after the other, and the second one sees the drafts of the first one.
+ */
+@Log4j2
+@Service
+public class ReplenishmentService {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final double targetFactor;
+    private final int deliveryDelay;
+    private final int flushInterval;
+    private final boolean automatic;
+
+    @Autowired
+    public ReplenishmentService(Environment env) {
+        this.targetFactor = env.getProperty("replenishment.target-factor", Double.class, 2.0);
+        this.deliveryDelay = env.getProperty("replenishment.delivery-delay", Integer.class, 7);
+        this.flushInterval = env.getProperty("replenishment.flush-interval", Integer.class, 50);
+        this.automatic = env.getProperty("replenishment.automatic", Boolean.class, true);
+    }
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to compute the number of batches to order, so the stock of a product reaches its target
+     * level (minimal stock multiplied by the target factor, and always above the minimal stock).
+     * @param stock Corresponds to the current stock of the product.
+     * @param minStock Corresponds to the minimal stock of the product.
+     * @param batchSize Corresponds to the number of units received for one ordered batch.
+     * @param targetFactor Corresponds to the factor applied to the minimal stock to get the target level.
+     * @return The number of batches to order, 0 if the stock already reaches the target level.
+     */
+    static int computeBatches(int stock, int minStock, int batchSize, double targetFactor) {
+        int target = Math.max((int) Math.ceil(minStock * targetFactor), minStock + 1);
+        int missing = target - stock;
+        if (missing <= 0) return 0;
+        int unitsPerBatch = Math.max(batchSize, 1);
+        return (missing + unitsPerBatch - 1) / unitsPerBatch;
+    }
+
+    /**
+     * This function is used to lock the suppliers of the low stock products, until the end of the transaction.
+     * It must be the first query of the transaction: the consistent reads that follow it (pending products) then see
+     * the drafts committed by a concurrent replenishment that held the lock before.
+     * The suppliers are locked in the order of their ids, so two replenishments cannot deadlock.
+     * @param productIds Corresponds to the ids of the products to check, or null to check all the products.
+     */
+    private void lockSuppliers(Collection<Long> productIds) {
+        String jpql = "SELECT s FROM Supplier s WHERE s.id IN (SELECT p.supplier.id FROM Product p " +
+                "WHERE p.lowStock = true" + (productIds != null ? " AND p.id IN :ids" : "") + ") ORDER BY s.id";
+        TypedQuery<Supplier> query = em.createQuery(jpql, Supplier.class).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        if (productIds != null) query.setParameter("ids", productIds);
+        query.getResultList();
+    }
+
+    /**
+     * This function is used to get the ids of the products that are already in a supplier order which is not received.
+     * The stock of these products is already on its way, so they must not be ordered again.
+     * @return The ids of the products waiting for a delivery.
+     */
+    private Set<Long> findPendingProducts() {
+        return new HashSet<>(em.createQuery("SELECT DISTINCT line.product.id FROM SupplierOrderLine line " +
+                "WHERE line.supplierOrder.isReceived = false", Long.class).getResultList());
+    }
+
+    /* -------------------------------------------------- FUNCTIONS ------------------------------------------------- */
+
+    /**
+     * This function is used to draft the supplier orders for all the products that have a low stock.
+     * @return The ids of the drafted supplier orders.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public List<Long> draftOrders() {
+        return draftOrders(null);
+    }
+
+    /**
+     * This function is used to draft the supplier orders for the products that have a low stock.
+     * Firstly, we lock the suppliers of the products, and we get the ids of the products that are already waiting for
+     *      a delivery.
+     * Secondly, we read in a single query the stock information of the low stock products, ordered by supplier. Only
+     *      the columns needed are read (no entity is loaded), so 100k products fit easily in memory.
+     * Thirdly, for each product, we compute the number of batches to order. When the supplier changes, a new draft
+     *      supplier order is created.
+     * Finally, the lines are flushed by groups (in JDBC batches, the orders themselves have IDENTITY ids and are
+     *      inserted one by one when persisted), and the persistence context is cleared to keep its size constant.
+     * @param productIds Corresponds to the ids of the products to check, or null to check all the products.
+     * @return The ids of the drafted supplier orders.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public List<Long> draftOrders(Collection<Long> productIds) {
+        if (productIds != null && productIds.isEmpty()) return new ArrayList<>();
+        lockSuppliers(productIds);
+        Set<Long> pending = findPendingProducts();
+        String jpql = "SELECT p.id, p.supplier.id, p.stock, p.minStock, p.batchSize, p.purchasePrice FROM Product p " +
+                "WHERE p.lowStock = true AND p.supplier IS NOT NULL" + (productIds != null ? " AND p.id IN :ids" : "") +
+                " ORDER BY p.supplier.id, p.id";
+        TypedQuery<Object[]> query = em.createQuery(jpql, Object[].class);
+        if (productIds != null) query.setParameter("ids", productIds);
+        List<Object[]> rows = query.getResultList();
+        List<Long> orderIds = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        SupplierOrder currentOrder = null;
+        Long currentSupplierId = null;
+        int pendingWrites = 0;
+        int lineCount = 0;
+        for (Object[] row : rows) {
+            Long productId = (Long) row[0];
+            Long supplierId = (Long) row[1];
+            if (pending.contains(productId)) continue;
+            int batches = computeBatches((Integer) row[2], (Integer) row[3], (Integer) row[4], targetFactor);
+            if (batches == 0) continue;
+            if (currentOrder == null || !Objects.equals(currentSupplierId, supplierId)) {
+                currentOrder = new SupplierOrder(today, today.plusDays(deliveryDelay), false, false,
+                        em.getReference(Supplier.class, supplierId));
+                em.persist(currentOrder);
+                currentSupplierId = supplierId;
+                orderIds.add(currentOrder.getId());
+            }
+            em.persist(new SupplierOrderLine(batches, (Double) row[5], currentOrder, em.getReference(Product.class, productId)));
+            lineCount++;
+            if (++pendingWrites >= flushInterval) {
+                em.flush();
+                em.clear();
+                currentOrder = em.getReference(SupplierOrder.class, currentOrder.getId());
+                pendingWrites = 0;
+            }
+        }
+        em.flush();
+        em.clear();
+        log.info("Replenishment: {} low stock products checked, {} draft supplier orders created with {} lines.",
+                rows.size(), orderIds.size(), lineCount);
+        return orderIds;
+    }
+
+    /**
+     * This function is used to draft automatically the supplier orders when a shipment makes some products go under
+     * their minimal stock. It runs after the commit of the shipment, in its own transaction, so a problem during the
+     * replenishment cannot cancel the shipment. If the replenishment fails, its transaction is rolled back and the
+     * exception is logged by Spring (the shipment is already committed).
+     * @param event Corresponds to the event containing the ids of the products that have now a low stock.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(value = Transactional.TxType.REQUIRES_NEW, rollbackOn = Exception.class)
+    public void onLowStock(LowStockEvent event) {
+        if (!automatic) return;
+        draftOrders(event.productIds());
+    }
+}
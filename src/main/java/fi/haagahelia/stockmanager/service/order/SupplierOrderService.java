@@ -12,7 +12,9 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.PersistenceContextType;
 import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
+import fi.haagahelia.stockmanager.service.product.ProductCacheService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -26,6 +28,13 @@ public class SupplierOrderService implements SupplierOrderManagerRepository {
     @PersistenceContext(type = PersistenceContextType.EXTENDED)
     private EntityManager em;
 
+    private final ProductCacheService productCache;
+
+    @Autowired
+    public SupplierOrderService(ProductCacheService productCache) {
+        this.productCache = productCache;
+    }
+
     public void setEm(EntityManager em) {
         this.em = em;
     }
@@ -94,7 +103,8 @@ public class SupplierOrderService implements SupplierOrderManagerRepository {
             throw new OrderStateException("The supplier order: " + orderId + " has not been sent.");
         }
         supplierOrder.setReceived(true);
-        Query query = em.createQuery("SELECT line FROM SupplierOrderLine line where line.supplierOrder.id = ?1").setParameter(1, orderId);
+        Query query = em.createQuery("SELECT line FROM SupplierOrderLine line JOIN FETCH line.product where line.supplierOrder.id = ?1")
+                .setParameter(1, orderId);
         List<SupplierOrderLine> orderLines = query.getResultList();
         if (orderLines.size() < 1) {
             throw new ProductStockException("The supplier order " + orderId + ", must have at least one order line.");
@@ -105,6 +115,7 @@ public class SupplierOrderService implements SupplierOrderManagerRepository {
                 Integer stockIncrement = line.getQuantity() * product.getBatchSize();
                 product.setStock(stockIncrement + product.getStock());
                 em.persist(product);
+                productCache.invalidate(product.getId());
             }
         } catch (Exception e) {
             log.info("An error has occurred while receiving the supplier order: " + orderId);
@@ -138,7 +149,8 @@ public class SupplierOrderService implements SupplierOrderManagerRepository {
             throw new OrderStateException("The supplier order: " + orderId + " is not received.");
         }
         supplierOrder.setReceived(false);
-        Query query = em.createQuery("SELECT line FROM SupplierOrderLine line where line.supplierOrder.id = ?1").setParameter(1, orderId);
+        Query query = em.createQuery("SELECT line FROM SupplierOrderLine line JOIN FETCH line.product where line.supplierOrder.id = ?1")
+                .setParameter(1, orderId);
         List<SupplierOrderLine> orderLines = query.getResultList();
         try {
             for (SupplierOrderLine line : orderLines) {
@@ -149,6 +161,7 @@ public class SupplierOrderService implements SupplierOrderManagerRepository {
                 }
                 product.setStock(product.getStock() - stockDecrement);
                 em.persist(product);
+                productCache.invalidate(product.getId());
             }
         } catch (Exception e) {
             throw new ProductStockException("An error has occurred while cancelling the reception the supplier order: " + orderId);
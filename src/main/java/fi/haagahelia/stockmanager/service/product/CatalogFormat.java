@@ -0,0 +1,44 @@
+package fi.haagahelia.stockmanager.service.product;
+
+/**
+ * The file formats used to import and export the product catalog.
+ */
+public enum CatalogFormat {
+    CSV("text/csv"), NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    CatalogFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * This function is used to get the format from a content type (the parameters like the charset are ignored).
+     * @param contentType Corresponds to the content type of the request.
+     * @return The format, or null if the content type is not supported.
+     */
+    public static CatalogFormat fromContentType(String contentType) {
+        if (contentType == null) return null;
+        String type = contentType.toLowerCase();
+        for (CatalogFormat format : values()) {
+            if (type.startsWith(format.contentType)) return format;
+        }
+        return null;
+    }
+
+    /**
+     * This function is used to get the format from its name (csv or ndjson), whatever the case.
+     * @param name Corresponds to the name of the format.
+     * @return The format, or null if the name is unknown.
+     */
+    public static CatalogFormat fromName(String name) {
+        for (CatalogFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) return format;
+        }
+        return null;
+    }
+}
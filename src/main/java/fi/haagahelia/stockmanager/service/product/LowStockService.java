@@ -0,0 +1,31 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.repository.product.ProductRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+@Log4j2
+@Service
+public class LowStockService {
+
+    private final ProductRepository pRepository;
+
+    @Autowired
+    public LowStockService(ProductRepository pRepository) {
+        this.pRepository = pRepository;
+    }
+
+    /**
+     * This function is used to synchronize the low stock flag of the products with their stock, when the application
+     * is ready. The flag is maintained by the Product entity, but the rows saved before the flag existed, or modified
+     * directly in the database, can be out of date. Only the rows with a wrong flag are updated.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void synchronize() {
+        int updated = pRepository.synchronizeLowStock();
+        log.info("Low stock flag synchronized: {} products updated.", updated);
+    }
+}
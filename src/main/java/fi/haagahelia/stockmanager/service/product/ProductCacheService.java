@@ -0,0 +1,129 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.dto.product.ProductCompleteDTO;
+import fi.haagahelia.stockmanager.dto.product.ProductSimpleDTO;
+import fi.haagahelia.stockmanager.service.common.BoundedCache;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This service holds the product DTOs returned by the product endpoints, with the revision of the product (its ETag).
+ * The DTOs are cached without their HATEOAS links, which depend on the host of the request: each request adds them to
+ * its own copy. A cached DTO must never be modified: the same instance is read by all the users.
+ * Each modification of a product gives it a new generation. A DTO built from a product read before a modification is
+ * not put in the cache: otherwise a request that read the product just before the commit of an update could put the
+ * old revision back after the eviction, and it would be served (and its ETag answered 304) for the whole time to live.
+ */
+@Log4j2
+@Service
+public class ProductCacheService {
+
+    private final BoundedCache<Long, CachedProduct<ProductSimpleDTO>> simpleProducts;
+    private final BoundedCache<Long, CachedProduct<ProductCompleteDTO>> completeProducts;
+    /** The generation incremented by each modification of a product. */
+    private final AtomicLong generation = new AtomicLong();
+    /** The generation of the last modification of each modified product, by id. */
+    private final Map<Long, Long> modifiedAt = new ConcurrentHashMap<>();
+    /** The generation of the last removal of all the products. */
+    private volatile long clearedAt;
+
+    @Autowired
+    public ProductCacheService(Environment env) {
+        this(env.getProperty("cache.products.max-size", Integer.class, 10000),
+                env.getProperty("cache.products.ttl", Long.class, 300L) * 1000);
+    }
+
+    ProductCacheService(int maxSize, long ttlMillis) {
+        this.simpleProducts = new BoundedCache<>("products", maxSize, ttlMillis);
+        this.completeProducts = new BoundedCache<>("products-details", maxSize, ttlMillis);
+    }
+
+    /**
+     * This record is a cached product.
+     * @param product Corresponds to the DTO of the product, without HATEOAS links.
+     * @param revision Corresponds to the revision of the product when the DTO has been built.
+     */
+    public record CachedProduct<T>(T product, long revision) { }
+
+    /**
+     * This function is used to get the current generation. It must be read before loading the products to cache, and
+     * given to the put functions: if a product is modified in the meantime, its DTO is not cached.
+     * @return The current generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    private boolean isModifiedSince(Long id, long loadedAt) {
+        return loadedAt < clearedAt || loadedAt < modifiedAt.getOrDefault(id, 0L);
+    }
+
+    public CachedProduct<ProductSimpleDTO> getSimple(Long id) {
+        return simpleProducts.get(id);
+    }
+
+    public void putSimple(Long id, ProductSimpleDTO productSimpleDTO, Long revision, long generation) {
+        if (isModifiedSince(id, generation)) return;
+        simpleProducts.put(id, new CachedProduct<>(productSimpleDTO, revision == null ? 0 : revision));
+    }
+
+    public CachedProduct<ProductCompleteDTO> getComplete(Long id) {
+        return completeProducts.get(id);
+    }
+
+    public void putComplete(Long id, ProductCompleteDTO productCompleteDTO, Long revision, long generation) {
+        if (isModifiedSince(id, generation)) return;
+        completeProducts.put(id, new CachedProduct<>(productCompleteDTO, revision == null ? 0 : revision));
+    }
+
+    /**
+     * This function is used to remove a product from the caches, when the product has been modified.
+     * If a transaction is running, the product is removed when the transaction is committed (and also now). Otherwise,
+     * a request could read the old product between the removal and the commit, and put it back in the cache. Each
+     * removal also gives the product a new generation, so a DTO loaded before the commit is not put back afterwards.
+     * @param id Corresponds to the id of the modified product.
+     */
+    public void invalidate(Long id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    private void evict(Long id) {
+        modifiedAt.put(id, generation.incrementAndGet());
+        simpleProducts.invalidate(id);
+        completeProducts.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        clearedAt = generation.incrementAndGet();
+        simpleProducts.invalidateAll();
+        completeProducts.invalidateAll();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        simpleProducts.evictExpired();
+        completeProducts.evictExpired();
+    }
+
+    public List<BoundedCache.Stats> stats() {
+        return List.of(simpleProducts.stats(), completeProducts.stats());
+    }
+}
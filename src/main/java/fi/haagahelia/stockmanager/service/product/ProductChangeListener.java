@@ -0,0 +1,61 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.model.product.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+
+/**
+ * This class is the entity listener that writes the change log of the products (BRU_PRODUCT_CHANGE).
+ * The listener is created by Spring (Hibernate uses the Spring bean container), and the row is inserted with JDBC on
+ * the connection of the current transaction: the change is committed, or rolled back, with the product itself.
+ * The EntityManager cannot be used here, the listeners are called while Hibernate flushes the session.
+ * It takes the DataSource and not the JdbcTemplate bean, which waits for the database initialization and so for the
+ * EntityManagerFactory that creates this listener.
+ */
+@Log4j2
+public class ProductChangeListener {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    static final String INSERT_CHANGE = "INSERT INTO BRU_PRODUCT_CHANGE (prc_pro_id, prc_deleted, prc_changed_at) " +
+            "VALUES (?, ?, ?)";
+
+    /* --------------------------------------------------- FIELDS --------------------------------------------------- */
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /* ------------------------------------------------- LISTENERS -------------------------------------------------- */
+
+    @PostPersist
+    @PostUpdate
+    public void postSave(Product product) {
+        logChange(product.getId(), false);
+    }
+
+    @PostRemove
+    public void postRemove(Product product) {
+        logChange(product.getId(), true);
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    private void logChange(Long productId, boolean deleted) {
+        if (jdbcTemplate == null) {
+            log.warn("Product change log: no DataSource injected, the change of the product {} is not logged.", productId);
+            return;
+        }
+        jdbcTemplate.update(INSERT_CHANGE, productId, deleted, LocalDateTime.now());
+    }
+}
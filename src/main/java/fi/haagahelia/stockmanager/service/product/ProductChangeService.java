@@ -0,0 +1,159 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.model.product.ProductChange;
+import fi.haagahelia.stockmanager.repository.product.ProductChangeRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * This service reads the change log of the products (written by the ProductChangeListener) for the delta sync feed.
+ * A sync token is the id of the last change read by the client. The ids are given by the database when the rows are
+ * inserted, not when they are committed: a change can become visible after a change with a greater id. So the ids after
+ * the token are also read without isolation (READ UNCOMMITTED), which shows the changes of the running transactions,
+ * and the feed stops before the first change that is not committed yet. An id that is missing from both reads belongs
+ * to a rolled back transaction (or is skipped by auto_increment_increment) and never stops the feed.
+ */
+@Log4j2
+@Service
+public class ProductChangeService {
+
+    /* -------------------------------------------------- CONSTANTS ------------------------------------------------- */
+
+    public static final String SYNC_TOKEN_EXPIRED = "SYNC_TOKEN_EXPIRED";
+    public static final String INVALID_SYNC_TOKEN = "INVALID_SYNC_TOKEN";
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final ProductChangeRepository changeRepository;
+    private final TransactionTemplate uncommittedReadTemplate;
+    private final int pageSize;
+    private final int retentionDays;
+
+    @Autowired
+    public ProductChangeService(ProductChangeRepository changeRepository, PlatformTransactionManager transactionManager,
+                                Environment env) {
+        this.changeRepository = changeRepository;
+        this.uncommittedReadTemplate = new TransactionTemplate(transactionManager);
+        this.uncommittedReadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.uncommittedReadTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_UNCOMMITTED);
+        this.uncommittedReadTemplate.setReadOnly(true);
+        this.pageSize = env.getProperty("sync.products.page-size", Integer.class, 500);
+        this.retentionDays = env.getProperty("sync.products.retention-days", Integer.class, 30);
+    }
+
+    /**
+     * This record is a batch of changes returned by the feed.
+     * @param token Corresponds to the sync token to send for the next batch.
+     * @param hasMore Corresponds to true if other changes can be read right away with the new token.
+     * @param upserted Corresponds to the ids of the products created or updated, in the order of their last change.
+     * @param deleted Corresponds to the ids of the products deleted.
+     */
+    public record ChangeBatch(long token, boolean hasMore, List<Long> upserted, List<Long> deleted) { }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to build a batch from the changes read after a sync token.
+     * Firstly, the first pending id is searched: the first id read without isolation that is not among the committed
+     * changes. The changes are browsed in order, and the batch stops before this id, the transaction that inserted it
+     * is still running (or has been committed between the two reads). The ids do not have to follow each other.
+     * Secondly, the changes of a same product are collapsed, only its last change is kept (upserted or deleted).
+     * @param since Corresponds to the sync token given by the client.
+     * @param changes Corresponds to the committed changes after the token, ordered by id (at most limit + 1).
+     * @param ids Corresponds to the ids after the token up to the last change read, committed or not, ordered.
+     * @param limit Corresponds to the maximal number of changes in the batch.
+     * @return The batch of changes.
+     */
+    static ChangeBatch collect(long since, List<ProductChange> changes, List<Long> ids, int limit) {
+        Set<Long> committed = new HashSet<>();
+        for (ProductChange change : changes) committed.add(change.getId());
+        long pending = Long.MAX_VALUE;
+        for (Long id : ids) {
+            if (!committed.contains(id)) {
+                pending = id;
+                break;
+            }
+        }
+        long token = since;
+        boolean gap = false;
+        int read = 0;
+        Map<Long, Boolean> lastChanges = new LinkedHashMap<>();
+        for (ProductChange change : changes) {
+            if (read == limit) break;
+            if (change.getId() > pending) {
+                gap = true;
+                break;
+            }
+            lastChanges.remove(change.getProductId());
+            lastChanges.put(change.getProductId(), change.getDeleted());
+            token = change.getId();
+            read++;
+        }
+        List<Long> upserted = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        lastChanges.forEach((productId, isDeleted) -> (isDeleted ? deleted : upserted).add(productId));
+        return new ChangeBatch(token, !gap && changes.size() > limit, upserted, deleted);
+    }
+
+    /* -------------------------------------------------- FUNCTIONS ------------------------------------------------- */
+
+    /**
+     * This function is used to get the current sync token, taken by a client before a full download of the products.
+     * @return The id of the last change, 0 if there is no change yet.
+     */
+    public long currentToken() {
+        Long lastId = changeRepository.findLastId();
+        return lastId == null ? 0 : lastId;
+    }
+
+    /**
+     * This function is used to know if the changes after a sync token are still in the log.
+     * The purge always keeps the last change, so an empty log means that no change has been logged yet.
+     * @param since Corresponds to the sync token given by the client.
+     * @return True if the client must download all the products again.
+     */
+    public boolean isExpired(long since) {
+        Long lastId = changeRepository.findLastId();
+        if (lastId == null) return since != 0;
+        return since > lastId || since < changeRepository.findFirstId() - 1;
+    }
+
+    /**
+     * This function is used to get the batch of changes after a sync token.
+     * The committed changes are read first, then the ids up to the last of them without isolation: a change committed
+     * between the two reads is seen as pending, and is only returned by the next call.
+     * @param since Corresponds to the sync token given by the client.
+     * @return The batch of changes.
+     */
+    public ChangeBatch changesSince(long since) {
+        List<ProductChange> changes = changeRepository.findByIdGreaterThan(since,
+                PageRequest.of(0, pageSize + 1, Sort.by("id")));
+        if (changes.isEmpty()) return collect(since, changes, List.of(), pageSize);
+        Long lastId = changes.get(changes.size() - 1).getId();
+        List<Long> ids = uncommittedReadTemplate.execute(status -> changeRepository.findIdsBetween(since, lastId));
+        return collect(since, changes, ids == null ? List.of() : ids, pageSize);
+    }
+
+    /**
+     * This function is used to delete the changes older than the retention, every hour.
+     * The last change is always kept, it is the current sync token.
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void purge() {
+        Long lastId = changeRepository.findLastId();
+        if (lastId == null) return;
+        int deleted = changeRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays), lastId);
+        if (deleted > 0) log.info("Product change log: {} changes older than {} days deleted.", deleted, retentionDays);
+    }
+}
@@ -0,0 +1,138 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * This service exports the whole product catalog (CSV or NDJSON) by streaming it.
+ * The products are read with a server side cursor and written as soon as they are read, so the memory used does not
+ * depend on the size of the catalog. The CSV columns can be imported back with the ProductImportService.
+ */
+@Log4j2
+@Service
+public class ProductExportService {
+
+    private static final String[] COLUMNS = {"id", "name", "description", "purchasePrice", "salePrice", "stock",
+            "minStock", "batchSize", "brandId", "brandName", "categoryId", "categoryName", "supplierId", "supplierName"};
+    private static final String EXPORT_QUERY = "SELECT p.id, p.name, p.description, p.purchasePrice, p.salePrice, " +
+            "p.stock, p.minStock, p.batchSize, b.id, b.name, c.id, c.name, s.id, s.name " +
+            "FROM Product p JOIN p.brand b JOIN p.category c JOIN p.supplier s ORDER BY p.id";
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    private final EntityManagerFactory emf;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final int fetchSize;
+    private final long timeout;
+
+    @Autowired
+    public ProductExportService(EntityManagerFactory emf, Environment env) {
+        this.emf = emf;
+        this.fetchSize = env.getProperty("export.products.fetch-size", Integer.class, 1000);
+        this.timeout = env.getProperty("export.products.timeout", Long.class, 3600000L);
+    }
+
+    /**
+     * This function is used to get the timeout of the streamed export, in milliseconds.
+     * @return The timeout (export.products.timeout).
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to escape a CSV field: the field is quoted if it contains a comma, a quote or a line break.
+     * @param value Corresponds to the value of the field, can be null.
+     * @return The escaped field.
+     */
+    static String escapeCsv(Object value) {
+        if (value == null) return "";
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    private void writeCsv(Writer writer, Iterator<Object[]> rows) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(escapeCsv(row[i]));
+            }
+            writer.write('\n');
+        }
+    }
+
+    private void writeNdjson(Writer writer, Iterator<Object[]> rows) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(writer);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            generator.writeStartObject();
+            for (int i = 0; i < row.length; i++) {
+                generator.writeObjectField(COLUMNS[i], row[i]);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    /* -------------------------------------------------- FUNCTIONS ------------------------------------------------- */
+
+    /**
+     * This function is used to write the whole catalog in the given output stream.
+     * Firstly, we open an entity manager (and a read only transaction) for the export, because the export runs after
+     *      the end of the request thread, where no entity manager is bound.
+     * Secondly, we run a single query that joins the brand, the category and the supplier of each product. Only the
+     *      columns are selected (no entity is loaded in the persistence context), and the rows are read with a
+     *      server side cursor by groups of "fetchSize" rows.
+     * Finally, each row is written as soon as it is read.
+     * @param out Corresponds to the output stream of the response.
+     * @param format Corresponds to the format of the export.
+     * @throws IOException If the output stream cannot be written (the client has closed the connection for example).
+     */
+    public void export(OutputStream out, CatalogFormat format) throws IOException {
+        long start = System.currentTimeMillis();
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction transaction = em.getTransaction();
+        try {
+            transaction.begin();
+            try (Stream<Object[]> rows = em.createQuery(EXPORT_QUERY, Object[].class)
+                    .setHint("org.hibernate.fetchSize", fetchSize)
+                    .setHint("org.hibernate.readOnly", true)
+                    .getResultStream()) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+                if (format == CatalogFormat.CSV) writeCsv(writer, rows.iterator());
+                else writeNdjson(writer, rows.iterator());
+                writer.flush();
+            }
+        } finally {
+            if (transaction.isActive()) transaction.rollback();
+            em.close();
+        }
+        log.info("Product export ({}) done in {} ms.", format, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,319 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.haagahelia.stockmanager.dto.product.ProductCuDTO;
+import fi.haagahelia.stockmanager.dto.product.ProductImportReportDTO;
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.UniqueKey;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * This service imports a product catalog (CSV or NDJSON) by streaming it.
+ * The rows are read one by one and inserted by JDBC batches, so the memory used does not depend on the file size.
+ * Each batch is inserted in its own transaction, so the import must not be called inside a transaction.
+ */
+@Log4j2
+@Service
+public class ProductImportService {
+
+    private static final String INSERT_PRODUCT = "INSERT INTO BRU_PRODUCT (pro_name, pro_description, pro_purchase_price, " +
+            "pro_sale_price, pro_stock, pro_min_stock, pro_batch_size, pro_low_stock, pro_bra_id, pro_cat_id, pro_sup_id, " +
+            "pro_revision) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String SELECT_EXISTING = "SELECT pro_name, pro_sup_id FROM BRU_PRODUCT " +
+            "WHERE pro_sup_id IN (:suppliers) AND pro_name IN (:names)";
+    private static final String SELECT_LAST_ID = "SELECT COALESCE(MAX(pro_id), 0) FROM BRU_PRODUCT";
+    private static final String INSERT_CHANGES = "INSERT INTO BRU_PRODUCT_CHANGE (prc_pro_id, prc_deleted, prc_changed_at) " +
+            "SELECT pro_id, false, :changedAt FROM BRU_PRODUCT WHERE pro_id > :lastId AND pro_sup_id IN (:suppliers) " +
+            "AND pro_name IN (:names) ORDER BY pro_id";
+    private static final String SELECT_IMPORTED = "SELECT p FROM Product p JOIN FETCH p.brand JOIN FETCH p.category " +
+            "WHERE p.id > :lastId AND p.supplier.id IN :suppliers AND p.name IN :names";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UniquenessGuard uniquenessGuard;
+    private final ProductSearchService searchService;
+    private final AutocompleteService autocompleteService;
+    private final CollectionVersionService collectionVersions;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxErrors;
+
+    @Autowired
+    public ProductImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                UniquenessGuard uniquenessGuard, ProductSearchService searchService,
+                                AutocompleteService autocompleteService, CollectionVersionService collectionVersions,
+                                Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.uniquenessGuard = uniquenessGuard;
+        this.searchService = searchService;
+        this.autocompleteService = autocompleteService;
+        this.collectionVersions = collectionVersions;
+        this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.batchSize = env.getProperty("import.products.batch-size", Integer.class, 500);
+        this.maxErrors = env.getProperty("import.products.max-errors", Integer.class, 1000);
+    }
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /** A row of the file, with its number in the file. */
+    private record Row(long number, ProductCuDTO product) { }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to split a CSV line into its fields. The fields can be quoted ("), and a quote inside a
+     * quoted field is written twice (""). A field cannot contain a line break.
+     * @param line Corresponds to the line to split.
+     * @return The fields of the line.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * This function is used to convert the fields of a CSV line into a ProductCuDTO, using the header of the file.
+     * @param header Corresponds to the lower case column names of the file.
+     * @param fields Corresponds to the fields of the line.
+     * @return The product of the line.
+     * @throws NumberFormatException If a numeric field is not a number.
+     */
+    static ProductCuDTO toProduct(List<String> header, List<String> fields) {
+        ProductCuDTO product = new ProductCuDTO();
+        for (int i = 0; i < header.size() && i < fields.size(); i++) {
+            String value = fields.get(i);
+            if (value.isEmpty()) continue;
+            switch (header.get(i)) {
+                case "name" -> product.setName(value);
+                case "description" -> product.setDescription(value);
+                case "purchaseprice" -> product.setPurchasePrice(Double.valueOf(value));
+                case "saleprice" -> product.setSalePrice(Double.valueOf(value));
+                case "stock" -> product.setStock(Integer.valueOf(value));
+                case "minstock" -> product.setMinStock(Integer.valueOf(value));
+                case "batchsize" -> product.setBatchSize(Integer.valueOf(value));
+                case "brandid" -> product.setBrandId(Long.valueOf(value));
+                case "categoryid" -> product.setCategoryId(Long.valueOf(value));
+                case "supplierid" -> product.setSupplierId(Long.valueOf(value));
+                default -> { }
+            }
+        }
+        return product;
+    }
+
+    /**
+     * This function is used to validate a row, with the same rules (and the same error codes) as the product creation.
+     * The related brand, category and supplier are checked with the ids loaded at the beginning of the import.
+     * @return The error code, or null if the row is valid.
+     */
+    private String validate(ProductCuDTO p, Set<Long> brandIds, Set<Long> categoryIds, Set<Long> supplierIds) {
+        if (p.getName() == null || p.getName().isEmpty()) return "PRODUCT_INVALID_NAME";
+        if (p.getDescription() == null || p.getDescription().isEmpty()) return "PRODUCT_INVALID_DESCRIPTION";
+        if (p.getPurchasePrice() == null || p.getPurchasePrice() < 0) return "PRODUCT_INVALID_PURCHASE_PRICE";
+        if (p.getSalePrice() == null || p.getSalePrice() < 0) return "PRODUCT_INVALID_SALE_PRICE";
+        if (p.getStock() == null || p.getStock() < 0) return "PRODUCT_INVALID_STOCK";
+        if (p.getMinStock() == null || p.getMinStock() < 0) return "PRODUCT_INVALID_MINIMUM_STOCK";
+        if (p.getBatchSize() == null || p.getBatchSize() < 2) return "PRODUCT_INVALID_BATCH_SIZE";
+        if (p.getBrandId() == null || !brandIds.contains(p.getBrandId())) return "PRODUCT_INVALID_BRAND_ID";
+        if (p.getCategoryId() == null || !categoryIds.contains(p.getCategoryId())) return "PRODUCT_INVALID_CATEGORY_ID";
+        if (p.getSupplierId() == null || !supplierIds.contains(p.getSupplierId())) return "PRODUCT_INVALID_SUPPLIER_ID";
+        return null;
+    }
+
+    private static String key(String name, Long supplierId) {
+        return supplierId + "\u0000" + name;
+    }
+
+    private Object[] toParameters(ProductCuDTO p) {
+        return new Object[]{p.getName(), p.getDescription(), p.getPurchasePrice(), p.getSalePrice(), p.getStock(),
+                p.getMinStock(), p.getBatchSize(), p.getStock() <= p.getMinStock(), p.getBrandId(), p.getCategoryId(),
+                p.getSupplierId()};
+    }
+
+    /**
+     * This function is used to insert a batch of valid rows.
+     * Firstly, the rows that already exist in the database (same name and supplier) are found with a single query,
+     * and they are reported as PRODUCT_ALREADY_EXISTS, as well as the rows that are duplicated in the batch.
+     * Only the rows that may exist according to the UniquenessGuard are looked for: the query is skipped when all the
+     * rows are new.
+     * Secondly, the other rows are added to the UniquenessGuard and inserted with a single JDBC batch, in a transaction.
+     *      If the batch fails (a product created in the meantime for example), the transaction is rolled back and the
+     *      rows are inserted one by one, so only the wrong rows are reported. A row refused by the unique key (a
+     *      product created in the meantime, or that the UniquenessGuard did not know) is reported as
+     *      PRODUCT_ALREADY_EXISTS, the other failures as PRODUCT_INSERT_FAILED.
+     * The inserts do not go through the EntityManager, so the change counter of the products (list ETags) is
+     * incremented here, and the inserted products are added to the change log (delta sync feed) with a single
+     * INSERT ... SELECT on the products of the batch created after the last existing id.
+     * Finally, the inserted products are loaded with their brand and category (one query) and added to the search and
+     * autocomplete indexes, which are not rebuilt.
+     */
+    private void flush(List<Row> rows, ProductImportReportDTO report) {
+        if (rows.isEmpty()) return;
+        Set<Long> suppliers = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        Set<Long> maybeSuppliers = new HashSet<>();
+        Set<String> maybeNames = new HashSet<>();
+        for (Row row : rows) {
+            suppliers.add(row.product().getSupplierId());
+            names.add(row.product().getName());
+            if (uniquenessGuard.mightExist(UniqueKey.PRODUCT_NAME_SUPPLIER, row.product().getName(),
+                    row.product().getSupplierId())) {
+                maybeSuppliers.add(row.product().getSupplierId());
+                maybeNames.add(row.product().getName());
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        if (!maybeNames.isEmpty()) {
+            namedJdbcTemplate.query(SELECT_EXISTING, new MapSqlParameterSource("suppliers", maybeSuppliers)
+                    .addValue("names", maybeNames), rs -> { existing.add(key(rs.getString(1), rs.getLong(2))); });
+        }
+        Long lastId = jdbcTemplate.queryForObject(SELECT_LAST_ID, Long.class);
+        List<Row> accepted = new ArrayList<>();
+        for (Row row : rows) {
+            if (!existing.add(key(row.product().getName(), row.product().getSupplierId()))) {
+                report.addError(row.number(), row.product().getName(), "PRODUCT_ALREADY_EXISTS", maxErrors);
+            } else {
+                accepted.add(row);
+            }
+        }
+        for (Row row : accepted) {
+            uniquenessGuard.add(UniqueKey.PRODUCT_NAME_SUPPLIER, row.product().getName(), row.product().getSupplierId());
+        }
+        try {
+            List<Object[]> parameters = accepted.stream().map(row -> toParameters(row.product())).toList();
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_PRODUCT, parameters));
+            report.setImportedRows(report.getImportedRows() + accepted.size());
+        } catch (Exception e) {
+            log.debug("Product import: the batch insert has failed, inserting the rows one by one. {}", e.getMessage());
+            for (Row row : accepted) {
+                try {
+                    jdbcTemplate.update(INSERT_PRODUCT, toParameters(row.product()));
+                    report.setImportedRows(report.getImportedRows() + 1);
+                } catch (DuplicateKeyException rowException) {
+                    report.addError(row.number(), row.product().getName(), "PRODUCT_ALREADY_EXISTS", maxErrors);
+                } catch (Exception rowException) {
+                    report.addError(row.number(), row.product().getName(), "PRODUCT_INSERT_FAILED", maxErrors);
+                }
+            }
+        }
+        namedJdbcTemplate.update(INSERT_CHANGES, new MapSqlParameterSource("changedAt", LocalDateTime.now())
+                .addValue("lastId", lastId).addValue("suppliers", suppliers).addValue("names", names));
+        collectionVersions.changed(Product.class);
+        List<Product> imported = em.createQuery(SELECT_IMPORTED, Product.class).setParameter("lastId", lastId)
+                .setParameter("suppliers", suppliers).setParameter("names", names).getResultList();
+        for (Product product : imported) {
+            searchService.index(product);
+            autocompleteService.index(product);
+            em.detach(product);
+        }
+        rows.clear();
+    }
+
+    /* -------------------------------------------------- FUNCTIONS ------------------------------------------------- */
+
+    /**
+     * This function is used to import the products of a CSV or NDJSON file.
+     * Firstly, we load the ids of all the brands, categories and suppliers (one query each), so the rows can be checked
+     *      without any other query.
+     * Secondly, we read the file line by line. Each row is converted into a ProductCuDTO and validated.
+     *      A CSV file must start with a header containing the column names of the ProductCuDTO (name, description,
+     *      purchasePrice, salePrice, stock, minStock, batchSize, brandId, categoryId, supplierId).
+     *      A NDJSON file contains one ProductCuDTO as JSON per line.
+     * Finally, the valid rows are inserted by batches. Each batch is committed on its own: the rows of a file are
+     * imported even if some other rows are wrong, and all the rows that are not imported are in the report.
+     * @param reader Corresponds to the content of the file.
+     * @param format Corresponds to the format of the file.
+     * @return The import report: number of rows read, imported, failed, and the errors of the failed rows.
+     * @throws IOException If the file cannot be read.
+     */
+    public ProductImportReportDTO importProducts(Reader reader, CatalogFormat format) throws IOException {
+        long start = System.currentTimeMillis();
+        Set<Long> brandIds = new HashSet<>(em.createQuery("SELECT b.id FROM Brand b", Long.class).getResultList());
+        Set<Long> categoryIds = new HashSet<>(em.createQuery("SELECT c.id FROM Category c", Long.class).getResultList());
+        Set<Long> supplierIds = new HashSet<>(em.createQuery("SELECT s.id FROM Supplier s", Long.class).getResultList());
+        ProductImportReportDTO report = new ProductImportReportDTO();
+        List<Row> batch = new ArrayList<>(batchSize);
+        BufferedReader lines = new BufferedReader(reader);
+        List<String> header = null;
+        long number = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            if (line.isBlank()) continue;
+            if (format == CatalogFormat.CSV && header == null) {
+                header = splitCsv(line).stream().map(column -> column.toLowerCase(Locale.ROOT)).toList();
+                continue;
+            }
+            report.setTotalRows(report.getTotalRows() + 1);
+            ProductCuDTO product;
+            try {
+                product = format == CatalogFormat.CSV ? toProduct(header, splitCsv(line)) : objectMapper.readValue(line, ProductCuDTO.class);
+            } catch (Exception e) {
+                report.addError(number, null, "PRODUCT_INVALID_ROW", maxErrors);
+                continue;
+            }
+            String error = validate(product, brandIds, categoryIds, supplierIds);
+            if (error != null) {
+                report.addError(number, product.getName(), error, maxErrors);
+                continue;
+            }
+            batch.add(new Row(number, product));
+            if (batch.size() >= batchSize) flush(batch, report);
+        }
+        flush(batch, report);
+        log.info("Product import: {} rows read, {} imported, {} failed in {} ms.", report.getTotalRows(),
+                report.getImportedRows(), report.getFailedRows(), System.currentTimeMillis() - start);
+        return report;
+    }
+}
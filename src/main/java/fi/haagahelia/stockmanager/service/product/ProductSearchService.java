@@ -0,0 +1,350 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+@Log4j2
+@Service
+public class ProductSearchService {
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float FUZZY_FACTOR = 0.4f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int BATCH_SIZE = 1000;
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{Alnum}]+", Pattern.UNICODE_CHARACTER_CLASS);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** Inverted index: term -> products that contain the term, sorted by id, with the weight of the best field. */
+    private TreeMap<String, Postings> postings = new TreeMap<>();
+    /** Terms of each indexed product, used to remove a product from the postings. */
+    private Map<Long, String[]> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void setEm(EntityManager em) {
+        this.em = em;
+    }
+
+    /* ------------------------------------------------- INDEXATION ------------------------------------------------- */
+
+    /**
+     * This function is used to build the whole index from the database, when the application is ready.
+     * The products are read by batches (ordered by id) with their brand and category, so the memory stays bounded.
+     * The new index is built aside and replaces the old one at the end, the searches are never blocked during the build.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        TreeMap<String, Postings> newPostings = new TreeMap<>();
+        Map<Long, String[]> newDocuments = new HashMap<>();
+        Long lastId = 0L;
+        List<Product> batch;
+        do {
+            batch = em.createQuery("SELECT p FROM Product p JOIN FETCH p.brand JOIN FETCH p.category " +
+                            "WHERE p.id > ?1 ORDER BY p.id", Product.class)
+                    .setParameter(1, lastId)
+                    .setMaxResults(BATCH_SIZE)
+                    .getResultList();
+            for (Product product : batch) {
+                addDocument(newPostings, newDocuments, product.getId(), analyze(product));
+                lastId = product.getId();
+            }
+        } while (batch.size() == BATCH_SIZE);
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index built: {} products, {} terms in {} ms.", newDocuments.size(), newPostings.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * This function is used to add or replace a product in the index. It must be called after each save of a product.
+     * The brand and the category of the product must be loaded.
+     * @param product Corresponds to the saved product.
+     */
+    public void index(Product product) {
+        Map<String, Float> terms = analyze(product);
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(postings, documents, product.getId(), terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This function is used to remove a product from the index. It must be called after the deletion of a product.
+     * @param productId Corresponds to the id of the deleted product.
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<String, Float> analyze(Product product) {
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, product.getName(), NAME_WEIGHT);
+        addField(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (product.getBrand() != null) addField(terms, product.getBrand().getName(), BRAND_WEIGHT);
+        if (product.getCategory() != null) addField(terms, product.getCategory().getName(), CATEGORY_WEIGHT);
+        return terms;
+    }
+
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+
+    private static void addDocument(TreeMap<String, Postings> postings, Map<Long, String[]> documents,
+                                    Long productId, Map<String, Float> terms) {
+        terms.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new Postings()).put(productId, weight));
+        documents.put(productId, terms.keySet().toArray(new String[0]));
+    }
+
+    private void removeDocument(Long productId) {
+        String[] terms = documents.remove(productId);
+        if (terms == null) return;
+        for (String term : terms) {
+            Postings docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(productId);
+            if (docs.size == 0) postings.remove(term);
+        }
+    }
+
+    /* --------------------------------------------------- SEARCH --------------------------------------------------- */
+
+    /**
+     * This function is used to search the products that match a text, ordered by relevance.
+     * Firstly, the text is split into tokens, in the same way as the indexed fields.
+     * Secondly, each token is matched against the terms of the index: the exact term, then the terms that start with
+     * the token. If none of them exists, the terms at a small edit distance are used (typo tolerance).
+     * Thirdly, a product must match every token. Its score is the sum, for each token, of the best field weight
+     * multiplied by the rarity of the term (idf) and by a factor that depends on the kind of match.
+     * Finally, the ids are sorted by score (then by id) and the first ones are returned.
+     *
+     * @param text Corresponds to the text typed by the user.
+     * @param limit Corresponds to the maximum number of ids to return.
+     * @return The ids of the matching products, the most relevant first.
+     */
+    public List<Long> search(String text, int limit) {
+        List<String> tokens = tokenize(text).stream().distinct().toList();
+        if (tokens.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            Scores scores = null;
+            for (String token : tokens) {
+                Scores tokenScores = matchToken(token);
+                scores = scores == null ? tokenScores : scores.intersect(tokenScores);
+                if (scores.size == 0) return List.of();
+            }
+            Scores result = scores;
+            return Arrays.stream(result.indexes())
+                    .boxed()
+                    .sorted(Comparator.<Integer>comparingDouble(i -> result.values[i]).reversed()
+                            .thenComparingLong(i -> result.ids[i]))
+                    .limit(limit)
+                    .map(i -> result.ids[i])
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Scores matchToken(String token) {
+        Scores scores = Scores.EMPTY;
+        Postings exact = postings.get(token);
+        if (exact != null) scores = scores.union(exact, idf(exact) * 1.0f);
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            int expansions = 0;
+            for (Postings docs : postings.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+                if (expansions++ >= MAX_EXPANSIONS) break;
+                scores = scores.union(docs, idf(docs) * PREFIX_FACTOR);
+            }
+        }
+        if (scores.size == 0 && token.length() >= MIN_FUZZY_LENGTH) {
+            int maxDistance = token.length() >= 8 ? 2 : 1;
+            String first = token.substring(0, 1);
+            int expansions = 0;
+            for (Map.Entry<String, Postings> entry : postings.subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+                String term = entry.getKey();
+                if (Math.abs(term.length() - token.length()) > maxDistance) continue;
+                if (editDistance(token, term, maxDistance) > maxDistance) continue;
+                scores = scores.union(entry.getValue(), idf(entry.getValue()) * FUZZY_FACTOR);
+                if (++expansions >= MAX_EXPANSIONS) break;
+            }
+        }
+        return scores;
+    }
+
+    private float idf(Postings docs) {
+        return (float) Math.log(1.0 + (double) documents.size() / docs.size);
+    }
+
+    /* -------------------------------------------------- POSTINGS -------------------------------------------------- */
+
+    /**
+     * The products that contain a term: their ids, sorted, and the weight of their best field containing the term, in
+     * two primitive arrays. The products are indexed by increasing ids when the index is built, so they are appended.
+     */
+    private static final class Postings {
+        private long[] ids = new long[1];
+        private float[] weights = new float[1];
+        private int size;
+
+        void put(long id, float weight) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                weights[index] = weight;
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            ids[index] = id;
+            weights[index] = weight;
+            size++;
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) return;
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * The scores of the products matching a token (or all the tokens), sorted by id. They are combined by merging the
+     * sorted ids: union for the terms of a token (best score kept), intersection for the tokens (scores added).
+     */
+    private static final class Scores {
+        private static final Scores EMPTY = new Scores(new long[0], new float[0], 0);
+
+        private final long[] ids;
+        private final float[] values;
+        private final int size;
+
+        private Scores(long[] ids, float[] values, int size) {
+            this.ids = ids;
+            this.values = values;
+            this.size = size;
+        }
+
+        int[] indexes() {
+            int[] indexes = new int[size];
+            for (int i = 0; i < size; i++) indexes[i] = i;
+            return indexes;
+        }
+
+        Scores union(Postings docs, float factor) {
+            long[] newIds = new long[size + docs.size];
+            float[] newValues = new float[size + docs.size];
+            int i = 0, j = 0, k = 0;
+            while (i < size || j < docs.size) {
+                if (j == docs.size || (i < size && ids[i] < docs.ids[j])) {
+                    newIds[k] = ids[i];
+                    newValues[k++] = values[i++];
+                } else if (i == size || docs.ids[j] < ids[i]) {
+                    newIds[k] = docs.ids[j];
+                    newValues[k++] = docs.weights[j++] * factor;
+                } else {
+                    newIds[k] = ids[i];
+                    newValues[k++] = Math.max(values[i++], docs.weights[j++] * factor);
+                }
+            }
+            return new Scores(newIds, newValues, k);
+        }
+
+        Scores intersect(Scores other) {
+            long[] newIds = new long[Math.min(size, other.size)];
+            float[] newValues = new float[newIds.length];
+            int i = 0, j = 0, k = 0;
+            while (i < size && j < other.size) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (other.ids[j] < ids[i]) {
+                    j++;
+                } else {
+                    newIds[k] = ids[i];
+                    newValues[k++] = values[i++] + other.values[j++];
+                }
+            }
+            return new Scores(newIds, newValues, k);
+        }
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to split a text into lowercase tokens, without accents (normalized as the autocomplete).
+     * Every character that is not a letter or a digit, in any alphabet, is a separator.
+     * @param text Corresponds to the text to split, can be null.
+     * @return The list of tokens.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATOR.split(AutocompleteService.normalize(text))) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * This function is used to compute the Levenshtein distance between two words.
+     * The computation stops as soon as the distance is greater than the maximum.
+     */
+    static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
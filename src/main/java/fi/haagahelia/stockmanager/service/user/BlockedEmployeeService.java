@@ -0,0 +1,95 @@
+package fi.haagahelia.stockmanager.service.user;
+
+import fi.haagahelia.stockmanager.model.user.Employee;
+import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This service keeps in memory the ids of the employees that are inactive or blocked, checked by the
+ * BlockedEmployeeFilter on each request instead of loading the employee.
+ * The set is loaded when the application is ready, updated by the modifications of the employees made by this instance
+ * (block, activation, creation, password change), and reloaded every refresh delay for the modifications made by the
+ * other instances of the application. A modification made while the set is reloaded waits for the end of the reload:
+ * a reload that read the database before the modification does not undo it.
+ */
+@Log4j2
+@Service
+public class BlockedEmployeeService {
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final EmployeeRepository eRepository;
+    /** The ids of the inactive or blocked employees, replaced by each reload. */
+    private volatile Set<Long> blocked = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded = false;
+
+    @Autowired
+    public BlockedEmployeeService(EmployeeRepository eRepository) {
+        this.eRepository = eRepository;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to know if an employee is inactive or blocked. The set is loaded at the first call if the
+     * application is not ready yet.
+     * @param employeeId Corresponds to the id of the employee.
+     * @return True if the employee must be refused.
+     */
+    public boolean isBlocked(Long employeeId) {
+        if (!loaded) load();
+        return employeeId != null && blocked.contains(employeeId);
+    }
+
+    /**
+     * This function is used to record that an employee has been blocked (EmployeeRepository.deactivateEmployeeById).
+     * @param employeeId Corresponds to the id of the employee.
+     */
+    public void block(Long employeeId) {
+        set(employeeId, true);
+    }
+
+    /**
+     * This function is used to record the state of an employee that has just been saved (created, activated, ...).
+     * @param employee Corresponds to the saved employee.
+     */
+    public void update(Employee employee) {
+        set(employee.getId(), !employee.isEnabled() || !employee.isAccountNonLocked());
+    }
+
+    private synchronized void set(Long employeeId, boolean isBlocked) {
+        if (employeeId == null) return;
+        if (isBlocked) blocked.add(employeeId);
+        else blocked.remove(employeeId);
+    }
+
+    /**
+     * This function is used to load the set from the database, when the application is ready and then every refresh
+     * delay (security.blocked-employees.refresh, in milliseconds).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${security.blocked-employees.refresh:30000}",
+            initialDelayString = "${security.blocked-employees.refresh:30000}")
+    public synchronized void refresh() {
+        try {
+            Set<Long> reloaded = ConcurrentHashMap.newKeySet();
+            reloaded.addAll(eRepository.findBlockedIds());
+            blocked = reloaded;
+            loaded = true;
+        } catch (Exception e) {
+            log.error("Blocked employees: the set cannot be loaded.", e);
+        }
+    }
+
+    private synchronized void load() {
+        if (!loaded) refresh();
+    }
+}
@@ -0,0 +1,138 @@
+package fi.haagahelia.stockmanager.service.user;
+
+import fi.haagahelia.stockmanager.model.user.Employee;
+import fi.haagahelia.stockmanager.service.common.BoundedCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * This service holds the authenticated employees of the JWT filter, by token. A token found in the cache has already
+ * been verified (the key is the whole token, signature included) and its employee already loaded: the request is
+ * authenticated without parsing the token again and without query.
+ * An entry is used until the end of its time to live, or until the expiration of its token if it comes first. The
+ * entries of an employee are dropped as soon as the employee is modified: each modification gives the employee a new
+ * generation, and an entry loaded before it is not used anymore. An entry whose token has been revoked (token version
+ * older than the version of the employee) is not used either.
+ * A cached employee is shared by the requests of the token, it must never be modified.
+ */
+@Service
+public class EmployeePrincipalCache {
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final BoundedCache<String, CachedPrincipal> principals;
+    private final LongSupplier clock;
+    private final BiPredicate<Long, Integer> isCurrentVersion;
+    /** The generation incremented by each modification of an employee. */
+    private final AtomicLong generation = new AtomicLong();
+    /** The generation of the last modification of each modified employee, by id. */
+    private final Map<Long, Long> modifiedAt = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EmployeePrincipalCache(Environment env, TokenVersionService tokenVersions) {
+        this(env.getProperty("cache.principals.max-size", Integer.class, 10000),
+                env.getProperty("cache.principals.ttl", Long.class, 60L) * 1000, System::currentTimeMillis,
+                tokenVersions::isCurrent);
+    }
+
+    EmployeePrincipalCache(int maxSize, long ttlMillis, LongSupplier clock, BiPredicate<Long, Integer> isCurrentVersion) {
+        this.principals = new BoundedCache<>("principals", maxSize, ttlMillis, clock);
+        this.clock = clock;
+        this.isCurrentVersion = isCurrentVersion;
+    }
+
+    /**
+     * This record corresponds to an authenticated employee.
+     * @param employee Corresponds to the employee loaded for the token.
+     * @param tokenExpiresAt Corresponds to the expiration date of the token, in milliseconds.
+     * @param tokenVersion Corresponds to the version carried by the token.
+     * @param generation Corresponds to the generation read before the employee was loaded.
+     */
+    private record CachedPrincipal(Employee employee, long tokenExpiresAt, int tokenVersion, long generation) { }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to get the current generation. It must be read before loading the employee of a token,
+     * and given to put: if the employee is modified in the meantime, the loaded employee is not used.
+     * @return The current generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * This function is used to get the employee of a token already authenticated.
+     * @param token Corresponds to the JWT of the request.
+     * @return The employee, or null if the token is not in the cache, expired, revoked, or if the employee has been
+     * modified.
+     */
+    public Employee get(String token) {
+        CachedPrincipal principal = principals.get(token);
+        if (principal == null) return null;
+        if (principal.tokenExpiresAt() <= clock.getAsLong()
+                || principal.generation() < modifiedAt.getOrDefault(principal.employee().getId(), 0L)
+                || !isCurrentVersion.test(principal.employee().getId(), principal.tokenVersion())) {
+            principals.invalidate(token);
+            return null;
+        }
+        return principal.employee();
+    }
+
+    /**
+     * This function is used to keep the employee of a token that has just been verified.
+     * @param token Corresponds to the verified JWT.
+     * @param employee Corresponds to the employee loaded for the token.
+     * @param tokenExpiration Corresponds to the expiration date of the token.
+     * @param tokenVersion Corresponds to the version carried by the token.
+     * @param generation Corresponds to the generation read before the employee was loaded.
+     */
+    public void put(String token, Employee employee, Date tokenExpiration, int tokenVersion, long generation) {
+        if (employee.getId() == null || tokenExpiration == null) return;
+        if (generation < modifiedAt.getOrDefault(employee.getId(), 0L)) return;
+        principals.put(token, new CachedPrincipal(employee, tokenExpiration.getTime(), tokenVersion, generation));
+    }
+
+    /**
+     * This function is used to drop the entries of an employee, when the employee has been modified.
+     * If a transaction is running, the entries are dropped when the transaction is committed (and also now).
+     * Otherwise, a request could load the employee before the commit, and put it back in the cache.
+     * @param employeeId Corresponds to the id of the modified employee.
+     */
+    public void invalidate(Long employeeId) {
+        if (employeeId == null) return;
+        modify(employeeId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    modify(employeeId);
+                }
+            });
+        }
+    }
+
+    private void modify(Long employeeId) {
+        modifiedAt.put(employeeId, generation.incrementAndGet());
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        principals.evictExpired();
+    }
+
+    public BoundedCache.Stats stats() {
+        return principals.stats();
+    }
+}
@@ -0,0 +1,77 @@
+package fi.haagahelia.stockmanager.service.user;
+
+import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This service keeps in memory the token version of the employees, used to revoke their JWTs without query.
+ * Each token carries the version of its employee at the login. Revoking the tokens of an employee (blocked, roles
+ * changed) increments the version in the database: the tokens with an older version are not accepted anymore.
+ * Only the versions greater than 0 are kept (an employee never revoked accepts all its tokens). The table is updated
+ * immediately by the revocations of this instance, and reloaded every refresh delay for the revocations made by the
+ * other instances of the application. A version is never decreased in memory.
+ */
+@Log4j2
+@Service
+public class TokenVersionService {
+
+    /* ----------------------------------------- REPOSITORIES & CONSTRUCTOR ----------------------------------------- */
+
+    private final EmployeeRepository eRepository;
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    @Autowired
+    public TokenVersionService(EmployeeRepository eRepository) {
+        this.eRepository = eRepository;
+    }
+
+    /* ---------------------------------------------------- TOOLS --------------------------------------------------- */
+
+    /**
+     * This function is used to know if a token has not been revoked. The table is loaded at the first call if the
+     * application is not ready yet.
+     * @param employeeId Corresponds to the id of the employee of the token.
+     * @param tokenVersion Corresponds to the version carried by the token.
+     * @return True if the version of the token is the current version of the employee.
+     */
+    public boolean isCurrent(Long employeeId, int tokenVersion) {
+        if (!loaded) refresh();
+        return tokenVersion >= versions.getOrDefault(employeeId, 0);
+    }
+
+    /**
+     * This function is used to revoke all the tokens of an employee, the employee has to log in again.
+     * @param employeeId Corresponds to the id of the employee.
+     */
+    public void revoke(Long employeeId) {
+        eRepository.incrementTokenVersion(employeeId);
+        eRepository.findTokenVersionById(employeeId).ifPresent(version -> versions.merge(employeeId, version, Math::max));
+        log.info("Token version: tokens of the employee {} revoked.", employeeId);
+    }
+
+    /**
+     * This function is used to load the versions from the database, when the application is ready and then every
+     * refresh delay (jwt.token-version.refresh, in milliseconds).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.token-version.refresh:30000}", initialDelayString = "${jwt.token-version.refresh:30000}")
+    public synchronized void refresh() {
+        try {
+            List<Object[]> rows = eRepository.findAllTokenVersions();
+            for (Object[] row : rows) versions.merge((Long) row[0], (Integer) row[1], Math::max);
+            loaded = true;
+        } catch (Exception e) {
+            log.error("Token version: the versions cannot be loaded.", e);
+        }
+    }
+}
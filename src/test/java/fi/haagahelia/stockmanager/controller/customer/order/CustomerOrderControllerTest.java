@@ -171,6 +171,40 @@ public class CustomerOrderControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void getCustomerOrder_Embed() throws Exception {
+        Customer customer = customerRepository.save(new Customer("Lara", "Clette", "laraclette@gmail.com", null));
+        CustomerOrder customerOrder = customerOrderRepository.save(new CustomerOrder(LocalDate.now(), LocalDate.now().plusDays(5), false, employee, customer));
+        Category category = categoryRepository.save(new Category("Processor", "For the processors"));
+        Brand brand = brandRepository.save(new Brand("AMD"));
+        Supplier supplier = supplierRepository.save(new Supplier("Midel", "supplier@midel.com", null, null));
+        Product product = productRepository.save(new Product("Ryzen 9 5900X", "empty", 340.0, 346.50, 20, 10, 3, brand, category, supplier));
+        customerOrderLineRepository.save(new CustomerOrderLine(3, 340.0, customerOrder, product));
+        mvc.perform(MockMvcRequestBuilders
+                        .get("/api/customers/orders/" + customerOrder.getId() + "?embed=customer,lines.product")
+                        .header("Authorization", token)
+                        .accept(MediaType.APPLICATION_JSON).with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(customerOrder.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("_embedded.customer.email").value(customer.getEmail()))
+                .andExpect(MockMvcResultMatchers.jsonPath("_embedded.employee").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("_embedded.lines[0].quantity").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("_embedded.lines[0]._links.product.href").isNotEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("_embedded.lines[0]._embedded.product.id").value(product.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("_embedded.lines[0]._embedded.product.name").value(product.getName()));
+    }
+
+    @Test
+    public void getCustomerOrder_InvalidEmbed() throws Exception {
+        CustomerOrder customerOrder = customerOrderRepository.save(new CustomerOrder(LocalDate.now(), LocalDate.now().plusDays(5), false, employee, null));
+        mvc.perform(MockMvcRequestBuilders
+                        .get("/api/customers/orders/" + customerOrder.getId() + "?embed=password")
+                        .header("Authorization", token)
+                        .accept(MediaType.APPLICATION_JSON).with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("message").value("INVALID_EMBED"));
+    }
+
     @Test
     public void testGetCustomerOrders() throws Exception {
         Customer customer = customerRepository.save(new Customer("Lara", "Clette", "laraclette@gmail.com", null));
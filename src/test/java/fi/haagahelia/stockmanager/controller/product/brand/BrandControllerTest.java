@@ -20,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.annotation.DirtiesContext;
@@ -133,6 +134,63 @@ public class BrandControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("_links.brands.href").isNotEmpty());
     }
 
+    @Test
+    public void getBrandById_NotModified() throws Exception {
+        Brand cailler = brandRepository.save(new Brand("Cailler"));
+        MvcResult first = mvc.perform(MockMvcRequestBuilders
+                        .get("/api/brands/" + cailler.getId())
+                        .header("Authorization", token)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(MockMvcRequestBuilders
+                        .get("/api/brands/" + cailler.getId())
+                        .header("Authorization", token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        mvc.perform(MockMvcRequestBuilders
+                        .get("/api/brands/" + cailler.getId())
+                        .header("Authorization", token)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"brand-" + cailler.getId() + "-42\"")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void getAllBrands_NotModified() throws Exception {
+        brandRepository.save(new Brand("Cailler"));
+        MvcResult first = mvc.perform(MockMvcRequestBuilders
+                        .get("/api/brands")
+                        .header("Authorization", token)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(MockMvcRequestBuilders
+                        .get("/api/brands")
+                        .header("Authorization", token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isNotModified());
+        brandRepository.save(new Brand("Toblerone"));
+        mvc.perform(MockMvcRequestBuilders
+                        .get("/api/brands")
+                        .header("Authorization", token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isOk());
+    }
+
     @Test
     public void getBrandById_BadRequest() throws Exception {
         mvc.perform(MockMvcRequestBuilders
@@ -0,0 +1,29 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmbedsTest {
+
+    private static final Set<String> ALLOWED = Set.of("supplier", "lines", "lines.product");
+
+    @Test
+    public void parse() {
+        assertTrue(Embeds.parse(null, ALLOWED).isEmpty());
+        assertTrue(Embeds.parse(" ", ALLOWED).isEmpty());
+        assertEquals(List.of("supplier"), new ArrayList<>(Embeds.parse("supplier", ALLOWED)));
+        assertEquals(List.of("supplier", "lines", "lines.product"),
+                new ArrayList<>(Embeds.parse(" supplier , lines.product,,", ALLOWED)));
+    }
+
+    @Test
+    public void parse_NotAllowed() {
+        assertNull(Embeds.parse("supplier,employee", ALLOWED));
+        assertNull(Embeds.parse("lines.product.brand", ALLOWED));
+    }
+}
@@ -0,0 +1,59 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import fi.haagahelia.stockmanager.controller.customer.CustomerController;
+import fi.haagahelia.stockmanager.controller.customer.order.CustomerOrderLineController;
+import fi.haagahelia.stockmanager.controller.product.ProductController;
+import fi.haagahelia.stockmanager.controller.supplier.order.SupplierOrderController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+public class LinkTemplatesTest {
+
+    @BeforeEach
+    public void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.setServerName("stock.example.com");
+        request.setServerPort(8443);
+        request.setScheme("https");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void linksAreIdenticalToWebMvcLinkBuilder() {
+        assertEquals(linkTo(ProductController.class).slash("12").withSelfRel(), LinkTemplates.self(ProductController.class, "12"));
+        assertEquals(linkTo(ProductController.class).slash("").withRel("products"), LinkTemplates.link(ProductController.class, "products", ""));
+        assertEquals(linkTo(ProductController.class).withRel("products"), LinkTemplates.link(ProductController.class, "products"));
+        assertEquals(linkTo(CustomerController.class).slash("john.doe@haaga-helia.fi").withSelfRel(),
+                LinkTemplates.self(CustomerController.class, "john.doe@haaga-helia.fi"));
+        assertEquals(linkTo(SupplierOrderController.class).slash(5L).withSelfRel(), LinkTemplates.self(SupplierOrderController.class, 5L));
+        assertEquals(linkTo(SupplierOrderController.class).slash("/" + 3 + "/orders").withRel("this-supplier-orders"),
+                LinkTemplates.link(SupplierOrderController.class, "this-supplier-orders", "/" + 3 + "/orders"));
+        assertEquals(linkTo(SupplierOrderController.class).slash("orders").slash("delivery=2023-04-01").withRel("orders"),
+                LinkTemplates.link(SupplierOrderController.class, "orders", "orders", "delivery=2023-04-01"));
+        assertEquals(linkTo(CustomerOrderLineController.class).slash("order=" + 4).slash("details/product=").slash(7L).withSelfRel(),
+                LinkTemplates.self(CustomerOrderLineController.class, "order=" + 4, "details/product=", 7L));
+        assertEquals(linkTo(ProductController.class).slash("orders/").withSelfRel(), LinkTemplates.self(ProductController.class, "orders/"));
+        assertEquals(linkTo(ProductController.class).slash("a b").withSelfRel(), LinkTemplates.self(ProductController.class, "a b"));
+        assertEquals(linkTo(ProductController.class).slash(null).withSelfRel(), LinkTemplates.self(ProductController.class, (Object) null));
+    }
+
+    @Test
+    public void baseIsResolvedOncePerRequest() {
+        String first = LinkTemplates.base(ProductController.class);
+        assertEquals(first, LinkTemplates.base(ProductController.class));
+        assertEquals(linkTo(ProductController.class).toUri().toString(), first);
+    }
+}
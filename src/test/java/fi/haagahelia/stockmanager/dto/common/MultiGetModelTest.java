@@ -0,0 +1,46 @@
+package fi.haagahelia.stockmanager.dto.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiGetModelTest {
+
+    @Test
+    public void contentFollowsRequestOrderWithExplicitMisses() {
+        List<Long> ids = Arrays.asList(3L, 1L, 42L, 2L);
+        List<Long> found = List.of(1L, 2L, 3L);
+        MultiGetModel<String> model = MultiGetModel.of(ids, found, id -> id, id -> "item-" + id);
+        assertEquals(Arrays.asList("item-3", "item-1", null, "item-2"), model.getContent());
+        assertEquals(List.of(42L), model.getMissing());
+    }
+
+    @Test
+    public void duplicatedIdsAreConvertedOnce() {
+        AtomicInteger conversions = new AtomicInteger();
+        MultiGetModel<String> model = MultiGetModel.of(List.of(5L, 5L, 6L), List.of(5L), id -> id,
+                id -> "item-" + id + "-" + conversions.incrementAndGet());
+        assertEquals(Arrays.asList("item-5-1", "item-5-1", null), model.getContent());
+        assertEquals(List.of(6L), model.getMissing());
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    public void validate() {
+        assertEquals("INVALID_IDS", MultiGetModel.validate(null));
+        assertEquals("INVALID_IDS", MultiGetModel.validate(Collections.emptyList()));
+        assertEquals("INVALID_IDS", MultiGetModel.validate(new ArrayList<>(Arrays.asList(1L, null))));
+        List<Long> tooMany = LongStream.rangeClosed(1, MultiGetModel.MAX_IDS + 1).boxed().collect(Collectors.toList());
+        assertEquals("TOO_MANY_IDS", MultiGetModel.validate(tooMany));
+        assertNull(MultiGetModel.validate(tooMany.subList(0, MultiGetModel.MAX_IDS)));
+        assertEquals(List.of(2L, 1L), new ArrayList<>(MultiGetModel.distinct(List.of(2L, 1L, 2L))));
+    }
+}
@@ -0,0 +1,31 @@
+package fi.haagahelia.stockmanager.model.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeolocationTest {
+
+    @Test
+    public void fingerprintIgnoresCaseAndWhitespaces() {
+        String fingerprint = Geolocation.fingerprint("Ratapihantie", "13", "00520", "Finland");
+        assertEquals(64, fingerprint.length());
+        assertEquals(fingerprint, Geolocation.fingerprint("  RATAPIHANTIE ", "13", "00520\t", "finland"));
+        assertEquals(Geolocation.fingerprint("Rue de la Tambourine", "17", "1227", "Switzerland"),
+                Geolocation.fingerprint("rue  de la\nTambourine", "17", "1227", "SWITZERLAND"));
+        assertNotEquals(fingerprint, Geolocation.fingerprint("Ratapihantie", "131", "00520", "Finland"));
+        assertNotEquals(Geolocation.fingerprint("Ratapihantie 1", "3", "00520", "Finland"),
+                Geolocation.fingerprint("Ratapihantie", "1 3", "00520", "Finland"));
+    }
+
+    @Test
+    public void fingerprintFollowsTheAddress() {
+        Geolocation geolocation = new Geolocation("Ratapihantie", "13", "00520", "Helsinki", "Finland");
+        assertEquals(Geolocation.fingerprint("Ratapihantie", "13", "00520", "Finland"), geolocation.getFingerprint());
+        geolocation.setStreetNumber("15");
+        assertEquals(Geolocation.fingerprint("Ratapihantie", "15", "00520", "Finland"), geolocation.getFingerprint());
+        geolocation.setLocality("Espoo");
+        assertEquals(Geolocation.fingerprint("Ratapihantie", "15", "00520", "Finland"), geolocation.getFingerprint());
+        assertNull(new Geolocation().getFingerprint());
+    }
+}
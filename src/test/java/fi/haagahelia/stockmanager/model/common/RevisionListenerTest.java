@@ -0,0 +1,48 @@
+package fi.haagahelia.stockmanager.model.common;
+
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RevisionListenerTest {
+
+    private final RevisionListener listener = new RevisionListener();
+
+    @Test
+    public void revisionIsIncrementedAtEachUpdate() {
+        Category category = new Category("Processor", "For the processors");
+        listener.prePersist(category);
+        assertEquals(0L, category.getRevision());
+        listener.preUpdate(category);
+        listener.preUpdate(category);
+        assertEquals(2L, category.getRevision());
+    }
+
+    @Test
+    public void rowsWithoutRevisionStartAtOne() {
+        Category category = new Category("Processor", "For the processors");
+        listener.preUpdate(category);
+        assertEquals(1L, category.getRevision());
+    }
+
+    @Test
+    public void changesAreRecordedForTheEntityType() {
+        CollectionVersionService collectionVersions = mock(CollectionVersionService.class);
+        listener.setCollectionVersionsProvider(new StaticListableBeanFactory(Map.of("collectionVersions", collectionVersions))
+                .getBeanProvider(CollectionVersionService.class));
+        listener.postChange(new Category("Processor", "For the processors"));
+        verify(collectionVersions).changed(Category.class);
+        verify(collectionVersions, never()).changed(Geolocation.class);
+    }
+
+    @Test
+    public void changesAreIgnoredWithoutService() {
+        assertDoesNotThrow(() -> new RevisionListener().postChange(new Category("Processor", "For the processors")));
+    }
+}
@@ -1,5 +1,6 @@
 package fi.haagahelia.stockmanager.repository.product;
 
+import fi.haagahelia.stockmanager.dto.product.ProductSimpleProjection;
 import fi.haagahelia.stockmanager.model.product.Product;
 import fi.haagahelia.stockmanager.model.product.brand.Brand;
 import fi.haagahelia.stockmanager.model.product.category.Category;
@@ -16,6 +17,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -156,7 +158,7 @@ public class ProductRepositoryTest {
      * This test is used to ensure that the product repository can find all the products that have a low stock.
      */
     @Test
-    public void findByStockIsLessThanMinStock() {
+    public void findLowStock() {
         // Initialization
         EntityManager em = testEntityManager.getEntityManager();
 
@@ -189,9 +191,16 @@ public class ProductRepositoryTest {
 
         em.getTransaction().commit();
         // Execution
-        Page<Product> productsFound = pRepository.findByStockIsLessThanMinStock(null, PageRequest.of(0, 10));
+        Page<Product> productsFound = pRepository.findLowStock(null, null, null, null, PageRequest.of(0, 10));
+        Page<Product> productsSearched = pRepository.findLowStock("%4090%", supplier.getId(), brand.getId(),
+                category.getId(), PageRequest.of(0, 10));
+        Page<Product> otherSupplierProducts = pRepository.findLowStock(null, supplier.getId() + 1, null, null,
+                PageRequest.of(0, 10));
         // Verification
         log.debug("PRODUCT TEST - FIND BY STOCK IS LOW - Products found verifications");
+        assertEquals(1, productsSearched.getTotalElements());
+        assertEquals(rtx4090.getId(), productsSearched.getContent().get(0).getId());
+        assertEquals(0, otherSupplierProducts.getTotalElements());
         assertNotNull(productsFound);
         assertTrue(productsFound.getTotalElements() > 0); assertEquals(2, productsFound.getTotalElements());
         assertTrue(productsFound.getContent().contains(rtx4090));
@@ -199,6 +208,86 @@ public class ProductRepositoryTest {
         assertFalse(productsFound.getContent().contains(rtx2070));
     }
 
+    /**
+     * This test is used to ensure that the product repository can read a page of products as projections, with their
+     * brand and category, filtered by name.
+     */
+    @Test
+    public void findSimpleProjections() {
+        // Initialization
+        EntityManager em = testEntityManager.getEntityManager();
+
+        Category category = new Category("GPU", "This category is for the GPUs");
+        em.persist(category);
+        Brand brand = new Brand("Nvidia");
+        em.persist(brand);
+        Supplier supplier = new Supplier("Edgetag", "disaaksohn6@multiply.com", null, null);
+        em.persist(supplier);
+
+        Product rtx3090 = new Product("GeForce RTX 3090 TI", "GPU for gaming",
+                1200.30, 1529.0, 1, 5, 10, brand, category, supplier);
+        em.persist(rtx3090);
+        Product rtx2070 = new Product("GeForce RTX 2070", "GPU for gaming",
+                950.0, 1100.0, 10, 5, 2, brand, category, supplier);
+        em.persist(rtx2070);
+        Product quadro = new Product("Quadro RTX 8000", "GPU for professionals",
+                5000.0, 6500.0, 3, 1, 2, brand, category, supplier);
+        em.persist(quadro);
+        em.getTransaction().commit();
+        // Execution
+        Page<ProductSimpleProjection> projections = pRepository.findSimpleProjections("%geforce%",
+                PageRequest.of(0, 10, Sort.by("name")));
+        Page<ProductSimpleProjection> allProjections = pRepository.findSimpleProjections(null, PageRequest.of(0, 2));
+        // Verification
+        log.debug("PRODUCT TEST - FIND SIMPLE PROJECTIONS - Projections found verifications");
+        assertEquals(2, projections.getTotalElements());
+        ProductSimpleProjection first = projections.getContent().get(0);
+        assertEquals(rtx2070.getId(), first.id());
+        assertEquals(rtx2070.getName(), first.name());
+        assertEquals(rtx2070.getSalePrice(), first.salePrice());
+        assertEquals(brand.getId(), first.brandId()); assertEquals(brand.getName(), first.brandName());
+        assertEquals(category.getId(), first.categoryId()); assertEquals(category.getName(), first.categoryName());
+        assertEquals(rtx3090.getId(), projections.getContent().get(1).id());
+        assertEquals(3, allProjections.getTotalElements());
+        assertEquals(2, allProjections.getContent().size());
+        assertEquals(3, pRepository.countSimpleProjections(null));
+    }
+
+    /**
+     * This test is used to ensure that the product repository can synchronize the low stock flag of the products
+     * when the stock has been modified without using the entity.
+     */
+    @Test
+    public void synchronizeLowStock() {
+        // Initialization
+        EntityManager em = testEntityManager.getEntityManager();
+
+        Category category = new Category("GPU", "This category is for the GPUs");
+        em.persist(category);
+        Brand brand = new Brand("Nvidia");
+        em.persist(brand);
+        Supplier supplier = new Supplier("Edgetag", "disaaksohn6@multiply.com", null, null);
+        em.persist(supplier);
+
+        Product rtx2070 = new Product("GeForce RTX 2070", "GPU for gaming",
+                950.0, 1100.0, 10, 5, 2, brand, category, supplier);
+        em.persist(rtx2070);
+        log.debug("PRODUCT TEST - SYNCHRONIZE LOW STOCK - New product saved: " + rtx2070);
+        assertFalse(rtx2070.getLowStock());
+
+        em.createQuery("UPDATE Product p SET p.stock = 1 WHERE p.id = :id").setParameter("id", rtx2070.getId())
+                .executeUpdate();
+        em.getTransaction().commit();
+        // Execution
+        int updated = pRepository.synchronizeLowStock();
+        Page<Product> productsFound = pRepository.findLowStock(null, null, null, null, PageRequest.of(0, 10));
+        // Verification
+        log.debug("PRODUCT TEST - SYNCHRONIZE LOW STOCK - Products found verifications");
+        assertEquals(1, updated);
+        assertEquals(1, productsFound.getTotalElements());
+        assertEquals(rtx2070.getId(), productsFound.getContent().get(0).getId());
+    }
+
     /**
      * This test is used to ensure that the product repository can say if a product is related to a brand.
      */
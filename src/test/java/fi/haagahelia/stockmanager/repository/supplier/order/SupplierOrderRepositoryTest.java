@@ -1,12 +1,17 @@
 package fi.haagahelia.stockmanager.repository.supplier.order;
 
 
+import fi.haagahelia.stockmanager.dto.supplier.order.SupplierOrderDTO;
+import fi.haagahelia.stockmanager.model.common.Geolocation;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
 import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
 import fi.haagahelia.stockmanager.repository.supplier.SupplierRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import lombok.extern.log4j.Log4j2;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -48,6 +53,7 @@ public class SupplierOrderRepositoryTest {
         EntityManager em = testEntityManager.getEntityManager();
         Query deleteSupplierOrder = em.createQuery("DELETE SupplierOrder ord"); deleteSupplierOrder.executeUpdate();
         Query deleteSupplier = em.createQuery("DELETE Supplier s"); deleteSupplier.executeUpdate();
+        Query deleteGeolocation = em.createQuery("DELETE Geolocation g"); deleteGeolocation.executeUpdate();
         Query deleteProduct = em.createQuery("DELETE Product p"); deleteProduct.executeUpdate();
     }
 
@@ -214,6 +220,47 @@ public class SupplierOrderRepositoryTest {
         assertTrue(supplierOrders.getContent().contains(nextMonthOrder));
     }
 
+    /**
+     * This test is used to ensure that a page of supplier orders is loaded with a single query.
+     * The supplier and its geolocation are fetched with the order, and the order lines are not loaded.
+     */
+    @Test
+    public void findAllSingleQueryPerPage() {
+        // Initialization
+        EntityManager em = testEntityManager.getEntityManager();
+
+        Geolocation geolocation = new Geolocation("Ratapihantie", "13", "00520", "Helsinki", "Finland");
+        em.persist(geolocation);
+        Supplier teklist = new Supplier("Teklist", "hwitnall1@csmonitor.com", null, geolocation);
+        em.persist(teklist);
+        Supplier mymm = new Supplier("Mymm", "iheintzsch2@oakley.com", null, null);
+        em.persist(mymm);
+        log.info("SUPPLIER ORDERS TEST - FIND ALL SINGLE QUERY - New suppliers saved: " + teklist + ", " + mymm);
+
+        em.persist(new SupplierOrder(LocalDate.now(), LocalDate.now().plusDays(3), false, false, teklist));
+        em.persist(new SupplierOrder(LocalDate.now().plusDays(2), LocalDate.now().plusDays(10), false, false, mymm));
+        em.persist(new SupplierOrder(LocalDate.now().plusMonths(1), LocalDate.now().plusMonths(1).plusDays(3), false, false, teklist));
+        em.flush(); em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Execution
+        Page<SupplierOrder> supplierOrders = suppOrderRepository.findAll((Specification<SupplierOrder>) null, PageRequest.of(0, 10));
+        for (SupplierOrder supplierOrder : supplierOrders) {
+            SupplierOrderDTO.convert(supplierOrder);
+        }
+
+        // Verification
+        log.info("SUPPLIER ORDERS TEST - FIND ALL SINGLE QUERY - Supplier order verifications");
+        assertEquals(3, supplierOrders.getContent().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        for (SupplierOrder supplierOrder : supplierOrders) {
+            assertTrue(Hibernate.isInitialized(supplierOrder.getSupplier()));
+            assertFalse(Hibernate.isInitialized(supplierOrder.getSupplierOrderLines()));
+        }
+    }
+
     @Test
     public void existsBySupplierId() {
         // Initialization
@@ -0,0 +1,64 @@
+package fi.haagahelia.stockmanager.security.jwt;
+
+import fi.haagahelia.stockmanager.model.user.Employee;
+import fi.haagahelia.stockmanager.model.user.Role;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Calendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JWTUtilsTest {
+
+    private final JWTUtils jwtUtils = new JWTUtils();
+
+    @BeforeAll
+    public static void setUp() {
+        JWTConstants.JWT_SECRET = "TEST_SECRET";
+        JWTConstants.JWT_EXPIRATION_UNIT = Calendar.HOUR;
+        JWTConstants.JWT_EXPIRATION_DURATION = 1;
+    }
+
+    @Test
+    public void testSelfContainedTokenGivesThePrincipal() {
+        Employee employee = new Employee("jwt@haaga-helia.fi", "jwtUser", "John", "Doe", "AAAA", true, false);
+        employee.setId(42L);
+        employee.setTokenVersion(3);
+        employee.addRole(new Role("ROLE_VENDOR", "Vendor"));
+        employee.addRole(new Role("ROLE_ADMIN", "Admin"));
+
+        Claims claims = jwtUtils.parseClaims(JWTUtils.generateToken(employee));
+        assertTrue(jwtUtils.isSelfContained(claims));
+        assertEquals(3, jwtUtils.getTokenVersion(claims));
+
+        Employee principal = jwtUtils.toPrincipal(claims);
+        assertEquals(42L, principal.getId());
+        assertEquals("jwtUser", principal.getUsername());
+        assertEquals("jwt@haaga-helia.fi", principal.getEmail());
+        assertEquals(3, principal.getTokenVersion());
+        assertNull(principal.getPassword());
+        assertTrue(principal.isEnabled());
+        assertTrue(principal.isAccountNonLocked());
+        assertEquals(2, principal.getAuthorities().size());
+        assertTrue(principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).anyMatch("ROLE_ADMIN"::equals));
+    }
+
+    @Test
+    public void testSubjectOnlyTokenIsNotSelfContained() {
+        Claims claims = jwtUtils.parseClaims(JWTUtils.generateToken("jwtUser"));
+        assertFalse(jwtUtils.isSelfContained(claims));
+        assertEquals(0, jwtUtils.getTokenVersion(claims));
+        assertEquals("jwtUser", claims.getSubject());
+    }
+
+    @Test
+    public void testTamperedTokenIsRejected() {
+        String token = JWTUtils.generateToken("jwtUser");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(AuthenticationCredentialsNotFoundException.class, () -> jwtUtils.parseClaims(tampered));
+    }
+}
@@ -2,8 +2,8 @@ package fi.haagahelia.stockmanager.service;
 
 import fi.haagahelia.stockmanager.model.user.Employee;
 import fi.haagahelia.stockmanager.model.user.Role;
-import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
 import fi.haagahelia.stockmanager.repository.user.RoleRepository;
+import fi.haagahelia.stockmanager.service.common.EntityLookupService;
 import jakarta.persistence.EntityManager;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.BeforeEach;
@@ -41,7 +41,7 @@ public class CustomEmployeeDetailsServiceTest {
     private TestEntityManager testEntityManager;
 
     @Mock
-    private EmployeeRepository employeeRepository;
+    private EntityLookupService entityLookup;
 
     @Autowired
     private RoleRepository roleRepository;
@@ -62,7 +62,7 @@ public class CustomEmployeeDetailsServiceTest {
     public void loadUserByUsernameNotFound() {
         // Arrange
         String username = "nonexistentuser";
-        when(employeeRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(entityLookup.findByNaturalId(Employee.class, username)).thenReturn(Optional.empty());
         log.info("CUSTOM EMPLOYEE DETAILS SERVICE TEST - LOAD USER BY USERNAME NOT FOUND - Execution done.");
         // Act & Assert
         assertThrows(
@@ -82,12 +82,12 @@ public class CustomEmployeeDetailsServiceTest {
 
         Employee employee = new Employee("testing@haaga-helia.fi", "jhn", "John", "Doe", new BCryptPasswordEncoder().encode("1234"), true, false);
         employee.addRole(savedRole);
-        employeeRepository.save(employee);
+        testEntityManager.persist(employee);
         log.info("CUSTOM EMPLOYEE DETAILS SERVICE TEST - LOAD USER BY USERNAME FOUND - New employee saved: " + employee);
 
         // Execution
         String username = employee.getUsername();
-        when(employeeRepository.findByUsername(username)).thenReturn(Optional.of(employee));
+        when(entityLookup.findByNaturalId(Employee.class, username)).thenReturn(Optional.of(employee));
         UserDetails userDetails = employeeDetailsService.loadUserByUsername(username);
         log.info("CUSTOM EMPLOYEE DETAILS SERVICE TEST - LOAD USER BY USERNAME FOUND - Execution done.");
 
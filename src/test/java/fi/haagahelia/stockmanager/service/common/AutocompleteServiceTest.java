@@ -0,0 +1,111 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.customer.Customer;
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class AutocompleteServiceTest {
+
+    private static final Set<SuggestionType> ALL_TYPES = EnumSet.allOf(SuggestionType.class);
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private AutocompleteService autocompleteService;
+
+    private Brand samsung;
+    private Product evo;
+    private Customer customer;
+
+    @BeforeEach
+    public void setUp() {
+        EntityManager em = testEntityManager.getEntityManager();
+        autocompleteService = new AutocompleteService();
+        autocompleteService.setEm(em);
+
+        em.createQuery("DELETE CustomerOrderLine").executeUpdate();
+        em.createQuery("DELETE CustomerOrder").executeUpdate();
+        em.createQuery("DELETE SupplierOrderLine").executeUpdate();
+        em.createQuery("DELETE SupplierOrder").executeUpdate();
+        em.createQuery("DELETE Product").executeUpdate();
+        em.createQuery("DELETE Supplier").executeUpdate();
+        em.createQuery("DELETE Customer").executeUpdate();
+        em.createQuery("DELETE Category").executeUpdate();
+        em.createQuery("DELETE Brand").executeUpdate();
+        log.info("AUTOCOMPLETE SERVICE TEST - INIT - DATABASE CLEARED.");
+
+        samsung = new Brand("Samsung");
+        em.persist(samsung);
+        Category ssd = new Category("SSD", "This is for SSD storages.");
+        em.persist(ssd);
+        Supplier supplier = new Supplier("Samsung - Supplier", "supplier@samsung.com", "03443242", null);
+        em.persist(supplier);
+        evo = new Product("870 EVO", "This is a 870 EVO.", 130.30, 160.20, 20, 15, 25, samsung, ssd, supplier);
+        em.persist(evo);
+        customer = new Customer("Sarah", "Connor", "sarah.connor@sky.net", null);
+        em.persist(customer);
+        em.flush();
+        log.info("AUTOCOMPLETE SERVICE TEST - INIT - DATA SAVED.");
+
+        autocompleteService.rebuild();
+    }
+
+    @Test
+    public void suggestShortestFirst() {
+        List<AutocompleteService.Suggestion> suggestions = autocompleteService.suggest("sa", 10, ALL_TYPES);
+        assertEquals(3, suggestions.size());
+        assertEquals("Samsung", suggestions.get(0).label());
+        assertEquals(SuggestionType.CUSTOMER, suggestions.get(1).type());
+        assertEquals("Samsung - Supplier", suggestions.get(2).label());
+    }
+
+    @Test
+    public void suggestFromAnyWordAndFilterTypes() {
+        List<AutocompleteService.Suggestion> suggestions = autocompleteService.suggest("Évo", 10, ALL_TYPES);
+        assertEquals(1, suggestions.size());
+        assertEquals(evo.getId(), suggestions.get(0).id());
+        assertTrue(autocompleteService.suggest("sup", 10, EnumSet.of(SuggestionType.PRODUCT)).isEmpty());
+        assertEquals("sarah.connor@sky.net", autocompleteService.suggest("connor", 10, ALL_TYPES).get(0).reference());
+    }
+
+    @Test
+    public void suggestLimit() {
+        assertEquals(1, autocompleteService.suggest("s", 1, ALL_TYPES).size());
+    }
+
+    @Test
+    public void indexAndRemove() {
+        samsung.setName("Samsung Electronics");
+        autocompleteService.index(samsung);
+        assertEquals("Samsung Electronics", autocompleteService.suggest("elec", 10, ALL_TYPES).get(0).label());
+        autocompleteService.remove(SuggestionType.BRAND, samsung.getId());
+        assertTrue(autocompleteService.suggest("elec", 10, ALL_TYPES).isEmpty());
+        assertEquals(2, autocompleteService.suggest("sa", 10, ALL_TYPES).size());
+    }
+}
@@ -0,0 +1,34 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void noFalseNegative() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("key-" + i);
+        for (int i = 0; i < 10_000; i++) assertTrue(filter.mightContain("key-" + i));
+    }
+
+    @Test
+    public void falsePositiveRateIsBounded() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("key-" + i);
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) if (filter.mightContain("other-" + i)) falsePositives++;
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    public void sizing() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+        assertTrue(filter.getBitCount() >= 9_586);
+        assertEquals(7, filter.getHashCount());
+        assertFalse(filter.mightContain("anything"));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1_000, 1));
+    }
+}
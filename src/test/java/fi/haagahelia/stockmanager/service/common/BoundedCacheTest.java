@@ -0,0 +1,86 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+
+    private AtomicLong now;
+    private BoundedCache<Long, String> cache;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        cache = new BoundedCache<>("test", 2, 1000, now::get);
+    }
+
+    @Test
+    public void getCountsHitsAndMisses() {
+        assertNull(cache.get(1L));
+        cache.put(1L, "one");
+        assertEquals("one", cache.get(1L));
+        BoundedCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+        assertEquals(0.5, stats.getHitRatio());
+    }
+
+    @Test
+    public void putEvictsLeastRecentlyUsed() {
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+        cache.put(3L, "three");
+        assertNull(cache.get(2L));
+        assertEquals("one", cache.get(1L));
+        assertEquals("three", cache.get(3L));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    public void putFreesATenthOfTheCacheWhenFull() {
+        BoundedCache<Long, String> bigCache = new BoundedCache<>("big", 20, 1000, now::get);
+        for (long i = 1; i <= 20; i++) bigCache.put(i, "value");
+        bigCache.get(1L);
+        bigCache.get(2L);
+        bigCache.put(21L, "value");
+        BoundedCache.Stats stats = bigCache.stats();
+        assertEquals(18, stats.size());
+        assertEquals(3, stats.evictions());
+        assertEquals("value", bigCache.get(1L));
+        assertEquals("value", bigCache.get(2L));
+        assertEquals("value", bigCache.get(21L));
+        assertNull(bigCache.get(3L));
+        assertNull(bigCache.get(5L));
+        assertEquals("value", bigCache.get(6L));
+    }
+
+    @Test
+    public void getEvictsExpiredEntries() {
+        cache.put(1L, "one");
+        now.set(999);
+        assertEquals("one", cache.get(1L));
+        now.set(1000);
+        assertNull(cache.get(1L));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    public void evictExpiredAndInvalidate() {
+        cache.put(1L, "one");
+        now.set(500);
+        cache.put(2L, "two");
+        now.set(1200);
+        cache.evictExpired();
+        assertEquals(1, cache.stats().size());
+        cache.invalidate(2L);
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.stats().evictions());
+    }
+}
@@ -0,0 +1,77 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Log4j2
+public class CollectionVersionServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CollectionVersionService collectionVersions;
+
+    @BeforeEach
+    public void setUp() {
+        collectionVersions = new CollectionVersionService(jdbcTemplate, transactionManager);
+        jdbcTemplate.update("DELETE FROM BRU_COLLECTION_VERSION");
+        log.info("COLLECTION VERSION SERVICE TEST - INIT - VERSIONS CLEARED.");
+    }
+
+    @Test
+    public void changedOutsideTransactionIncrementsNow() {
+        assertEquals(0, collectionVersions.version(Brand.class));
+        collectionVersions.changed(Brand.class);
+        collectionVersions.changed(Brand.class);
+        assertEquals(2, collectionVersions.version(Brand.class));
+        assertEquals(0, collectionVersions.version(Category.class));
+        assertEquals("\"brand-list-2\"", collectionVersions.etag(Brand.class));
+    }
+
+    @Test
+    public void changedInTransactionIncrementsOnceAfterCommit() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            collectionVersions.changed(Brand.class);
+            collectionVersions.changed(Brand.class);
+            collectionVersions.changed(Category.class);
+            assertEquals(0, collectionVersions.version(Brand.class));
+        });
+        assertEquals(1, collectionVersions.version(Brand.class));
+        assertEquals(1, collectionVersions.version(Category.class));
+    }
+
+    @Test
+    public void changedInRolledBackTransactionIsIgnored() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            collectionVersions.changed(Brand.class);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, collectionVersions.version(Brand.class));
+    }
+}
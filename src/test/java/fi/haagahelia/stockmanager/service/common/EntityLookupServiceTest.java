@@ -0,0 +1,82 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.user.Employee;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class EntityLookupServiceTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private EntityLookupService entityLookup;
+
+    @BeforeEach
+    public void setUp() {
+        entityLookup = new EntityLookupService();
+        entityLookup.setEm(testEntityManager.getEntityManager());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testFindByIdReturnsTheSameInstance() {
+        Brand brand = testEntityManager.persistAndFlush(new Brand("Lookup brand"));
+        testEntityManager.clear();
+        Optional<Brand> first = entityLookup.findById(Brand.class, brand.getId());
+        Optional<Brand> second = entityLookup.findById(Brand.class, brand.getId());
+        assertTrue(first.isPresent());
+        assertSame(first.get(), second.get());
+        assertTrue(entityLookup.existsById(Brand.class, brand.getId()));
+    }
+
+    @Test
+    public void testMissIsMemoizedForTheRequest() {
+        assertTrue(entityLookup.findById(Brand.class, Long.MAX_VALUE).isEmpty());
+        assertFalse(entityLookup.existsById(Brand.class, Long.MAX_VALUE));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertTrue(entityLookup.findById(Brand.class, Long.MAX_VALUE).isEmpty());
+        assertTrue(entityLookup.findById(Brand.class, null).isEmpty());
+    }
+
+    @Test
+    public void testFindByNaturalId() {
+        Employee employee = new Employee("lookup@haaga-helia.fi", "lookupUser", "John", "Doe",
+                new BCryptPasswordEncoder().encode("AAAA"), true, false);
+        testEntityManager.persistAndFlush(employee);
+        Optional<Employee> found = entityLookup.findByNaturalId(Employee.class, "lookupUser");
+        assertTrue(found.isPresent());
+        assertEquals("lookup@haaga-helia.fi", found.get().getEmail());
+        assertSame(found.get(), entityLookup.findById(Employee.class, employee.getId()).get());
+        assertTrue(entityLookup.findByNaturalId(Employee.class, "unknownUser").isEmpty());
+    }
+}
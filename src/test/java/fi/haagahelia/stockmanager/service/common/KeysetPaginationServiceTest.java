@@ -0,0 +1,90 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.haagahelia.stockmanager.exception.PaginationCursorException;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class KeysetPaginationServiceTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private KeysetPaginationService keysetService;
+
+    @BeforeEach
+    public void setUp() {
+        keysetService = new KeysetPaginationService(new ObjectMapper());
+        keysetService.setEm(testEntityManager.getEntityManager());
+        EntityManager em = testEntityManager.getEntityManager();
+
+        em.createQuery("DELETE Product").executeUpdate();
+        em.createQuery("DELETE Brand").executeUpdate();
+        log.info("KEYSET PAGINATION SERVICE TEST - INIT - DATABASE CLEARED.");
+
+        for (String name : List.of("Samsung", "Apple", "Lenovo", "Dell", "Asus", "HP", "Acer")) {
+            em.persist(new Brand(name));
+        }
+        log.info("KEYSET PAGINATION SERVICE TEST - INIT - 7 brands saved.");
+    }
+
+    @Test
+    public void findSliceWalksAllRowsInOrder() throws PaginationCursorException {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int slices = 0;
+        do {
+            KeysetSlice<Brand> slice = keysetService.findSlice(Brand.class, null, null, Sort.by("name"), cursor, 3);
+            slice.getContent().forEach(brand -> names.add(brand.getName()));
+            cursor = slice.getNextCursor();
+            slices++;
+        } while (cursor != null);
+        assertEquals(3, slices);
+        assertEquals(List.of("Acer", "Apple", "Asus", "Dell", "HP", "Lenovo", "Samsung"), names);
+    }
+
+    @Test
+    public void findSliceDescendingKeepsSortOfCursor() throws PaginationCursorException {
+        KeysetSlice<Brand> first = keysetService.findSlice(Brand.class, null, null, Sort.by("name").descending(), null, 4);
+        assertTrue(first.hasNext());
+        KeysetSlice<Brand> second = keysetService.findSlice(Brand.class, null, null, Sort.by("id"), first.getNextCursor(), 4);
+        assertFalse(second.hasNext());
+        assertEquals(3, second.getContent().size());
+        assertEquals("Apple", second.getContent().get(1).getName());
+    }
+
+    @Test
+    public void findSliceInvalidCursor() {
+        assertThrows(PaginationCursorException.class,
+                () -> keysetService.findSlice(Brand.class, null, null, Sort.by("name"), "not-a-cursor", 3));
+    }
+
+    @Test
+    public void findSliceRejectsNonSortableProperty() {
+        assertThrows(PaginationCursorException.class,
+                () -> keysetService.findSlice(Brand.class, null, null, Sort.by("revision"), null, 3));
+    }
+}
@@ -0,0 +1,95 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class PageQueryServiceTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private PageQueryService pageQueryService;
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        pageQueryService = new PageQueryService(new MockEnvironment());
+        pageQueryService.setEm(testEntityManager.getEntityManager());
+        EntityManager em = testEntityManager.getEntityManager();
+
+        em.createQuery("DELETE Product").executeUpdate();
+        em.createQuery("DELETE Brand").executeUpdate();
+        log.info("PAGE QUERY SERVICE TEST - INIT - DATABASE CLEARED.");
+
+        for (String name : List.of("Samsung", "Apple", "Lenovo", "Dell", "Asus", "HP", "Acer")) {
+            em.persist(new Brand(name));
+        }
+        em.flush();
+        em.clear();
+        log.info("PAGE QUERY SERVICE TEST - INIT - 7 brands saved.");
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void findSliceWithoutCount() {
+        Slice<Brand> first = pageQueryService.findSlice(Brand.class, null, null, PageRequest.of(0, 3, Sort.by("name")));
+        assertTrue(first.hasNext());
+        assertEquals(List.of("Acer", "Apple", "Asus"), first.getContent().stream().map(Brand::getName).toList());
+        Slice<Brand> last = pageQueryService.findSlice(Brand.class, null, null, PageRequest.of(2, 3, Sort.by("name")));
+        assertFalse(last.hasNext());
+        assertEquals(1, last.getNumberOfElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findApproximatePageCachesCount() {
+        Specification<Brand> spec = (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%a%");
+        Page<Brand> first = pageQueryService.findApproximatePage(Brand.class, null, spec, PageRequest.of(0, 2, Sort.by("name")), "a");
+        assertEquals(4, first.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        testEntityManager.persist(new Brand("Razer"));
+        testEntityManager.flush();
+        statistics.clear();
+        Page<Brand> again = pageQueryService.findApproximatePage(Brand.class, null, spec, PageRequest.of(0, 2, Sort.by("name")), "a");
+        assertEquals(4, again.getTotalElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void findApproximatePageLastPageWithoutCount() {
+        Page<Brand> page = pageQueryService.findApproximatePage(Brand.class, null, null, PageRequest.of(1, 5, Sort.by("name")), null);
+        assertEquals(7, page.getTotalElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,85 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitServiceTest {
+
+    private static final List<GrantedAuthority> VENDOR = List.of(new SimpleGrantedAuthority("ROLE_VENDOR"));
+    private static final List<GrantedAuthority> ADMIN = List.of(new SimpleGrantedAuthority("ROLE_VENDOR"),
+            new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    private AtomicLong now;
+    private RateLimitService rateLimitService;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("rate-limit.groups", "statistics, products")
+                .withProperty("rate-limit.default.vendor", "10,1")
+                .withProperty("rate-limit.default.admin", "100,10")
+                .withProperty("rate-limit.statistics.vendor", "2,1");
+        rateLimitService = new RateLimitService(env, now::get);
+    }
+
+    @Test
+    public void groupOfUsesTheFirstSegment() {
+        assertEquals("statistics", rateLimitService.groupOf("/api/statistics/caches"));
+        assertEquals("products", rateLimitService.groupOf("/api/products"));
+        assertEquals(RateLimitService.DEFAULT_GROUP, rateLimitService.groupOf("/api/customers/1"));
+        assertEquals(RateLimitService.DEFAULT_GROUP, rateLimitService.groupOf("/error"));
+    }
+
+    @Test
+    public void limitOfUsesTheHighestRoleAndTheDefaultGroup() {
+        assertEquals(new RateLimitService.Limit(2, 1), rateLimitService.limitOf("statistics", VENDOR).orElseThrow());
+        assertEquals(new RateLimitService.Limit(10, 1), rateLimitService.limitOf("products", VENDOR).orElseThrow());
+        assertEquals(new RateLimitService.Limit(100, 10), rateLimitService.limitOf("statistics", ADMIN).orElseThrow());
+        assertTrue(rateLimitService.limitOf("statistics", List.of(new SimpleGrantedAuthority("ROLE_MANAGER"))).isEmpty());
+    }
+
+    @Test
+    public void tryAcquireThrottlesPerEmployeeAndGroup() {
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics/customers"));
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics/suppliers"));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics/customers"));
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/products"));
+        assertEquals(0, rateLimitService.tryAcquire(2L, VENDOR, "/api/statistics/customers"));
+        now.set(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics/customers"));
+
+        List<RateLimitService.GroupStats> stats = rateLimitService.stats();
+        assertEquals(List.of("products", "statistics"), stats.stream().map(RateLimitService.GroupStats::group).toList());
+        assertEquals(5, stats.get(1).requests());
+        assertEquals(1, stats.get(1).throttled());
+    }
+
+    @Test
+    public void evictIdleRemovesFullBuckets() {
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics"));
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics"));
+        now.set(TimeUnit.SECONDS.toNanos(5));
+        rateLimitService.evictIdle();
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics"));
+        assertEquals(0, rateLimitService.tryAcquire(1L, VENDOR, "/api/statistics"));
+    }
+
+    @Test
+    public void disabledLimiterAllowsEverything() {
+        RateLimitService disabled = new RateLimitService(new MockEnvironment()
+                .withProperty("rate-limit.enabled", "false")
+                .withProperty("rate-limit.default.vendor", "1,1"), now::get);
+        for (int i = 0; i < 10; i++) assertEquals(0, disabled.tryAcquire(1L, VENDOR, "/api/products"));
+        assertTrue(disabled.stats().isEmpty());
+    }
+}
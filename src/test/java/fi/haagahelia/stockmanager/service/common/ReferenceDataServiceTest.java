@@ -0,0 +1,90 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import fi.haagahelia.stockmanager.model.common.ReferenceDataListener;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.user.Role;
+import fi.haagahelia.stockmanager.repository.product.BrandRepository;
+import fi.haagahelia.stockmanager.repository.product.CategoryRepository;
+import fi.haagahelia.stockmanager.repository.user.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReferenceDataServiceTest {
+
+    private BrandRepository bRepository;
+    private ReferenceDataService referenceData;
+
+    private static Brand brand(long id, String name) {
+        Brand brand = new Brand(name);
+        brand.setId(id);
+        return brand;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        bRepository = mock(BrandRepository.class);
+        CategoryRepository cRepository = mock(CategoryRepository.class);
+        RoleRepository rRepository = mock(RoleRepository.class);
+        Role vendor = new Role("ROLE_VENDOR", "Role for vendors.");
+        vendor.setId(3L);
+        when(bRepository.findAll()).thenReturn(List.of(brand(1, "nike"), brand(2, "Adidas"), brand(3, "Puma")));
+        when(cRepository.findAll()).thenReturn(List.of());
+        when(rRepository.findAll()).thenReturn(List.of(vendor));
+        referenceData = new ReferenceDataService(bRepository, cRepository, rRepository);
+    }
+
+    @Test
+    public void readsFromTheSnapshotUntilAChange() {
+        assertTrue(referenceData.brandExists(1L));
+        assertFalse(referenceData.brandExists(4L));
+        assertEquals(3L, referenceData.findRoleId("ROLE_VENDOR").orElseThrow());
+        assertTrue(referenceData.roleExists(3L));
+        verify(bRepository, times(1)).findAll();
+
+        ReferenceDataListener.changed();
+        assertEquals("Puma", referenceData.findBrand(3L).orElseThrow().getName());
+        verify(bRepository, times(2)).findAll();
+    }
+
+    @Test
+    public void looksUpTheMissingIdsInTheDatabase() {
+        assertFalse(referenceData.brandExists(4L));
+        verify(bRepository).existsById(4L);
+        verify(bRepository, times(1)).findAll();
+
+        when(bRepository.existsById(4L)).thenReturn(true);
+        when(bRepository.findAll()).thenReturn(List.of(brand(1, "nike"), brand(4, "Reebok")));
+        assertEquals("Reebok", referenceData.findBrand(4L).orElseThrow().getName());
+        assertTrue(referenceData.brandExists(4L));
+        verify(bRepository, times(2)).findAll();
+    }
+
+    @Test
+    public void returnsCopies() {
+        referenceData.findBrand(1L).orElseThrow().setName("changed");
+        assertEquals("nike", referenceData.findBrand(1L).orElseThrow().getName());
+    }
+
+    @Test
+    public void pagesInMemory() {
+        Page<Brand> page = referenceData.findBrands(null, PageRequest.of(0, 2, Sort.by("name")));
+        assertEquals(List.of("Adidas", "nike"), page.getContent().stream().map(Brand::getName).toList());
+        assertEquals(3, page.getTotalElements());
+        assertEquals(2, page.getTotalPages());
+
+        page = referenceData.findBrands("U", PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id")));
+        assertEquals(List.of(3L), page.getContent().stream().map(Brand::getId).toList());
+
+        assertEquals(List.of(2L, 1L), referenceData.findBrands(List.of(2L, 9L, 1L)).stream().map(Brand::getId).toList());
+        assertThrows(IllegalArgumentException.class,
+                () -> referenceData.findBrands(null, PageRequest.of(0, 2, Sort.by("unknown"))));
+    }
+}
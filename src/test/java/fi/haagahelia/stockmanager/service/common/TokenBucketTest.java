@@ -0,0 +1,51 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void burstUpToCapacityThenRefused() {
+        TokenBucket bucket = new TokenBucket(3, 1, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+        assertEquals(SECOND / 2, bucket.tryAcquire(SECOND / 2));
+    }
+
+    @Test
+    public void tokensAreRefilledOverTime() {
+        TokenBucket bucket = new TokenBucket(2, 2, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0) > 0);
+        assertEquals(0, bucket.tryAcquire(SECOND / 2));
+        assertTrue(bucket.tryAcquire(SECOND / 2) > 0);
+        assertFalse(bucket.isFull(SECOND / 2));
+        assertTrue(bucket.isFull(10 * SECOND));
+        assertEquals(0, bucket.tryAcquire(10 * SECOND));
+        assertEquals(0, bucket.tryAcquire(10 * SECOND));
+        assertTrue(bucket.tryAcquire(10 * SECOND) > 0);
+    }
+
+    @Test
+    public void refusedRequestsDoNotTakeTokens() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        for (int i = 0; i < 10; i++) assertTrue(bucket.tryAcquire(0) > 0);
+        assertEquals(0, bucket.tryAcquire(SECOND));
+    }
+
+    @Test
+    public void invalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, 0));
+    }
+}
@@ -0,0 +1,120 @@
+package fi.haagahelia.stockmanager.service.common;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class UniquenessGuardTest {
+
+    private EntityManager em;
+
+    private static Query query(List<?> rows) {
+        Query query = mock(Query.class);
+        doReturn(rows).when(query).getResultList();
+        return query;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        em = mock(EntityManager.class);
+        Query empty = query(List.of());
+        when(em.createQuery(anyString())).thenReturn(empty);
+        Query brands = query(List.of("Nike", "Adidas"));
+        when(em.createQuery(UniqueKey.BRAND_NAME.selectQuery())).thenReturn(brands);
+        Query products = query(Collections.singletonList(new Object[]{"T7 Titan", 3L}));
+        when(em.createQuery(UniqueKey.PRODUCT_NAME_SUPPLIER.selectQuery())).thenReturn(products);
+    }
+
+    private UniquenessGuard guard(String exactThreshold) {
+        UniquenessGuard guard = new UniquenessGuard(new MockEnvironment()
+                .withProperty("uniqueness.exact-threshold", exactThreshold));
+        guard.setEm(em);
+        return guard;
+    }
+
+    @Test
+    public void alwaysMightExistBeforeLoading() {
+        UniquenessGuard guard = guard("10000");
+        assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, "Puma"));
+        assertEquals(0, guard.stats().get(UniqueKey.BRAND_NAME.ordinal()).skipped());
+    }
+
+    @Test
+    public void exactValues() {
+        UniquenessGuard guard = guard("10000");
+        guard.rebuild();
+        assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, " NIKE"));
+        assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, "Adídas"));
+        assertFalse(guard.mightExist(UniqueKey.BRAND_NAME, "Puma"));
+        assertFalse(guard.mightExist(UniqueKey.CUSTOMER_EMAIL, "john@doe.com"));
+        assertTrue(guard.mightExist(UniqueKey.PRODUCT_NAME_SUPPLIER, "t7 titan", 3L));
+        assertFalse(guard.mightExist(UniqueKey.PRODUCT_NAME_SUPPLIER, "T7 Titan", 4L));
+
+        guard.add(UniqueKey.BRAND_NAME, "Puma");
+        guard.update(UniqueKey.BRAND_NAME, "Puma");
+        assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, "Puma"));
+        guard.remove(UniqueKey.BRAND_NAME, "Puma");
+        assertFalse(guard.mightExist(UniqueKey.BRAND_NAME, "Puma"));
+
+        UniquenessGuard.KeyStats stats = guard.stats().get(UniqueKey.BRAND_NAME.ordinal());
+        assertTrue(stats.loaded());
+        assertTrue(stats.exact());
+        assertEquals(5, stats.checks());
+        assertEquals(2, stats.skipped());
+    }
+
+    @Test
+    public void bloomValuesAboveTheThreshold() {
+        UniquenessGuard guard = guard("1");
+        guard.rebuild();
+        assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, "nike"));
+        assertFalse(guard.stats().get(UniqueKey.BRAND_NAME.ordinal()).exact());
+        guard.add(UniqueKey.BRAND_NAME, "Puma");
+        guard.remove(UniqueKey.BRAND_NAME, "Puma");
+        assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, "Puma"));
+    }
+
+    @Test
+    public void removeInTransactionWaitsForTheCommit() {
+        UniquenessGuard guard = guard("10000");
+        guard.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            guard.remove(UniqueKey.BRAND_NAME, "Nike");
+            assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, "Nike"));
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            assertTrue(guard.mightExist(UniqueKey.BRAND_NAME, "Nike"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            guard.remove(UniqueKey.BRAND_NAME, "Nike");
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            assertFalse(guard.mightExist(UniqueKey.BRAND_NAME, "Nike"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void failedLoadingKeepsTheQueries() {
+        when(em.createQuery(UniqueKey.CUSTOMER_EMAIL.selectQuery())).thenThrow(new IllegalStateException("down"));
+        UniquenessGuard guard = guard("10000");
+        guard.rebuild();
+        assertTrue(guard.mightExist(UniqueKey.CUSTOMER_EMAIL, "john@doe.com"));
+        assertFalse(guard.mightExist(UniqueKey.EMPLOYEE_EMAIL, "john@doe.com"));
+    }
+}
@@ -0,0 +1,147 @@
+package fi.haagahelia.stockmanager.service.order;
+
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
+import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrderLine;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class ReplenishmentServiceTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private ReplenishmentService replenishmentService;
+
+    private Supplier samsung;
+    private Supplier kingston;
+    private Product t7Titan;
+    private Product evo870;
+    private Product fury;
+
+    @BeforeEach
+    public void setUp() {
+        EntityManager em = testEntityManager.getEntityManager();
+        replenishmentService = new ReplenishmentService(new MockEnvironment());
+        replenishmentService.setEm(em);
+
+        em.createQuery("DELETE SupplierOrderLine ").executeUpdate();
+        em.createQuery("DELETE SupplierOrder").executeUpdate();
+        em.createQuery("DELETE Product").executeUpdate();
+        em.createQuery("DELETE Supplier").executeUpdate();
+        em.createQuery("DELETE Category").executeUpdate();
+        em.createQuery("DELETE Brand").executeUpdate();
+        log.info("REPLENISHMENT SERVICE TEST - INIT - DATABASE CLEARED.");
+
+        Brand brand = new Brand("Samsung");
+        em.persist(brand);
+        Category category = new Category("SSD", "This is for SSD storages.");
+        em.persist(category);
+
+        samsung = new Supplier("Samsung - Supplier", "supplier@samsung.com", "03443242", null);
+        em.persist(samsung);
+        kingston = new Supplier("Kingston - Supplier", "supplier@kingston.com", "03443243", null);
+        em.persist(kingston);
+
+        // Low stock: target = 20 * 2 = 40, missing = 30, batches of 30 -> 1 batch
+        t7Titan = new Product("T7 TITAN", "This is a T7 1TB.", 100.0, 120.50, 10, 20, 30, brand, category, samsung);
+        em.persist(t7Titan);
+        // Not low stock
+        evo870 = new Product("870 EVO", "This is a 870 EVO.", 130.30, 160.20, 20, 15, 25, brand, category, samsung);
+        em.persist(evo870);
+        // Low stock: target = 10 * 2 = 20, missing = 20, batches of 6 -> 4 batches
+        fury = new Product("FURY", "This is a Kingston FURY.", 50.0, 70.0, 0, 10, 6, brand, category, kingston);
+        em.persist(fury);
+        log.info("REPLENISHMENT SERVICE TEST - INIT - Products saved.");
+    }
+
+    @Test
+    public void computeBatches() {
+        assertEquals(1, ReplenishmentService.computeBatches(10, 20, 30, 2.0));
+        assertEquals(4, ReplenishmentService.computeBatches(0, 10, 6, 2.0));
+        assertEquals(0, ReplenishmentService.computeBatches(50, 20, 30, 2.0));
+        // The target is always above the minimal stock
+        assertEquals(1, ReplenishmentService.computeBatches(5, 5, 10, 1.0));
+        // A missing batch size is considerate as a single unit
+        assertEquals(7, ReplenishmentService.computeBatches(3, 5, 0, 2.0));
+    }
+
+    @Test
+    public void draftOrders() {
+        // Execution
+        List<Long> orderIds = replenishmentService.draftOrders();
+        log.info("REPLENISHMENT SERVICE TEST - DRAFT ORDERS - Execution done.");
+        // Verification
+        EntityManager em = testEntityManager.getEntityManager();
+        assertEquals(2, orderIds.size());
+        for (Long orderId : orderIds) {
+            SupplierOrder order = em.find(SupplierOrder.class, orderId);
+            assertFalse(order.getOrderIsSent());
+            assertFalse(order.getReceived());
+            List<SupplierOrderLine> lines = em.createQuery("SELECT line FROM SupplierOrderLine line " +
+                    "WHERE line.supplierOrder.id = ?1", SupplierOrderLine.class).setParameter(1, orderId).getResultList();
+            assertEquals(1, lines.size());
+            SupplierOrderLine line = lines.get(0);
+            if (order.getSupplier().getId().equals(samsung.getId())) {
+                assertEquals(t7Titan.getId(), line.getProduct().getId());
+                assertEquals(1, line.getQuantity());
+            } else {
+                assertEquals(kingston.getId(), order.getSupplier().getId());
+                assertEquals(fury.getId(), line.getProduct().getId());
+                assertEquals(4, line.getQuantity());
+            }
+        }
+        log.info("REPLENISHMENT SERVICE TEST - DRAFT ORDERS - Verifications done.");
+    }
+
+    @Test
+    public void draftOrdersIgnoresPendingProducts() {
+        // Initialization
+        EntityManager em = testEntityManager.getEntityManager();
+        SupplierOrder pendingOrder = new SupplierOrder(LocalDate.now(), LocalDate.now().plusDays(7), true, false, kingston);
+        em.persist(pendingOrder);
+        em.persist(new SupplierOrderLine(4, 50.0, pendingOrder, fury));
+        // Execution
+        List<Long> orderIds = replenishmentService.draftOrders();
+        // Verification
+        assertEquals(1, orderIds.size());
+        assertEquals(samsung.getId(), em.find(SupplierOrder.class, orderIds.get(0)).getSupplier().getId());
+        log.info("REPLENISHMENT SERVICE TEST - DRAFT ORDERS IGNORES PENDING PRODUCTS - Verifications done.");
+    }
+
+    @Test
+    public void draftOrdersForGivenProducts() {
+        // Execution
+        List<Long> orderIds = replenishmentService.draftOrders(List.of(fury.getId(), evo870.getId()));
+        // Verification
+        EntityManager em = testEntityManager.getEntityManager();
+        assertEquals(1, orderIds.size());
+        assertEquals(kingston.getId(), em.find(SupplierOrder.class, orderIds.get(0)).getSupplier().getId());
+        log.info("REPLENISHMENT SERVICE TEST - DRAFT ORDERS FOR GIVEN PRODUCTS - Verifications done.");
+    }
+}
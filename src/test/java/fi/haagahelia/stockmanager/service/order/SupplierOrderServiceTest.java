@@ -9,12 +9,14 @@ import fi.haagahelia.stockmanager.model.product.category.Category;
 import fi.haagahelia.stockmanager.model.supplier.Supplier;
 import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrder;
 import fi.haagahelia.stockmanager.model.supplier.order.SupplierOrderLine;
+import fi.haagahelia.stockmanager.service.product.ProductCacheService;
 import jakarta.persistence.EntityManager;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -39,6 +41,9 @@ public class SupplierOrderServiceTest {
     @Autowired
     private TestEntityManager testEntityManager;
 
+    @Mock
+    private ProductCacheService productCache;
+
     @InjectMocks
     private SupplierOrderService supplierOrderService;
 
@@ -0,0 +1,61 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.dto.product.ProductCompleteDTO;
+import fi.haagahelia.stockmanager.dto.product.ProductSimpleDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCacheServiceTest {
+
+    private ProductCacheService cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new ProductCacheService(10, 60_000);
+    }
+
+    @Test
+    public void putAndGetTheRevision() {
+        ProductSimpleDTO product = ProductSimpleDTO.builder().id(1L).name("Phone").build();
+        cache.putSimple(1L, product, 3L, cache.generation());
+        assertSame(product, cache.getSimple(1L).product());
+        assertEquals(3, cache.getSimple(1L).revision());
+        assertNull(cache.getComplete(1L));
+    }
+
+    @Test
+    public void putIgnoresProductsReadBeforeTheCommitOfAnUpdate() {
+        // A request reads the product, and an update of the product is committed before the request puts it.
+        long generation = cache.generation();
+        ProductSimpleDTO oldProduct = ProductSimpleDTO.builder().id(1L).name("Old phone").build();
+        ProductCompleteDTO oldDetails = ProductCompleteDTO.builder().id(1L).name("Old phone").build();
+        cache.invalidate(1L);
+        cache.putSimple(1L, oldProduct, 3L, generation);
+        cache.putComplete(1L, oldDetails, 3L, generation);
+        assertNull(cache.getSimple(1L));
+        assertNull(cache.getComplete(1L));
+        // A request that reads the product after the commit can cache it again.
+        ProductSimpleDTO newProduct = ProductSimpleDTO.builder().id(1L).name("New phone").build();
+        cache.putSimple(1L, newProduct, 4L, cache.generation());
+        assertSame(newProduct, cache.getSimple(1L).product());
+    }
+
+    @Test
+    public void putKeepsTheProductsNotModified() {
+        long generation = cache.generation();
+        cache.invalidate(2L);
+        ProductSimpleDTO product = ProductSimpleDTO.builder().id(1L).name("Phone").build();
+        cache.putSimple(1L, product, 3L, generation);
+        assertSame(product, cache.getSimple(1L).product());
+    }
+
+    @Test
+    public void putIgnoresProductsReadBeforeInvalidateAll() {
+        long generation = cache.generation();
+        cache.invalidateAll();
+        cache.putSimple(1L, ProductSimpleDTO.builder().id(1L).name("Phone").build(), 3L, generation);
+        assertNull(cache.getSimple(1L));
+    }
+}
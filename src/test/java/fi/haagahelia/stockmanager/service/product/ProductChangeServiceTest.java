@@ -0,0 +1,66 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.model.product.ProductChange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductChangeServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private static ProductChange change(long id, long productId, boolean deleted) {
+        return new ProductChange(id, productId, deleted, NOW);
+    }
+
+    @Test
+    public void collapsesTheChangesOfAProduct() {
+        List<ProductChange> changes = List.of(change(11, 1, false), change(12, 2, false), change(13, 1, false),
+                change(14, 2, true), change(15, 3, true), change(16, 3, false));
+        ProductChangeService.ChangeBatch batch = ProductChangeService.collect(10, changes,
+                List.of(11L, 12L, 13L, 14L, 15L, 16L), 10);
+        assertEquals(16, batch.token());
+        assertFalse(batch.hasMore());
+        assertEquals(List.of(1L, 3L), batch.upserted());
+        assertEquals(List.of(2L), batch.deleted());
+    }
+
+    @Test
+    public void stopsBeforeAPendingChange() {
+        List<ProductChange> changes = List.of(change(11, 1, false), change(13, 2, false));
+        ProductChangeService.ChangeBatch batch = ProductChangeService.collect(10, changes, List.of(11L, 12L, 13L), 10);
+        assertEquals(11, batch.token());
+        assertFalse(batch.hasMore());
+        assertEquals(List.of(1L), batch.upserted());
+    }
+
+    @Test
+    public void skipsTheIdsOfRolledBackChanges() {
+        List<ProductChange> changes = List.of(change(13, 1, false), change(14, 2, false));
+        ProductChangeService.ChangeBatch batch = ProductChangeService.collect(10, changes, List.of(13L, 14L), 10);
+        assertEquals(14, batch.token());
+        assertEquals(List.of(1L, 2L), batch.upserted());
+    }
+
+    @Test
+    public void doesNotNeedContiguousIds() {
+        List<ProductChange> changes = List.of(change(12, 1, false), change(14, 2, false), change(18, 3, false));
+        ProductChangeService.ChangeBatch batch = ProductChangeService.collect(10, changes,
+                List.of(12L, 14L, 16L, 18L), 10);
+        assertEquals(14, batch.token());
+        assertEquals(List.of(1L, 2L), batch.upserted());
+    }
+
+    @Test
+    public void limitsTheBatch() {
+        List<ProductChange> changes = List.of(change(1, 1, false), change(2, 2, false), change(3, 3, false));
+        ProductChangeService.ChangeBatch batch = ProductChangeService.collect(0, changes, List.of(1L, 2L, 3L), 2);
+        assertEquals(2, batch.token());
+        assertTrue(batch.hasMore());
+        assertEquals(List.of(1L, 2L), batch.upserted());
+        assertTrue(batch.deleted().isEmpty());
+    }
+}
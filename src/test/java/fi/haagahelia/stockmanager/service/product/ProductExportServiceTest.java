@@ -0,0 +1,109 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class ProductExportServiceTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private ProductExportService exportService;
+
+    private Product t7Titan;
+
+    @BeforeEach
+    public void setUp() {
+        EntityManager em = testEntityManager.getEntityManager();
+        exportService = new ProductExportService(emf, new MockEnvironment());
+
+        em.createQuery("DELETE SupplierOrderLine").executeUpdate();
+        em.createQuery("DELETE CustomerOrderLine").executeUpdate();
+        em.createQuery("DELETE Product").executeUpdate();
+        em.createQuery("DELETE Supplier").executeUpdate();
+        em.createQuery("DELETE Category").executeUpdate();
+        em.createQuery("DELETE Brand").executeUpdate();
+        log.info("PRODUCT EXPORT SERVICE TEST - INIT - DATABASE CLEARED.");
+
+        Brand brand = new Brand("Samsung");
+        em.persist(brand);
+        Category category = new Category("SSD", "This is for SSD storages.");
+        em.persist(category);
+        Supplier supplier = new Supplier("Samsung - Supplier", "supplier@samsung.com", "03443242", null);
+        em.persist(supplier);
+        t7Titan = new Product("T7 TITAN", "Portable SSD, \"1TB\"", 100.0, 120.50, 10, 20, 30, brand, category, supplier);
+        em.persist(t7Titan);
+        em.persist(new Product("870 EVO", "This is a 870 EVO.", 130.30, 160.20, 20, 15, 25, brand, category, supplier));
+        em.getTransaction().commit();
+        log.info("PRODUCT EXPORT SERVICE TEST - INIT - Products saved.");
+    }
+
+    @Test
+    public void escapeCsv() {
+        assertEquals("", ProductExportService.escapeCsv(null));
+        assertEquals("12.5", ProductExportService.escapeCsv(12.5));
+        assertEquals("\"a, b\"", ProductExportService.escapeCsv("a, b"));
+        assertEquals("\"say \"\"hi\"\"\"", ProductExportService.escapeCsv("say \"hi\""));
+    }
+
+    @Test
+    public void exportCsv() throws IOException {
+        // Execution
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, CatalogFormat.CSV);
+        log.info("PRODUCT EXPORT SERVICE TEST - EXPORT CSV - Execution done.");
+        // Verification
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("id,name,description,purchasePrice"));
+        assertTrue(lines[1].startsWith(t7Titan.getId() + ",T7 TITAN,\"Portable SSD, \"\"1TB\"\"\",100.0,120.5,10,20,30,"));
+        assertTrue(lines[1].contains(",Samsung,"));
+        assertTrue(lines[2].contains(",870 EVO,"));
+        log.info("PRODUCT EXPORT SERVICE TEST - EXPORT CSV - Verifications done.");
+    }
+
+    @Test
+    public void exportNdjson() throws IOException {
+        // Execution
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, CatalogFormat.NDJSON);
+        // Verification
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":" + t7Titan.getId() + ",\"name\":\"T7 TITAN\""));
+        assertTrue(lines[0].contains("\"brandName\":\"Samsung\""));
+        assertTrue(lines[1].contains("\"name\":\"870 EVO\""));
+        log.info("PRODUCT EXPORT SERVICE TEST - EXPORT NDJSON - Verifications done.");
+    }
+}
@@ -0,0 +1,175 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.dto.product.ProductCuDTO;
+import fi.haagahelia.stockmanager.dto.product.ProductImportReportDTO;
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import fi.haagahelia.stockmanager.service.common.AutocompleteService;
+import fi.haagahelia.stockmanager.service.common.CollectionVersionService;
+import fi.haagahelia.stockmanager.service.common.UniquenessGuard;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class ProductImportServiceTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ProductImportService importService;
+    private ProductSearchService searchService;
+
+    private Brand brand;
+    private Category category;
+    private Supplier supplier;
+
+    @BeforeEach
+    public void setUp() {
+        EntityManager em = testEntityManager.getEntityManager();
+        searchService = new ProductSearchService();
+        importService = new ProductImportService(jdbcTemplate, transactionManager, new UniquenessGuard(new MockEnvironment()),
+                searchService, new AutocompleteService(), new CollectionVersionService(jdbcTemplate, transactionManager),
+                new MockEnvironment().withProperty("import.products.batch-size", "2"));
+        importService.setEm(em);
+
+        em.createQuery("DELETE SupplierOrderLine").executeUpdate();
+        em.createQuery("DELETE CustomerOrderLine").executeUpdate();
+        em.createQuery("DELETE Product").executeUpdate();
+        em.createQuery("DELETE Supplier").executeUpdate();
+        em.createQuery("DELETE Category").executeUpdate();
+        em.createQuery("DELETE Brand").executeUpdate();
+        log.info("PRODUCT IMPORT SERVICE TEST - INIT - DATABASE CLEARED.");
+
+        brand = new Brand("Samsung");
+        em.persist(brand);
+        category = new Category("SSD", "This is for SSD storages.");
+        em.persist(category);
+        supplier = new Supplier("Samsung - Supplier", "supplier@samsung.com", "03443242", null);
+        em.persist(supplier);
+        em.persist(new Product("T7 TITAN", "This is a T7 1TB.", 100.0, 120.50, 10, 20, 30, brand, category, supplier));
+        em.flush();
+        log.info("PRODUCT IMPORT SERVICE TEST - INIT - Reference data saved.");
+    }
+
+    private long countProducts() {
+        return testEntityManager.getEntityManager().createQuery("SELECT COUNT(p) FROM Product p", Long.class).getSingleResult();
+    }
+
+    @Test
+    public void splitCsv() {
+        assertEquals(List.of("a", "b", "c"), ProductImportService.splitCsv("a, b ,c"));
+        assertEquals(List.of("a, b", "say \"hi\"", ""), ProductImportService.splitCsv("\"a, b\",\"say \"\"hi\"\"\","));
+    }
+
+    @Test
+    public void toProduct() {
+        List<String> header = List.of("name", "stock", "supplierid", "unknown");
+        ProductCuDTO product = ProductImportService.toProduct(header, List.of("870 EVO", "12", "3", "x"));
+        assertEquals("870 EVO", product.getName());
+        assertEquals(12, product.getStock());
+        assertEquals(3L, product.getSupplierId());
+        assertThrows(NumberFormatException.class, () -> ProductImportService.toProduct(header, List.of("870 EVO", "twelve")));
+    }
+
+    @Test
+    public void importCsv() throws IOException {
+        // Initialization
+        String csv = "name,description,purchasePrice,salePrice,stock,minStock,batchSize,brandId,categoryId,supplierId\n" +
+                "870 EVO,\"SSD, 1TB\",130.3,160.2,20,15,25," + brand.getId() + "," + category.getId() + "," + supplier.getId() + "\n" +
+                "980 PRO,NVMe SSD,150,190,5,10,10," + brand.getId() + "," + category.getId() + "," + supplier.getId() + "\n" +
+                "T7 TITAN,Duplicate,100,120,10,20,30," + brand.getId() + "," + category.getId() + "," + supplier.getId() + "\n" +
+                "870 EVO,Duplicate in file,130.3,160.2,20,15,25," + brand.getId() + "," + category.getId() + "," + supplier.getId() + "\n" +
+                "Unknown brand,SSD,1,2,3,4,5,99999," + category.getId() + "," + supplier.getId() + "\n" +
+                "Bad number,SSD,abc,2,3,4,5," + brand.getId() + "," + category.getId() + "," + supplier.getId() + "\n";
+        // Execution
+        ProductImportReportDTO report = importService.importProducts(new StringReader(csv), CatalogFormat.CSV);
+        log.info("PRODUCT IMPORT SERVICE TEST - IMPORT CSV - Execution done.");
+        // Verification
+        assertEquals(6, report.getTotalRows());
+        assertEquals(2, report.getImportedRows());
+        assertEquals(4, report.getFailedRows());
+        assertEquals(3, countProducts());
+        assertEquals(1, searchService.search("evo", 10).size());
+        assertEquals("PRODUCT_ALREADY_EXISTS", report.getErrors().get(0).getError());
+        assertEquals(4, report.getErrors().get(0).getRow());
+        assertTrue(report.getErrors().stream().anyMatch(e -> e.getRow() == 5 && e.getError().equals("PRODUCT_ALREADY_EXISTS")));
+        assertTrue(report.getErrors().stream().anyMatch(e -> e.getRow() == 6 && e.getError().equals("PRODUCT_INVALID_BRAND_ID")));
+        assertTrue(report.getErrors().stream().anyMatch(e -> e.getRow() == 7 && e.getError().equals("PRODUCT_INVALID_ROW")));
+        log.info("PRODUCT IMPORT SERVICE TEST - IMPORT CSV - Verifications done.");
+    }
+
+    @Test
+    public void importExistingProductsUnknownToTheGuard() throws IOException {
+        // Initialization
+        // The mocked guard answers that no product might exist, so the existing products are not looked for.
+        UniquenessGuard guard = mock(UniquenessGuard.class);
+        ProductImportService service = new ProductImportService(jdbcTemplate, transactionManager, guard, searchService,
+                new AutocompleteService(), new CollectionVersionService(jdbcTemplate, transactionManager),
+                new MockEnvironment().withProperty("import.products.batch-size", "2"));
+        service.setEm(testEntityManager.getEntityManager());
+        String csv = "name,description,purchasePrice,salePrice,stock,minStock,batchSize,brandId,categoryId,supplierId\n" +
+                "T7 TITAN,Duplicate,100,120,10,20,30," + brand.getId() + "," + category.getId() + "," + supplier.getId() + "\n" +
+                "870 EVO,SSD,130.3,160.2,20,15,25," + brand.getId() + "," + category.getId() + "," + supplier.getId() + "\n";
+        // Execution
+        ProductImportReportDTO report = service.importProducts(new StringReader(csv), CatalogFormat.CSV);
+        // Verification
+        assertEquals(2, report.getTotalRows());
+        assertEquals(1, report.getImportedRows());
+        assertEquals(1, report.getFailedRows());
+        assertEquals("PRODUCT_ALREADY_EXISTS", report.getErrors().get(0).getError());
+        assertEquals(2, report.getErrors().get(0).getRow());
+        assertEquals(2, countProducts());
+        log.info("PRODUCT IMPORT SERVICE TEST - IMPORT EXISTING PRODUCTS UNKNOWN TO THE GUARD - Verifications done.");
+    }
+
+    @Test
+    public void importNdjson() throws IOException {
+        // Initialization
+        String ndjson = "{\"name\":\"870 EVO\",\"description\":\"SSD\",\"purchasePrice\":130.3,\"salePrice\":160.2," +
+                "\"stock\":20,\"minStock\":15,\"batchSize\":25,\"brandId\":" + brand.getId() + ",\"categoryId\":" +
+                category.getId() + ",\"supplierId\":" + supplier.getId() + "}\n" +
+                "{\"name\":\"No description\",\"purchasePrice\":1}\n";
+        // Execution
+        ProductImportReportDTO report = importService.importProducts(new StringReader(ndjson), CatalogFormat.NDJSON);
+        // Verification
+        assertEquals(2, report.getTotalRows());
+        assertEquals(1, report.getImportedRows());
+        assertEquals(1, report.getFailedRows());
+        assertEquals("PRODUCT_INVALID_DESCRIPTION", report.getErrors().get(0).getError());
+        assertEquals(2, countProducts());
+        log.info("PRODUCT IMPORT SERVICE TEST - IMPORT NDJSON - Verifications done.");
+    }
+}
@@ -0,0 +1,128 @@
+package fi.haagahelia.stockmanager.service.product;
+
+import fi.haagahelia.stockmanager.model.product.Product;
+import fi.haagahelia.stockmanager.model.product.brand.Brand;
+import fi.haagahelia.stockmanager.model.product.category.Category;
+import fi.haagahelia.stockmanager.model.supplier.Supplier;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Log4j2
+public class ProductSearchServiceTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private ProductSearchService searchService;
+
+    private Product titan;
+    private Product evo;
+    private Product keyboard;
+    private Brand samsung;
+    private Category ssd;
+    private Supplier supplier;
+
+    @BeforeEach
+    public void setUp() {
+        EntityManager em = testEntityManager.getEntityManager();
+        searchService = new ProductSearchService();
+        searchService.setEm(em);
+
+        em.createQuery("DELETE SupplierOrderLine").executeUpdate();
+        em.createQuery("DELETE CustomerOrderLine").executeUpdate();
+        em.createQuery("DELETE Product").executeUpdate();
+        em.createQuery("DELETE Supplier").executeUpdate();
+        em.createQuery("DELETE Category").executeUpdate();
+        em.createQuery("DELETE Brand").executeUpdate();
+        log.info("PRODUCT SEARCH SERVICE TEST - INIT - DATABASE CLEARED.");
+
+        samsung = new Brand("Samsung");
+        em.persist(samsung);
+        Brand logitech = new Brand("Logitech");
+        em.persist(logitech);
+        ssd = new Category("SSD", "This is for SSD storages.");
+        em.persist(ssd);
+        Category keyboards = new Category("Keyboards", "This is for keyboards.");
+        em.persist(keyboards);
+        supplier = new Supplier("Samsung - Supplier", "supplier@samsung.com", "03443242", null);
+        em.persist(supplier);
+
+        titan = new Product("T7 TITAN", "This is a portable SSD of 1TB.", 100.0, 120.50, 10, 20, 30, samsung, ssd, supplier);
+        em.persist(titan);
+        evo = new Product("870 EVO", "This is an internal drive, faster than the Titan.", 130.30, 160.20, 20, 15, 25, samsung, ssd, supplier);
+        em.persist(evo);
+        keyboard = new Product("MX Keys", "This is a wireless keyboard.", 80.0, 110.0, 5, 2, 10, logitech, keyboards, supplier);
+        em.persist(keyboard);
+        em.flush();
+        log.info("PRODUCT SEARCH SERVICE TEST - INIT - 3 products saved.");
+
+        searchService.rebuild();
+    }
+
+    @Test
+    public void searchRanksNameBeforeDescription() {
+        assertEquals(List.of(titan.getId(), evo.getId()), searchService.search("titan", 10));
+    }
+
+    @Test
+    public void searchAllTokensMustMatch() {
+        assertEquals(List.of(evo.getId()), searchService.search("samsung 870", 10));
+        assertEquals(List.of(), searchService.search("samsung keyboard", 10));
+    }
+
+    @Test
+    public void searchByPrefixAndBrand() {
+        assertEquals(List.of(keyboard.getId()), searchService.search("logi", 10));
+        assertEquals(2, searchService.search("sams", 10).size());
+    }
+
+    @Test
+    public void searchToleratesTypos() {
+        assertEquals(List.of(keyboard.getId()), searchService.search("wireles keyborad", 10));
+    }
+
+    @Test
+    public void searchIgnoresAccentsAndCase() {
+        assertEquals(List.of(titan.getId()), searchService.search("PÔRTABLE", 10));
+    }
+
+    @Test
+    public void searchNonLatinWords() {
+        Product drive = new Product("Привет Диск", "Внешний SSD-диск.", 70.0, 90.0, 20, 15, 25, samsung, ssd, supplier);
+        testEntityManager.persist(drive);
+        searchService.index(drive);
+        assertEquals(List.of("внешнии", "ssd", "диск"), ProductSearchService.tokenize("Внешний SSD-диск."));
+        assertEquals(List.of(drive.getId()), searchService.search("диск", 10));
+    }
+
+    @Test
+    public void indexAndRemove() {
+        Product qvo = new Product("870 QVO", "A cheaper drive.", 70.0, 90.0, 20, 15, 25, samsung, ssd, supplier);
+        testEntityManager.persist(qvo);
+        searchService.index(qvo);
+        assertEquals(List.of(qvo.getId()), searchService.search("qvo", 10));
+        searchService.remove(qvo.getId());
+        assertEquals(List.of(), searchService.search("qvo", 10));
+        searchService.remove(evo.getId());
+        assertEquals(List.of(titan.getId()), searchService.search("titan", 10));
+    }
+}
@@ -0,0 +1,66 @@
+package fi.haagahelia.stockmanager.service.user;
+
+import fi.haagahelia.stockmanager.model.user.Employee;
+import fi.haagahelia.stockmanager.repository.user.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BlockedEmployeeServiceTest {
+
+    private EmployeeRepository employeeRepository;
+    private BlockedEmployeeService blockedEmployees;
+
+    @BeforeEach
+    public void setUp() {
+        employeeRepository = mock(EmployeeRepository.class);
+        when(employeeRepository.findBlockedIds()).thenReturn(List.of(1L, 2L));
+        blockedEmployees = new BlockedEmployeeService(employeeRepository);
+    }
+
+    @Test
+    public void isBlockedLoadsTheSetOnce() {
+        assertTrue(blockedEmployees.isBlocked(1L));
+        assertTrue(blockedEmployees.isBlocked(2L));
+        assertFalse(blockedEmployees.isBlocked(3L));
+        assertFalse(blockedEmployees.isBlocked(null));
+        verify(employeeRepository, times(1)).findBlockedIds();
+    }
+
+    @Test
+    public void blockAndUpdateChangeTheSet() {
+        blockedEmployees.refresh();
+        blockedEmployees.block(3L);
+        assertTrue(blockedEmployees.isBlocked(3L));
+
+        Employee employee = new Employee("blocked@haaga-helia.fi", "blockedUser", "John", "Doe", "AAAA", true, false);
+        employee.setId(1L);
+        blockedEmployees.update(employee);
+        assertFalse(blockedEmployees.isBlocked(1L));
+
+        employee.setActive(false);
+        blockedEmployees.update(employee);
+        assertTrue(blockedEmployees.isBlocked(1L));
+    }
+
+    @Test
+    public void refreshReplacesTheSet() {
+        blockedEmployees.refresh();
+        when(employeeRepository.findBlockedIds()).thenReturn(List.of(2L));
+        blockedEmployees.refresh();
+        assertFalse(blockedEmployees.isBlocked(1L));
+        assertTrue(blockedEmployees.isBlocked(2L));
+    }
+
+    @Test
+    public void failedRefreshKeepsTheSet() {
+        blockedEmployees.refresh();
+        when(employeeRepository.findBlockedIds()).thenThrow(new RuntimeException("database unavailable"));
+        blockedEmployees.refresh();
+        assertTrue(blockedEmployees.isBlocked(1L));
+    }
+}
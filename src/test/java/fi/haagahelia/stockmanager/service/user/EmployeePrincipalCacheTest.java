@@ -0,0 +1,79 @@
+package fi.haagahelia.stockmanager.service.user;
+
+import fi.haagahelia.stockmanager.model.user.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeePrincipalCacheTest {
+
+    private AtomicLong now;
+    private EmployeePrincipalCache cache;
+    private Employee employee;
+    private Map<Long, Integer> versions;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        versions = new HashMap<>();
+        cache = new EmployeePrincipalCache(10, 1000, now::get,
+                (employeeId, tokenVersion) -> tokenVersion >= versions.getOrDefault(employeeId, 0));
+        employee = new Employee("cache@haaga-helia.fi", "cacheUser", "John", "Doe", "AAAA", true, false);
+        employee.setId(1L);
+    }
+
+    @Test
+    public void getReturnsTheCachedEmployee() {
+        assertNull(cache.get("token"));
+        cache.put("token", employee, new Date(10_000), 0, cache.generation());
+        assertSame(employee, cache.get("token"));
+        assertNull(cache.get("other-token"));
+    }
+
+    @Test
+    public void getDropsExpiredEntries() {
+        cache.put("short-token", employee, new Date(500), 0, cache.generation());
+        cache.put("long-token", employee, new Date(10_000), 0, cache.generation());
+        now.set(500);
+        assertNull(cache.get("short-token"));
+        assertSame(employee, cache.get("long-token"));
+        now.set(1000);
+        assertNull(cache.get("long-token"));
+    }
+
+    @Test
+    public void invalidateDropsTheEntriesOfTheEmployee() {
+        Employee other = new Employee("other@haaga-helia.fi", "otherUser", "Jane", "Doe", "AAAA", true, false);
+        other.setId(2L);
+        cache.put("token", employee, new Date(10_000), 0, cache.generation());
+        cache.put("other-token", other, new Date(10_000), 0, cache.generation());
+        cache.invalidate(1L);
+        assertNull(cache.get("token"));
+        assertSame(other, cache.get("other-token"));
+        cache.put("new-token", employee, new Date(10_000), 0, cache.generation());
+        assertSame(employee, cache.get("new-token"));
+    }
+
+    @Test
+    public void putIgnoresEmployeesModifiedWhileLoading() {
+        long generation = cache.generation();
+        cache.invalidate(1L);
+        cache.put("token", employee, new Date(10_000), 0, generation);
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    public void getDropsRevokedTokens() {
+        cache.put("token", employee, new Date(10_000), 0, cache.generation());
+        cache.put("new-token", employee, new Date(10_000), 1, cache.generation());
+        versions.put(1L, 1);
+        assertNull(cache.get("token"));
+        assertSame(employee, cache.get("new-token"));
+    }
+}